@@ -0,0 +1,240 @@
+package com.bookingservice.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes audit events as structured records straight to the log-chain raw topic, in the shape
+ * the normalizer reads (timestamp, level, message, source, app, env), instead of free-text log
+ * lines scraped from the log files.
+ *
+ * publish() never blocks the calling thread: the event is serialized, then queued (after commit
+ * when a transaction is active) in a bounded buffer that a single sender thread drains to Kafka
+ * in batches. The sender waits for each batch to be acknowledged; events whose send fails are
+ * retried in place after a backoff, before anything newer, so the events of one key stay in
+ * order. When the buffer is full, or on shutdown with events left, they are written as the old
+ * "MARKER: payload" log line instead, so the file route still picks them up.
+ *
+ * Every event is traced end to end by log-chain: it carries a trace id and its origin time as
+ * the lc-trace header and the "trace" field, and log-chain's /trace endpoints break down where
+ * the time went up to the ledger commit.
+ *
+ * With audit.kafka.enabled=false events are only logged, as before.
+ */
+@Slf4j
+@Component
+public class AuditEventPublisher {
+    // log-chain's trace context, "id;origin=<epoch millis>"
+    static final String TRACE_HEADER = "lc-trace";
+    static final String TRACE_FIELD = "trace";
+
+    record AuditRecord(String key, String json, String message, String trace) {
+    }
+
+    private final KafkaTemplate<String, String> kafka;
+    private final ObjectMapper mapper;
+    private final boolean enabled;
+    private final String topic;
+    private final String app;
+    private final String env;
+    private final int batchSize;
+    private final long retryBackoffMillis;
+    private final BlockingQueue<AuditRecord> buffer;
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+    // the batch being sent, then what of it is still undelivered; sender thread only
+    private final List<AuditRecord> unsent = new ArrayList<>();
+    private volatile boolean running = true;
+    private Thread sender;
+
+    public AuditEventPublisher(KafkaTemplate<String, String> kafka, ObjectMapper mapper,
+                               @Value("${audit.kafka.enabled:false}") boolean enabled,
+                               @Value("${audit.kafka.topic:sample_producer.raw.log}") String topic,
+                               @Value("${audit.app:bookingservice}") String app,
+                               @Value("${audit.env:prod}") String env,
+                               @Value("${audit.kafka.buffer-capacity:10000}") int bufferCapacity,
+                               @Value("${audit.kafka.batch-size:500}") int batchSize,
+                               @Value("${audit.kafka.retry-backoff-millis:1000}") long retryBackoffMillis) {
+        this.kafka = kafka;
+        this.mapper = mapper;
+        this.enabled = enabled;
+        this.topic = topic;
+        this.app = app;
+        this.env = env;
+        this.batchSize = batchSize;
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        sender = new Thread(this::sendLoop, "audit-event-sender");
+        sender.setDaemon(true);
+        sender.start();
+        log.info("Publishing audit events to {}", topic);
+    }
+
+    /**
+     * @param key     orders the events of one booking, e.g. the booking id
+     * @param payload serialized as JSON into the message
+     */
+    public void publish(AuditEventType type, String key, Object payload) {
+        if (!enabled) {
+            log.info("{}: {}", type.marker(), payload);
+            return;
+        }
+        AuditRecord record;
+        try {
+            record = toRecord(type, key, payload);
+        } catch (Exception e) {
+            log.warn("Audit event {} not serializable, logging it instead: {}", type.marker(), e.getMessage());
+            log.info("{}: {}", type.marker(), payload);
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // only what was committed is audited
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(record);
+                }
+            });
+        } else {
+            enqueue(record);
+        }
+    }
+
+    private AuditRecord toRecord(AuditEventType type, String key, Object payload) throws Exception {
+        String message = type.marker() + ": " + mapper.writeValueAsString(payload);
+        Instant now = Instant.now();
+        String traceId = UUID.randomUUID().toString();
+        ObjectNode node = mapper.createObjectNode()
+                .put("timestamp", now.toString())
+                .put("level", "INFO")
+                .put("message", message)
+                .put("source", "audit")
+                .put("app", app)
+                .put("env", env)
+                .put("event", type.marker());
+        node.putObject(TRACE_FIELD).put("id", traceId).put("origin", now.toEpochMilli());
+        return new AuditRecord(key, mapper.writeValueAsString(node), message, traceId + ";origin=" + now.toEpochMilli());
+    }
+
+    private void enqueue(AuditRecord record) {
+        if (!buffer.offer(record)) {
+            long n = overflowed.incrementAndGet();
+            if (n % 1000 == 1) {
+                log.warn("Audit buffer full, {} events written to the log instead", n);
+            }
+            log.info(record.message());
+        }
+    }
+
+    private void sendLoop() {
+        while (running) {
+            try {
+                if (unsent.isEmpty()) {
+                    AuditRecord first = buffer.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    unsent.add(first);
+                    buffer.drainTo(unsent, batchSize - 1);
+                }
+                List<AuditRecord> undelivered = send(unsent);
+                unsent.clear();
+                unsent.addAll(undelivered);
+                if (!unsent.isEmpty()) {
+                    Thread.sleep(retryBackoffMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sends the records in order and waits for the brokers; returns those not delivered, in order.
+     * Per partition the producer fails every send after a failed one (idempotence), so retrying
+     * them as a block keeps the events of a key in order.
+     */
+    private List<AuditRecord> send(List<AuditRecord> records) throws InterruptedException {
+        List<CompletableFuture<?>> sends = new ArrayList<>(records.size());
+        Throwable error = null;
+        for (AuditRecord record : records) {
+            try {
+                ProducerRecord<String, String> out = new ProducerRecord<>(topic, record.key(), record.json());
+                out.headers().add(TRACE_HEADER, record.trace().getBytes(StandardCharsets.UTF_8));
+                sends.add(kafka.send(out));
+            } catch (Exception e) {
+                // e.g. no metadata within max.block.ms; the rest is not sent ahead of this one
+                error = e;
+                break;
+            }
+        }
+        kafka.flush();
+        List<AuditRecord> undelivered = new ArrayList<>();
+        for (int i = 0; i < records.size(); i++) {
+            if (i >= sends.size()) {
+                undelivered.add(records.get(i));
+                continue;
+            }
+            try {
+                sends.get(i).get();
+            } catch (ExecutionException e) {
+                undelivered.add(records.get(i));
+                error = e.getCause();
+            }
+        }
+        if (!undelivered.isEmpty()) {
+            failed.addAndGet(undelivered.size());
+            log.warn("{} audit events not delivered to {}, retrying: {}", undelivered.size(), topic, error.getMessage());
+        }
+        return undelivered;
+    }
+
+    /**
+     * Stops the sender, waits for pending sends and logs what is still buffered.
+     */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (sender == null) {
+            return;
+        }
+        running = false;
+        sender.join(5_000);
+        kafka.flush();
+        // a sender still stuck on a send keeps its batch
+        List<AuditRecord> left = sender.isAlive() ? new ArrayList<>() : new ArrayList<>(unsent);
+        buffer.drainTo(left);
+        if (!left.isEmpty()) {
+            log.warn("{} audit events not delivered before shutdown, writing them to the log", left.size());
+            left.forEach(r -> log.info(r.message()));
+        }
+    }
+}
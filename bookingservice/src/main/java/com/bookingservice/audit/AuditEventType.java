@@ -0,0 +1,23 @@
+package com.bookingservice.audit;
+
+/**
+ * Booking and payment events anchored by log-chain. The marker starts the event's message and
+ * is what the bundler's filter matches.
+ */
+public enum AuditEventType {
+    BOOKING_CREATE("SMART-CONTRACT-BOOKING-CREATE"),
+    BOOKING_CANCEL("SMART-CONTRACT-BOOKING-CANCEL"),
+    PAYMENT_INITIATED("SMART-CONTRACT-PAYMENT-INITIATED"),
+    PAYMENT_SUCCESS("SMART-CONTRACT-PAYMENT-SUCCESS"),
+    PAYMENT_FAIL("SMART-CONTRACT-PAYMENT-FAIL");
+
+    private final String marker;
+
+    AuditEventType(String marker) {
+        this.marker = marker;
+    }
+
+    public String marker() {
+        return marker;
+    }
+}
@@ -1,6 +1,8 @@
 // src/main/java/com/bookingservice/controller/BookingController.java
 package com.bookingservice.controller;
 
+import com.bookingservice.audit.AuditEventPublisher;
+import com.bookingservice.audit.AuditEventType;
 import com.bookingservice.dto.*;
 import com.bookingservice.entities.Booking;
 import com.bookingservice.entities.Payment;
@@ -28,6 +30,7 @@ import org.springframework.web.bind.annotation.*;
 public class BookingController {
 
     private final BookingService bookingService;
+    private final AuditEventPublisher auditEvents;
 
 
 
@@ -67,7 +70,7 @@ public class BookingController {
             .status(booking.getStatus().name())
             .createdAt(booking.getCreatedAt())
             .build();
-        log.info("SMART-CONTRACT-BOOKING-CANCEL: {}", resp);
+        auditEvents.publish(AuditEventType.BOOKING_CANCEL, resp.getBookingId(), resp);
         return ResponseEntity.ok(resp);
     }
 
@@ -1,5 +1,7 @@
 package com.bookingservice.service;
 
+import com.bookingservice.audit.AuditEventPublisher;
+import com.bookingservice.audit.AuditEventType;
 import com.bookingservice.dto.*;
 import com.bookingservice.entities.Booking;
 import com.bookingservice.entities.Event;
@@ -29,6 +31,7 @@ public class BookingService {
     private final UserRepository userRepo;
     private final StripeService stripeService;
     private final PaymentRepository paymentRepository;
+    private final AuditEventPublisher auditEvents;
 
     public static String currentUserId() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -82,7 +85,7 @@ public class BookingService {
         StripeResponse stripeResponse = stripeService.checkoutProducts(productRequest);
         payment.setStripePaymentId(stripeResponse.getSessionId());
         paymentRepository.save(payment);
-        log.info("SMART-CONTRACT-PAYMENT-INITIATED: {}", stripeResponse);
+        auditEvents.publish(AuditEventType.PAYMENT_INITIATED, booking.getId(), stripeResponse);
 
         booking.setSessionUrl(stripeResponse.getSessionUrl());
         bookingRepo.save(booking);
@@ -98,7 +101,7 @@ public class BookingService {
             .sessionUrl(booking.getSessionUrl())
             .message(stripeResponse.getMessage())
             .build();
-        log.info("SMART-CONTRACT-BOOKING-CREATE: {}", resp);
+        auditEvents.publish(AuditEventType.BOOKING_CREATE, resp.getBookingId(), resp);
         return resp;
     }
 
@@ -1,5 +1,7 @@
 package com.bookingservice.service;
 
+import com.bookingservice.audit.AuditEventPublisher;
+import com.bookingservice.audit.AuditEventType;
 import com.bookingservice.dto.ProductRequest;
 import com.bookingservice.dto.StripeResponse;
 import com.bookingservice.entities.Booking;
@@ -24,6 +26,7 @@ public class PaymentService {
     private final StripeService stripeService;
     private final BookingRepository bookingRepository;
     private final PaymentRepository paymentRepository;
+    private final AuditEventPublisher auditEvents;
 
 
     /**
@@ -48,7 +51,7 @@ public class PaymentService {
         StripeResponse stripeResponse = stripeService.checkoutProducts(request);
         payment.setStripePaymentId(stripeResponse.getSessionId());
         savePayment(payment);
-        log.info("SMART-CONTRACT-PAYMENT-INITIATED: {}", stripeResponse);
+        auditEvents.publish(AuditEventType.PAYMENT_INITIATED, request.getBookingId(), stripeResponse);
         return stripeResponse;
     }
 
@@ -70,7 +73,7 @@ public class PaymentService {
                 payment.setPaidAt(
                     Instant.now());
                 paymentRepository.save(payment);
-                log.info("SMART-CONTRACT-PAYMENT-SUCCESS: {}", payment);
+                auditEvents.publish(AuditEventType.PAYMENT_SUCCESS, payment.getBookingId(), payment);
                 // Cập nhật booking thành CONFIRMED nếu có liên kết
                 Booking booking = bookingRepository.findById(payment.getBookingId())
                     .orElseThrow(() -> new IllegalArgumentException("Invalid booking id"));
@@ -89,7 +92,7 @@ public class PaymentService {
                 // Cập nhật lại trạng thái
                 payment.setPaymentStatus(PaymentStatus.FAILED);
                 paymentRepository.save(payment);
-                log.info("SMART-CONTRACT-PAYMENT-FAIL: {}", payment);
+                auditEvents.publish(AuditEventType.PAYMENT_FAIL, payment.getBookingId(), payment);
             });
     }
 }
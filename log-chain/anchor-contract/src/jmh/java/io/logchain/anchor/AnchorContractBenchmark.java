@@ -0,0 +1,87 @@
+package io.logchain.anchor;
+
+import org.hyperledger.fabric.contract.Context;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the contract itself on a ledger of a given size, through {@link InMemoryChaincodeStub}:
+ * no peer, gRPC or endorsement, only the chaincode logic, the anchor encoding and the key layout.
+ *
+ * putAnchor simulates the transaction and discards its writes, i.e. what the chaincode costs
+ * on an endorsing peer, so the ledger stays at the configured size during the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AnchorContractBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int anchors;
+
+    private final AnchorContract contract = new AnchorContract();
+    private final SplittableRandom random = new SplittableRandom(42);
+    private InMemoryChaincodeStub ledger;
+    private long nextBatch;
+
+    @Setup
+    public void setup() {
+        ledger = new InMemoryChaincodeStub();
+        for (int i = 0; i < anchors; i++) {
+            Context ctx = ledger.begin();
+            put(ctx, batchId(i));
+            ledger.commit();
+        }
+        nextBatch = anchors;
+    }
+
+    @Benchmark
+    public String putAnchor() {
+        Context ctx = ledger.begin();
+        try {
+            return put(ctx, batchId(nextBatch++));
+        } finally {
+            ledger.rollback();
+        }
+    }
+
+    @Benchmark
+    public Anchor getAnchor() {
+        return contract.GetAnchor(ledger.begin(), batchId(random.nextInt(anchors)));
+    }
+
+    @Benchmark
+    public String getAnchorBinary() {
+        return contract.GetAnchorEncoded(ledger.begin(), batchId(random.nextInt(anchors)), "binary");
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public String listAnchors() {
+        return contract.ListAnchors(ledger.begin());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public String listAnchorsBinary() {
+        return contract.ListAnchorsEncoded(ledger.begin(), "binary");
+    }
+
+    private String put(Context ctx, String batchId) {
+        return contract.PutAnchor(ctx, batchId, "vZNFryVEoSVJp0sxaWfbAQN50/7CXW5Revtce3cG/Zo=", 5_000,
+                1_735_689_600_000L, 1_735_689_605_000L, 1_735_689_606_000L, "", "");
+    }
+
+    // offset-range ids, as the bundler's partition batching produces them
+    private static String batchId(long i) {
+        return "sample_producer.norm.log-0-" + (i * 5_000) + "-" + (i * 5_000 + 4_999);
+    }
+}
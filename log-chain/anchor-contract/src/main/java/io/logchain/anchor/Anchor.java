@@ -23,6 +23,12 @@ public final class Anchor {
     private long anchorTsMillis;   // server time when anchored
     @Property()
     private String txNote;         // optional free-form note
+    @Property()
+    private String stream;         // chain this anchor belongs to (null when unchained)
+    @Property()
+    private long seq;              // 1-based position within the stream
+    @Property()
+    private String hashAlg;        // leaf/tree hash algorithm (null = SHA-256)
 
     public Anchor() {
     }
@@ -113,5 +119,28 @@ public final class Anchor {
     public void setTxId(String txId) {
         this.txId = txId;
     }
-}
 
+    public String getStream() {
+        return stream;
+    }
+
+    public void setStream(String stream) {
+        this.stream = stream;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public String getHashAlg() {
+        return hashAlg;
+    }
+
+    public void setHashAlg(String hashAlg) {
+        this.hashAlg = hashAlg;
+    }
+}
@@ -0,0 +1,180 @@
+package io.logchain.anchor;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.hyperledger.fabric.shim.ChaincodeException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Versioned compact binary encoding for {@link Anchor}.
+ *
+ * Layout (v1): MAGIC, VERSION, presence bitmask, then every present string
+ * as varint length + UTF-8 bytes and every long as a zig-zag varint, in
+ * declaration order. Field names are never written.
+ * v2 appends stream and seq; v1 values decode with stream=null, seq=0.
+ * v3 appends hashAlg; older values decode with hashAlg=null (SHA-256).
+ *
+ * Anything that does not start with MAGIC is treated as the legacy Jackson
+ * JSON form, so ledgers written before the binary encoding still decode.
+ */
+final class AnchorCodec {
+    static final byte MAGIC = (byte) 0xAC;
+    static final byte VERSION_1 = 1;
+    static final byte VERSION_2 = 2;
+    static final byte VERSION_3 = 3;
+
+    private static final int HAS_TX_ID = 1;
+    private static final int HAS_BATCH_ID = 1 << 1;
+    private static final int HAS_ROOT = 1 << 2;
+    private static final int HAS_PREV_ROOT = 1 << 3;
+    private static final int HAS_TX_NOTE = 1 << 4;
+    private static final int HAS_STREAM = 1 << 5;
+    private static final int HAS_HASH_ALG = 1 << 6;
+
+    private static final ObjectMapper JSON = new ObjectMapper()
+            .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private AnchorCodec() {}
+
+    static byte[] encode(Anchor a) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        out.write(MAGIC);
+        out.write(VERSION_3);
+        int mask = (a.getTxId() != null ? HAS_TX_ID : 0)
+                | (a.getBatchId() != null ? HAS_BATCH_ID : 0)
+                | (a.getRoot() != null ? HAS_ROOT : 0)
+                | (a.getPrevRoot() != null ? HAS_PREV_ROOT : 0)
+                | (a.getTxNote() != null ? HAS_TX_NOTE : 0)
+                | (a.getStream() != null ? HAS_STREAM : 0)
+                | (a.getHashAlg() != null ? HAS_HASH_ALG : 0);
+        out.write(mask);
+        writeString(out, a.getTxId());
+        writeString(out, a.getBatchId());
+        writeString(out, a.getRoot());
+        writeLong(out, a.getCount());
+        writeLong(out, a.getStartTsMillis());
+        writeLong(out, a.getEndTsMillis());
+        writeString(out, a.getPrevRoot());
+        writeLong(out, a.getAnchorTsMillis());
+        writeString(out, a.getTxNote());
+        writeString(out, a.getStream());
+        writeLong(out, a.getSeq());
+        writeString(out, a.getHashAlg());
+        return out.toByteArray();
+    }
+
+    static Anchor decode(byte[] b) {
+        if (b == null || b.length == 0) {
+            throw new ChaincodeException("Deserialization error: empty anchor");
+        }
+        if (b[0] != MAGIC) {
+            return fromJson(b);
+        }
+        byte version = b.length > 1 ? b[1] : -1;
+        if (b.length < 3 || (version < VERSION_1 || version > VERSION_3)) {
+            throw new ChaincodeException("Deserialization error: unsupported anchor encoding version " + version);
+        }
+        Reader r = new Reader(b, 2);
+        int mask = r.readByte();
+        Anchor a = new Anchor();
+        a.setTxId((mask & HAS_TX_ID) != 0 ? r.readString() : null);
+        a.setBatchId((mask & HAS_BATCH_ID) != 0 ? r.readString() : null);
+        a.setRoot((mask & HAS_ROOT) != 0 ? r.readString() : null);
+        a.setCount(r.readLong());
+        a.setStartTsMillis(r.readLong());
+        a.setEndTsMillis(r.readLong());
+        a.setPrevRoot((mask & HAS_PREV_ROOT) != 0 ? r.readString() : null);
+        a.setAnchorTsMillis(r.readLong());
+        a.setTxNote((mask & HAS_TX_NOTE) != 0 ? r.readString() : null);
+        if (version >= VERSION_2) {
+            a.setStream((mask & HAS_STREAM) != 0 ? r.readString() : null);
+            a.setSeq(r.readLong());
+        }
+        if (version >= VERSION_3) {
+            a.setHashAlg((mask & HAS_HASH_ALG) != 0 ? r.readString() : null);
+        }
+        return a;
+    }
+
+    static byte[] toJson(Object o) {
+        try {
+            return JSON.writeValueAsBytes(o);
+        } catch (Exception e) {
+            throw new ChaincodeException("Serialization error: " + e.getMessage());
+        }
+    }
+
+    private static Anchor fromJson(byte[] b) {
+        try {
+            return JSON.readValue(b, Anchor.class);
+        } catch (Exception e) {
+            throw new ChaincodeException("Deserialization error: " + e.getMessage());
+        }
+    }
+
+    // -------- primitives --------
+    private static void writeString(ByteArrayOutputStream out, String s) {
+        if (s == null) return;
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long v) {
+        writeVarint(out, (v << 1) ^ (v >> 63));
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    private static final class Reader {
+        private final byte[] buf;
+        private int pos;
+
+        Reader(byte[] buf, int pos) {
+            this.buf = buf;
+            this.pos = pos;
+        }
+
+        int readByte() {
+            if (pos >= buf.length) throw truncated();
+            return buf[pos++] & 0xFF;
+        }
+
+        long readVarint() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return result;
+            }
+            throw new ChaincodeException("Deserialization error: malformed varint");
+        }
+
+        long readLong() {
+            long v = readVarint();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        String readString() {
+            int len = (int) readVarint();
+            if (len < 0 || pos + len > buf.length) throw truncated();
+            String s = new String(buf, pos, len, StandardCharsets.UTF_8);
+            pos += len;
+            return s;
+        }
+
+        private ChaincodeException truncated() {
+            return new ChaincodeException("Deserialization error: truncated anchor");
+        }
+    }
+}
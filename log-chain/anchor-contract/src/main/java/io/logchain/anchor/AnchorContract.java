@@ -14,9 +14,12 @@ import org.hyperledger.fabric.shim.ChaincodeStub;
 import org.hyperledger.fabric.shim.ledger.KeyValue;
 import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
 
+import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.Objects;
 
 @Contract(
         name = "anchor",
@@ -31,6 +34,7 @@ public class AnchorContract implements ContractInterface {
 
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
             .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+    private static final int MAX_STREAM_PAGE = 1000;
 
     @Transaction(intent = Transaction.TYPE.SUBMIT)
     public String PutAnchor(final Context ctx,
@@ -64,16 +68,51 @@ public class AnchorContract implements ContractInterface {
                 nullIfEmpty(txNote)
         );
 
-        // store
-        stub.putState(key, serialize(anchor));
-
-        // update "latest" pointer
-        stub.putState(Keys.latestKey(ctx), batchId.getBytes(StandardCharsets.UTF_8));
+        store(ctx, key, anchor);
+        return anchor.getTxId();
+    }
 
-        // emit event
-        stub.setEvent("Anchored", serialize(anchor));
+    /**
+     * PutAnchor for a hash chain: the anchor is appended to {@code stream} only if
+     * {@code prevRoot} equals the root of the stream's current head (empty for the
+     * first anchor). Each anchor gets the next sequence number and a seq index entry,
+     * so auditors can walk a stream in order without scanning the whole ledger.
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public String PutChainedAnchor(final Context ctx,
+                                   final String stream,
+                                   final String batchId,
+                                   final String root,
+                                   final long count,
+                                   final long startTsMillis,
+                                   final long endTsMillis,
+                                   final long processMillis,
+                                   final String prevRoot,
+                                   final String txNote) {
+        return putChained(ctx, stream, batchId, root, count, startTsMillis, endTsMillis, processMillis,
+                prevRoot, txNote, null);
+    }
 
-        return anchor.getTxId();
+    /**
+     * PutChainedAnchor for a batch whose leaves and tree were hashed with {@code hashAlg}
+     * (e.g. BLAKE3), so verifiers know which algorithm to recompute the root with.
+     * Anchors stored without one are SHA-256.
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public String PutChainedAnchorWithHash(final Context ctx,
+                                           final String stream,
+                                           final String batchId,
+                                           final String root,
+                                           final long count,
+                                           final long startTsMillis,
+                                           final long endTsMillis,
+                                           final long processMillis,
+                                           final String prevRoot,
+                                           final String txNote,
+                                           final String hashAlg) {
+        requireNonEmpty(hashAlg, "hashAlg");
+        return putChained(ctx, stream, batchId, root, count, startTsMillis, endTsMillis, processMillis,
+                prevRoot, txNote, hashAlg);
     }
 
     @Transaction(intent = Transaction.TYPE.EVALUATE)
@@ -84,26 +123,56 @@ public class AnchorContract implements ContractInterface {
 
     @Transaction(intent = Transaction.TYPE.EVALUATE)
     public Anchor GetAnchor(final Context ctx, final String batchId) {
-        byte[] v = ctx.getStub().getState(Keys.anchorKey(ctx, batchId));
-        if (v == null || v.length == 0) {
-            throw new ChaincodeException("Anchor not found for batchId=" + batchId, "NOT_FOUND");
+        return AnchorCodec.decode(getAnchorBytes(ctx, batchId));
+    }
+
+    /**
+     * Same lookup as GetAnchor, but lets the caller pick the wire form.
+     * BINARY returns the stored bytes Base64-encoded without decoding them when they
+     * are already binary; JSON returns the historical JSON document.
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String GetAnchorEncoded(final Context ctx, final String batchId, final String encoding) {
+        byte[] v = getAnchorBytes(ctx, batchId);
+        return render(v, AnchorEncoding.parse(encoding));
+    }
+
+    /**
+     * Batched GetAnchor: takes a JSON array of batch ids and returns the anchors found as a JSON
+     * list, so auditors do not pay one round trip per batch. Unknown ids are simply absent.
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String GetAnchors(final Context ctx, final String batchIdsJson) {
+        String[] batchIds;
+        try {
+            batchIds = OBJECT_MAPPER.readValue(batchIdsJson, String[].class);
+        } catch (JsonProcessingException e) {
+            throw new ChaincodeException("batchIds must be a JSON array of strings");
+        }
+        if (batchIds.length > MAX_STREAM_PAGE) {
+            throw new ChaincodeException("more than " + MAX_STREAM_PAGE + " batchIds");
+        }
+        ChaincodeStub stub = ctx.getStub();
+        List<Anchor> anchors = new ArrayList<>(batchIds.length);
+        for (String batchId : batchIds) {
+            byte[] v = stub.getState(Keys.anchorKey(ctx, batchId));
+            if (v != null && v.length > 0) anchors.add(AnchorCodec.decode(v));
         }
-        return deserialize(v, Anchor.class);
+        return new String(AnchorCodec.toJson(anchors), StandardCharsets.UTF_8);
     }
 
+    /**
+     * All anchors, in key order. Anchor keys are composite, which a plain range query never
+     * returns, so this scans the ANCHOR partial key and skips the latest pointer stored under it.
+     */
     @Transaction(intent = Transaction.TYPE.EVALUATE)
     public String ListAnchors(final Context ctx) {
-        ChaincodeStub stub = ctx.getStub();
         List<Anchor> anchors = new ArrayList<>();
-
-        QueryResultsIterator<KeyValue> results = stub.getStateByRange("", "");
-        System.out.println("Listing anchors:");
-        try {
+        String latestKey = Keys.latestKey(ctx);
+        try (QueryResultsIterator<KeyValue> results = ctx.getStub().getStateByPartialCompositeKey(Keys.anchorPrefix(ctx))) {
             for (KeyValue kv : results) {
-                String key = kv.getKey();
-                System.out.println(key);
-                Anchor anchor = deserialize(kv.getValue(), Anchor.class);
-                anchors.add(anchor);
+                if (kv.getKey().equals(latestKey)) continue;
+                anchors.add(AnchorCodec.decode(kv.getValue()));
             }
         } catch (Exception e) {
             throw new ChaincodeException("Error listing anchors: " + e.getMessage());
@@ -116,6 +185,62 @@ public class AnchorContract implements ContractInterface {
         }
     }
 
+    /**
+     * ListAnchors with a selectable wire form. BINARY returns Base64 of
+     * length-prefixed (4-byte big-endian) {@link AnchorCodec} frames.
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String ListAnchorsEncoded(final Context ctx, final String encoding) {
+        if (AnchorEncoding.parse(encoding) == AnchorEncoding.JSON) {
+            return ListAnchors(ctx);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String latestKey = Keys.latestKey(ctx);
+        try (QueryResultsIterator<KeyValue> results = ctx.getStub().getStateByPartialCompositeKey(Keys.anchorPrefix(ctx))) {
+            for (KeyValue kv : results) {
+                if (kv.getKey().equals(latestKey)) continue;
+                byte[] frame = toBinary(kv.getValue());
+                out.write(frame.length >>> 24);
+                out.write(frame.length >>> 16);
+                out.write(frame.length >>> 8);
+                out.write(frame.length);
+                out.write(frame, 0, frame.length);
+            }
+        } catch (Exception e) {
+            throw new ChaincodeException("Error listing anchors: " + e.getMessage());
+        }
+        return Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public Anchor StreamHead(final Context ctx, final String stream) {
+        Anchor head = findStreamHead(ctx, stream);
+        if (head == null) {
+            throw new ChaincodeException("No anchors yet for stream=" + stream, "EMPTY");
+        }
+        return head;
+    }
+
+    /**
+     * Returns the anchors of {@code stream} with fromSeq <= seq <= toSeq as a JSON list, in order.
+     * Missing sequence numbers are simply absent from the result; detecting them is the caller's job.
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String ListStreamAnchors(final Context ctx, final String stream, final long fromSeq, final long toSeq) {
+        if (fromSeq < 1 || toSeq < fromSeq) throw new ChaincodeException("invalid seq range");
+        if (toSeq - fromSeq >= MAX_STREAM_PAGE) {
+            throw new ChaincodeException("seq range larger than " + MAX_STREAM_PAGE);
+        }
+        ChaincodeStub stub = ctx.getStub();
+        List<Anchor> anchors = new ArrayList<>();
+        for (long seq = fromSeq; seq <= toSeq; seq++) {
+            byte[] batchId = stub.getState(Keys.streamSeqKey(ctx, stream, seq));
+            if (batchId == null || batchId.length == 0) continue;
+            anchors.add(AnchorCodec.decode(getAnchorBytes(ctx, new String(batchId, StandardCharsets.UTF_8))));
+        }
+        return new String(AnchorCodec.toJson(anchors), StandardCharsets.UTF_8);
+    }
+
     @Transaction(intent = Transaction.TYPE.EVALUATE)
     public Anchor LatestAnchor(final Context ctx) {
         ChaincodeStub stub = ctx.getStub();
@@ -128,20 +253,85 @@ public class AnchorContract implements ContractInterface {
     }
 
     // -------- utilities --------
-    private static byte[] serialize(Object o) {
-        try {
-            return OBJECT_MAPPER.writeValueAsBytes(o);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException(e);
+    private static String putChained(Context ctx, String stream, String batchId, String root, long count,
+                                     long startTsMillis, long endTsMillis, long processMillis,
+                                     String prevRoot, String txNote, String hashAlg) {
+        requireNonEmpty(stream, "stream");
+        requireNonEmpty(batchId, "batchId");
+        requireNonEmpty(root, "root");
+        if (count <= 0) throw new ChaincodeException("count must be > 0");
+        if (endTsMillis < startTsMillis) throw new ChaincodeException("endTs < startTs");
+
+        ChaincodeStub stub = ctx.getStub();
+
+        String key = Keys.anchorKey(ctx, batchId);
+        byte[] existing = stub.getState(key);
+        if (existing != null && existing.length > 0) {
+            throw new ChaincodeException("Anchor already exists for batchId=" + batchId, "ALREADY_EXISTS");
         }
+
+        Anchor head = findStreamHead(ctx, stream);
+        String expectedPrev = head == null ? null : head.getRoot();
+        if (!Objects.equals(expectedPrev, nullIfEmpty(prevRoot))) {
+            throw new ChaincodeException("prevRoot does not match head of stream=" + stream, "CHAIN_CONFLICT");
+        }
+
+        Anchor anchor = new Anchor(
+                stub.getTxId(),
+                batchId, root, count, startTsMillis, endTsMillis,
+                expectedPrev,
+                processMillis,
+                nullIfEmpty(txNote)
+        );
+        anchor.setStream(stream);
+        anchor.setSeq(head == null ? 1 : head.getSeq() + 1);
+        anchor.setHashAlg(hashAlg);
+
+        store(ctx, key, anchor);
+        byte[] batchIdBytes = batchId.getBytes(StandardCharsets.UTF_8);
+        stub.putState(Keys.streamSeqKey(ctx, stream, anchor.getSeq()), batchIdBytes);
+        stub.putState(Keys.streamHeadKey(ctx, stream), batchIdBytes);
+        return anchor.getTxId();
     }
 
-    private static <T> T deserialize(byte[] b, Class<T> cls) {
-        try {
-            return OBJECT_MAPPER.readValue(b, cls);
-        } catch (Exception e) {
-            throw new ChaincodeException("Deserialization error: " + e.getMessage());
+    private static void store(Context ctx, String key, Anchor anchor) {
+        ChaincodeStub stub = ctx.getStub();
+        // compact binary; legacy JSON values are still readable
+        byte[] encoded = AnchorCodec.encode(anchor);
+        stub.putState(key, encoded);
+
+        // update "latest" pointer
+        stub.putState(Keys.latestKey(ctx), anchor.getBatchId().getBytes(StandardCharsets.UTF_8));
+
+        // emit event; listeners read the payload as JSON, so it stays JSON whatever the state encoding
+        stub.setEvent("Anchored", AnchorCodec.toJson(anchor));
+    }
+
+    private static Anchor findStreamHead(Context ctx, String stream) {
+        byte[] headBatchId = ctx.getStub().getState(Keys.streamHeadKey(ctx, stream));
+        if (headBatchId == null || headBatchId.length == 0) {
+            return null;
         }
+        return AnchorCodec.decode(getAnchorBytes(ctx, new String(headBatchId, StandardCharsets.UTF_8)));
+    }
+
+    private static byte[] getAnchorBytes(Context ctx, String batchId) {
+        byte[] v = ctx.getStub().getState(Keys.anchorKey(ctx, batchId));
+        if (v == null || v.length == 0) {
+            throw new ChaincodeException("Anchor not found for batchId=" + batchId, "NOT_FOUND");
+        }
+        return v;
+    }
+
+    private static String render(byte[] stored, AnchorEncoding encoding) {
+        if (encoding == AnchorEncoding.BINARY) {
+            return Base64.getEncoder().encodeToString(toBinary(stored));
+        }
+        return new String(AnchorCodec.toJson(AnchorCodec.decode(stored)), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] toBinary(byte[] stored) {
+        return stored[0] == AnchorCodec.MAGIC ? stored : AnchorCodec.encode(AnchorCodec.decode(stored));
     }
 
     private static void requireNonEmpty(String s, String field) {
@@ -0,0 +1,22 @@
+package io.logchain.anchor;
+
+import org.hyperledger.fabric.shim.ChaincodeException;
+
+/**
+ * Wire form requested by clients for anchor reads.
+ * JSON keeps the historical Jackson shape; BINARY is {@link AnchorCodec}, Base64-wrapped
+ * on the way out because transaction results are strings.
+ */
+public enum AnchorEncoding {
+    JSON,
+    BINARY;
+
+    static AnchorEncoding parse(String s) {
+        if (s == null || s.isBlank()) return JSON;
+        try {
+            return valueOf(s.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ChaincodeException("Unsupported encoding: " + s, "BAD_ENCODING");
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package io.logchain.anchor;
 
 import org.hyperledger.fabric.contract.Context;
+import org.hyperledger.fabric.shim.ledger.CompositeKey;
 
 final class Keys {
     private Keys() {}
@@ -9,7 +10,21 @@ final class Keys {
         return ctx.getStub().createCompositeKey("ANCHOR", batchId).toString();
     }
 
+    /** partial key matching every anchor, plus the latest pointer */
+    static CompositeKey anchorPrefix(Context ctx) {
+        return ctx.getStub().createCompositeKey("ANCHOR");
+    }
+
     static String latestKey(Context ctx) {
         return ctx.getStub().createCompositeKey("ANCHOR", "LATEST").toString();
     }
+
+    static String streamHeadKey(Context ctx, String stream) {
+        return ctx.getStub().createCompositeKey("STREAM_HEAD", stream).toString();
+    }
+
+    // zero-padded so the keys of one stream sort by sequence
+    static String streamSeqKey(Context ctx, String stream, long seq) {
+        return ctx.getStub().createCompositeKey("STREAM_SEQ", stream, String.format("%019d", seq)).toString();
+    }
 }
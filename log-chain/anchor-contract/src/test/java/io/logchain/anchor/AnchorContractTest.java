@@ -0,0 +1,194 @@
+package io.logchain.anchor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hyperledger.fabric.protos.peer.ChaincodeEvent;
+import org.hyperledger.fabric.shim.ChaincodeException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnchorContractTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final AnchorContract contract = new AnchorContract();
+    private InMemoryChaincodeStub ledger;
+
+    @BeforeEach
+    void setUp() {
+        ledger = new InMemoryChaincodeStub();
+    }
+
+    @Test
+    void putAnchorStoresAndRejectsDuplicates() {
+        String txId = put("b1", "r1");
+
+        Anchor a = ledger.evaluate(ctx -> contract.GetAnchor(ctx, "b1"));
+        assertEquals(txId, a.getTxId());
+        assertEquals("r1", a.getRoot());
+        assertEquals(10, a.getCount());
+        assertTrue(exists("b1"));
+        assertFalse(exists("b2"));
+
+        ChaincodeException e = assertThrows(ChaincodeException.class, () -> put("b1", "other"));
+        assertTrue(e.getMessage().contains("already exists"));
+        assertEquals("r1", ledger.evaluate(ctx -> contract.GetAnchor(ctx, "b1")).getRoot());
+    }
+
+    @Test
+    void rejectsInvalidAnchors() {
+        assertThrows(ChaincodeException.class, () -> ledger.submit(ctx ->
+                contract.PutAnchor(ctx, "b1", "", 10, 0, 1, 0, "", "")));
+        assertThrows(ChaincodeException.class, () -> ledger.submit(ctx ->
+                contract.PutAnchor(ctx, "b1", "r1", 0, 0, 1, 0, "", "")));
+        assertThrows(ChaincodeException.class, () -> ledger.submit(ctx ->
+                contract.PutAnchor(ctx, "b1", "r1", 10, 5, 1, 0, "", "")));
+        assertEquals(0, ledger.size());
+    }
+
+    @Test
+    void failedTransactionLeavesNoWritesOrEvents() {
+        put("b1", "r1");
+        long events = ledger.eventCount();
+        int keys = ledger.size();
+
+        assertThrows(ChaincodeException.class, () -> ledger.submit(ctx ->
+                contract.PutChainedAnchor(ctx, "s", "b2", "r2", 10, 0, 1, 0, "not-the-head", "")));
+
+        assertEquals(keys, ledger.size());
+        assertEquals(events, ledger.eventCount());
+        assertFalse(exists("b2"));
+    }
+
+    @Test
+    void chainsAnchorsPerStream() {
+        ledger.submit(ctx -> contract.PutChainedAnchor(ctx, "s", "b1", "r1", 10, 0, 1, 0, "", ""));
+        ledger.submit(ctx -> contract.PutChainedAnchor(ctx, "s", "b2", "r2", 10, 1, 2, 0, "r1", ""));
+        ledger.submit(ctx -> contract.PutChainedAnchorWithHash(ctx, "t", "c1", "x1", 5, 0, 1, 0, "", "", "BLAKE3"));
+
+        Anchor head = ledger.evaluate(ctx -> contract.StreamHead(ctx, "s"));
+        assertEquals("b2", head.getBatchId());
+        assertEquals(2, head.getSeq());
+        assertEquals("r1", head.getPrevRoot());
+        assertEquals("BLAKE3", ledger.evaluate(ctx -> contract.StreamHead(ctx, "t")).getHashAlg());
+
+        ChaincodeException conflict = assertThrows(ChaincodeException.class, () -> ledger.submit(ctx ->
+                contract.PutChainedAnchor(ctx, "s", "b3", "r3", 10, 2, 3, 0, "r1", "")));
+        assertTrue(conflict.getMessage().contains("prevRoot does not match"));
+        assertThrows(ChaincodeException.class, () -> ledger.evaluate(ctx -> contract.StreamHead(ctx, "none")));
+
+        JsonNode page = json(ledger.evaluate(ctx -> contract.ListStreamAnchors(ctx, "s", 1, 10)));
+        assertEquals(2, page.size());
+        assertEquals("b1", page.get(0).path("batchId").asText());
+        assertEquals("b2", page.get(1).path("batchId").asText());
+        assertThrows(ChaincodeException.class, () -> ledger.evaluate(ctx -> contract.ListStreamAnchors(ctx, "s", 1, 5000)));
+    }
+
+    @Test
+    void listAnchorsReturnsOnlyAnchors() {
+        ledger.submit(ctx -> contract.PutChainedAnchor(ctx, "s", "b1", "r1", 10, 0, 1, 0, "", ""));
+        ledger.submit(ctx -> contract.PutChainedAnchor(ctx, "s", "b2", "r2", 10, 1, 2, 0, "r1", ""));
+        put("b3", "r3");
+
+        // composite keys are invisible to plain range queries, as on a peer
+        assertFalse(ledger.evaluate(ctx -> ctx.getStub().getStateByRange("", "")).iterator().hasNext());
+
+        JsonNode all = json(ledger.evaluate(ctx -> contract.ListAnchors(ctx)));
+        assertEquals(3, all.size());
+        List<String> ids = new ArrayList<>();
+        all.forEach(a -> ids.add(a.path("batchId").asText()));
+        assertEquals(List.of("b1", "b2", "b3"), ids);
+        assertEquals(all.toString(), json(ledger.evaluate(ctx -> contract.ListAnchorsEncoded(ctx, "json"))).toString());
+
+        String encoded = ledger.evaluate(ctx -> contract.ListAnchorsEncoded(ctx, "binary"));
+        ByteBuffer frames = ByteBuffer.wrap(Base64.getDecoder().decode(encoded));
+        List<String> decoded = new ArrayList<>();
+        while (frames.hasRemaining()) {
+            byte[] frame = new byte[frames.getInt()];
+            frames.get(frame);
+            decoded.add(AnchorCodec.decode(frame).getBatchId());
+        }
+        assertEquals(ids, decoded);
+    }
+
+    @Test
+    void latestAndBatchedLookups() {
+        assertThrows(ChaincodeException.class, () -> ledger.evaluate(ctx -> contract.LatestAnchor(ctx)));
+        put("b1", "r1");
+        put("b2", "r2");
+        assertEquals("b2", ledger.evaluate(ctx -> contract.LatestAnchor(ctx)).getBatchId());
+
+        JsonNode found = json(ledger.evaluate(ctx -> contract.GetAnchors(ctx, "[\"b2\",\"missing\",\"b1\"]")));
+        assertEquals(2, found.size());
+        assertEquals("b2", found.get(0).path("batchId").asText());
+        assertThrows(ChaincodeException.class, () -> ledger.evaluate(ctx -> contract.GetAnchors(ctx, "{}")));
+        assertThrows(ChaincodeException.class, () -> ledger.evaluate(ctx -> contract.GetAnchor(ctx, "missing")));
+
+        String json = ledger.evaluate(ctx -> contract.GetAnchorEncoded(ctx, "b1", "json"));
+        assertEquals("r1", json(json).path("root").asText());
+        String binary = ledger.evaluate(ctx -> contract.GetAnchorEncoded(ctx, "b1", "binary"));
+        assertEquals("r1", AnchorCodec.decode(Base64.getDecoder().decode(binary)).getRoot());
+    }
+
+    @Test
+    void emitsOneEventPerAnchor() {
+        List<ChaincodeEvent> events = new ArrayList<>();
+        ledger.onEvent(events::add);
+
+        String txId = put("b1", "r1");
+        ledger.evaluate(ctx -> contract.GetAnchor(ctx, "b1"));
+
+        assertEquals(1, events.size());
+        ChaincodeEvent e = events.get(0);
+        assertEquals("Anchored", e.getEventName());
+        assertEquals(txId, e.getTxId());
+        // JSON, as before the binary state encoding
+        JsonNode payload = json(e.getPayload().toStringUtf8());
+        assertEquals("b1", payload.path("batchId").asText());
+        assertEquals("r1", payload.path("root").asText());
+        assertEquals(txId, payload.path("txId").asText());
+    }
+
+    @Test
+    void readsLegacyJsonAnchors() {
+        Anchor legacy = new Anchor("tx0", "old", "r0", 3, 0, 1, null, 0, "note");
+        ledger.submit(ctx -> {
+            ctx.getStub().putState(Keys.anchorKey(ctx, "old"), AnchorCodec.toJson(legacy));
+            return null;
+        });
+
+        Anchor a = ledger.evaluate(ctx -> contract.GetAnchor(ctx, "old"));
+        assertEquals("r0", a.getRoot());
+        assertEquals("note", a.getTxNote());
+        assertNull(a.getStream());
+        assertEquals(1, json(ledger.evaluate(ctx -> contract.ListAnchors(ctx))).size());
+    }
+
+    private String put(String batchId, String root) {
+        return ledger.submit(ctx -> contract.PutAnchor(ctx, batchId, root, 10, 0, 1, 0, "", ""));
+    }
+
+    private boolean exists(String batchId) {
+        Boolean exists = ledger.evaluate(ctx -> contract.Exists(ctx, batchId));
+        return exists;
+    }
+
+    private static JsonNode json(String s) {
+        try {
+            return MAPPER.readTree(s.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,497 @@
+package io.logchain.anchor;
+
+import com.google.protobuf.ByteString;
+import org.hyperledger.fabric.contract.Context;
+import org.hyperledger.fabric.protos.msp.SerializedIdentity;
+import org.hyperledger.fabric.protos.peer.ChaincodeEvent;
+import org.hyperledger.fabric.protos.peer.QueryResponseMetadata;
+import org.hyperledger.fabric.protos.peer.SignedProposal;
+import org.hyperledger.fabric.shim.Chaincode;
+import org.hyperledger.fabric.shim.ChaincodeStub;
+import org.hyperledger.fabric.shim.ledger.CompositeKey;
+import org.hyperledger.fabric.shim.ledger.KeyModification;
+import org.hyperledger.fabric.shim.ledger.KeyValue;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIteratorWithMetadata;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * {@link ChaincodeStub} over an in-memory world state, for driving {@link AnchorContract} in tests
+ * and benchmarks without a peer.
+ *
+ * Follows the peer where the contract can tell the difference: reads see committed state only
+ * (not the transaction's own writes), writes and the event are applied on commit and dropped when
+ * the transaction throws, one event per transaction (the last setEvent wins), and plain range
+ * queries never return composite keys, which live under the 0x00 namespace. Private data, rich
+ * queries, history and chaincode-to-chaincode calls are not supported.
+ *
+ * <pre>
+ * InMemoryChaincodeStub ledger = new InMemoryChaincodeStub();
+ * String txId = ledger.submit(ctx -> contract.PutAnchor(ctx, ...));
+ * Anchor a = ledger.evaluate(ctx -> contract.GetAnchor(ctx, batchId));
+ * </pre>
+ */
+public class InMemoryChaincodeStub implements ChaincodeStub {
+    public static final String MSP_ID = "Org1MSP";
+    public static final String CHANNEL = "log-chain";
+    public static final String CHAINCODE = "anchor";
+
+    // same bounds the shim uses for an open-ended range over simple keys
+    private static final String MIN_SIMPLE_KEY = "\u0001";
+    private static final String MAX_UNICODE_RUNE = "\udbff\udfff";
+
+    /** self-signed client certificate, so Context can build its ClientIdentity */
+    private static final String CLIENT_CERT = """
+            -----BEGIN CERTIFICATE-----
+            MIIByDCCAW+gAwIBAgIUFJy+Q5pJZqzDdvJwZIDSRzb3wD0wCgYIKoZIzj0EAwIw
+            OTENMAsGA1UECgwET3JnMTEPMA0GA1UECwwGY2xpZW50MRcwFQYDVQQDDA5hbmNo
+            b3ItaGFybmVzczAgFw0yNjEwMTkxNzEyMjBaGA8yMTI2MDkyNTE3MTIyMFowOTEN
+            MAsGA1UECgwET3JnMTEPMA0GA1UECwwGY2xpZW50MRcwFQYDVQQDDA5hbmNob3It
+            aGFybmVzczBZMBMGByqGSM49AgEGCCqGSM49AwEHA0IABNbhBFVIhPtpZQAHJexV
+            QAM1S2ey3hX3vaQowuuWiB3V4yBP8BcqdR3ejuwJ04JeTWDLEpQy1JRAINMSrO6V
+            2XSjUzBRMB0GA1UdDgQWBBTw7J6BxalErkjU0uvC9/QSKlLAGTAfBgNVHSMEGDAW
+            gBTw7J6BxalErkjU0uvC9/QSKlLAGTAPBgNVHRMBAf8EBTADAQH/MAoGCCqGSM49
+            BAMCA0cAMEQCIFb5EyGXRpRVJeABak5zD0Aysddzg2ZcoSTDvru1zogdAiARu5l4
+            C4Y7XdkdnrbMIBD0CE64FUsyEq8YfQDJtyV7XQ==
+            -----END CERTIFICATE-----
+            """;
+    private static final byte[] CREATOR = SerializedIdentity.newBuilder()
+            .setMspid(MSP_ID)
+            .setIdBytes(ByteString.copyFromUtf8(CLIENT_CERT))
+            .build()
+            .toByteArray();
+
+    private final TreeMap<String, byte[]> state = new TreeMap<>();
+    private final List<Consumer<ChaincodeEvent>> listeners = new CopyOnWriteArrayList<>();
+    private final Map<String, byte[]> writes = new LinkedHashMap<>();
+    private Context context;
+    private ChaincodeEvent event;
+    private String txId;
+    private Instant txTimestamp;
+    private long txCount;
+    private long eventCount;
+
+    // -------- transactions --------
+    /**
+     * Starts a transaction and returns its Context. The Context only holds this stub and the fixed
+     * client identity, so one instance serves every transaction instead of re-parsing the certificate.
+     */
+    public Context begin() {
+        writes.clear();
+        event = null;
+        txId = String.format("tx%016x", ++txCount);
+        txTimestamp = Instant.now();
+        if (context == null) {
+            context = new Context(this);
+        }
+        return context;
+    }
+
+    /**
+     * Applies the writes of the current transaction and publishes its event.
+     */
+    public void commit() {
+        for (Map.Entry<String, byte[]> w : writes.entrySet()) {
+            if (w.getValue() == null) {
+                state.remove(w.getKey());
+            } else {
+                state.put(w.getKey(), w.getValue());
+            }
+        }
+        writes.clear();
+        if (event != null) {
+            eventCount++;
+            for (Consumer<ChaincodeEvent> listener : listeners) listener.accept(event);
+            event = null;
+        }
+    }
+
+    public void rollback() {
+        writes.clear();
+        event = null;
+    }
+
+    /**
+     * Runs fn as a submitted transaction: committed when it returns, rolled back when it throws.
+     */
+    public <T> T submit(Function<Context, T> fn) {
+        Context ctx = begin();
+        try {
+            T result = fn.apply(ctx);
+            commit();
+            return result;
+        } catch (RuntimeException e) {
+            rollback();
+            throw e;
+        }
+    }
+
+    /**
+     * Runs fn as an evaluated transaction: its writes are never applied.
+     */
+    public <T> T evaluate(Function<Context, T> fn) {
+        Context ctx = begin();
+        try {
+            return fn.apply(ctx);
+        } finally {
+            rollback();
+        }
+    }
+
+    public void onEvent(Consumer<ChaincodeEvent> listener) {
+        listeners.add(listener);
+    }
+
+    public long eventCount() {
+        return eventCount;
+    }
+
+    /** number of keys in the world state */
+    public int size() {
+        return state.size();
+    }
+
+    // -------- state --------
+    @Override
+    public byte[] getState(String key) {
+        return state.get(key);
+    }
+
+    @Override
+    public void putState(String key, byte[] value) {
+        if (key == null || key.isEmpty()) throw new IllegalArgumentException("key must not be empty");
+        if (value == null) throw new IllegalArgumentException("value must not be null");
+        writes.put(key, value.clone());
+    }
+
+    @Override
+    public void delState(String key) {
+        writes.put(key, null);
+    }
+
+    @Override
+    public QueryResultsIterator<KeyValue> getStateByRange(String startKey, String endKey) {
+        return iterator(simpleRange(startKey, endKey));
+    }
+
+    @Override
+    public QueryResultsIteratorWithMetadata<KeyValue> getStateByRangeWithPagination(String startKey, String endKey,
+                                                                                   int pageSize, String bookmark) {
+        return page(simpleRange(startKey, endKey), pageSize, bookmark);
+    }
+
+    @Override
+    public QueryResultsIterator<KeyValue> getStateByPartialCompositeKey(String compositeKey) {
+        return iterator(prefixRange(compositeKey));
+    }
+
+    @Override
+    public QueryResultsIterator<KeyValue> getStateByPartialCompositeKey(String objectType, String... attributes) {
+        return getStateByPartialCompositeKey(new CompositeKey(objectType, attributes));
+    }
+
+    @Override
+    public QueryResultsIterator<KeyValue> getStateByPartialCompositeKey(CompositeKey compositeKey) {
+        return iterator(prefixRange(compositeKey.toString()));
+    }
+
+    @Override
+    public QueryResultsIteratorWithMetadata<KeyValue> getStateByPartialCompositeKeyWithPagination(
+            CompositeKey compositeKey, int pageSize, String bookmark) {
+        return page(prefixRange(compositeKey.toString()), pageSize, bookmark);
+    }
+
+    @Override
+    public CompositeKey createCompositeKey(String objectType, String... attributes) {
+        return new CompositeKey(objectType, attributes);
+    }
+
+    @Override
+    public CompositeKey splitCompositeKey(String compositeKey) {
+        return CompositeKey.parseCompositeKey(compositeKey);
+    }
+
+    private NavigableMap<String, byte[]> simpleRange(String startKey, String endKey) {
+        String start = startKey == null || startKey.isEmpty() ? MIN_SIMPLE_KEY : startKey;
+        String end = endKey == null || endKey.isEmpty() ? MAX_UNICODE_RUNE : endKey;
+        CompositeKey.validateSimpleKeys(start, end);
+        return state.subMap(start, true, end, false);
+    }
+
+    private NavigableMap<String, byte[]> prefixRange(String prefix) {
+        return state.subMap(prefix, true, prefix + MAX_UNICODE_RUNE, false);
+    }
+
+    private static QueryResultsIterator<KeyValue> iterator(NavigableMap<String, byte[]> range) {
+        return new Results(range.entrySet());
+    }
+
+    private static QueryResultsIteratorWithMetadata<KeyValue> page(NavigableMap<String, byte[]> range, int pageSize,
+                                                                   String bookmark) {
+        NavigableMap<String, byte[]> from = bookmark == null || bookmark.isEmpty()
+                ? range : range.tailMap(bookmark, true);
+        List<Map.Entry<String, byte[]>> entries = new ArrayList<>(Math.max(0, Math.min(pageSize, from.size())));
+        String next = "";
+        for (Map.Entry<String, byte[]> e : from.entrySet()) {
+            if (entries.size() == pageSize) {
+                next = e.getKey();
+                break;
+            }
+            entries.add(e);
+        }
+        QueryResponseMetadata metadata = QueryResponseMetadata.newBuilder()
+                .setFetchedRecordsCount(entries.size())
+                .setBookmark(next)
+                .build();
+        return new Results(entries, metadata);
+    }
+
+    // -------- events --------
+    @Override
+    public void setEvent(String name, byte[] payload) {
+        if (name == null || name.isEmpty()) throw new IllegalArgumentException("event name must not be empty");
+        event = ChaincodeEvent.newBuilder()
+                .setChaincodeId(CHAINCODE)
+                .setTxId(txId == null ? "" : txId)
+                .setEventName(name)
+                .setPayload(payload == null ? ByteString.EMPTY : ByteString.copyFrom(payload))
+                .build();
+    }
+
+    @Override
+    public ChaincodeEvent getEvent() {
+        return event;
+    }
+
+    // -------- transaction metadata --------
+    @Override
+    public String getTxId() {
+        return txId;
+    }
+
+    @Override
+    public Instant getTxTimestamp() {
+        return txTimestamp;
+    }
+
+    @Override
+    public String getChannelId() {
+        return CHANNEL;
+    }
+
+    @Override
+    public String getMspId() {
+        return MSP_ID;
+    }
+
+    @Override
+    public byte[] getCreator() {
+        return CREATOR;
+    }
+
+    @Override
+    public Map<String, byte[]> getTransient() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public byte[] getBinding() {
+        return new byte[0];
+    }
+
+    @Override
+    public SignedProposal getSignedProposal() {
+        return SignedProposal.getDefaultInstance();
+    }
+
+    /** contract methods are called directly, so there are no invocation args */
+    @Override
+    public List<byte[]> getArgs() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<String> getStringArgs() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public String getFunction() {
+        return null;
+    }
+
+    @Override
+    public List<String> getParameters() {
+        return Collections.emptyList();
+    }
+
+    // -------- not supported --------
+    @Override
+    public Chaincode.Response invokeChaincode(String chaincodeName, List<byte[]> args, String channel) {
+        throw unsupported();
+    }
+
+    @Override
+    public byte[] getStateValidationParameter(String key) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setStateValidationParameter(String key, byte[] value) {
+        throw unsupported();
+    }
+
+    @Override
+    public QueryResultsIterator<KeyValue> getQueryResult(String query) {
+        throw unsupported();
+    }
+
+    @Override
+    public QueryResultsIteratorWithMetadata<KeyValue> getQueryResultWithPagination(String query, int pageSize,
+                                                                                  String bookmark) {
+        throw unsupported();
+    }
+
+    @Override
+    public QueryResultsIterator<KeyModification> getHistoryForKey(String key) {
+        throw unsupported();
+    }
+
+    @Override
+    public byte[] getPrivateData(String collection, String key) {
+        throw unsupported();
+    }
+
+    @Override
+    public byte[] getPrivateDataHash(String collection, String key) {
+        throw unsupported();
+    }
+
+    @Override
+    public byte[] getPrivateDataValidationParameter(String collection, String key) {
+        throw unsupported();
+    }
+
+    @Override
+    public void putPrivateData(String collection, String key, byte[] value) {
+        throw unsupported();
+    }
+
+    @Override
+    public void setPrivateDataValidationParameter(String collection, String key, byte[] value) {
+        throw unsupported();
+    }
+
+    @Override
+    public void delPrivateData(String collection, String key) {
+        throw unsupported();
+    }
+
+    @Override
+    public void purgePrivateData(String collection, String key) {
+        throw unsupported();
+    }
+
+    @Override
+    public QueryResultsIterator<KeyValue> getPrivateDataByRange(String collection, String startKey, String endKey) {
+        throw unsupported();
+    }
+
+    @Override
+    public QueryResultsIterator<KeyValue> getPrivateDataByPartialCompositeKey(String collection, String compositeKey) {
+        throw unsupported();
+    }
+
+    @Override
+    public QueryResultsIterator<KeyValue> getPrivateDataByPartialCompositeKey(String collection,
+                                                                             CompositeKey compositeKey) {
+        throw unsupported();
+    }
+
+    @Override
+    public QueryResultsIterator<KeyValue> getPrivateDataByPartialCompositeKey(String collection, String objectType,
+                                                                             String... attributes) {
+        throw unsupported();
+    }
+
+    @Override
+    public QueryResultsIterator<KeyValue> getPrivateDataQueryResult(String collection, String query) {
+        throw unsupported();
+    }
+
+    private static UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("not supported by InMemoryChaincodeStub");
+    }
+
+    // -------- results --------
+    private record Entry(String key, byte[] value) implements KeyValue {
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public byte[] getValue() {
+            return value;
+        }
+
+        @Override
+        public String getStringValue() {
+            return new String(value, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class Results implements QueryResultsIterator<KeyValue>,
+            QueryResultsIteratorWithMetadata<KeyValue> {
+        private final Iterable<Map.Entry<String, byte[]>> entries;
+        private final QueryResponseMetadata metadata;
+
+        Results(Iterable<Map.Entry<String, byte[]>> entries) {
+            this(entries, QueryResponseMetadata.getDefaultInstance());
+        }
+
+        Results(Iterable<Map.Entry<String, byte[]>> entries, QueryResponseMetadata metadata) {
+            this.entries = entries;
+            this.metadata = metadata;
+        }
+
+        @Override
+        public Iterator<KeyValue> iterator() {
+            Iterator<Map.Entry<String, byte[]>> it = entries.iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+
+                @Override
+                public KeyValue next() {
+                    Map.Entry<String, byte[]> e = it.next();
+                    return new Entry(e.getKey(), e.getValue());
+                }
+            };
+        }
+
+        @Override
+        public QueryResponseMetadata getMetadata() {
+            return metadata;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package io.logchain.bundler.crypto;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of each log-chain.crypto.hash choice on this CPU: one normalized-log hash (the
+ * normalizer's "source|ts|message|salt" string) and the Merkle root of a sealed batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HashBenchmark {
+    @Param({"SHA-256", "SHA-384", "SHA3-256", "SHA3-384", "BLAKE3"})
+    public String algorithm;
+
+    @Param({"200"})
+    public int messageBytes;
+
+    @Param({"50000"})
+    public int batchSize;
+
+    private HashProvider provider;
+    private String logLine;
+    private List<String> leaves;
+
+    @Setup
+    public void setup() {
+        provider = HashProvider.of(algorithm);
+        Random random = new Random(42);
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < messageBytes; i++) {
+            message.append((char) ('a' + random.nextInt(26)));
+        }
+        logLine = "payment-service|1735689600000|" + message + "|q2Vx3bS0l9uQ8kq1m0fJcW7Yd4tHn6pR2sV5xZ8aB1c=";
+        leaves = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            leaves.add(provider.hash(logLine + i));
+        }
+    }
+
+    @Benchmark
+    public String logHash() {
+        return provider.hash(logLine);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public String merkleRoot() {
+        return provider.merkleRoot(leaves);
+    }
+}
@@ -0,0 +1,226 @@
+package io.logchain.bundler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.logchain.bundler.crypto.HashProvider;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongConsumer;
+
+/**
+ * Parse stage of sealing: turns the records of a batch into leaf hashes, time bounds,
+ * filter hits and the JSON that gets published. Records that arrive already decoded (binary
+ * wire format, fused mode) skip JSON parsing. Large batches are split into chunks that run on the shared fork/join pool;
+ * chunk results are merged left-to-right so everything stays in the original record order.
+ * A record that cannot be prepared (unparseable, no timestamp or message) is left out of the
+ * batch and returned as rejected, so one bad record does not fail the rest.
+ */
+@Slf4j
+class BatchPreparer {
+    private static final int CHUNK = 2048;
+
+    private final ObjectMapper mapper;
+    private final List<String> filter;
+    private final LongConsumer freshness;
+    private final HashProvider hashProvider;
+    private final int chunkSize;
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    BatchPreparer(ObjectMapper mapper, List<String> filter, LongConsumer freshness, HashProvider hashProvider) {
+        this(mapper, filter, freshness, hashProvider, CHUNK);
+    }
+
+    /** {@code chunkSize} records or fewer are prepared on the calling thread; larger ranges are split */
+    BatchPreparer(ObjectMapper mapper, List<String> filter, LongConsumer freshness, HashProvider hashProvider, int chunkSize) {
+        this.mapper = mapper;
+        this.filter = filter;
+        this.freshness = freshness;
+        this.hashProvider = hashProvider;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Records with an event type match on it exactly; records from before it was carried (plain
+     * log lines) still match on the marker anywhere in the message.
+     */
+    boolean matchesFilter(String event, String message) {
+        if (event != null) {
+            return filter.contains(event);
+        }
+        if (message == null) {
+            return false;
+        }
+        for (String f : filter) {
+            if (message.contains(f)) return true;
+        }
+        return false;
+    }
+
+    record Prepared(List<String> leaves, List<String> records, long startTs, long endTs, List<JsonNode> filtered,
+                    long preparedAt, List<Rejected> rejected) {
+    }
+
+    record Rejected(BatchRecord record, Exception error) {
+    }
+
+    Prepared prepare(List<BatchRecord> batch) {
+        String[] leaves = new String[batch.size()];
+        String[] records = new String[batch.size()];
+        Exception[] errors = new Exception[batch.size()];
+        ChunkTask root = new ChunkTask(batch, leaves, records, errors, 0, batch.size());
+        Chunk merged = batch.size() <= chunkSize ? root.compute() : pool.invoke(root);
+        if (merged.rejected == 0) {
+            return new Prepared(Arrays.asList(leaves), Arrays.asList(records), merged.startTs, merged.endTs,
+                    merged.filtered, merged.preparedAt, List.of());
+        }
+        List<String> keptLeaves = new ArrayList<>(batch.size() - merged.rejected);
+        List<String> keptRecords = new ArrayList<>(batch.size() - merged.rejected);
+        List<Rejected> rejected = new ArrayList<>(merged.rejected);
+        for (int i = 0; i < batch.size(); i++) {
+            if (errors[i] != null) {
+                rejected.add(new Rejected(batch.get(i), errors[i]));
+            } else {
+                keptLeaves.add(leaves[i]);
+                keptRecords.add(records[i]);
+            }
+        }
+        return new Prepared(keptLeaves, keptRecords, merged.startTs, merged.endTs, merged.filtered, merged.preparedAt,
+                rejected);
+    }
+
+    private static final class Chunk {
+        long startTs = Long.MAX_VALUE;
+        long endTs = 0L;
+        long preparedAt = 0L;
+        int rejected;
+        List<JsonNode> filtered = new ArrayList<>();
+
+        Chunk mergeRight(Chunk right) {
+            startTs = Math.min(startTs, right.startTs);
+            endTs = Math.max(endTs, right.endTs);
+            preparedAt = Math.max(preparedAt, right.preparedAt);
+            rejected += right.rejected;
+            filtered.addAll(right.filtered);
+            return this;
+        }
+    }
+
+    private final class ChunkTask extends RecursiveTask<Chunk> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<BatchRecord> batch;
+        private final String[] leaves;
+        private final String[] records;
+        private final Exception[] errors;
+        private final int from;
+        private final int to;
+
+        ChunkTask(List<BatchRecord> batch, String[] leaves, String[] records, Exception[] errors, int from, int to) {
+            this.batch = batch;
+            this.leaves = leaves;
+            this.records = records;
+            this.errors = errors;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Chunk compute() {
+            if (to - from > chunkSize) {
+                int mid = (from + to) >>> 1;
+                ChunkTask left = new ChunkTask(batch, leaves, records, errors, from, mid);
+                ChunkTask right = new ChunkTask(batch, leaves, records, errors, mid, to);
+                left.fork();
+                Chunk r = right.compute();
+                return left.join().mergeRight(r);
+            }
+            Chunk chunk = new Chunk();
+            for (int i = from; i < to; i++) {
+                prepareOne(batch.get(i), i, chunk);
+            }
+            return chunk;
+        }
+
+        /**
+         * Everything that can fail happens before the chunk is updated, so a rejected record
+         * leaves no trace in the batch.
+         */
+        private void prepareOne(BatchRecord record, int index, Chunk chunk) {
+            try {
+                if (record.log() != null) {
+                    prepareDecoded(record, index, chunk);
+                    return;
+                }
+                String logMessage = record.json();
+                if (logMessage == null) {
+                    throw new IllegalArgumentException("empty record");
+                }
+                JsonNode node = mapper.readTree(logMessage);
+                JsonNode timestamp = node.get("timestamp");
+                JsonNode message = node.get("message");
+                if (timestamp == null || !timestamp.isTextual()) {
+                    throw new IllegalArgumentException("missing timestamp");
+                }
+                if (message == null || !message.isTextual()) {
+                    throw new IllegalArgumentException("missing message");
+                }
+                // extract timestamp
+                long ts = Instant.parse(timestamp.asText()).toEpochMilli();
+
+                records[index] = logMessage;
+                leaves[index] = node.has("hash") ? node.get("hash").asText() : hashProvider.hash(logMessage);
+                long now = Instant.now().toEpochMilli();
+                chunk.preparedAt = Math.max(chunk.preparedAt, now);
+                try {
+                    freshness.accept(now - ts); // ts = emitAt
+                } catch (Exception e) {
+                    log.error("Error recording freshness value: {}", e.getMessage());
+                }
+
+                if (ts < chunk.startTs) chunk.startTs = ts;
+                if (ts > chunk.endTs) chunk.endTs = ts;
+
+                JsonNode event = node.get("event");
+                if (matchesFilter(event == null || !event.isTextual() ? null : event.textValue(), message.textValue())) {
+                    log.debug("Filtered log: {}", message.textValue());
+                    chunk.filtered.add(node);
+                }
+            } catch (Exception e) {
+                errors[index] = e;
+                chunk.rejected++;
+            }
+        }
+
+        private void prepareDecoded(BatchRecord record, int index, Chunk chunk) throws Exception {
+            NormalizedLog normalized = record.log();
+            if (normalized.timestamp() == null) {
+                throw new IllegalArgumentException("missing timestamp");
+            }
+            long ts = Instant.parse(normalized.timestamp()).toEpochMilli();
+            String json = record.json() != null ? record.json() : mapper.writeValueAsString(normalized);
+            records[index] = json;
+            leaves[index] = normalized.hash() != null ? normalized.hash() : hashProvider.hash(json);
+
+            long now = Instant.now().toEpochMilli();
+            chunk.preparedAt = Math.max(chunk.preparedAt, now);
+            try {
+                freshness.accept(now - ts);
+            } catch (Exception e) {
+                log.error("Error recording freshness value: {}", e.getMessage());
+            }
+            if (ts < chunk.startTs) chunk.startTs = ts;
+            if (ts > chunk.endTs) chunk.endTs = ts;
+
+            if (matchesFilter(normalized.event(), normalized.message())) {
+                log.debug("Filtered log: {}", normalized.message());
+                chunk.filtered.add(mapper.valueToTree(normalized));
+            }
+        }
+    }
+}
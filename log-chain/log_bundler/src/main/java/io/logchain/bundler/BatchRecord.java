@@ -0,0 +1,17 @@
+package io.logchain.bundler;
+
+import io.logchain.bundler.trace.TraceContext;
+
+/**
+ * A normalized record on its way into a batch, with the coordinates of the Kafka record it
+ * came from. Either form may be missing: JSON read from the norm topic is parsed while sealing,
+ * and a decoded or in-process {@link NormalizedLog} is rendered to JSON only when published.
+ *
+ * @param tenant {@link TenantKey} id from the record header, when the producer set one
+ * @param eventTimeMillis timestamp from the {@link EventTimeWindows#HEADER} header, else {@link #UNKNOWN_TIME}
+ * @param trace stages passed so far when the record is traced, else null
+ */
+public record BatchRecord(String topic, int partition, long offset, String json, NormalizedLog log, String tenant,
+                          long eventTimeMillis, TraceContext trace) {
+    public static final long UNKNOWN_TIME = Long.MIN_VALUE;
+}
@@ -0,0 +1,100 @@
+package io.logchain.bundler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local snapshot of the records waiting in a bundler's unsealed batches, per partition, with the
+ * position consumption had reached. A restarted bundler puts them back into open batches and seeks
+ * past them instead of re-reading from the committed offset.
+ *
+ * A partition is restored only while its committed offset still equals the first snapshotted
+ * offset: then nothing since has been committed past it, and the records between the snapshot and
+ * the crash are simply read again. Anything else (another consumer moved on, the snapshot is older
+ * than a later commit) falls back to Kafka. Either way records are never lost, at worst re-batched.
+ */
+@Slf4j
+final class BundlerCheckpoint {
+    record Entry(long offset, String json, String tenant) {
+    }
+
+    record PartitionState(String topic, int partition, long next, List<Entry> records) {
+        long firstOffset() {
+            return records.get(0).offset();
+        }
+    }
+
+    record Snapshot(String stream, long takenAtMillis, List<PartitionState> partitions) {
+    }
+
+    private final ObjectMapper mapper;
+    private final Path file;
+    private final String stream;
+
+    BundlerCheckpoint(ObjectMapper mapper, Path dir, String stream) throws IOException {
+        this.mapper = mapper;
+        this.stream = stream;
+        Files.createDirectories(dir);
+        this.file = dir.resolve(stream.replaceAll("[^A-Za-z0-9._-]", "_") + ".json");
+    }
+
+    /**
+     * Atomically replaces the snapshot with the current open batches.
+     */
+    void write(Collection<OpenBatch> open, Map<TopicPartition, Long> consumed) throws IOException {
+        Map<TopicPartition, List<Entry>> byPartition = new LinkedHashMap<>();
+        for (OpenBatch batch : open) {
+            for (BatchRecord r : batch.values) {
+                String json = r.json() != null ? r.json() : mapper.writeValueAsString(r.log());
+                byPartition.computeIfAbsent(new TopicPartition(r.topic(), r.partition()), tp -> new ArrayList<>())
+                        .add(new Entry(r.offset(), json, r.tenant()));
+            }
+        }
+        List<PartitionState> partitions = new ArrayList<>(byPartition.size());
+        byPartition.forEach((tp, records) -> {
+            records.sort(Comparator.comparingLong(Entry::offset));
+            long next = consumed.getOrDefault(tp, records.get(records.size() - 1).offset() + 1);
+            partitions.add(new PartitionState(tp.topic(), tp.partition(), next, records));
+        });
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        mapper.writeValue(tmp.toFile(), new Snapshot(stream, System.currentTimeMillis(), partitions));
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Partition states of the last snapshot; empty when there is none or it cannot be read.
+     */
+    Map<TopicPartition, PartitionState> read() {
+        Map<TopicPartition, PartitionState> states = new HashMap<>();
+        if (!Files.exists(file)) {
+            return states;
+        }
+        try {
+            Snapshot snapshot = mapper.readValue(file.toFile(), Snapshot.class);
+            for (PartitionState p : snapshot.partitions()) {
+                if (!p.records().isEmpty()) states.put(new TopicPartition(p.topic(), p.partition()), p);
+            }
+            log.info("Checkpoint of stream {} from {} holds {} partitions", stream, snapshot.takenAtMillis(), states.size());
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable checkpoint {}: {}", file, e.getMessage());
+        }
+        return states;
+    }
+
+    static BatchRecord toRecord(PartitionState p, Entry e) {
+        return new BatchRecord(p.topic(), p.partition(), e.offset(), e.json(), null, e.tenant(), BatchRecord.UNKNOWN_TIME, null);
+    }
+}
@@ -1,207 +1,705 @@
 package io.logchain.bundler;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.logchain.bundler.adaptive.BatchSizeController;
+import io.logchain.bundler.codec.NormalizedLogCodec;
+import io.logchain.bundler.crypto.HashProvider;
+import io.logchain.bundler.config.BatchingMode;
 import io.logchain.bundler.config.BundlerConfig;
+import io.logchain.bundler.dlq.DeadLetterQueue;
+import io.logchain.bundler.fused.FusedChannel;
+import io.logchain.bundler.sink.AnchorSink;
+import io.logchain.bundler.spool.AnchorSpool;
+import io.logchain.bundler.spool.PendingAnchor;
+import io.logchain.bundler.spool.SpoolAnchorer;
+import io.logchain.bundler.trace.Stage;
+import io.logchain.bundler.trace.StageLatencies;
+import io.logchain.bundler.trace.TraceContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
-import org.apache.kafka.clients.producer.KafkaProducer;
-import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.hyperledger.fabric.client.*;
+import org.HdrHistogram.ConcurrentHistogram;
 import org.HdrHistogram.Histogram;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 import static org.apache.commons.lang3.RandomStringUtils.insecure;
 
 @Slf4j
 @RequiredArgsConstructor
-public class BundlerWorker implements Runnable {
+public class BundlerWorker implements Runnable, ConsumerRebalanceListener {
+    private static final String GLOBAL_KEY = "all";
+    private static final String WINDOW_KEY = "window|";
+    private static final String LATE_KEY = "late|";
+    private static final long WINDOW_CHECK_MILLIS = 100;
+
     private final ObjectMapper mapper = new ObjectMapper();
-    private final KafkaConsumer<String, String> consumer;
-    private final KafkaProducer<String, String> producer;
+    private final KafkaConsumer<String, byte[]> consumer;
+    private final AnchorSink sink;
 
     private final Histogram freshnessHistogram =
-        new Histogram(1, 3_600_000, 3);
-
-    private final Histogram anchorLatencyHistogram =
-        new Histogram(1, 3_600_000, 3);
+        new ConcurrentHistogram(1, 3_600_000, 3);
     BundlerConfig bundlerConfig;
     Contract contract;
+    private final String stream;
+    // the JSON norm topic, or the binary one when the normalizers write the binary wire format
+    private final String consumeTopic;
+    private final AnchorSpool spool;
+    private final SpoolAnchorer anchorer;
+    private final ExecutorService sealExecutor;
+    // set in fused mode: records come from the in-process normalizers instead of the norm topic
+    private final FusedChannel fused;
+    private final BatchPreparer batchPreparer;
+    private final NormalizedLogCodec codec;
+    private final HashProvider hashProvider;
+    private final BatchSizeController batchSizeController;
+    private final DeadLetterQueue deadLetters;
+    // set in EVENT_TIME batching
+    private final EventTimeWindows windows;
+    // null when tracing is off; traces of sealed batches wait here for their anchor's commit
+    private final StageLatencies stageLatencies;
+    private final Map<String, List<TraceContext>> sealedTraces = new ConcurrentHashMap<>();
+
+    // unsealed batches by key ("all" in GLOBAL mode, topic-partition in PARTITION mode, tenant id
+    // in TENANT mode, window or late window in EVENT_TIME mode), in the order they were opened
+    private final Map<String, OpenBatch> open = new LinkedHashMap<>();
+    private long nextWindowCheck;
+    // next offset to read per partition, as far as this worker has consumed
+    private final Map<TopicPartition, Long> consumed = new HashMap<>();
+    // null in fused mode or when disabled; restorable holds its last snapshot until partitions are assigned
+    private final BundlerCheckpoint checkpoint;
+    private final Map<TopicPartition, BundlerCheckpoint.PartitionState> restorable;
+    private long nextCheckpoint;
+    // set once drain() has checkpointed the open batches and committed up to them
+    private boolean drained;
+    private boolean checkpointDirty;
+    private volatile boolean running = true;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    public BundlerWorker(Contract contract, BundlerConfig bundlerConfig, String stream, NormalizedLogCodec codec,
+                         HashProvider hashProvider, AnchorSink sink) throws IOException {
+        this(contract, bundlerConfig, stream, bundlerConfig.getConsumeTopic(), codec, hashProvider, sink, null,
+                Metrics.globalRegistry,
+                new DeadLetterQueue(Metrics.globalRegistry), null);
+    }
 
-    public BundlerWorker(Contract contract, BundlerConfig bundlerConfig) throws IOException {
+    public BundlerWorker(Contract contract, BundlerConfig bundlerConfig, String stream, String consumeTopic,
+                         NormalizedLogCodec codec, HashProvider hashProvider, AnchorSink sink, FusedChannel fused,
+                         MeterRegistry meterRegistry, DeadLetterQueue deadLetters,
+                         StageLatencies stageLatencies) throws IOException {
+        this.deadLetters = deadLetters;
+        this.stageLatencies = stageLatencies;
         this.bundlerConfig = bundlerConfig;
         this.contract = contract;
-        consumer = new KafkaConsumer<>(bundlerConfig.toConsumerProps());
-        producer = new KafkaProducer<>(bundlerConfig.toProducerProps());
-        consumer.subscribe(List.of(bundlerConfig.getConsumeTopic()));
+        this.stream = stream;
+        this.consumeTopic = consumeTopic;
+        this.codec = codec;
+        this.hashProvider = hashProvider;
+        this.fused = fused;
+        this.batchSizeController = new BatchSizeController(bundlerConfig, stream, meterRegistry);
+        this.windows = bundlerConfig.getBatching() == BatchingMode.EVENT_TIME
+                ? new EventTimeWindows(bundlerConfig.getEventTime(), stream, meterRegistry) : null;
+        this.batchPreparer = new BatchPreparer(mapper, bundlerConfig.getFilter(), freshness -> {
+            freshnessHistogram.recordValue(freshness);
+            batchSizeController.recordFreshness(freshness);
+        }, hashProvider);
+        consumer = fused == null ? new KafkaConsumer<>(consumerProps()) : null;
+        this.sink = sink;
+        spool = new AnchorSpool(
+                Path.of(bundlerConfig.getSpool().getDir(), stream.replaceAll("[^A-Za-z0-9._-]", "_")),
+                bundlerConfig.getSpool().getSegmentBytes(),
+                bundlerConfig.getSpool().getMaxBytes());
+        anchorer = new SpoolAnchorer(spool, contract, sink, bundlerConfig, stream,
+                batchSizeController::recordAnchorLatency, this::tracesCommitted, this::tracesDropped, meterRegistry);
+        sealExecutor = Executors.newFixedThreadPool(Math.max(1, bundlerConfig.getSealParallelism()));
+        if (consumer != null && bundlerConfig.getCheckpoint().isEnabled()) {
+            checkpoint = new BundlerCheckpoint(mapper, Path.of(bundlerConfig.getCheckpoint().getDir()), stream);
+            restorable = checkpoint.read();
+        } else {
+            checkpoint = null;
+            restorable = new HashMap<>();
+        }
+        if (consumer != null) {
+            consumer.subscribe(List.of(consumeTopic), this);
+        }
     }
 
 
     @Override
     public void run() {
         freshnessHistogram.reset();
-        anchorLatencyHistogram.reset();
-        List<String> batch = new ArrayList<>(bundlerConfig.getBatchSize());
+        Thread anchorerThread = new Thread(anchorer, "anchorer-" + stream);
+        anchorerThread.start();
         try {
-            log.debug("Starting BundlerWorker for topic: {}", bundlerConfig.getConsumeTopic());
-            while (true) {
-                ConsumerRecords<String, String> records = consumer.poll(Duration.ofMillis(1));
-                if (records.isEmpty()) {
+            log.debug("Starting BundlerWorker for {} in {} mode",
+                    fused != null ? "fused normalizer channel" : "topic: " + consumeTopic,
+                    bundlerConfig.getBatching());
+            while (running) {
+                List<BatchRecord> records = nextRecords();
+                batchSizeController.recordIngested(records.size());
+                batchSizeController.tick(System.currentTimeMillis());
+                maybeCheckpoint(System.currentTimeMillis());
+                // quiet tenants and closed windows are sealed also while nothing arrives
+                List<OpenBatch> full = new ArrayList<>(expiredBatches());
+                if (records.isEmpty() && full.isEmpty()) {
                     continue;
                 }
-                log.info("Polled {} records", records.count());
-                for (ConsumerRecord<String, String> record : records) {
-                    batch.add(record.value());
-                    if (batch.size() >= bundlerConfig.getBatchSize()) {
-                        anchorBatch(batch);
-                        batch.clear();
-                        consumer.commitAsync();
+                if (!records.isEmpty()) log.info("Polled {} records", records.size());
+                checkpointDirty = true;
+                long polledAt = System.currentTimeMillis();
+                for (BatchRecord record : records) {
+                    if (record.trace() != null) record.trace().stampIfAbsent(Stage.BUNDLED, polledAt);
+                    TopicPartition tp = new TopicPartition(record.topic(), record.partition());
+                    OpenBatch batch = openBatchFor(record, tp);
+                    batch.add(record);
+                    consumed.put(tp, record.offset() + 1);
+                    if (batch.size() >= sealThreshold()) {
+                        open.remove(batch.key);
+                        full.add(batch);
                     }
                 }
+                int maxOpen = maxOpenBatches();
+                if (maxOpen > 0 && open.size() > maxOpen) {
+                    full.addAll(evictOldest(maxOpen));
+                }
+                if (!full.isEmpty()) {
+                    sealAll(full);
+                    // sealed batches are durable in the spool, anchoring happens in the background
+                    commit();
+                }
             }
+            drain();
+        } catch (RuntimeException e) {
+            // the executor would keep this to itself
+            log.error("BundlerWorker for stream {} failed", stream, e);
+            throw e;
         } finally {
-            consumer.close();
-            producer.close();
+            anchorer.stop();
+            anchorerThread.interrupt();
+            sealExecutor.shutdownNow();
+            if (consumer != null) consumer.close();
+            sink.close();
+            stopped.countDown();
             log.info("BundlerWorker stopped");
         }
     }
 
+    /**
+     * Asks the worker to stop polling and drain (see {@link #drain()}); the worker exits after its current loop.
+     */
+    public void stop() {
+        running = false;
+    }
+
+    public boolean awaitStopped(long timeoutMillis) throws InterruptedException {
+        return stopped.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Clean stop: with checkpoints, the open batches go into a final snapshot and offsets are
+     * committed up to them, so the next start resumes exactly there; without, they are sealed.
+     * Either way no unsealed work is left only in memory.
+     */
     @SneakyThrows
-    private void anchorBatch(List<String> batch) {
-        log.info("Anchoring batch of {} logs", batch.size());
-        String batchId = System.currentTimeMillis() + "-" + insecure().nextAlphabetic(3);
-        List<JsonNode> nodes = new ArrayList<>(batch.size());
-        List<String> leaves = new ArrayList<>(batch.size());
-
-        long startTs = Long.MAX_VALUE;
-        long endTs = 0L;
-        List<JsonNode> filteredTrans = new ArrayList<>();
-        long commitAt = 0;
-        for (String logMessage : batch) {
-            JsonNode node = mapper.readTree(logMessage);
-            nodes.add(node);
-
-            String hash = node.has("hash") ? node.get("hash").asText() : MerkleAlgorithm.computeHash(logMessage);
-            leaves.add(hash);
-
-            // extract timestamp
-            long ts = Instant.parse(node.get("timestamp").asText()).toEpochMilli();
-            commitAt = Instant.now().toEpochMilli();
-            long freshness = commitAt - ts; // ts = emitAt
-            try{
-                freshnessHistogram.recordValue(freshness);
-            } catch (Exception e) {
-                log.error("Error recording freshness value: {}", e.getMessage());
+    private void drain() {
+        if (checkpoint == null) {
+            if (!open.isEmpty()) {
+                log.info("Sealing {} open batches before stopping", open.size());
+                List<OpenBatch> batches = new ArrayList<>(open.values());
+                open.clear();
+                sealAll(batches);
+                commit();
             }
+            return;
+        }
+        Map<TopicPartition, OffsetAndMetadata> positions = commitPositions();
+        checkpoint.write(open.values(), consumed);
+        if (deadLetters.flush()) {
+            consumer.commitSync(positions);
+        } else {
+            // uncommitted, the snapshot reads as stale and its records are consumed again
+            log.warn("Dead letters not delivered, leaving offsets of stream {} uncommitted", stream);
+        }
+        log.info("Checkpointed {} open batches of stream {} before stopping", open.size(), stream);
+        // the snapshot holds them now; closing the consumer must neither seal them on revoke nor
+        // commit past them, or the next start would find the snapshot stale and skip its records
+        open.clear();
+        drained = true;
+    }
 
-            if (ts < startTs) startTs = ts;
-            if (ts > endTs) endTs = ts;
+    private void maybeCheckpoint(long now) {
+        if (checkpoint == null || !checkpointDirty || now < nextCheckpoint) {
+            return;
+        }
+        nextCheckpoint = now + bundlerConfig.getCheckpoint().getIntervalMillis();
+        checkpointDirty = false;
+        try {
+            checkpoint.write(open.values(), consumed);
+        } catch (IOException e) {
+            log.warn("Checkpoint of stream {} failed: {}", stream, e.getMessage());
+        }
+    }
 
-            // Filter
-            for (String f : bundlerConfig.getFilter()) {
-                String message = node.get("message").textValue();
-                if (message.contains(f)) {
-                    log.debug("Filtered log: {}", message);
-                    filteredTrans.add(node);
-                }
+    private OpenBatch openBatchFor(BatchRecord record, TopicPartition tp) {
+        return switch (bundlerConfig.getBatching()) {
+            case GLOBAL -> open.computeIfAbsent(GLOBAL_KEY, k -> new OpenBatch(k, batchSizeController.batchSize()));
+            case PARTITION -> open.computeIfAbsent(tp.toString(), k -> new OpenBatch(k, batchSizeController.batchSize()));
+            case TENANT -> {
+                TenantKey tenant = tenantOf(record).project(bundlerConfig.getTenant().getKeyFields());
+                yield open.computeIfAbsent(tenant.id(), k -> new OpenBatch(k, batchSizeController.batchSize(), tenant));
             }
+            case EVENT_TIME -> windowBatchFor(record, tp);
+        };
+    }
+
+    /**
+     * The open batch of the record's window; once the watermark has closed that window, its late
+     * batch. Records without a usable timestamp share a late batch and are rejected when it is sealed.
+     */
+    private OpenBatch windowBatchFor(BatchRecord record, TopicPartition tp) {
+        long eventTs = eventTimeOf(record);
+        if (eventTs == BatchRecord.UNKNOWN_TIME) {
+            return open.computeIfAbsent(LATE_KEY + "?", k -> new OpenBatch(k, 16, EventTimeWindows.NO_WINDOW, true));
         }
-        log.debug("Start merkel root computation");
-        String merkleRoot = MerkleAlgorithm.computeMerkleRoot(leaves);
+        windows.observe(tp, eventTs, System.currentTimeMillis());
+        long start = windows.windowStart(eventTs);
+        OpenBatch current = open.get(WINDOW_KEY + start);
+        if (current != null || !windows.isClosed(start)) {
+            return current != null ? current
+                    : open.computeIfAbsent(WINDOW_KEY + start, k -> new OpenBatch(k, batchSizeController.batchSize(), start, false));
+        }
+        windows.late();
+        return open.computeIfAbsent(LATE_KEY + start, k -> new OpenBatch(k, 16, start, true));
+    }
+
+    /**
+     * Timestamp from the record header when the normalizer set one, else from the record itself.
+     */
+    private long eventTimeOf(BatchRecord record) {
+        if (record.eventTimeMillis() != BatchRecord.UNKNOWN_TIME) {
+            return record.eventTimeMillis();
+        }
+        try {
+            String ts = record.log() != null
+                    ? record.log().timestamp()
+                    : mapper.readTree(record.json()).path("timestamp").asText(null);
+            return ts == null ? BatchRecord.UNKNOWN_TIME : Instant.parse(ts).toEpochMilli();
+        } catch (Exception e) {
+            return BatchRecord.UNKNOWN_TIME;
+        }
+    }
+
+    /**
+     * Records at which a batch is sealed: whole windows in EVENT_TIME mode, else the (adaptive) batch size.
+     */
+    private int sealThreshold() {
+        return bundlerConfig.getBatching() == BatchingMode.EVENT_TIME
+                ? bundlerConfig.getEventTime().getMaxWindowRecords()
+                : batchSizeController.batchSize();
+    }
 
+    private int maxOpenBatches() {
+        return switch (bundlerConfig.getBatching()) {
+            case TENANT -> bundlerConfig.getTenant().getMaxOpenShards();
+            case EVENT_TIME -> bundlerConfig.getEventTime().getMaxOpenWindows();
+            default -> 0;
+        };
+    }
 
-        // Anchor to Fabric
-        String fabricTxId = anchorMerkleRoot(batchId,
-                merkleRoot,
-                batch.size(),
-                startTs,
-                endTs,
-                mapper.writeValueAsString(filteredTrans)
-        );
-        log.debug("End merkel root computation");
-        long anchorLatency = Instant.now().toEpochMilli() - commitAt;
-        try{
-            anchorLatencyHistogram.recordValue(anchorLatency);
+    /**
+     * Tenant from the record header when the normalizer set one, else from the record itself;
+     * JSON without a header is parsed here, which only happens for records of older producers.
+     */
+    private TenantKey tenantOf(BatchRecord record) {
+        if (record.tenant() != null) {
+            return TenantKey.parse(record.tenant());
+        }
+        if (record.log() != null) {
+            return TenantKey.of(record.log());
+        }
+        try {
+            return TenantKey.of(mapper.readTree(record.json()));
         } catch (Exception e) {
-            log.error("Error recording freshness value: {}", e.getMessage());
+            // rejected when its batch is sealed
+            return new TenantKey(null, null, null);
         }
+    }
 
-        log.info("FabricTxId {}", fabricTxId);
-        for (JsonNode node : nodes) {
-            Map<String, Object> enriched = new HashMap<>();
-            enriched.put("log", node);
-            enriched.put("batchId", batchId);
-            enriched.put("merkleRoot", merkleRoot);
-            enriched.put("fabricTxId", fabricTxId);
-            enriched.put("anchoredAt", Instant.now().toString());
+    private List<OpenBatch> expiredBatches() {
+        return switch (bundlerConfig.getBatching()) {
+            case TENANT -> expiredShards();
+            case EVENT_TIME -> closedWindows();
+            default -> List.of();
+        };
+    }
 
-            String anchored = mapper.writeValueAsString(enriched);
-            producer.send(new ProducerRecord<>(bundlerConfig.getProduceTopic(), null, anchored));
+    /**
+     * Shard batches open for longer than the tenant window, taken out of the open set.
+     * Checked a few times per window rather than on every poll.
+     */
+    private List<OpenBatch> expiredShards() {
+        long window = bundlerConfig.getTenant().getWindowMillis();
+        long now = System.currentTimeMillis();
+        if (window <= 0 || now < nextWindowCheck) {
+            return List.of();
         }
-        // In các percentile
-        log.info("Freshness p50={} ms, p95={} ms, p99={} ms",
-            freshnessHistogram.getValueAtPercentile(50.0),
-            freshnessHistogram.getValueAtPercentile(95.0),
-            freshnessHistogram.getValueAtPercentile(99.0));
+        nextWindowCheck = now + Math.max(1, window / 4);
+        List<OpenBatch> expired = new ArrayList<>();
+        open.values().removeIf(batch -> {
+            boolean hit = now - batch.openedAtMillis >= window;
+            if (hit) expired.add(batch);
+            return hit;
+        });
+        return expired;
+    }
 
-        log.info("Anchor Latency p50={} ms, p95={} ms, p99={} ms",
-            anchorLatencyHistogram.getValueAtPercentile(50.0),
-            anchorLatencyHistogram.getValueAtPercentile(95.0),
-            anchorLatencyHistogram.getValueAtPercentile(99.0));
+    /**
+     * Window batches the watermark has closed, and late batches older than lateFlush, taken out
+     * of the open set. The watermark is advanced here, a few times per second.
+     */
+    private List<OpenBatch> closedWindows() {
+        long now = System.currentTimeMillis();
+        if (now < nextWindowCheck) {
+            return List.of();
+        }
+        nextWindowCheck = now + WINDOW_CHECK_MILLIS;
+        windows.advance(now);
+        long lateFlush = bundlerConfig.getEventTime().getLateFlushMillis();
+        List<OpenBatch> closed = new ArrayList<>();
+        open.values().removeIf(batch -> {
+            boolean hit = batch.late ? now - batch.openedAtMillis >= lateFlush : windows.isClosed(batch.windowStart);
+            if (hit) closed.add(batch);
+            return hit;
+        });
+        return closed;
+    }
 
+    /**
+     * Seals the oldest batches until the open set is back at maxOpen, bounding memory when
+     * records spread over many tenants or windows.
+     */
+    private List<OpenBatch> evictOldest(int maxOpen) {
+        List<OpenBatch> evicted = new ArrayList<>();
+        var it = open.values().iterator();
+        while (open.size() > maxOpen && it.hasNext()) {
+            evicted.add(it.next());
+            it.remove();
+        }
+        log.debug("Sealing {} batches early, more than {} open", evicted.size(), maxOpen);
+        return evicted;
+    }
 
+    private List<BatchRecord> nextRecords() {
+        if (fused != null) {
+            List<BatchRecord> drained = new ArrayList<>();
+            if (fused.drain(drained) == 0) {
+                LockSupport.parkNanos(1_000_000);
+            }
+            return drained;
+        }
+        ConsumerRecords<String, byte[]> polled = consumer.poll(Duration.ofMillis(1));
+        List<BatchRecord> records = new ArrayList<>(polled.count());
+        for (ConsumerRecord<String, byte[]> record : polled) {
+            try {
+                records.add(toBatchRecord(record, codec, stageLatencies != null));
+            } catch (RuntimeException e) {
+                // counts as consumed: it is in the dead-letter topic now
+                consumed.put(new TopicPartition(record.topic(), record.partition()), record.offset() + 1);
+                deadLetters.send("decode", record.topic(), record.partition(), record.offset(), record.key(),
+                        Base64.getEncoder().encodeToString(record.value()), e);
+            }
+        }
+        return records;
     }
 
+    /**
+     * The norm topic may carry JSON or binary records (e.g. during a switch-over);
+     * the leading magic byte tells them apart.
+     */
+    static BatchRecord toBatchRecord(ConsumerRecord<String, byte[]> record, NormalizedLogCodec codec, boolean traced) {
+        byte[] value = record.value();
+        Header tenantHeader = record.headers().lastHeader(TenantKey.HEADER);
+        String tenant = tenantHeader == null ? null : new String(tenantHeader.value(), StandardCharsets.UTF_8);
+        long eventTime = eventTimeHeader(record.headers().lastHeader(EventTimeWindows.HEADER));
+        Header traceHeader = traced ? record.headers().lastHeader(TraceContext.HEADER) : null;
+        TraceContext trace = traceHeader == null ? null : TraceContext.decode(traceHeader.value());
+        if (NormalizedLogCodec.isBinary(value)) {
+            return new BatchRecord(record.topic(), record.partition(), record.offset(), null, codec.decode(value), tenant,
+                    eventTime, trace);
+        }
+        String json = value == null ? null : new String(value, StandardCharsets.UTF_8);
+        return new BatchRecord(record.topic(), record.partition(), record.offset(), json, null, tenant, eventTime, trace);
+    }
 
     /**
-     * Anchors the Merkle root to the Fabric contract with retry logic.
-     * Submits the "PutAnchor" transaction, retrying up to maxRetries if the contract is unavailable.
-     * Throws RuntimeException if all attempts fail.
+     * Stamps the traced records of a sealed batch and keeps them until the batch is anchored.
+     * Records the preparer rejected are dead letters, not part of the anchor, so not traced on.
      */
-    private String anchorMerkleRoot(
-            String batchId, String merkleRoot,
-            int count, long startTsMillis, long endTsMillis,
-            String note
-    ) {
-        int maxRetries = bundlerConfig.getMaxRetries();
-        long delayMillis = bundlerConfig.getDelayMillis();
-        for (int attempt = 1; attempt <= maxRetries; attempt++) {
-            try {
-                byte[] result = contract.submitTransaction(
-                        "PutAnchor",
-                        batchId,
-                        merkleRoot,
-                        String.valueOf(count),
-                        String.valueOf(startTsMillis),
-                        String.valueOf(endTsMillis),
-                        String.valueOf(System.currentTimeMillis()),
-                        "",
-                        note
-                );
-                return new String(result, StandardCharsets.UTF_8);
-            } catch (EndorseException | SubmitException | CommitStatusException | CommitException e) {
-                log.warn("anchorMerkleRoot attempt {} failed: {}", attempt, e.getMessage());
-                if (attempt == maxRetries) throw new RuntimeException("Contract unavailable after retries", e);
-                try {
-                    Thread.sleep(delayMillis);
-                } catch (InterruptedException ignored) {
+    private void traceSealed(String batchId, List<BatchRecord> batch, List<BatchPreparer.Rejected> rejected) {
+        if (stageLatencies == null) {
+            return;
+        }
+        Set<BatchRecord> dropped = Collections.newSetFromMap(new IdentityHashMap<>());
+        rejected.forEach(r -> dropped.add(r.record()));
+        long now = System.currentTimeMillis();
+        List<TraceContext> traces = new ArrayList<>();
+        for (BatchRecord r : batch) {
+            if (r.trace() != null && !dropped.contains(r)) traces.add(r.trace().stamp(Stage.SEALED, now));
+        }
+        if (!traces.isEmpty()) sealedTraces.put(batchId, traces);
+    }
+
+    private void tracesCommitted(PendingAnchor anchored) {
+        List<TraceContext> traces = sealedTraces.remove(anchored.batchId());
+        if (traces == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        traces.forEach(t -> stageLatencies.record(t.stamp(Stage.COMMITTED, now)));
+    }
+
+    // a parked batch never commits; its traces would otherwise be kept forever
+    private void tracesDropped(PendingAnchor parked) {
+        sealedTraces.remove(parked.batchId());
+    }
+
+    private static long eventTimeHeader(Header header) {
+        if (header == null) {
+            return BatchRecord.UNKNOWN_TIME;
+        }
+        try {
+            return Long.parseLong(new String(header.value(), StandardCharsets.UTF_8));
+        } catch (NumberFormatException e) {
+            return BatchRecord.UNKNOWN_TIME;
+        }
+    }
+
+    private Properties consumerProps() {
+        Properties props = bundlerConfig.toConsumerProps();
+        // values are decoded per record, see toBatchRecord
+        props.put("value.deserializer", ByteArrayDeserializer.class.getName());
+        return props;
+    }
+
+    private void commit() {
+        if (!deadLetters.flush()) {
+            // the positions cover records whose dead letters are not delivered yet; retried next commit
+            return;
+        }
+        if (fused != null) {
+            // raw-topic positions; the normalizers commit them on their own consumers
+            fused.markSealed(commitPositions());
+            return;
+        }
+        consumer.commitAsync(commitPositions(), (offsets, e) -> {
+            if (e != null) log.warn("Offset commit failed: {}", e.getMessage());
+        });
+    }
+
+    /**
+     * Partitions are about to move to another consumer: seal every batch holding their
+     * records and commit exactly up to what has been spooled, so nothing is lost or re-batched.
+     */
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        if (drained) {
+            // drain() committed up to the checkpointed records already
+            partitions.forEach(consumed::remove);
+            return;
+        }
+        List<OpenBatch> affected = new ArrayList<>();
+        open.values().removeIf(batch -> {
+            boolean hit = partitions.stream().anyMatch(batch::covers);
+            if (hit) affected.add(batch);
+            return hit;
+        });
+        if (!affected.isEmpty()) {
+            log.info("Sealing {} open batches before revoking {}", affected.size(), partitions);
+            sealAll(affected);
+        }
+        Map<TopicPartition, OffsetAndMetadata> positions = commitPositions();
+        try {
+            if (deadLetters.flush()) {
+                consumer.commitSync(positions);
+            } else {
+                log.warn("Dead letters not delivered, not committing {} on revoke", partitions);
+            }
+        } catch (Exception e) {
+            log.warn("Offset commit on revoke failed: {}", e.getMessage());
+        }
+        partitions.forEach(consumed::remove);
+        if (windows != null) windows.forget(partitions);
+    }
+
+    /**
+     * Puts checkpointed records of the assigned partitions back into open batches and seeks past
+     * them, where the checkpoint is still current (see {@link BundlerCheckpoint}).
+     */
+    @Override
+    public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+        log.info("Assigned {}", partitions);
+        if (restorable.isEmpty()) {
+            return;
+        }
+        Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(new HashSet<>(partitions));
+        List<OpenBatch> full = new ArrayList<>();
+        for (TopicPartition tp : partitions) {
+            BundlerCheckpoint.PartitionState state = restorable.remove(tp);
+            if (state == null) {
+                continue;
+            }
+            OffsetAndMetadata position = committed.get(tp);
+            if (position == null || position.offset() != state.firstOffset()) {
+                log.info("Checkpoint of {} is stale (committed {}, snapshot from {}), reading from Kafka",
+                        tp, position == null ? null : position.offset(), state.firstOffset());
+                continue;
+            }
+            for (BundlerCheckpoint.Entry entry : state.records()) {
+                BatchRecord record = BundlerCheckpoint.toRecord(state, entry);
+                OpenBatch batch = openBatchFor(record, tp);
+                batch.add(record);
+                if (batch.size() >= sealThreshold()) {
+                    open.remove(batch.key);
+                    full.add(batch);
                 }
-            } catch (Exception e) {
-                throw new RuntimeException("Unexpected error during anchorMerkleRoot", e);
             }
+            consumed.put(tp, state.next());
+            consumer.seek(tp, state.next());
+            log.info("Restored {} unsealed records of {} from checkpoint, resuming at {}",
+                    state.records().size(), tp, state.next());
+        }
+        if (!full.isEmpty()) {
+            sealAll(full);
+            commit();
+        }
+    }
+
+    /**
+     * Safe commit position per partition: everything consumed, except records still waiting
+     * in an unsealed batch.
+     */
+    private Map<TopicPartition, OffsetAndMetadata> commitPositions() {
+        Map<TopicPartition, OffsetAndMetadata> positions = new HashMap<>();
+        consumed.forEach((tp, next) -> {
+            long pos = next;
+            for (OpenBatch batch : open.values()) {
+                if (batch.covers(tp)) pos = Math.min(pos, batch.firstOffset(tp));
+            }
+            positions.put(tp, new OffsetAndMetadata(pos));
+        });
+        return positions;
+    }
+
+    /**
+     * Prepares the batches in parallel, then spools them in order.
+     */
+    private void sealAll(List<OpenBatch> batches) {
+        if (batches.size() == 1) {
+            spoolBatch(seal(batches.get(0)));
+            return;
+        }
+        List<CompletableFuture<PendingAnchor>> prepared = batches.stream()
+                .map(b -> CompletableFuture.supplyAsync(() -> seal(b), sealExecutor))
+                .toList();
+        prepared.forEach(f -> spoolBatch(f.join()));
+    }
+
+    @SneakyThrows
+    private void spoolBatch(PendingAnchor pending) {
+        if (pending == null) {
+            return;
+        }
+        spool.append(pending);
+        log.debug("Batch {} spooled, {} pending", pending.batchId(), spool.pendingCount());
+    }
+
+    /**
+     * Seals a batch: computes leaves, time bounds and the Merkle root ({@link BatchPreparer}
+     * fans the parsing out over the fork/join pool). Submission to Fabric is left to the {@link SpoolAnchorer}.
+     * Records the preparer rejects go to the dead-letter queue; null when none is left.
+     */
+    @SneakyThrows
+    private PendingAnchor seal(OpenBatch openBatch) {
+        List<BatchRecord> batch = openBatch.values;
+        log.info("Anchoring batch of {} logs", batch.size());
+        String batchId = switch (bundlerConfig.getBatching()) {
+            case PARTITION -> openBatch.rangeBatchId();
+            case TENANT -> openBatch.tenant.slug() + "-" + System.currentTimeMillis() + "-" + insecure().nextAlphabetic(3);
+            case GLOBAL -> System.currentTimeMillis() + "-" + insecure().nextAlphabetic(3);
+            case EVENT_TIME -> (openBatch.late ? "late-" : "") + windows.windowId(openBatch.windowStart)
+                    + "-" + System.currentTimeMillis() + "-" + insecure().nextAlphabetic(3);
+        };
+        BatchPreparer.Prepared prepared = batchPreparer.prepare(batch);
+        for (BatchPreparer.Rejected rejected : prepared.rejected()) {
+            BatchRecord r = rejected.record();
+            deadLetters.send("prepare", r.topic(), r.partition(), r.offset(), null,
+                    r.json() != null ? r.json() : String.valueOf(r.log()), rejected.error());
         }
-        throw new RuntimeException("Failed to anchor Merkle root after retries");
+        if (prepared.records().isEmpty()) {
+            log.warn("Batch {} has no valid records left, nothing to anchor", batchId);
+            return null;
+        }
+
+        traceSealed(batchId, batch, prepared.rejected());
+
+        log.debug("Start merkel root computation");
+        String merkleRoot = hashProvider.merkleRootParallel(prepared.leaves());
+        log.debug("End merkel root computation");
+
+        // In các percentile
+        log.info("Freshness p50={} ms, p95={} ms, p99={} ms",
+            freshnessHistogram.getValueAtPercentile(50.0),
+            freshnessHistogram.getValueAtPercentile(95.0),
+            freshnessHistogram.getValueAtPercentile(99.0));
+
+        return new PendingAnchor(
+                stream,
+                batchId,
+                merkleRoot,
+                prepared.records().size(),
+                prepared.startTs(),
+                prepared.endTs(),
+                mapper.writeValueAsString(prepared.filtered()),
+                prepared.preparedAt(),
+                openBatch.nextOffsets(),
+                prepared.records(),
+                prepared.leaves(),
+                hashProvider.name(),
+                openBatch.tenant == null ? null : openBatch.tenant.id()
+        );
     }
 }
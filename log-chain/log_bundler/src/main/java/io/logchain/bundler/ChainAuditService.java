@@ -0,0 +1,196 @@
+package io.logchain.bundler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.logchain.bundler.config.AuditConfig;
+import io.logchain.bundler.config.LogChainConfig;
+import io.logchain.bundler.dto.ChainAuditReport;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hyperledger.fabric.client.Contract;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Checks prevRoot continuity of anchor streams.
+ * The range between the persisted checkpoint and the stream head is split into segments that are
+ * fetched and checked in parallel; only the segment boundaries are stitched sequentially.
+ * The checkpoint only advances when the whole range is intact.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChainAuditService {
+    final Contract contract;
+    final LogChainConfig logChainConfig;
+    final ObjectMapper mapper;
+
+    @Scheduled(cron = "${log-chain.audit.cron:0 0 2 * * *}")
+    public void nightlyAudit() {
+        AuditConfig cfg = logChainConfig.getAudit();
+        for (String stream : cfg.getStreams()) {
+            try {
+                ChainAuditReport report = audit(stream, cfg.isFull());
+                if (report.isIntact()) {
+                    log.info("Chain audit of {} ok: seq {}..{} ({} anchors, {} ms)",
+                            stream, report.getFromSeq(), report.getToSeq(), report.getChecked(), report.getTookMillis());
+                } else {
+                    log.error("Chain audit of {} found {} breaks: {}", stream, report.getBreaks().size(), report.getBreaks());
+                }
+            } catch (Exception e) {
+                log.error("Chain audit of {} failed: {}", stream, e.getMessage(), e);
+            }
+        }
+    }
+
+    public ChainAuditReport audit(String stream, boolean full) throws Exception {
+        long started = System.currentTimeMillis();
+        AuditConfig cfg = logChainConfig.getAudit();
+        Checkpoint from = full ? Checkpoint.GENESIS : loadCheckpoint(stream);
+
+        JsonNode head = streamHead(stream);
+        long headSeq = head == null ? 0 : head.path("seq").asLong();
+        if (headSeq <= from.seq()) {
+            return report(stream, from.seq(), headSeq, 0, List.of(), started);
+        }
+
+        int segmentSize = Math.max(1, Math.min(cfg.getSegmentSize(), 1000));
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, cfg.getParallelism()));
+        List<CompletableFuture<Segment>> segments = new ArrayList<>();
+        try {
+            for (long lo = from.seq() + 1; lo <= headSeq; lo += segmentSize) {
+                long segFrom = lo;
+                long segTo = Math.min(headSeq, lo + segmentSize - 1);
+                segments.add(CompletableFuture.supplyAsync(() -> checkSegment(stream, segFrom, segTo), executor));
+            }
+
+            // stitch segment boundaries in order
+            List<String> breaks = new ArrayList<>();
+            String prevRoot = from.root();
+            long checked = 0;
+            for (CompletableFuture<Segment> future : segments) {
+                Segment seg = future.join();
+                breaks.addAll(seg.breaks());
+                checked += seg.count();
+                if (seg.count() > 0 && !Objects.equals(prevRoot, seg.firstPrevRoot())) {
+                    breaks.add("seq " + seg.firstSeq() + ": prevRoot does not link to previous anchor");
+                }
+                if (seg.count() > 0) prevRoot = seg.lastRoot();
+            }
+
+            if (breaks.isEmpty()) {
+                saveCheckpoint(stream, new Checkpoint(headSeq, prevRoot));
+            }
+            return report(stream, from.seq() + 1, headSeq, checked, breaks, started);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Segment checkSegment(String stream, long fromSeq, long toSeq) {
+        JsonNode anchors;
+        try {
+            byte[] result = contract.evaluateTransaction("ListStreamAnchors", stream,
+                    String.valueOf(fromSeq), String.valueOf(toSeq));
+            anchors = mapper.readTree(result);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not read seq " + fromSeq + ".." + toSeq + " of " + stream, e);
+        }
+
+        List<String> breaks = new ArrayList<>();
+        long expected = fromSeq;
+        String firstPrevRoot = null;
+        String lastRoot = null;
+        for (JsonNode anchor : anchors) {
+            long seq = anchor.path("seq").asLong();
+            String prev = textOrNull(anchor.get("prevRoot"));
+            if (seq != expected) {
+                breaks.add("seq " + expected + ".." + (seq - 1) + ": missing");
+            }
+            if (seq == fromSeq) {
+                firstPrevRoot = prev;
+            } else if (lastRoot != null && !Objects.equals(lastRoot, prev)) {
+                breaks.add("seq " + seq + ": prevRoot does not link to previous anchor");
+            }
+            lastRoot = textOrNull(anchor.get("root"));
+            expected = seq + 1;
+        }
+        if (expected <= toSeq) {
+            breaks.add("seq " + expected + ".." + toSeq + ": missing");
+        }
+        return new Segment(fromSeq, firstPrevRoot, lastRoot, anchors.size(), breaks);
+    }
+
+    private JsonNode streamHead(String stream) {
+        try {
+            return mapper.readTree(contract.evaluateTransaction("StreamHead", stream));
+        } catch (Exception e) {
+            log.info("Stream {} has no head: {}", stream, e.getMessage());
+            return null;
+        }
+    }
+
+    private ChainAuditReport report(String stream, long fromSeq, long toSeq, long checked, List<String> breaks, long started) {
+        return ChainAuditReport.builder()
+                .stream(stream)
+                .fromSeq(fromSeq)
+                .toSeq(toSeq)
+                .checked(checked)
+                .intact(breaks.isEmpty())
+                .breaks(breaks)
+                .tookMillis(System.currentTimeMillis() - started)
+                .build();
+    }
+
+    // -------- checkpoint --------
+    private Path checkpointPath(String stream) {
+        String file = stream.replaceAll("[^A-Za-z0-9._-]", "_") + ".json";
+        return Path.of(logChainConfig.getAudit().getCheckpointDir(), file);
+    }
+
+    private Checkpoint loadCheckpoint(String stream) throws IOException {
+        Path path = checkpointPath(stream);
+        if (!Files.exists(path)) {
+            return Checkpoint.GENESIS;
+        }
+        JsonNode node = mapper.readTree(path.toFile());
+        return new Checkpoint(node.path("seq").asLong(), textOrNull(node.get("root")));
+    }
+
+    private void saveCheckpoint(String stream, Checkpoint checkpoint) throws IOException {
+        Path path = checkpointPath(stream);
+        Files.createDirectories(path.getParent());
+        ObjectNode node = mapper.createObjectNode()
+                .put("stream", stream)
+                .put("seq", checkpoint.seq())
+                .put("root", checkpoint.root())
+                .put("auditedAt", Instant.now().toString());
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        mapper.writeValue(tmp.toFile(), node);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String textOrNull(JsonNode node) {
+        return node == null || node.isNull() || node.asText().isEmpty() ? null : node.asText();
+    }
+
+    private record Checkpoint(long seq, String root) {
+        static final Checkpoint GENESIS = new Checkpoint(0, null);
+    }
+
+    private record Segment(long firstSeq, String firstPrevRoot, String lastRoot, int count, List<String> breaks) {
+    }
+}
@@ -4,22 +4,39 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Streams;
 import io.logchain.bundler.config.ElasticConfig;
 import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.logchain.bundler.dto.LogPage;
 import org.apache.http.HttpHost;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.search.ClosePointInTimeRequest;
+import org.elasticsearch.action.search.OpenPointInTimeRequest;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
 import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.PointInTimeBuilder;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 
@@ -28,6 +45,10 @@ import static java.util.Collections.emptyList;
 @Service
 @RequiredArgsConstructor
 public class ElasticService {
+    // how long a search snapshot stays open between two page requests
+    private static final TimeValue PIT_KEEP_ALIVE = TimeValue.timeValueMinutes(2);
+    private static final int BATCH_PAGE = 10_000;
+
     final ElasticConfig elasticConfig;
     final ObjectMapper mapper;
 
@@ -47,24 +68,14 @@ public class ElasticService {
         return "ok";
     }
 
-    public List<?> searchLogs(long startTsMillis, long endTsMillis, String message, String hash, int page, int size) throws IOException {
+    public List<?> searchLogs(long startTsMillis, long endTsMillis, String message, String hash, TenantKey tenant,
+                              int page, int size) throws IOException {
         var client = createClient();
 
         SearchRequest searchRequest = new SearchRequest(elasticConfig.getNormLogIndex());
         SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
 
-        var boolQuery = QueryBuilders.boolQuery()
-                .must(QueryBuilders.rangeQuery("timestamp")
-                        .gte(startTsMillis)
-                        .lte(endTsMillis));
-        if (!message.isBlank()) {
-            boolQuery.must(QueryBuilders.matchQuery("message", message));
-        }
-        if (!hash.isBlank()) {
-            boolQuery.must(QueryBuilders.matchQuery("hash", hash));
-        }
-
-        sourceBuilder.query(boolQuery);
+        sourceBuilder.query(logQuery(startTsMillis, endTsMillis, message, hash, tenant));
         sourceBuilder.from(page * size);
         sourceBuilder.size(size);
         searchRequest.source(sourceBuilder);
@@ -77,37 +88,188 @@ public class ElasticService {
         return items;
     }
 
+    /**
+     * Cursor pagination over a point-in-time snapshot of the norm-log indices: every page is a
+     * search_after from the last sort values, so deep pages cost the same as the first one.
+     * A null cursor opens a new snapshot. Snapshots are left to expire after PIT_KEEP_ALIVE rather
+     * than closed on the last page, so cursors of earlier pages stay usable for going back.
+     *
+     * @param fields source fields to return, all when empty
+     */
+    public LogPage searchLogsPage(long startTsMillis, long endTsMillis, String message, String hash, TenantKey tenant,
+                                  int size, String cursor, List<String> fields) throws IOException {
+        try (var client = createClient()) {
+            String pitId;
+            Object[] searchAfter = null;
+            if (cursor == null || cursor.isBlank()) {
+                pitId = client.openPointInTime(
+                        new OpenPointInTimeRequest(elasticConfig.getNormLogIndex()).keepAlive(PIT_KEEP_ALIVE),
+                        RequestOptions.DEFAULT).getPointInTimeId();
+            } else {
+                ObjectNode decoded = decodeCursor(cursor);
+                pitId = decoded.path("pit").asText();
+                searchAfter = mapper.convertValue(decoded.get("after"), Object[].class);
+            }
+
+            SearchSourceBuilder sourceBuilder = new SearchSourceBuilder()
+                    .query(logQuery(startTsMillis, endTsMillis, message, hash, tenant))
+                    .size(size)
+                    .sort(SortBuilders.fieldSort("timestamp").order(SortOrder.ASC))
+                    .sort(SortBuilders.pitTiebreaker())
+                    .pointInTimeBuilder(new PointInTimeBuilder(pitId).setKeepAlive(PIT_KEEP_ALIVE))
+                    .trackTotalHits(false);
+            if (searchAfter != null) {
+                sourceBuilder.searchAfter(searchAfter);
+            }
+            if (fields != null && !fields.isEmpty()) {
+                sourceBuilder.fetchSource(fields.toArray(String[]::new), null);
+            }
+
+            SearchResponse response = client.search(new SearchRequest().source(sourceBuilder), RequestOptions.DEFAULT);
+            SearchHit[] hits = response.getHits().getHits();
+            List<Map<String, Object>> items = Streams.stream(response.getHits().iterator())
+                    .map(SearchHit::getSourceAsMap)
+                    .toList();
+            // the snapshot id may change between pages, always continue from the latest one
+            String nextPit = response.pointInTimeId() != null ? response.pointInTimeId() : pitId;
+            if (hits.length < size) {
+                return LogPage.builder().items(items).build();
+            }
+            return LogPage.builder()
+                    .items(items)
+                    .cursor(encodeCursor(nextPit, hits[hits.length - 1].getSortValues()))
+                    .build();
+        }
+    }
+
+    /**
+     * tenant restricts the search to one app/env/source; its null parts are not filtered on.
+     */
+    private static BoolQueryBuilder logQuery(long startTsMillis, long endTsMillis, String message, String hash,
+                                             TenantKey tenant) {
+        var boolQuery = QueryBuilders.boolQuery()
+                .must(QueryBuilders.rangeQuery("timestamp")
+                        .gte(startTsMillis)
+                        .lte(endTsMillis));
+        if (message != null && !message.isBlank()) {
+            boolQuery.must(QueryBuilders.matchQuery("message", message));
+        }
+        if (hash != null && !hash.isBlank()) {
+            // hash is a keyword: exact match, no analysis of the Base64 string
+            boolQuery.filter(QueryBuilders.termQuery("hash", hash));
+        }
+        if (tenant != null) {
+            if (tenant.app() != null) boolQuery.filter(QueryBuilders.termQuery("app", tenant.app()));
+            if (tenant.env() != null) boolQuery.filter(QueryBuilders.termQuery("env", tenant.env()));
+            if (tenant.source() != null) boolQuery.filter(QueryBuilders.termQuery("source", tenant.source()));
+        }
+        return boolQuery;
+    }
+
+    private String encodeCursor(String pitId, Object[] sortValues) throws IOException {
+        ObjectNode node = mapper.createObjectNode().put("pit", pitId);
+        ArrayNode after = node.putArray("after");
+        for (Object v : sortValues) {
+            after.addPOJO(v);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(mapper.writeValueAsBytes(node));
+    }
+
+    private ObjectNode decodeCursor(String cursor) {
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(cursor.getBytes(StandardCharsets.US_ASCII));
+            ObjectNode node = (ObjectNode) mapper.readTree(json);
+            if (!node.hasNonNull("pit") || !node.path("after").isArray()) {
+                throw new IllegalArgumentException("incomplete cursor");
+            }
+            return node;
+        } catch (IllegalArgumentException | ClassCastException | IOException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + e.getMessage(), e);
+        }
+    }
+
     public List<Map<String, Object>> queryAnchorInSameBatchByHash(String hash) throws IOException {
-        var client = createClient();
         // Step 1: Find the log with the given hash
-        SearchRequest findLogRequest = new SearchRequest(elasticConfig.getAnchorIndex());
-        SearchSourceBuilder findLogSource = new SearchSourceBuilder();
-        findLogSource.query(QueryBuilders.matchQuery("log.hash", hash));
-        findLogSource.size(1);
-
-        findLogRequest.source(findLogSource);
-        SearchResponse findLogResponse = client.search(findLogRequest, RequestOptions.DEFAULT);
-        SearchHit[] hits = findLogResponse.getHits().getHits();
-        if (hits.length == 0) {
-            client.close();
-            return emptyList();
-        }
-        String batchId = (String) hits[0].getSourceAsMap().get("batchId");
-        if (batchId == null) {
-            client.close();
+        Map<String, Object> anchored = findAnchoredLog(hash);
+        if (anchored == null || anchored.get("batchId") == null) {
             return emptyList();
         }
         // Step 2: Query all anchor with the same batchId
-        SearchRequest batchLogsRequest = new SearchRequest(elasticConfig.getAnchorIndex());
-        SearchSourceBuilder batchLogsSource = new SearchSourceBuilder();
-        batchLogsSource.query(QueryBuilders.termQuery("batchId", batchId));
-        batchLogsSource.size(1000); // limit to 1000 logs for safety
-        batchLogsRequest.source(batchLogsSource);
-        SearchResponse batchLogsResponse = client.search(batchLogsRequest, RequestOptions.DEFAULT);
-        List<Map<String, Object>> logs = Streams.stream(batchLogsResponse.getHits().iterator())
-                .map(SearchHit::getSourceAsMap)
-                .toList();
-        client.close();
-        return logs;
+        return queryAnchorsByBatchId(anchored.get("batchId").toString());
+    }
+
+    /**
+     * All records of a batch in indexing order, paged over a point-in-time snapshot so batches larger
+     * than one search page are returned whole. Only needed for batches anchored without a manifest.
+     */
+    public List<Map<String, Object>> queryAnchorsByBatchId(String batchId) throws IOException {
+        try (var client = createClient()) {
+            String pitId = client.openPointInTime(
+                    new OpenPointInTimeRequest(elasticConfig.getAnchorIndex()).keepAlive(PIT_KEEP_ALIVE),
+                    RequestOptions.DEFAULT).getPointInTimeId();
+            List<Map<String, Object>> logs = new ArrayList<>();
+            Object[] searchAfter = null;
+            try {
+                while (true) {
+                    SearchSourceBuilder source = new SearchSourceBuilder()
+                            .query(QueryBuilders.termQuery("batchId", batchId))
+                            .size(BATCH_PAGE)
+                            .sort(SortBuilders.pitTiebreaker())
+                            .pointInTimeBuilder(new PointInTimeBuilder(pitId).setKeepAlive(PIT_KEEP_ALIVE))
+                            .trackTotalHits(false);
+                    if (searchAfter != null) {
+                        source.searchAfter(searchAfter);
+                    }
+                    SearchResponse response = client.search(new SearchRequest().source(source), RequestOptions.DEFAULT);
+                    SearchHit[] hits = response.getHits().getHits();
+                    for (SearchHit hit : hits) {
+                        logs.add(hit.getSourceAsMap());
+                    }
+                    if (response.pointInTimeId() != null) {
+                        pitId = response.pointInTimeId();
+                    }
+                    if (hits.length < BATCH_PAGE) {
+                        return logs;
+                    }
+                    searchAfter = hits[hits.length - 1].getSortValues();
+                }
+            } finally {
+                client.closePointInTime(new ClosePointInTimeRequest(pitId), RequestOptions.DEFAULT);
+            }
+        }
+    }
+
+    /**
+     * Anchored document of the log with the given hash, or null. Enough to locate the batch
+     * (batchId and leaf index). Records are keyed by their leaf hash, so this is an id lookup across
+     * the daily indices; documents indexed before that are still found through log.hash.keyword.
+     */
+    public Map<String, Object> findAnchoredLog(String hash) throws IOException {
+        try (var client = createClient()) {
+            SearchRequest request = new SearchRequest(elasticConfig.getAnchorIndex());
+            SearchSourceBuilder source = new SearchSourceBuilder();
+            source.query(QueryBuilders.boolQuery()
+                    .should(QueryBuilders.idsQuery().addIds(hash))
+                    .should(QueryBuilders.termQuery("log.hash.keyword", hash)));
+            source.size(1);
+            source.trackTotalHits(false);
+            request.source(source);
+            SearchHit[] hits = client.search(request, RequestOptions.DEFAULT).getHits().getHits();
+            return hits.length == 0 ? null : hits[0].getSourceAsMap();
+        }
+    }
+
+    /**
+     * Batch manifest by batchId (a single keyed GET), or null when the batch was written as envelopes.
+     */
+    public Map<String, Object> getManifest(String batchId) throws IOException {
+        try (var client = createClient()) {
+            GetResponse response = client.get(new GetRequest(elasticConfig.getAnchorManifestIndex(), batchId), RequestOptions.DEFAULT);
+            return response.isExists() ? response.getSourceAsMap() : null;
+        } catch (ElasticsearchStatusException e) {
+            // manifest index does not exist yet
+            if (e.status() == RestStatus.NOT_FOUND) return null;
+            throw e;
+        }
     }
 }
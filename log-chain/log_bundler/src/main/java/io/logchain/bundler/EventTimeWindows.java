@@ -0,0 +1,105 @@
+package io.logchain.bundler;
+
+import io.logchain.bundler.config.EventTimeConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Aligned event-time windows and the watermark that closes them, for EVENT_TIME batching.
+ *
+ * Each partition's watermark trails the newest timestamp seen on it by watermarkLag, and the
+ * worker's watermark is the lowest of them, so a partition that is behind (e.g. catching up)
+ * keeps the windows of its records open. Partitions idle for idleTimeout do not hold it back;
+ * when all are idle, event time is taken to advance with the wall clock from the newest timestamp
+ * seen, so the last windows still close. The watermark never moves back.
+ *
+ * A window [start, start + window) is closed once the watermark reaches end + allowedLateness;
+ * records of a closed window are late. Meters: logchain.bundler.watermark.lag (wall clock minus
+ * watermark) and logchain.bundler.late.records, both tagged with the stream.
+ */
+final class EventTimeWindows {
+    /** Kafka header set by the normalizer with the record's timestamp in epoch millis */
+    static final String HEADER = "lc-ts";
+    /** window of records without a usable timestamp; they are rejected when sealed */
+    static final long NO_WINDOW = Long.MIN_VALUE;
+
+    private final EventTimeConfig config;
+    private final Map<TopicPartition, long[]> partitions = new HashMap<>();
+    private final Counter lateRecords;
+    private long maxEventTs = Long.MIN_VALUE;
+    private long lastArrivalMillis;
+    private volatile long watermark = Long.MIN_VALUE;
+
+    EventTimeWindows(EventTimeConfig config, String stream, MeterRegistry registry) {
+        if (config.getWindowMillis() <= 0) {
+            throw new IllegalArgumentException("event-time window-millis must be > 0");
+        }
+        this.config = config;
+        Gauge.builder("logchain.bundler.watermark.lag", this,
+                        w -> w.watermark == Long.MIN_VALUE ? Double.NaN : System.currentTimeMillis() - w.watermark)
+                .tag("stream", stream).baseUnit("ms").register(registry);
+        this.lateRecords = Counter.builder("logchain.bundler.late.records")
+                .tag("stream", stream).description("records that arrived after their window was sealed").register(registry);
+    }
+
+    long windowStart(long eventTs) {
+        return Math.floorDiv(eventTs, config.getWindowMillis()) * config.getWindowMillis();
+    }
+
+    long windowEnd(long windowStart) {
+        return windowStart + config.getWindowMillis();
+    }
+
+    /**
+     * "w{start}-{end}" in epoch millis, the window part of a batch id.
+     */
+    String windowId(long windowStart) {
+        return windowStart == NO_WINDOW ? "w-unknown" : "w" + windowStart + "-" + windowEnd(windowStart);
+    }
+
+    void observe(TopicPartition tp, long eventTs, long nowMillis) {
+        long[] progress = partitions.computeIfAbsent(tp, k -> new long[]{Long.MIN_VALUE, 0});
+        progress[0] = Math.max(progress[0], eventTs);
+        progress[1] = nowMillis;
+        maxEventTs = Math.max(maxEventTs, eventTs);
+        lastArrivalMillis = nowMillis;
+    }
+
+    long advance(long nowMillis) {
+        long lowest = Long.MAX_VALUE;
+        for (long[] progress : partitions.values()) {
+            if (nowMillis - progress[1] < config.getIdleTimeoutMillis()) {
+                lowest = Math.min(lowest, progress[0]);
+            }
+        }
+        long candidate;
+        if (lowest != Long.MAX_VALUE) {
+            candidate = lowest - config.getWatermarkLagMillis();
+        } else if (maxEventTs != Long.MIN_VALUE) {
+            candidate = maxEventTs + (nowMillis - lastArrivalMillis) - config.getWatermarkLagMillis();
+        } else {
+            return watermark;
+        }
+        if (candidate > watermark) watermark = candidate;
+        return watermark;
+    }
+
+    boolean isClosed(long windowStart) {
+        return watermark != Long.MIN_VALUE
+                && windowEnd(windowStart) + config.getAllowedLatenessMillis() <= watermark;
+    }
+
+    void late() {
+        lateRecords.increment();
+    }
+
+    void forget(Collection<TopicPartition> revoked) {
+        revoked.forEach(partitions::remove);
+    }
+}
@@ -1,15 +1,40 @@
 package io.logchain.bundler;
 
+import io.logchain.bundler.codec.NormalizedLogCodec;
+import io.logchain.bundler.crypto.HashProvider;
+import io.logchain.bundler.config.BundlerConfig;
+import io.logchain.bundler.config.ElasticConfig;
 import io.logchain.bundler.config.FabricConfig;
 import io.logchain.bundler.config.LogChainConfig;
+import io.logchain.bundler.config.TailerConfig;
+import io.logchain.bundler.config.WireConfig;
+import io.logchain.bundler.config.WireFormat;
+import io.logchain.bundler.dlq.DeadLetterQueue;
+import io.logchain.bundler.fused.FusedChannel;
+import io.logchain.bundler.index.LeafBloomFilters;
+import io.logchain.bundler.ingest.FileTailer;
+import io.logchain.bundler.index.LeafIndex;
+import io.logchain.bundler.sink.AnchorSink;
+import io.logchain.bundler.sink.ElasticAnchorSink;
+import io.logchain.bundler.sink.FileAnchorSink;
+import io.logchain.bundler.sink.KafkaAnchorSink;
+import io.logchain.bundler.sink.LeafIndexingSink;
+import io.logchain.bundler.trace.StageLatencies;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.KafkaProducer;
 import org.hyperledger.fabric.client.Contract;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -20,6 +45,15 @@ public class LogBundlerApp implements ApplicationRunner {
     final LogChainConfig bundlerConfig;
     final FabricConfig fabricConfig;
     final Contract contract;
+    final ElasticService elasticService;
+    final ElasticConfig elasticConfig;
+    final LeafIndex leafIndex;
+    final LeafBloomFilters bloomFilters;
+    final MeterRegistry meterRegistry;
+    final DeadLetterQueue deadLetters;
+    final StageLatencies stageLatencies;
+    private final List<BundlerWorker> bundlers = new ArrayList<>();
+    private FileTailer tailer;
 
     public static void main(String[] args) {
         SpringApplication.run(LogBundlerApp.class, args);
@@ -28,17 +62,96 @@ public class LogBundlerApp implements ApplicationRunner {
     @Override
     public void run(ApplicationArguments args) throws Exception {
         ExecutorService executor = Executors.newWorkStealingPool();
+        FusedChannel fused = null;
+        if (bundlerConfig.getFused().isEnabled()) {
+            fused = new FusedChannel(bundlerConfig.getFused().getRingCapacity(), bundlerConfig.getFused().getDrainMax());
+            log.info("Fused mode: normalizers hand records to the bundler in memory");
+        }
+
+        TailerConfig tailerConfig = bundlerConfig.getTailer();
+        if (tailerConfig.isEnabled()) {
+            String rawTopic = tailerConfig.getTopic() != null ? tailerConfig.getTopic() : bundlerConfig.getNormalizer().getConsumeTopic();
+            tailer = new FileTailer(tailerConfig, rawTopic,
+                    new KafkaProducer<>(tailerConfig.toProducerProps(bundlerConfig.getNormalizer().getBootstrapServers())),
+                    deadLetters, meterRegistry);
+            executor.submit(tailer);
+        }
+
+        WireConfig wire = bundlerConfig.getWire();
+        HashProvider hashProvider = bundlerConfig.getCrypto().hashProvider();
+        log.info("Hashing logs and Merkle trees with {}", hashProvider.name());
         int workerCount = bundlerConfig.getNormalizer().getWorkerCount();
         for (int i = 0; i < workerCount; i++) {
-            executor.submit(new NormalizerWorker(bundlerConfig.getNormalizer()));
+            executor.submit(new NormalizerWorker(bundlerConfig.getNormalizer(), wire, hashProvider, deadLetters, fused,
+                    bundlerConfig.getTrace()));
         }
+        if (wire.getFormat() == WireFormat.BINARY && wire.isBridgeEnabled()) {
+            for (int i = 0; i < wire.getBridgeWorkerCount(); i++) {
+                executor.submit(new NormJsonBridgeWorker(bundlerConfig.getNormalizer(), wire));
+            }
+            log.info("Bridging {} to JSON on {}", wire.getBinaryTopic(), bundlerConfig.getNormalizer().getProduceTopic());
+        }
+        NormalizedLogCodec codec = new NormalizedLogCodec(wire.getDefaultApp(), wire.getDefaultEnv());
+        // binary records reach the bundler directly; the JSON norm topic only feeds Logstash then
+        String normTopic = wire.getFormat() == WireFormat.BINARY
+                ? wire.getBinaryTopic() : bundlerConfig.getBundler().getConsumeTopic();
 
         int bundlerWorkerCount = bundlerConfig.getBundler().getWorkerCount();
+        if (fused != null && bundlerWorkerCount > 1) {
+            log.warn("Fused mode supports a single bundler worker, ignoring worker-count={}", bundlerWorkerCount);
+            bundlerWorkerCount = 1;
+        }
         for (int i = 0; i < bundlerWorkerCount; i++) {
-            executor.submit(new BundlerWorker(contract, bundlerConfig.getBundler()));
+            String stream = bundlerConfig.getBundler().streamName(i);
+            BundlerWorker bundler = new BundlerWorker(contract, bundlerConfig.getBundler(), stream, normTopic,
+                    codec, hashProvider, newSink(stream), fused, meterRegistry, deadLetters,
+                    bundlerConfig.getTrace().isEnabled() ? stageLatencies : null);
+            bundlers.add(bundler);
+            executor.submit(bundler);
         }
         log.info("LogBundlerApp started successfully with {} normalizer workers and {} bundler workers",
                 bundlerConfig.getNormalizer().getWorkerCount(), bundlerConfig.getBundler().getWorkerCount());
     }
 
+    /**
+     * On shutdown (SIGTERM included) the tailer checkpoints its file positions, and the bundlers stop
+     * polling and checkpoint or seal their open batches before the context goes away.
+     */
+    @PreDestroy
+    public void drainBundlers() throws InterruptedException {
+        if (tailer != null) tailer.stop();
+        bundlers.forEach(BundlerWorker::stop);
+        long timeout = bundlerConfig.getBundler().getCheckpoint().getShutdownTimeoutMillis();
+        if (tailer != null && !tailer.awaitStopped(timeout)) {
+            log.warn("Tailer did not stop within {} ms", timeout);
+        }
+        for (BundlerWorker bundler : bundlers) {
+            if (!bundler.awaitStopped(timeout)) {
+                log.warn("Bundler did not drain within {} ms", timeout);
+            }
+        }
+    }
+
+    private AnchorSink newSink(String stream) throws IOException {
+        AnchorSink sink = newOutputSink(stream);
+        return leafIndex.isEnabled() || bloomFilters.isEnabled() ? new LeafIndexingSink(leafIndex, bloomFilters, sink) : sink;
+    }
+
+    private AnchorSink newOutputSink(String stream) throws IOException {
+        BundlerConfig bundler = bundlerConfig.getBundler();
+        return switch (bundler.getSink().getType()) {
+            case KAFKA -> new KafkaAnchorSink(new KafkaProducer<>(bundler.toProducerProps()), bundler.getProduceTopic(),
+                    bundler.getSink().getIndexPrefix(), elasticConfig.getAnchorManifestIndex(), bundler.getSink().getOutput());
+            case ELASTIC -> new ElasticAnchorSink(elasticService.createClient(), bundler.getSink(),
+                    elasticConfig.getAnchorManifestIndex());
+            case FILE -> {
+                // one file per stream, next to the configured one
+                Path file = Path.of(bundler.getSink().getFile());
+                String suffix = "." + stream.replaceAll("[^A-Za-z0-9._-]", "_");
+                yield new FileAnchorSink(file.resolveSibling(file.getFileName() + suffix), bundler.getSink().getIndexPrefix(),
+                        elasticConfig.getAnchorManifestIndex(), bundler.getSink().getOutput());
+            }
+        };
+    }
+
 }
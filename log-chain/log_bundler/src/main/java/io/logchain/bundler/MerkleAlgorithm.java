@@ -1,13 +1,15 @@
 package io.logchain.bundler;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.logchain.bundler.crypto.HashProvider;
 import io.logchain.bundler.dto.VerifyResp;
+import io.logchain.bundler.index.LeafBloomFilters;
+import io.logchain.bundler.index.LeafEntry;
+import io.logchain.bundler.index.LeafIndex;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
 import java.util.*;
 
 @Service
@@ -15,6 +17,8 @@ import java.util.*;
 public class MerkleAlgorithm {
     final ElasticService elasticService;
     final ObjectMapper mapper;
+    final LeafIndex leafIndex;
+    final LeafBloomFilters bloomFilters;
     /**
      * The computeMerkleRoot method calculates a Merkle root from a list of leaf hashes:
      * It starts with the input list of leaf hashes.
@@ -22,27 +26,22 @@ public class MerkleAlgorithm {
      * If the number of hashes is odd, the last hash is duplicated and paired with itself.
      * This process repeats until only one hash remains, which is the Merkle root.
      * This ensures a binary Merkle tree structure, even for odd-sized input lists.
+     * Uses SHA-256, the algorithm of anchors that do not record one; see {@link HashProvider}.
      */
-    public static String computeMerkleRoot(List<String> leaves) throws Exception {
-        List<String> current = new ArrayList<>(leaves);
-        while (current.size() > 1) {
-            List<String> next = new ArrayList<>();
-            for (int i = 0; i < current.size(); i += 2) {
-                if (i + 1 < current.size()) {
-                    next.add(computeHash(current.get(i) + current.get(i + 1)));
-                } else {
-                    next.add(computeHash(current.get(i) + current.get(i)));
-                }
-            }
-            current = next;
-        }
-        return current.get(0);
+    public static String computeMerkleRoot(List<String> leaves) {
+        return HashProvider.DEFAULT.merkleRoot(leaves);
+    }
+
+    /**
+     * Same tree as {@link #computeMerkleRoot(List)}, but each level wider than PARALLEL_THRESHOLD
+     * is hashed in parallel on the fork/join pool.
+     */
+    public static String computeMerkleRootParallel(List<String> leaves) {
+        return HashProvider.DEFAULT.merkleRootParallel(leaves);
     }
 
-    public static String computeHash(String data) throws Exception {
-        MessageDigest digest = MessageDigest.getInstance("SHA-256");
-        byte[] hashBytes = digest.digest(data.getBytes(StandardCharsets.UTF_8));
-        return Base64.getEncoder().encodeToString(hashBytes);
+    public static String computeHash(String data) {
+        return HashProvider.DEFAULT.hash(data);
     }
 
     /**
@@ -53,9 +52,47 @@ public class MerkleAlgorithm {
      * @return true if hash is found in batch logs
      */
     public VerifyResp verifyByHashAndBatchId(String hashToVerify) throws Exception {
-        List<Map<String, Object>> anchors = elasticService.queryAnchorInSameBatchByHash(hashToVerify);
+        return verifyByHashAndBatchId(hashToVerify, null);
+    }
+
+    /**
+     * As {@link #verifyByHashAndBatchId(String)}, but a log outside the scope tenant verifies as
+     * invalid, without its batch being returned.
+     */
+    public VerifyResp verifyByHashAndBatchId(String hashToVerify, TenantKey scope) throws Exception {
+        return verifyByHashAndBatchId(hashToVerify, scope, null);
+    }
+
+    /**
+     * As {@link #verifyByHashAndBatchId(String, TenantKey)}; with the log's timestamp (epoch millis)
+     * an unknown hash inside the bloom filters' coverage is answered without any lookup.
+     */
+    public VerifyResp verifyByHashAndBatchId(String hashToVerify, TenantKey scope, Long logTsMillis) throws Exception {
+        // most unknown recent hashes stop here, without an index or Elasticsearch lookup
+        if (!bloomFilters.mightContain(hashToVerify, logTsMillis)) {
+            return VerifyResp.builder().isValid(false).build();
+        }
+        // local index next: no Elasticsearch round trip, and works while it is down
+        Optional<LeafEntry> local = leafIndex.find(hashToVerify);
+        // out of scope by the batch tenant alone may still be in scope by the log's own fields
+        if (local.isPresent() && inScope(scope, local.get().tenant(), null)) {
+            return verifyByLeafIndex(local.get());
+        }
+        Map<String, Object> anchored = elasticService.findAnchoredLog(hashToVerify);
+        if (anchored == null || anchored.get("batchId") == null) {
+            return VerifyResp.builder().isValid(false).build();
+        }
+        Map<String, Object> manifest = elasticService.getManifest(anchored.get("batchId").toString());
+        if (manifest != null) {
+            if (!inScope(scope, (String) manifest.get("tenant"), anchored.get("log"))) {
+                return VerifyResp.builder().isValid(false).build();
+            }
+            return verifyByManifest(hashToVerify, anchored, manifest);
+        }
+        // batch written as per-record envelopes
+        List<Map<String, Object>> anchors = elasticService.queryAnchorsByBatchId(anchored.get("batchId").toString());
 
-        if (anchors.isEmpty()) {
+        if (anchors.isEmpty() || !inScope(scope, (String) anchored.get("tenant"), anchored.get("log"))) {
             return VerifyResp.builder().isValid(false).build();
         }
         List<String> paths = anchors.stream().filter(it -> !it.get("log").equals(hashToVerify))
@@ -75,7 +112,7 @@ public class MerkleAlgorithm {
 
         var anchor = anchors.get(0);
 
-        String verifiedRoot = computeMerkleRoot(leafs);
+        String verifiedRoot = HashProvider.forAnchor((String) anchor.get("hashAlg")).merkleRoot(leafs);
         boolean isValid = Objects.equals(verifiedRoot, anchor.get("merkleRoot"));
         return VerifyResp.builder()
                 .isValid(isValid)
@@ -85,4 +122,57 @@ public class MerkleAlgorithm {
                 .build();
     }
 
+    /**
+     * A batch bundled for a tenant covering the scope is in scope as a whole; otherwise the
+     * log's own app/env/source decide, when the log is at hand.
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean inScope(TenantKey scope, String batchTenant, Object log) {
+        if (scope == null) {
+            return true;
+        }
+        TenantKey tenant = TenantKey.parse(batchTenant);
+        if (tenant != null && tenant.matches(scope)) {
+            return true;
+        }
+        if (log instanceof Map<?, ?> fields) {
+            Map<String, Object> m = (Map<String, Object>) fields;
+            return new TenantKey((String) m.get("app"), (String) m.get("env"), (String) m.get("source")).matches(scope);
+        }
+        return false;
+    }
+
+    private VerifyResp verifyByLeafIndex(LeafEntry entry) throws Exception {
+        boolean isValid = Objects.equals(HashProvider.forAnchor(entry.hashAlg()).merkleRootParallel(entry.leaves()), entry.root());
+        return VerifyResp.builder()
+                .isValid(isValid)
+                .root(entry.root())
+                .batchId(entry.batchId())
+                .leafIndex(entry.leafIndex())
+                .leafHash(entry.leaves())
+                .build();
+    }
+
+    /**
+     * Recomputes the root from the manifest's ordered leaves and checks the log sits at its leaf index.
+     */
+    @SuppressWarnings("unchecked")
+    private VerifyResp verifyByManifest(String hashToVerify, Map<String, Object> anchored, Map<String, Object> manifest) throws Exception {
+        List<String> leaves = (List<String>) manifest.get("leaves");
+        Object leaf = anchored.get("leaf");
+        int index = leaf instanceof Number n ? n.intValue() : leaves.indexOf(hashToVerify);
+        boolean inBatch = index >= 0 && index < leaves.size() && leaves.get(index).equals(hashToVerify);
+
+        String root = String.valueOf(manifest.get("merkleRoot"));
+        HashProvider hashProvider = HashProvider.forAnchor((String) manifest.get("hashAlg"));
+        boolean isValid = inBatch && Objects.equals(hashProvider.merkleRootParallel(leaves), root);
+        return VerifyResp.builder()
+                .isValid(isValid)
+                .root(root)
+                .batchId(String.valueOf(manifest.get("batchId")))
+                .leafIndex(index)
+                .leafHash(leaves)
+                .build();
+    }
+
 }
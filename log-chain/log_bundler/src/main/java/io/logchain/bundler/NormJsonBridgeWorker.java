@@ -0,0 +1,93 @@
+package io.logchain.bundler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.logchain.bundler.codec.NormalizedLogCodec;
+import io.logchain.bundler.config.NormalizerConfig;
+import io.logchain.bundler.config.WireConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Republishes the binary norm topic as JSON on the normalizer produce topic, so Logstash and
+ * other JSON consumers are unaffected by the binary wire format. Headers (tenant, event time,
+ * trace) are copied as they are. Offsets are committed only after the JSON copies are
+ * acknowledged by the broker.
+ */
+@Slf4j
+public class NormJsonBridgeWorker implements Runnable {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Consumer<String, byte[]> consumer;
+    private final Producer<String, String> producer;
+    private final NormalizerConfig normalizerConfig;
+    private final NormalizedLogCodec codec;
+
+    public NormJsonBridgeWorker(NormalizerConfig normalizerConfig, WireConfig wireConfig) {
+        this(normalizerConfig, wireConfig, new KafkaConsumer<>(consumerProps(normalizerConfig, wireConfig)),
+                new KafkaProducer<>(normalizerConfig.toProducerProps()));
+    }
+
+    NormJsonBridgeWorker(NormalizerConfig normalizerConfig, WireConfig wireConfig,
+                         Consumer<String, byte[]> consumer, Producer<String, String> producer) {
+        this.normalizerConfig = normalizerConfig;
+        this.codec = new NormalizedLogCodec(wireConfig.getDefaultApp(), wireConfig.getDefaultEnv());
+        this.consumer = consumer;
+        this.producer = producer;
+        consumer.subscribe(List.of(wireConfig.getBinaryTopic()));
+    }
+
+    private static Properties consumerProps(NormalizerConfig normalizerConfig, WireConfig wireConfig) {
+        Properties props = normalizerConfig.toConsumerProps();
+        props.put("group.id", wireConfig.getBridgeGroupId());
+        props.put("value.deserializer", ByteArrayDeserializer.class.getName());
+        return props;
+    }
+
+    @Override
+    public void run() {
+        try {
+            log.info("Starting NormJsonBridgeWorker to topic: {}", normalizerConfig.getProduceTopic());
+            while (true) {
+                ConsumerRecords<String, byte[]> records = consumer.poll(Duration.ofMillis(100));
+                if (records.isEmpty()) {
+                    continue;
+                }
+                for (ConsumerRecord<String, byte[]> record : records) {
+                    try {
+                        producer.send(toJsonRecord(record));
+                    } catch (Exception e) {
+                        log.error("Failed to bridge record {}-{}@{}", record.topic(), record.partition(), record.offset(), e);
+                    }
+                }
+                producer.flush();
+                consumer.commitAsync();
+            }
+        } finally {
+            consumer.close();
+            producer.close();
+        }
+    }
+
+    ProducerRecord<String, String> toJsonRecord(ConsumerRecord<String, byte[]> record) throws Exception {
+        return new ProducerRecord<>(normalizerConfig.getProduceTopic(), null, record.key(), toJson(record.value()),
+                record.headers());
+    }
+
+    private String toJson(byte[] value) throws Exception {
+        if (NormalizedLogCodec.isBinary(value)) {
+            return mapper.writeValueAsString(codec.decode(value));
+        }
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,24 @@
+package io.logchain.bundler;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A raw log record after normalization: the salted hash is the Merkle leaf.
+ * Serialized as JSON on the norm topic, or with {@link io.logchain.bundler.codec.NormalizedLogCodec}
+ * when the binary wire format is enabled.
+ *
+ * @param event audit event type of structured producers (e.g. SMART-CONTRACT-BOOKING-CREATE), null for
+ *              plain log lines; left out of the JSON then, so their records stay as they were
+ */
+public record NormalizedLog(
+        String level,
+        String timestamp,
+        String message,
+        String source,
+        String salt,
+        String hash,
+        String app,
+        String env,
+        @JsonInclude(JsonInclude.Include.NON_NULL) String event
+) {
+}
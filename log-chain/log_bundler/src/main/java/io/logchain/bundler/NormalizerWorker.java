@@ -2,40 +2,89 @@ package io.logchain.bundler;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.logchain.bundler.codec.NormalizedLogCodec;
+import io.logchain.bundler.crypto.HashProvider;
 import io.logchain.bundler.config.NormalizerConfig;
+import io.logchain.bundler.config.TraceConfig;
+import io.logchain.bundler.config.WireConfig;
+import io.logchain.bundler.config.WireFormat;
+import io.logchain.bundler.dlq.DeadLetterQueue;
+import io.logchain.bundler.fused.FusedChannel;
+import io.logchain.bundler.ingest.FileTailer;
+import io.logchain.bundler.trace.Stage;
+import io.logchain.bundler.trace.TraceContext;
+import io.micrometer.core.instrument.Metrics;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
 
 import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
 import java.security.SecureRandom;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Slf4j
 public class NormalizerWorker implements Runnable {
+    private static final DateTimeFormatter LOGBACK_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
     private final ObjectMapper mapper = new ObjectMapper();
     private final KafkaConsumer<String, String> consumer;
+    // exactly one of these is open, depending on the wire format
     private final KafkaProducer<String, String> producer;
+    private final KafkaProducer<String, byte[]> binaryProducer;
     NormalizerConfig normalizerConfig;
+    private final WireConfig wireConfig;
+    private final NormalizedLogCodec codec;
+    private final HashProvider hashProvider;
+    // set in fused mode: normalized records also go straight to the in-process bundler
+    private final FusedChannel fused;
+    private final DeadLetterQueue deadLetters;
+    // null when tracing is off
+    private final TraceConfig traceConfig;
+
+    public NormalizerWorker(NormalizerConfig normalizerConfig, WireConfig wireConfig, HashProvider hashProvider) {
+        this(normalizerConfig, wireConfig, hashProvider, new DeadLetterQueue(Metrics.globalRegistry), null);
+    }
+
+    public NormalizerWorker(NormalizerConfig normalizerConfig, WireConfig wireConfig, HashProvider hashProvider,
+                            DeadLetterQueue deadLetters, FusedChannel fused) {
+        this(normalizerConfig, wireConfig, hashProvider, deadLetters, fused, null);
+    }
 
-    public NormalizerWorker(NormalizerConfig normalizerConfig) {
+    public NormalizerWorker(NormalizerConfig normalizerConfig, WireConfig wireConfig, HashProvider hashProvider,
+                            DeadLetterQueue deadLetters, FusedChannel fused, TraceConfig traceConfig) {
+        this.deadLetters = deadLetters;
+        this.traceConfig = traceConfig;
         this.normalizerConfig = normalizerConfig;
+        this.wireConfig = wireConfig;
+        this.hashProvider = hashProvider;
+        this.fused = fused;
+        this.codec = new NormalizedLogCodec(wireConfig.getDefaultApp(), wireConfig.getDefaultEnv());
         consumer = new KafkaConsumer<>(normalizerConfig.toConsumerProps());
-        producer = new KafkaProducer<>(normalizerConfig.toProducerProps());
+        if (wireConfig.getFormat() == WireFormat.BINARY) {
+            producer = null;
+            binaryProducer = new KafkaProducer<>(normalizerConfig.toBinaryProducerProps());
+        } else {
+            producer = new KafkaProducer<>(normalizerConfig.toProducerProps());
+            binaryProducer = null;
+        }
         consumer.subscribe(List.of(normalizerConfig.getConsumeTopic()));
     }
 
     @Override
     public void run() {
         try {
-            log.info("Starting NormalizerWorker for topic: {}", normalizerConfig.getConsumeTopic());
+            log.info("Starting NormalizerWorker for topic: {} ({} output)", normalizerConfig.getConsumeTopic(), wireConfig.getFormat());
             while (true) {
                 ConsumerRecords<String, String> records = consumer.poll(Duration.ofMillis(1));
                 if (records.isEmpty()) {
@@ -43,43 +92,121 @@ public class NormalizerWorker implements Runnable {
                 }
                 for (ConsumerRecord<String, String> record : records) {
                     try {
-                        String normalized = consume(record);
-                        producer.send(new ProducerRecord<>(normalizerConfig.getProduceTopic(), record.key(), normalized));
-                        consumer.commitAsync();
+                        JsonNode raw = mapper.readTree(record.value());
+                        NormalizedLog normalized = normalize(raw, sourceOf(record));
+                        String json = null;
+                        byte[] tenant = TenantKey.of(normalized).id().getBytes(StandardCharsets.UTF_8);
+                        long eventTime = Instant.parse(normalized.timestamp()).toEpochMilli();
+                        byte[] eventTimeHeader = Long.toString(eventTime).getBytes(StandardCharsets.UTF_8);
+                        TraceContext trace = traceOf(record, raw, eventTime);
+                        if (binaryProducer != null) {
+                            var out = new ProducerRecord<>(wireConfig.getBinaryTopic(), record.key(), codec.encode(normalized));
+                            out.headers().add(TenantKey.HEADER, tenant).add(EventTimeWindows.HEADER, eventTimeHeader);
+                            if (trace != null) out.headers().add(TraceContext.HEADER, trace.encode());
+                            binaryProducer.send(out);
+                        } else {
+                            json = mapper.writeValueAsString(normalized);
+                            var out = new ProducerRecord<>(normalizerConfig.getProduceTopic(), record.key(), json);
+                            out.headers().add(TenantKey.HEADER, tenant).add(EventTimeWindows.HEADER, eventTimeHeader);
+                            if (trace != null) out.headers().add(TraceContext.HEADER, trace.encode());
+                            producer.send(out);
+                        }
+                        if (fused != null) {
+                            fused.publish(new BatchRecord(record.topic(), record.partition(), record.offset(), json, normalized, null,
+                                    eventTime, trace));
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
                     } catch (Exception e) {
-                        log.error("Failed to normalize record: {}", record.value(), e);
+                        // one bad record must not hold up the others, nor cost a stack trace each
+                        deadLetters.send("normalize", record.topic(), record.partition(), record.offset(),
+                                record.key(), record.value(), e);
                     }
                 }
-                consumer.commitAsync();
+                if (!deadLetters.flush()) {
+                    // committing now would pass records whose dead letters are not delivered
+                    continue;
+                }
+                if (fused != null) {
+                    // only what the bundler has sealed into its spool may be committed
+                    var sealed = fused.sealedPositions(consumer.assignment());
+                    if (!sealed.isEmpty()) consumer.commitAsync(sealed, null);
+                } else {
+                    consumer.commitAsync();
+                }
             }
         } finally {
             consumer.close();
-            producer.close();
+            if (producer != null) producer.close();
+            if (binaryProducer != null) binaryProducer.close();
         }
     }
 
     public String consume(ConsumerRecord<String, String> record) throws Exception {
         JsonNode raw = mapper.readTree(record.value());
-        NormalizedLog normalized = normalize(raw);
+        NormalizedLog normalized = normalize(raw, sourceOf(record));
         return mapper.writeValueAsString(normalized);
     }
 
-    private NormalizedLog normalize(JsonNode raw) throws Exception {
+    /**
+     * The source the file tailer stamps on its lines, for raw logs that do not name one.
+     */
+    private static String sourceOf(ConsumerRecord<String, String> record) {
+        Header header = record.headers().lastHeader(FileTailer.SOURCE_HEADER);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+
+    private NormalizedLog normalize(JsonNode raw, String fallbackSource) throws Exception {
         String level = raw.has("level") ? raw.get("level").asText().toUpperCase() : "INFO";
         String message = raw.has("message") ? raw.get("message").asText() : "";
-        String source = raw.has("source") ? raw.get("source").asText() : "unknown";
+        String source = raw.has("source") ? raw.get("source").asText()
+                : fallbackSource != null ? fallbackSource : "unknown";
+        // producers that do not say which app/env they are get the wire defaults, which also encode smallest
+        String app = raw.hasNonNull("app") ? raw.get("app").asText() : wireConfig.getDefaultApp();
+        String env = raw.hasNonNull("env") ? raw.get("env").asText() : wireConfig.getDefaultEnv();
+        String event = raw.hasNonNull("event") ? raw.get("event").asText() : null;
 
-        if (!raw.has("@timestamp")) {
-            log.warn("Record missing @timestamp, using current time for normalization: {}, try with timestamp", raw);
+        JsonNode timestamp = raw.hasNonNull("@timestamp") ? raw.get("@timestamp") : raw.get("timestamp");
+        if (timestamp == null || timestamp.isNull()) {
+            throw new IllegalArgumentException("missing @timestamp and timestamp");
+        }
+        String isoTs = timestamp.asText();
+        if (isoTs.indexOf('T') < 0) {
+            // logback JsonLayout of files tailed without Logstash, UTC as in the raw_log date filter
+            isoTs = LocalDateTime.parse(isoTs, LOGBACK_TIMESTAMP).toInstant(ZoneOffset.UTC).toString();
         }
-        String isoTs = raw.has("@timestamp") ? raw.get("@timestamp").asText() : raw.get("timestamp").asText();
         long ts = Instant.parse(isoTs).toEpochMilli();
 
         // Add salt + hash
         String salt = generateSalt();
         String hash = computeHash(source, ts, message, salt);
 
-        return new NormalizedLog(level, isoTs, message, source, salt, hash, "my-app", "prod");
+        return new NormalizedLog(level, isoTs, message, source, salt, hash, app, env, event);
+    }
+
+    /**
+     * The record's trace (header, else the raw log's "trace" field), or a new one for a sample of
+     * untraced records, stamped up to NORMALIZED; null when the record is not traced.
+     */
+    private TraceContext traceOf(ConsumerRecord<String, String> record, JsonNode raw, long eventTime) {
+        if (traceConfig == null || !traceConfig.isEnabled()) {
+            return null;
+        }
+        Header header = record.headers().lastHeader(TraceContext.HEADER);
+        TraceContext trace = header != null ? TraceContext.decode(header.value()) : TraceContext.fromJson(raw.get(TraceContext.FIELD));
+        if (trace == null) {
+            if (ThreadLocalRandom.current().nextDouble() >= traceConfig.getSampleRate()) {
+                return null;
+            }
+            trace = new TraceContext(Long.toHexString(ThreadLocalRandom.current().nextLong()));
+        }
+        trace.stampIfAbsent(Stage.ORIGIN, eventTime);
+        if (record.timestamp() >= 0) {
+            // producer (CreateTime) or broker (LogAppendTime) timestamp of the raw record
+            trace.stampIfAbsent(Stage.PUBLISHED, record.timestamp());
+        }
+        return trace.stamp(Stage.NORMALIZED, System.currentTimeMillis());
     }
 
     private String generateSalt() {
@@ -88,22 +215,7 @@ public class NormalizerWorker implements Runnable {
         return Base64.getEncoder().encodeToString(salt);
     }
 
-    private String computeHash(String source, long ts, String message, String salt) throws Exception {
-        String data = source + "|" + ts + "|" + message + "|" + salt;
-        MessageDigest digest = MessageDigest.getInstance("SHA-256");
-        byte[] hashBytes = digest.digest(data.getBytes(StandardCharsets.UTF_8));
-        return Base64.getEncoder().encodeToString(hashBytes);
-    }
-
-    public record NormalizedLog(
-            String level,
-            String timestamp,
-            String message,
-            String source,
-            String salt,
-            String hash,
-            String app,
-            String env
-    ) {
+    private String computeHash(String source, long ts, String message, String salt) {
+        return hashProvider.hash(source + "|" + ts + "|" + message + "|" + salt);
     }
 }
@@ -0,0 +1,88 @@
+package io.logchain.bundler;
+
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records collected for a batch that has not been sealed yet, with the offset range
+ * covered in every partition they came from.
+ */
+class OpenBatch {
+    final String key;
+    final List<BatchRecord> values;
+    // set in TENANT batching
+    final TenantKey tenant;
+    // set in EVENT_TIME batching: the window, and whether this is its side batch of late records
+    final long windowStart;
+    final boolean late;
+    final long openedAtMillis = System.currentTimeMillis();
+    private final Map<TopicPartition, long[]> ranges = new LinkedHashMap<>();
+
+    OpenBatch(String key, int capacity) {
+        this(key, capacity, null);
+    }
+
+    OpenBatch(String key, int capacity, TenantKey tenant) {
+        this(key, capacity, tenant, EventTimeWindows.NO_WINDOW, false);
+    }
+
+    OpenBatch(String key, int capacity, long windowStart, boolean late) {
+        this(key, capacity, null, windowStart, late);
+    }
+
+    private OpenBatch(String key, int capacity, TenantKey tenant, long windowStart, boolean late) {
+        this.key = key;
+        this.values = new ArrayList<>(capacity);
+        this.tenant = tenant;
+        this.windowStart = windowStart;
+        this.late = late;
+    }
+
+    void add(BatchRecord record) {
+        values.add(record);
+        TopicPartition tp = new TopicPartition(record.topic(), record.partition());
+        long[] range = ranges.get(tp);
+        if (range == null) {
+            ranges.put(tp, new long[]{record.offset(), record.offset()});
+        } else {
+            range[1] = record.offset();
+        }
+    }
+
+    int size() {
+        return values.size();
+    }
+
+    boolean covers(TopicPartition tp) {
+        return ranges.containsKey(tp);
+    }
+
+    long firstOffset(TopicPartition tp) {
+        return ranges.get(tp)[0];
+    }
+
+    /**
+     * Deterministic id: the same records always produce the same batch id, so re-sealing
+     * after a crash re-submits an anchor the ledger recognises as a duplicate.
+     */
+    String rangeBatchId() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<TopicPartition, long[]> e : ranges.entrySet()) {
+            if (!sb.isEmpty()) sb.append('_');
+            sb.append(e.getKey().topic()).append('-').append(e.getKey().partition())
+                    .append('-').append(e.getValue()[0]).append('-').append(e.getValue()[1]);
+        }
+        return sb.toString();
+    }
+
+    Map<String, Long> nextOffsets() {
+        Map<String, Long> next = new HashMap<>();
+        ranges.forEach((tp, range) -> next.put(tp.toString(), range[1] + 1));
+        return next;
+    }
+}
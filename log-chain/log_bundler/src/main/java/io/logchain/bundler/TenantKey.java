@@ -0,0 +1,83 @@
+package io.logchain.bundler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Tenant a record belongs to: (app, env, source). In TENANT batching every tenant gets its own
+ * batches and Merkle trees; a null part is not part of the key (see {@link #project}) or not filtered on.
+ *
+ * Rendered as "app|env|source" with "*" for null parts, e.g. in the {@link #HEADER} record header
+ * and the anchored manifest. source comes last, so it may itself contain '|'.
+ */
+public record TenantKey(String app, String env, String source) {
+    /** Kafka header set by the normalizer, so the bundler can shard JSON records without parsing them */
+    public static final String HEADER = "lc-tenant";
+    private static final String ANY = "*";
+
+    public static TenantKey of(NormalizedLog log) {
+        return new TenantKey(log.app(), log.env(), log.source());
+    }
+
+    public static TenantKey of(JsonNode node) {
+        return new TenantKey(text(node, "app"), text(node, "env"), text(node, "source"));
+    }
+
+    public static TenantKey parse(String id) {
+        if (id == null || id.isBlank()) {
+            return null;
+        }
+        String[] parts = id.split("\\|", 3);
+        return new TenantKey(part(parts, 0), part(parts, 1), part(parts, 2));
+    }
+
+    /**
+     * Keeps only the configured key fields (app, env, source).
+     */
+    public TenantKey project(Collection<String> fields) {
+        return new TenantKey(fields.contains("app") ? app : null,
+                fields.contains("env") ? env : null,
+                fields.contains("source") ? source : null);
+    }
+
+    public String id() {
+        return orAny(app) + "|" + orAny(env) + "|" + orAny(source);
+    }
+
+    /** id made safe for batch ids and file names */
+    public String slug() {
+        return (orAny(app) + "." + orAny(env) + "." + orAny(source)).replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    public boolean isEmpty() {
+        return app == null && env == null && source == null;
+    }
+
+    /**
+     * Whether every part the filter sets is equal here. A part this key leaves open does not match
+     * a filter on it: such a batch may mix values of that part.
+     */
+    public boolean matches(TenantKey filter) {
+        return filter == null
+                || (matches(filter.app, app) && matches(filter.env, env) && matches(filter.source, source));
+    }
+
+    private static boolean matches(String wanted, String actual) {
+        return wanted == null || Objects.equals(wanted, actual);
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode v = node.get(field);
+        return v == null || v.isNull() ? null : v.asText();
+    }
+
+    private static String part(String[] parts, int i) {
+        return i < parts.length && !parts[i].isEmpty() && !ANY.equals(parts[i]) ? parts[i] : null;
+    }
+
+    private static String orAny(String s) {
+        return s == null ? ANY : s;
+    }
+}
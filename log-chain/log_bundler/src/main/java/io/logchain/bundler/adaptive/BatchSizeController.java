@@ -0,0 +1,147 @@
+package io.logchain.bundler.adaptive;
+
+import io.logchain.bundler.config.AdaptiveBatchConfig;
+import io.logchain.bundler.config.BundlerConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Seal threshold of one bundler stream, retuned every interval from what that interval measured:
+ * p99 freshness at seal, p99 anchor latency and the ingest rate.
+ *
+ * End-to-end p99 (freshness + anchor latency) above target shrinks the threshold by decreaseFactor;
+ * below 80% of target grows it by increaseFactor, for fewer ledger transactions. The transaction
+ * budget puts a floor of ingestRate / maxTxPerSecond under it and wins over freshness, so a stream
+ * that cannot meet both stays within the ledger budget. Interval without a seal: the time to fill a
+ * batch at the current rate stands in for freshness. Everything is clamped to [min, max].
+ *
+ * Decisions are published as meters tagged with the stream: logchain.bundler.batch.size and the
+ * inputs it was derived from as gauges, logchain.bundler.batch.retune as a counter per decision.
+ */
+@Slf4j
+public class BatchSizeController {
+    public enum Decision { HOLD, GROW, SHRINK, BUDGET }
+
+    private static final double HEADROOM = 0.8;
+
+    private final AdaptiveBatchConfig config;
+    private final String stream;
+    private final Recorder freshness = new Recorder(3);
+    private final Recorder anchorLatency = new Recorder(3);
+    private final LongAdder ingested = new LongAdder();
+    private final Map<Decision, Counter> decisions = new EnumMap<>(Decision.class);
+    private Histogram freshnessInterval;
+    private Histogram anchorLatencyInterval;
+    private long lastTuneMillis = System.currentTimeMillis();
+
+    private volatile int batchSize;
+    private volatile double ingestRate;
+    private volatile long freshnessP99;
+    private volatile long anchorLatencyP99;
+
+    public BatchSizeController(BundlerConfig bundlerConfig, String stream, MeterRegistry registry) {
+        this.config = bundlerConfig.getAdaptive();
+        this.stream = stream;
+        this.batchSize = config.isEnabled() ? clamp(bundlerConfig.getBatchSize()) : bundlerConfig.getBatchSize();
+        Gauge.builder("logchain.bundler.batch.size", this, c -> c.batchSize)
+                .tag("stream", stream).description("current seal threshold").register(registry);
+        Gauge.builder("logchain.bundler.ingest.rate", this, c -> c.ingestRate)
+                .tag("stream", stream).baseUnit("records/s").register(registry);
+        Gauge.builder("logchain.bundler.freshness.p99", this, c -> c.freshnessP99)
+                .tag("stream", stream).baseUnit("ms").register(registry);
+        Gauge.builder("logchain.bundler.anchor.latency.p99", this, c -> c.anchorLatencyP99)
+                .tag("stream", stream).baseUnit("ms").register(registry);
+        for (Decision d : Decision.values()) {
+            decisions.put(d, Counter.builder("logchain.bundler.batch.retune")
+                    .tag("stream", stream).tag("decision", d.name().toLowerCase()).register(registry));
+        }
+    }
+
+    public int batchSize() {
+        return batchSize;
+    }
+
+    public void recordFreshness(long millis) {
+        freshness.recordValue(Math.max(0, millis));
+    }
+
+    public void recordAnchorLatency(long millis) {
+        anchorLatency.recordValue(Math.max(0, millis));
+    }
+
+    public void recordIngested(int records) {
+        ingested.add(records);
+    }
+
+    /**
+     * Retunes once the interval is over; called from the bundler loop, which is the only thread
+     * reading the threshold for sealing.
+     */
+    public void tick(long nowMillis) {
+        long elapsed = nowMillis - lastTuneMillis;
+        if (elapsed < config.getIntervalMillis()) {
+            return;
+        }
+        lastTuneMillis = nowMillis;
+        freshnessInterval = freshness.getIntervalHistogram(freshnessInterval);
+        anchorLatencyInterval = anchorLatency.getIntervalHistogram(anchorLatencyInterval);
+        ingestRate = ingested.sumThenReset() * 1000.0 / elapsed;
+        if (freshnessInterval.getTotalCount() > 0) {
+            freshnessP99 = freshnessInterval.getValueAtPercentile(99.0);
+        } else if (ingestRate > 0) {
+            freshnessP99 = (long) (batchSize * 1000.0 / ingestRate);
+        }
+        if (anchorLatencyInterval.getTotalCount() > 0) {
+            anchorLatencyP99 = anchorLatencyInterval.getValueAtPercentile(99.0);
+        }
+        if (!config.isEnabled()) {
+            return;
+        }
+        Decision decision = decide();
+        decisions.get(decision).increment();
+    }
+
+    private Decision decide() {
+        if (ingestRate <= 0) {
+            return Decision.HOLD;
+        }
+        long endToEnd = freshnessP99 + anchorLatencyP99;
+        long target = config.getTargetFreshnessP99Millis();
+        int next = batchSize;
+        Decision decision = Decision.HOLD;
+        if (endToEnd > target) {
+            next = (int) (batchSize * config.getDecreaseFactor());
+            decision = Decision.SHRINK;
+        } else if (endToEnd < target * HEADROOM) {
+            next = (int) Math.ceil(batchSize * config.getIncreaseFactor());
+            decision = Decision.GROW;
+        }
+        if (config.getMaxTxPerSecond() > 0) {
+            int floor = (int) Math.min(Integer.MAX_VALUE, Math.ceil(ingestRate / config.getMaxTxPerSecond()));
+            if (next < floor) {
+                next = floor;
+                decision = Decision.BUDGET;
+            }
+        }
+        next = clamp(next);
+        if (next == batchSize) {
+            return decision == Decision.BUDGET ? Decision.BUDGET : Decision.HOLD;
+        }
+        log.info("Stream {}: batch size {} -> {} ({}, p99 freshness {} ms + anchor {} ms, target {} ms, {} records/s)",
+                stream, batchSize, next, decision, freshnessP99, anchorLatencyP99, target, Math.round(ingestRate));
+        batchSize = next;
+        return decision;
+    }
+
+    private int clamp(int size) {
+        return Math.max(Math.max(1, config.getMinBatchSize()), Math.min(config.getMaxBatchSize(), size));
+    }
+}
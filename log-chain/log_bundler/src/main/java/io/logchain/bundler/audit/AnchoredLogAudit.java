@@ -0,0 +1,209 @@
+package io.logchain.bundler.audit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.logchain.bundler.crypto.HashProvider;
+import io.logchain.bundler.dto.AnchoredLogAuditReport;
+import io.logchain.bundler.dto.AnchoredLogAuditReport.MissingLeaves;
+import io.logchain.bundler.dto.AnchoredLogAuditReport.RootMismatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Re-audit of anchored records against the ledger, independent of where the records come from
+ * (Elasticsearch slices, an exported NDJSON file).
+ *
+ * Records are fed in any order from any number of threads and regrouped by batchId. {@link #finish}
+ * then looks the batches up on the ledger in chunks, puts each batch's leaves in leaf order and
+ * recomputes its root with the anchor's hash algorithm. A batch is verified when every leaf index
+ * below the anchored count is present exactly once and the root matches.
+ */
+public final class AnchoredLogAudit {
+    private static final String MANIFEST_KIND = "manifest";
+    private static final int MAX_LISTED = 100;
+
+    public interface AnchorLookup {
+        /**
+         * Anchors (ledger JSON: batchId, root, count, hashAlg, ...) of those batches that exist.
+         */
+        Map<String, JsonNode> getAnchors(List<String> batchIds) throws Exception;
+    }
+
+    private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+    private final LongAdder records = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    /**
+     * Adds one anchored record document; manifests are ignored.
+     *
+     * @param id document id, which is the leaf hash; used when the record has no log.hash
+     */
+    public void add(String id, JsonNode source) {
+        if (MANIFEST_KIND.equals(source.path("kind").asText())) {
+            return;
+        }
+        String batchId = text(source.get("batchId"));
+        String hash = text(source.path("log").get("hash"));
+        if (hash == null) hash = id;
+        if (batchId == null || hash == null) {
+            skipped.increment();
+            return;
+        }
+        JsonNode leaf = source.get("leaf");
+        int index = leaf != null && leaf.canConvertToInt() ? leaf.asInt() : -1;
+        batches.computeIfAbsent(batchId, Batch::new).add(index, hash, text(source.get("hashAlg")));
+        records.increment();
+    }
+
+    public AnchoredLogAuditReport finish(String scope, AnchorLookup lookup, int lookupBatch, int parallelism,
+                                         long startedMillis) {
+        List<String> ids = new ArrayList<>(batches.keySet());
+        Collections.sort(ids);
+        Findings findings = new Findings();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        try {
+            List<CompletableFuture<Void>> chunks = new ArrayList<>();
+            for (int from = 0; from < ids.size(); from += lookupBatch) {
+                List<String> chunk = ids.subList(from, Math.min(ids.size(), from + lookupBatch));
+                chunks.add(CompletableFuture.runAsync(() -> checkChunk(chunk, lookup, findings), pool));
+            }
+            chunks.forEach(CompletableFuture::join);
+        } finally {
+            pool.shutdownNow();
+        }
+        return AnchoredLogAuditReport.builder()
+                .scope(scope)
+                .records(records.sum())
+                .skipped(skipped.sum())
+                .batches(ids.size())
+                .verified(findings.verified.sum())
+                .intact(findings.mismatches.isEmpty() && findings.missingLeaves.isEmpty()
+                        && findings.notAnchored.isEmpty() && findings.unordered.isEmpty())
+                .mismatches(sorted(findings.mismatches, RootMismatch::batchId))
+                .missingLeaves(sorted(findings.missingLeaves, MissingLeaves::batchId))
+                .notAnchored(sorted(findings.notAnchored, s -> s))
+                .unordered(sorted(findings.unordered, s -> s))
+                .tookMillis(System.currentTimeMillis() - startedMillis)
+                .build();
+    }
+
+    private void checkChunk(List<String> chunk, AnchorLookup lookup, Findings findings) {
+        Map<String, JsonNode> anchors;
+        try {
+            anchors = lookup.getAnchors(chunk);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not read anchors of " + chunk.get(0) + ".." + chunk.get(chunk.size() - 1), e);
+        }
+        for (String batchId : chunk) {
+            JsonNode anchor = anchors.get(batchId);
+            if (anchor == null) {
+                findings.notAnchored.add(batchId);
+            } else {
+                check(batches.get(batchId), anchor, findings);
+            }
+        }
+    }
+
+    private static void check(Batch batch, JsonNode anchor, Findings findings) {
+        if (batch.unordered) {
+            findings.unordered.add(batch.batchId);
+            return;
+        }
+        long count = anchor.path("count").asLong();
+        if (batch.maxIndex >= count) {
+            findings.mismatches.add(new RootMismatch(batch.batchId, text(anchor.get("root")), null,
+                    "leaf " + batch.maxIndex + " beyond anchored count " + count));
+            return;
+        }
+        String[] leaves = new String[(int) count];
+        for (int i = 0; i < batch.indices.size(); i++) {
+            int index = batch.indices.get(i);
+            String hash = batch.hashes.get(i);
+            if (leaves[index] != null && !leaves[index].equals(hash)) {
+                findings.mismatches.add(new RootMismatch(batch.batchId, text(anchor.get("root")), null,
+                        "two different records at leaf " + index));
+                return;
+            }
+            leaves[index] = hash;
+        }
+        List<Integer> missing = new ArrayList<>();
+        int absent = 0;
+        for (int i = 0; i < leaves.length; i++) {
+            if (leaves[i] == null) {
+                if (missing.size() < MAX_LISTED) missing.add(i);
+                absent++;
+            }
+        }
+        if (absent > 0) {
+            findings.missingLeaves.add(new MissingLeaves(batch.batchId, count, leaves.length - absent, missing));
+            return;
+        }
+        String hashAlg = text(anchor.get("hashAlg"));
+        HashProvider hashProvider = HashProvider.forAnchor(hashAlg != null ? hashAlg : batch.hashAlg);
+        String computed = hashProvider.merkleRoot(Arrays.asList(leaves));
+        String ledgerRoot = text(anchor.get("root"));
+        if (Objects.equals(computed, ledgerRoot)) {
+            findings.verified.increment();
+        } else {
+            findings.mismatches.add(new RootMismatch(batch.batchId, ledgerRoot, computed, "root differs"));
+        }
+    }
+
+    private static <T> List<T> sorted(Collection<T> items, Function<T, String> key) {
+        List<T> list = new ArrayList<>(items);
+        list.sort(Comparator.comparing(key));
+        return list;
+    }
+
+    private static String text(JsonNode node) {
+        return node == null || node.isNull() || node.asText().isEmpty() ? null : node.asText();
+    }
+
+    private static final class Findings {
+        final LongAdder verified = new LongAdder();
+        final Collection<RootMismatch> mismatches = new ConcurrentLinkedQueue<>();
+        final Collection<MissingLeaves> missingLeaves = new ConcurrentLinkedQueue<>();
+        final Collection<String> notAnchored = new ConcurrentLinkedQueue<>();
+        final Collection<String> unordered = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Leaves of one batch as they were found, in arrival order.
+     */
+    private static final class Batch {
+        final String batchId;
+        final List<Integer> indices = new ArrayList<>();
+        final List<String> hashes = new ArrayList<>();
+        String hashAlg;
+        int maxIndex = -1;
+        boolean unordered;
+
+        Batch(String batchId) {
+            this.batchId = batchId;
+        }
+
+        synchronized void add(int index, String hash, String hashAlg) {
+            if (index < 0) {
+                unordered = true;
+                return;
+            }
+            indices.add(index);
+            hashes.add(hash);
+            maxIndex = Math.max(maxIndex, index);
+            if (hashAlg != null) this.hashAlg = hashAlg;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package io.logchain.bundler.audit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.logchain.bundler.dto.AnchoredLogAuditReport;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Offline {@link AnchoredLogAudit} over exported files, without Elasticsearch or Fabric:
+ *
+ * <pre>
+ * gradle auditNdjson -Pexport=anchors.ndjson -Panchors=ledger.json [-Preport=report.json]
+ * </pre>
+ *
+ * export is NDJSON of anchored record documents: bulk format as written by FileAnchorSink (action
+ * line, then source line), plain sources, or hits with _id/_source. anchors is the ledger's anchor
+ * list as returned by GET /anchor. Lines are parsed in parallel chunks; exits 1 when not intact.
+ */
+public final class AnchoredLogAuditCli {
+    private static final int CHUNK_LINES = 20_000;
+    private static final int LOOKUP_BATCH = 1000;
+
+    private AnchoredLogAuditCli() {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: AnchoredLogAuditCli <export.ndjson> <anchors.json> [report.json]");
+            System.exit(2);
+        }
+        long started = System.currentTimeMillis();
+        ObjectMapper mapper = new ObjectMapper();
+        int parallelism = Runtime.getRuntime().availableProcessors();
+
+        AnchoredLogAudit audit = new AnchoredLogAudit();
+        read(mapper, Path.of(args[0]), audit, parallelism);
+
+        Map<String, JsonNode> ledger = new HashMap<>();
+        for (JsonNode anchor : mapper.readTree(Path.of(args[1]).toFile())) {
+            ledger.put(anchor.path("batchId").asText(), anchor);
+        }
+        AnchoredLogAuditReport report = audit.finish(args[0], batchIds -> {
+            Map<String, JsonNode> found = new HashMap<>();
+            for (String id : batchIds) {
+                JsonNode anchor = ledger.get(id);
+                if (anchor != null) found.put(id, anchor);
+            }
+            return found;
+        }, LOOKUP_BATCH, parallelism, started);
+
+        String json = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(report);
+        if (args.length > 2) {
+            Files.writeString(Path.of(args[2]), json);
+            System.out.printf("%d records, %d batches, %d verified, intact=%s (%d ms)%n", report.getRecords(),
+                    report.getBatches(), report.getVerified(), report.isIntact(), report.getTookMillis());
+        } else {
+            System.out.println(json);
+        }
+        System.exit(report.isIntact() ? 0 : 1);
+    }
+
+    /**
+     * Reads sequentially and parses chunks in parallel. A chunk never ends on a bulk action line,
+     * so every source line is parsed together with the action naming its _id.
+     */
+    private static void read(ObjectMapper mapper, Path file, AnchoredLogAudit audit, int parallelism) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<String> chunk = new ArrayList<>(CHUNK_LINES);
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) continue;
+                chunk.add(line);
+                if (chunk.size() >= CHUNK_LINES && !isAction(line)) {
+                    List<String> lines = chunk;
+                    chunks.add(CompletableFuture.runAsync(() -> parse(mapper, lines, audit), pool));
+                    chunk = new ArrayList<>(CHUNK_LINES);
+                }
+            }
+            List<String> lines = chunk;
+            chunks.add(CompletableFuture.runAsync(() -> parse(mapper, lines, audit), pool));
+            chunks.forEach(CompletableFuture::join);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void parse(ObjectMapper mapper, List<String> lines, AnchoredLogAudit audit) {
+        String pendingId = null;
+        for (String line : lines) {
+            JsonNode node;
+            try {
+                node = mapper.readTree(line);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Not JSON: " + line, e);
+            }
+            JsonNode action = node.has("index") ? node.get("index") : node.get("create");
+            if (action != null && node.size() == 1) {
+                pendingId = action.path("_id").asText(null);
+                continue;
+            }
+            if (node.has("_source")) {
+                audit.add(node.path("_id").asText(null), node.get("_source"));
+            } else {
+                audit.add(pendingId, node);
+            }
+            pendingId = null;
+        }
+    }
+
+    private static boolean isAction(String line) {
+        return line.startsWith("{\"index\"") || line.startsWith("{\"create\"");
+    }
+}
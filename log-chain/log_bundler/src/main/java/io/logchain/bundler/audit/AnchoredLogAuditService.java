@@ -0,0 +1,140 @@
+package io.logchain.bundler.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.logchain.bundler.ElasticService;
+import io.logchain.bundler.config.AuditConfig;
+import io.logchain.bundler.config.LogChainConfig;
+import io.logchain.bundler.dto.AnchoredLogAuditReport;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.slice.SliceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+import org.hyperledger.fabric.client.Contract;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Re-audits the anchored records of whole days against the ledger.
+ * Every day index (anchor-yyyy.MM.dd, by seal time, so a batch never spans two) is read with
+ * logSlices parallel sliced scrolls fetching only batchId, leaf and hash; the rest is
+ * {@link AnchoredLogAudit}. The report is returned and written to the report dir.
+ */
+@Slf4j
+@Service
+public class AnchoredLogAuditService {
+    private static final DateTimeFormatter INDEX_DAY = DateTimeFormatter.ofPattern("yyyy.MM.dd");
+    private static final TimeValue SCROLL_KEEP_ALIVE = TimeValue.timeValueMinutes(2);
+    private static final String[] FIELDS = {"batchId", "leaf", "log.hash", "hashAlg", "kind"};
+
+    private final ElasticService elasticService;
+    private final LogChainConfig logChainConfig;
+    private final ObjectMapper mapper;
+    private final LedgerAnchorLookup anchorLookup;
+
+    public AnchoredLogAuditService(ElasticService elasticService, LogChainConfig logChainConfig, ObjectMapper mapper,
+                                   Contract contract) {
+        this.elasticService = elasticService;
+        this.logChainConfig = logChainConfig;
+        this.mapper = mapper;
+        this.anchorLookup = new LedgerAnchorLookup(contract, mapper, logChainConfig.getAudit().getAnchorCacheSize());
+    }
+
+    public AnchoredLogAuditReport auditDays(LocalDate from, LocalDate to) throws Exception {
+        long started = System.currentTimeMillis();
+        AuditConfig cfg = logChainConfig.getAudit();
+        String prefix = logChainConfig.getBundler().getSink().getIndexPrefix();
+        List<String> indices = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            indices.add(prefix + INDEX_DAY.format(day));
+        }
+
+        AnchoredLogAudit audit = new AnchoredLogAudit();
+        int slices = Math.max(1, cfg.getLogSlices());
+        ExecutorService executor = Executors.newFixedThreadPool(slices);
+        try (RestHighLevelClient client = elasticService.createClient()) {
+            List<CompletableFuture<Void>> reads = new ArrayList<>();
+            for (int slice = 0; slice < slices; slice++) {
+                int id = slice;
+                reads.add(CompletableFuture.runAsync(() -> readSlice(client, indices, id, slices, audit), executor));
+            }
+            reads.forEach(CompletableFuture::join);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        AnchoredLogAuditReport report = audit.finish(String.join(",", indices), anchorLookup,
+                cfg.getAnchorLookupBatch(), cfg.getParallelism(), started);
+        writeReport(report, "anchored-" + from + (from.equals(to) ? "" : "_" + to));
+        log.info("Anchored log audit of {}: {} records, {} batches, {} verified, intact={} ({} ms)",
+                report.getScope(), report.getRecords(), report.getBatches(), report.getVerified(),
+                report.isIntact(), report.getTookMillis());
+        return report;
+    }
+
+    private void readSlice(RestHighLevelClient client, List<String> indices, int slice, int slices, AnchoredLogAudit audit) {
+        SearchSourceBuilder source = new SearchSourceBuilder()
+                .size(logChainConfig.getAudit().getLogPageSize())
+                .fetchSource(FIELDS, null)
+                .sort("_doc", SortOrder.ASC);
+        if (slices > 1) {
+            source.slice(new SliceBuilder(slice, slices));
+        }
+        SearchRequest request = new SearchRequest(indices.toArray(String[]::new))
+                .indicesOptions(IndicesOptions.lenientExpandOpen())
+                .scroll(SCROLL_KEEP_ALIVE)
+                .source(source);
+        String scrollId = null;
+        try {
+            SearchResponse response = client.search(request, RequestOptions.DEFAULT);
+            while (true) {
+                scrollId = response.getScrollId();
+                SearchHit[] hits = response.getHits().getHits();
+                if (hits.length == 0) break;
+                for (SearchHit hit : hits) {
+                    audit.add(hit.getId(), mapper.readTree(hit.getSourceAsString()));
+                }
+                response = client.scroll(new SearchScrollRequest(scrollId).scroll(SCROLL_KEEP_ALIVE), RequestOptions.DEFAULT);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Reading slice " + slice + " of " + indices + " failed", e);
+        } finally {
+            clearScroll(client, scrollId);
+        }
+    }
+
+    private static void clearScroll(RestHighLevelClient client, String scrollId) {
+        if (scrollId == null) return;
+        try {
+            ClearScrollRequest clear = new ClearScrollRequest();
+            clear.addScrollId(scrollId);
+            client.clearScroll(clear, RequestOptions.DEFAULT);
+        } catch (IOException e) {
+            log.debug("Clearing scroll failed: {}", e.getMessage());
+        }
+    }
+
+    private void writeReport(AnchoredLogAuditReport report, String name) throws IOException {
+        Path dir = Path.of(logChainConfig.getAudit().getReportDir());
+        Files.createDirectories(dir);
+        mapper.writerWithDefaultPrettyPrinter().writeValue(dir.resolve(name + ".json").toFile(), report);
+    }
+}
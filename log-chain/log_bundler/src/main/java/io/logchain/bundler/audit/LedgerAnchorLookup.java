@@ -0,0 +1,90 @@
+package io.logchain.bundler.audit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.hyperledger.fabric.client.Contract;
+import org.hyperledger.fabric.client.GatewayException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Anchors from the ledger for {@link AnchoredLogAudit}: one GetAnchors call per chunk of batch ids,
+ * falling back to one GetAnchor per id on chaincode that predates GetAnchors. Anchors never change
+ * once written, so found ones are cached (up to maxCached) for later audits.
+ */
+@Slf4j
+public class LedgerAnchorLookup implements AnchoredLogAudit.AnchorLookup {
+    private final Contract contract;
+    private final ObjectMapper mapper;
+    private final int maxCached;
+    private final Map<String, JsonNode> cache = new ConcurrentHashMap<>();
+    private volatile boolean batched = true;
+
+    public LedgerAnchorLookup(Contract contract, ObjectMapper mapper, int maxCached) {
+        this.contract = contract;
+        this.mapper = mapper;
+        this.maxCached = maxCached;
+    }
+
+    @Override
+    public Map<String, JsonNode> getAnchors(List<String> batchIds) throws Exception {
+        Map<String, JsonNode> found = new HashMap<>();
+        List<String> uncached = new ArrayList<>();
+        for (String batchId : batchIds) {
+            JsonNode anchor = cache.get(batchId);
+            if (anchor != null) found.put(batchId, anchor);
+            else uncached.add(batchId);
+        }
+        if (uncached.isEmpty()) {
+            return found;
+        }
+        Map<String, JsonNode> fetched = batched ? fetchBatched(uncached) : fetchEach(uncached);
+        found.putAll(fetched);
+        if (cache.size() + fetched.size() > maxCached) {
+            cache.clear();
+        }
+        cache.putAll(fetched);
+        return found;
+    }
+
+    private Map<String, JsonNode> fetchBatched(List<String> batchIds) throws Exception {
+        byte[] result;
+        try {
+            result = contract.evaluateTransaction("GetAnchors", mapper.writeValueAsString(batchIds));
+        } catch (GatewayException e) {
+            if (!isUndefinedMethod(e)) throw e;
+            log.warn("Chaincode has no GetAnchors, reading anchors one by one");
+            batched = false;
+            return fetchEach(batchIds);
+        }
+        Map<String, JsonNode> anchors = new HashMap<>();
+        for (JsonNode anchor : mapper.readTree(result)) {
+            anchors.put(anchor.path("batchId").asText(), anchor);
+        }
+        return anchors;
+    }
+
+    private static boolean isUndefinedMethod(GatewayException e) {
+        StringBuilder sb = new StringBuilder(String.valueOf(e.getMessage()));
+        e.getDetails().forEach(d -> sb.append(' ').append(d.getMessage()));
+        return sb.toString().contains("Undefined contract method");
+    }
+
+    private Map<String, JsonNode> fetchEach(List<String> batchIds) {
+        Map<String, JsonNode> anchors = new HashMap<>();
+        for (String batchId : batchIds) {
+            try {
+                anchors.put(batchId, mapper.readTree(contract.evaluateTransaction("GetAnchor", batchId)));
+            } catch (Exception e) {
+                // not on the ledger (or unreadable): reported as not anchored
+                log.debug("GetAnchor {} failed: {}", batchId, e.getMessage());
+            }
+        }
+        return anchors;
+    }
+}
@@ -0,0 +1,223 @@
+package io.logchain.bundler.codec;
+
+import io.logchain.bundler.NormalizedLog;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Versioned compact binary encoding for {@link NormalizedLog} on the normalizer -> bundler hop.
+ *
+ * Layout (v1): MAGIC, VERSION, flags, level, timestamp as zig-zag epoch seconds + varint nanos,
+ * then message, source, salt, hash, the non-default app/env and the event when there is one; v1
+ * readers from before the event flag ignore it. Strings are varint (length + 1)
+ * + UTF-8, 0 meaning null. Salt and hash are carried as their raw digest bytes instead of Base64,
+ * and the common levels as a one-byte code. Field names are never written.
+ *
+ * Anything that does not start with MAGIC is treated as the JSON form, see {@link #isBinary}.
+ */
+public final class NormalizedLogCodec {
+    public static final byte MAGIC = (byte) 0xB1;
+    public static final byte VERSION_1 = 1;
+
+    private static final int EXPLICIT_APP = 1;
+    private static final int EXPLICIT_ENV = 1 << 1;
+    private static final int TEXT_SALT = 1 << 2;
+    private static final int TEXT_HASH = 1 << 3;
+    private static final int TEXT_TIMESTAMP = 1 << 4;
+    private static final int HAS_EVENT = 1 << 5;
+
+    // index + 1 is the wire code, 0 means the level follows as a string
+    private static final String[] LEVELS = {"INFO", "DEBUG", "WARN", "ERROR", "TRACE"};
+
+    private final String defaultApp;
+    private final String defaultEnv;
+
+    public NormalizedLogCodec(String defaultApp, String defaultEnv) {
+        this.defaultApp = defaultApp;
+        this.defaultEnv = defaultEnv;
+    }
+
+    public static boolean isBinary(byte[] b) {
+        return b != null && b.length > 1 && b[0] == MAGIC;
+    }
+
+    public byte[] encode(NormalizedLog log) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(160);
+        out.write(MAGIC);
+        out.write(VERSION_1);
+
+        byte[] salt = base64OrNull(log.salt());
+        byte[] hash = base64OrNull(log.hash());
+        Instant ts = instantOrNull(log.timestamp());
+        int flags = (Objects.equals(log.app(), defaultApp) ? 0 : EXPLICIT_APP)
+                | (Objects.equals(log.env(), defaultEnv) ? 0 : EXPLICIT_ENV)
+                | (salt == null ? TEXT_SALT : 0)
+                | (hash == null ? TEXT_HASH : 0)
+                | (ts == null ? TEXT_TIMESTAMP : 0)
+                | (log.event() == null ? 0 : HAS_EVENT);
+        out.write(flags);
+
+        int level = levelCode(log.level());
+        out.write(level);
+        if (level == 0) writeString(out, log.level());
+
+        if (ts != null) {
+            writeLong(out, ts.getEpochSecond());
+            writeVarint(out, ts.getNano());
+        } else {
+            writeString(out, log.timestamp());
+        }
+        writeString(out, log.message());
+        writeString(out, log.source());
+        if (salt != null) writeBytes(out, salt); else writeString(out, log.salt());
+        if (hash != null) writeBytes(out, hash); else writeString(out, log.hash());
+        if ((flags & EXPLICIT_APP) != 0) writeString(out, log.app());
+        if ((flags & EXPLICIT_ENV) != 0) writeString(out, log.env());
+        if ((flags & HAS_EVENT) != 0) writeString(out, log.event());
+        return out.toByteArray();
+    }
+
+    public NormalizedLog decode(byte[] b) {
+        if (!isBinary(b)) {
+            throw new IllegalArgumentException("Not a binary normalized log");
+        }
+        if (b[1] != VERSION_1 || b.length < 4) {
+            throw new IllegalArgumentException("Unsupported normalized log encoding version " + b[1]);
+        }
+        Reader r = new Reader(b, 2);
+        int flags = r.readByte();
+        int code = r.readByte();
+        String level = code == 0 ? r.readString() : LEVELS[checkLevel(code) - 1];
+        String timestamp = (flags & TEXT_TIMESTAMP) != 0
+                ? r.readString()
+                : Instant.ofEpochSecond(r.readLong(), r.readVarint()).toString();
+        String message = r.readString();
+        String source = r.readString();
+        String salt = (flags & TEXT_SALT) != 0 ? r.readString() : Base64.getEncoder().encodeToString(r.readBytes());
+        String hash = (flags & TEXT_HASH) != 0 ? r.readString() : Base64.getEncoder().encodeToString(r.readBytes());
+        String app = (flags & EXPLICIT_APP) != 0 ? r.readString() : defaultApp;
+        String env = (flags & EXPLICIT_ENV) != 0 ? r.readString() : defaultEnv;
+        String event = (flags & HAS_EVENT) != 0 ? r.readString() : null;
+        return new NormalizedLog(level, timestamp, message, source, salt, hash, app, env, event);
+    }
+
+    // -------- utilities --------
+    private static int levelCode(String level) {
+        for (int i = 0; i < LEVELS.length; i++) {
+            if (LEVELS[i].equals(level)) return i + 1;
+        }
+        return 0;
+    }
+
+    private static int checkLevel(int code) {
+        if (code > LEVELS.length) throw new IllegalArgumentException("Unknown level code " + code);
+        return code;
+    }
+
+    /**
+     * Raw bytes of a canonical Base64 value, or null when the value would not survive the
+     * round trip (so it is kept as text).
+     */
+    private static byte[] base64OrNull(String s) {
+        if (s == null) return null;
+        try {
+            byte[] raw = Base64.getDecoder().decode(s);
+            return Base64.getEncoder().encodeToString(raw).equals(s) ? raw : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Instant instantOrNull(String s) {
+        if (s == null) return null;
+        try {
+            Instant ts = Instant.parse(s);
+            return ts.toString().equals(s) ? ts : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String s) {
+        if (s == null) {
+            writeVarint(out, 0);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length + 1L);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeBytes(ByteArrayOutputStream out, byte[] bytes) {
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long v) {
+        writeVarint(out, (v << 1) ^ (v >> 63));
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    private static final class Reader {
+        private final byte[] buf;
+        private int pos;
+
+        Reader(byte[] buf, int pos) {
+            this.buf = buf;
+            this.pos = pos;
+        }
+
+        int readByte() {
+            if (pos >= buf.length) throw truncated();
+            return buf[pos++] & 0xFF;
+        }
+
+        long readVarint() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return result;
+            }
+            throw new IllegalArgumentException("Malformed varint in normalized log");
+        }
+
+        long readLong() {
+            long v = readVarint();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        String readString() {
+            long len = readVarint() - 1;
+            if (len < 0) return null;
+            if (pos + len > buf.length) throw truncated();
+            String s = new String(buf, pos, (int) len, StandardCharsets.UTF_8);
+            pos += (int) len;
+            return s;
+        }
+
+        byte[] readBytes() {
+            long len = readVarint();
+            if (pos + len > buf.length) throw truncated();
+            byte[] bytes = new byte[(int) len];
+            System.arraycopy(buf, pos, bytes, 0, bytes.length);
+            pos += bytes.length;
+            return bytes;
+        }
+
+        private IllegalArgumentException truncated() {
+            return new IllegalArgumentException("Truncated normalized log");
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package io.logchain.bundler.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Bounds and targets of the adaptive seal threshold; with enabled=false batch-size is used as is.
+ */
+@Data
+@NoArgsConstructor
+public class AdaptiveBatchConfig {
+    boolean enabled;
+    int minBatchSize = 100;
+    int maxBatchSize = 50_000;
+    /** p99 from log timestamp to anchored, i.e. freshness at seal plus anchor latency */
+    long targetFreshnessP99Millis = 10_000;
+    /** ledger transactions per second this stream may use; 0 means no budget */
+    double maxTxPerSecond = 2;
+    /** how often the threshold is retuned, from the measurements of the past interval */
+    long intervalMillis = 5_000;
+    /** multiplicative steps down (freshness missed) and up (well within target) */
+    double decreaseFactor = 0.7;
+    double increaseFactor = 1.25;
+}
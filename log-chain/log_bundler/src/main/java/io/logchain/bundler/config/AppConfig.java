@@ -2,6 +2,11 @@ package io.logchain.bundler.config;
 
 import io.grpc.ManagedChannel;
 import io.grpc.TlsChannelCredentials;
+import io.logchain.bundler.dlq.DeadLetterQueue;
+import io.logchain.bundler.fabric.InMemoryContract;
+import io.logchain.bundler.index.LeafBloomFilters;
+import io.logchain.bundler.index.LeafIndex;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.hyperledger.fabric.client.Contract;
@@ -12,6 +17,8 @@ import org.hyperledger.fabric.client.identity.*;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.io.File;
 import java.io.IOException;
@@ -22,6 +29,7 @@ import java.security.cert.CertificateException;
 
 @Slf4j
 @Configuration
+@EnableScheduling
 @EnableConfigurationProperties(
         value = {
                 LogChainConfig.class,
@@ -31,9 +39,28 @@ import java.security.cert.CertificateException;
 )
 @RequiredArgsConstructor
 public class AppConfig {
+    public static final String FABRIC_STUB_PROFILE = "fabric-stub";
+
     final FabricConfig fabricConfig;
+    final LogChainConfig logChainConfig;
+
+    @Bean(destroyMethod = "close")
+    public LeafIndex leafIndex() throws IOException {
+        return new LeafIndex(logChainConfig.getIndex());
+    }
+
+    @Bean(destroyMethod = "close")
+    public LeafBloomFilters leafBloomFilters(LeafIndex leafIndex) throws IOException {
+        return new LeafBloomFilters(logChainConfig.getBloom(), leafIndex);
+    }
+
+    @Bean(destroyMethod = "close")
+    public DeadLetterQueue deadLetterQueue(MeterRegistry meterRegistry) {
+        return new DeadLetterQueue(logChainConfig.getDeadLetter(), logChainConfig.getBundler().toProducerProps(), meterRegistry);
+    }
 
     @Bean
+    @Profile("!" + FABRIC_STUB_PROFILE)
     public Contract initFabric() throws IOException, CertificateException, InvalidKeyException {
         String channelName = fabricConfig.getNetworkName();
         String chaincodeName = fabricConfig.getContractName();
@@ -56,6 +83,16 @@ public class AppConfig {
         }
     }
 
+    /**
+     * In-memory ledger instead of a Fabric network, for benchmarks and runs without a network.
+     */
+    @Bean
+    @Profile(FABRIC_STUB_PROFILE)
+    public Contract inMemoryContract() {
+        log.warn("Profile {} active: anchoring to an in-memory ledger, nothing is persisted", FABRIC_STUB_PROFILE);
+        return new InMemoryContract(logChainConfig.getFabricStub(), fabricConfig.getContractName());
+    }
+
     private Path getFirstFilePath(Path dirPath) throws IOException {
         try (var keyFiles = Files.list(dirPath)) {
             return keyFiles.findFirst().orElseThrow();
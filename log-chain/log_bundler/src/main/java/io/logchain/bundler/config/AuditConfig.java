@@ -0,0 +1,24 @@
+package io.logchain.bundler.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class AuditConfig {
+    String checkpointDir = "./data/audit";
+    int segmentSize = 1000;
+    int parallelism = 4;
+    boolean full;
+    List<String> streams = List.of();
+    // -------- anchored log re-audit --------
+    /** parallel sliced scrolls over the day indices */
+    int logSlices = 8;
+    int logPageSize = 5000;
+    /** batch ids per GetAnchors call */
+    int anchorLookupBatch = 500;
+    int anchorCacheSize = 200_000;
+    String reportDir = "./data/audit/reports";
+}
@@ -0,0 +1,15 @@
+package io.logchain.bundler.config;
+
+public enum BatchingMode {
+    /** one batch mixing every assigned partition (historical behaviour) */
+    GLOBAL,
+    /** one batch per topic-partition, with batch ids derived from the offset range */
+    PARTITION,
+    /** one batch per tenant (see {@link TenantConfig}), each with its own window and Merkle tree */
+    TENANT,
+    /**
+     * one batch per aligned event-time window (see {@link EventTimeConfig}), sealed by watermark,
+     * so each anchor covers exactly one time interval; late records get side batches of their window
+     */
+    EVENT_TIME
+}
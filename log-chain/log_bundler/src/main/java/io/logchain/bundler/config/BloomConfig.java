@@ -0,0 +1,27 @@
+package io.logchain.bundler.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class BloomConfig {
+    /**
+     * keep per-day Bloom filters of anchored leaf hashes and answer "not anchored" from them, for
+     * logs stamped after their coverage start; only worth it where this instance anchors every stream
+     */
+    boolean enabled;
+    String dir = "./data/leaf-bloom";
+    /** sizing target for one day's filter */
+    long expectedLeavesPerDay = 10_000_000L;
+    double falsePositiveRate = 0.001;
+    /** hard cap on one day's filter; when hit, the effective false-positive rate goes up */
+    long maxBytesPerDay = 32L * 1024 * 1024;
+    /** anchor the SHA-256 of each sealed day's filter as batch bloom-yyyy-MM-dd, and check it on load */
+    boolean anchorDigest;
+    /**
+     * yyyy-MM-dd (UTC) from which the filters hold every anchored leaf, e.g. after a backfill;
+     * unset, they cover what was anchored since they were created
+     */
+    String coveredSince;
+}
@@ -23,6 +23,21 @@ public class BundlerConfig {
     int delayMillis;
     int workerCount;
     int batchSize;
+    BatchingMode batching = BatchingMode.GLOBAL;
+    int sealParallelism = 4;
+    TenantConfig tenant = new TenantConfig();
+    EventTimeConfig eventTime = new EventTimeConfig();
+    AdaptiveBatchConfig adaptive = new AdaptiveBatchConfig();
+    /** prevRoot chain name; defaults to the consume topic, suffixed per worker when there are several. */
+    String stream;
+    SpoolConfig spool = new SpoolConfig();
+    CheckpointConfig checkpoint = new CheckpointConfig();
+    SinkConfig sink = new SinkConfig();
+
+    public String streamName(int workerIndex) {
+        String base = stream == null || stream.isBlank() ? consumeTopic : stream;
+        return workerCount > 1 ? base + "#" + workerIndex : base;
+    }
 
     public Properties toConsumerProps() {
         Properties props = new Properties();
@@ -0,0 +1,16 @@
+package io.logchain.bundler.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class CheckpointConfig {
+    /** snapshot unsealed batches to local disk, so a restart does not re-read them from Kafka */
+    boolean enabled = true;
+    String dir = "./data/bundler-checkpoint";
+    /** snapshot at most this often, and only when records were added since the last one */
+    long intervalMillis = 10_000;
+    /** how long shutdown waits for a bundler to stop polling and write its final snapshot */
+    long shutdownTimeoutMillis = 30_000;
+}
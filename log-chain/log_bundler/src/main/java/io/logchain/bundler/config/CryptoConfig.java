@@ -0,0 +1,16 @@
+package io.logchain.bundler.config;
+
+import io.logchain.bundler.crypto.HashProvider;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class CryptoConfig {
+    /** log and Merkle hash: SHA-256, SHA-384, SHA3-256, SHA3-384 or BLAKE3 */
+    String hash = "SHA-256";
+
+    public HashProvider hashProvider() {
+        return HashProvider.of(hash);
+    }
+}
@@ -0,0 +1,12 @@
+package io.logchain.bundler.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class DeadLetterConfig {
+    /** publish records that cannot be normalized or bundled; when off they are only counted and logged */
+    boolean enabled = true;
+    String topic = "sample_producer.dlq";
+}
@@ -11,6 +11,7 @@ public class ElasticConfig {
     private String password;
     private String normLogIndex;
     private String anchorIndex;
+    private String anchorManifestIndex = "anchor_manifest";
 
     public String getAddress() {
         return address;
@@ -47,4 +48,12 @@ public class ElasticConfig {
     public void setAnchorIndex(String anchorIndex) {
         this.anchorIndex = anchorIndex;
     }
+
+    public String getAnchorManifestIndex() {
+        return anchorManifestIndex;
+    }
+
+    public void setAnchorManifestIndex(String anchorManifestIndex) {
+        this.anchorManifestIndex = anchorManifestIndex;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package io.logchain.bundler.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * EVENT_TIME batching: records are batched by the aligned window their timestamp falls in,
+ * and a window is sealed once the watermark has passed its end plus the allowed lateness.
+ */
+@Data
+@NoArgsConstructor
+public class EventTimeConfig {
+    /** window length; windows are aligned to the epoch, so 300000 gives 10:00-10:05, 10:05-10:10, ... */
+    long windowMillis = 60_000;
+    /** bounded out-of-orderness: the watermark of a partition trails its newest timestamp by this much */
+    long watermarkLagMillis = 5_000;
+    /** a window stays open this long after the watermark passed its end; later records go to a late batch */
+    long allowedLatenessMillis = 60_000;
+    /** a partition without records for this long stops holding the watermark back */
+    long idleTimeoutMillis = 30_000;
+    /** late batches (one per window) are sealed this long after their first record */
+    long lateFlushMillis = 10_000;
+    /** a window holding more records is sealed early and continued in another batch of the same window */
+    int maxWindowRecords = 500_000;
+    /** the oldest window is sealed early when more than this many batches are open at once */
+    int maxOpenWindows = 1024;
+}
@@ -0,0 +1,50 @@
+package io.logchain.bundler.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Behaviour of the in-memory ledger used under the fabric-stub profile instead of a Fabric network.
+ */
+@Data
+@NoArgsConstructor
+public class FabricStubConfig {
+    /** seeds latencies, failures and conflicts: the n-th draw of each kind is the same on every run */
+    long seed = 42;
+    Latency evaluate = new Latency(Distribution.FIXED, 2, 0, 0.5, 1_000);
+    Latency endorse = new Latency(Distribution.LOG_NORMAL, 40, 0, 0.5, 5_000);
+    /** ordering plus block commit, paid after endorsement */
+    Latency commit = new Latency(Distribution.LOG_NORMAL, 500, 0, 0.5, 10_000);
+    /** share of submits failing at endorsement (peer unavailable) */
+    double endorseFailureRate;
+    /** share of endorsed submits the orderer rejects */
+    double submitFailureRate;
+    /** share of submits invalidated at commit as MVCC_READ_CONFLICT on top of real read/write conflicts */
+    double mvccConflictRate;
+    /** chaincode events kept for replay */
+    int eventBuffer = 10_000;
+
+    public enum Distribution { FIXED, UNIFORM, NORMAL, LOG_NORMAL }
+
+    /**
+     * FIXED: always millis. UNIFORM: millis +- spreadMillis. NORMAL: mean millis, stddev spreadMillis.
+     * LOG_NORMAL: median millis with shape sigma, i.e. a long tail. Capped at [0, maxMillis].
+     */
+    @Data
+    @NoArgsConstructor
+    public static class Latency {
+        Distribution distribution = Distribution.FIXED;
+        long millis;
+        long spreadMillis;
+        double sigma = 0.5;
+        long maxMillis = 10_000;
+
+        public Latency(Distribution distribution, long millis, long spreadMillis, double sigma, long maxMillis) {
+            this.distribution = distribution;
+            this.millis = millis;
+            this.spreadMillis = spreadMillis;
+            this.sigma = sigma;
+            this.maxMillis = maxMillis;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package io.logchain.bundler.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class FusedConfig {
+    /** normalizer hands records to the bundler in memory instead of through the norm topic */
+    boolean enabled;
+    int ringCapacity = 65536;
+    int drainMax = 10_000;
+}
@@ -1,5 +1,7 @@
 package io.logchain.bundler.config;
 
+import io.logchain.bundler.crypto.Blake3;
+
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.function.Function;
@@ -17,6 +19,9 @@ public enum Hash implements Function<byte[], byte[]> {
     }),
     SHA3_384((message) -> {
         return digest("SHA3-384", (byte[]) message);
+    }),
+    BLAKE3((message) -> {
+        return Blake3.hash((byte[]) message);
     });
 
     private final Function<byte[], byte[]> implementation;
@@ -35,6 +40,30 @@ public enum Hash implements Function<byte[], byte[]> {
         return (byte[])this.implementation.apply(message);
     }
 
+    /** name recorded on anchors, e.g. SHA-256, SHA3-256, BLAKE3 */
+    public String algorithmName() {
+        return switch (this) {
+            case SHA256 -> "SHA-256";
+            case SHA384 -> "SHA-384";
+            case SHA3_256 -> "SHA3-256";
+            case SHA3_384 -> "SHA3-384";
+            default -> name();
+        };
+    }
+
+    /**
+     * Accepts algorithm names ("SHA-256", "SHA3-256", "BLAKE3") as well as the constant names.
+     */
+    public static Hash fromName(String name) {
+        String key = name.trim().toUpperCase().replace("-", "").replace("_", "");
+        for (Hash h : values()) {
+            if (h.name().replace("_", "").equals(key)) {
+                return h;
+            }
+        }
+        throw new IllegalArgumentException("Unknown hash algorithm: " + name);
+    }
+
     private static byte[] digest(String algorithm, byte[] message) {
         try {
             MessageDigest digest = MessageDigest.getInstance(algorithm);
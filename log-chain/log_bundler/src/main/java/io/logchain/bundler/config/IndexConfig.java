@@ -0,0 +1,18 @@
+package io.logchain.bundler.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class IndexConfig {
+    /** keep a local leafHash -> (batchId, leafIndex) index of anchored batches */
+    boolean enabled = true;
+    String dir = "./data/leaf-index";
+    long segmentBytes = 256L * 1024 * 1024;
+    long initialCapacity = 1L << 20;
+    /** flush the hash table header every this many batches; the rest is replayed from the log */
+    int checkpointEvery = 64;
+    /** compaction drops batches sealed longer ago than this; 0 keeps everything */
+    int retentionDays;
+}
@@ -6,6 +6,16 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @Data
 @ConfigurationProperties(prefix = "log-chain")
 public class LogChainConfig {
+    CryptoConfig crypto = new CryptoConfig();
     NormalizerConfig normalizer;
     BundlerConfig bundler;
+    AuditConfig audit = new AuditConfig();
+    FusedConfig fused = new FusedConfig();
+    WireConfig wire = new WireConfig();
+    IndexConfig index = new IndexConfig();
+    BloomConfig bloom = new BloomConfig();
+    DeadLetterConfig deadLetter = new DeadLetterConfig();
+    FabricStubConfig fabricStub = new FabricStubConfig();
+    TailerConfig tailer = new TailerConfig();
+    TraceConfig trace = new TraceConfig();
 }
@@ -3,6 +3,7 @@ package io.logchain.bundler.config;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import java.util.Properties;
@@ -31,6 +32,13 @@ public class NormalizerConfig {
         return props;
     }
 
+    /** producer for the binary wire format, values are encoded by the normalizer */
+    public Properties toBinaryProducerProps() {
+        Properties props = toProducerProps();
+        props.put("value.serializer", ByteArraySerializer.class.getName());
+        return props;
+    }
+
     public Properties toConsumerProps() {
         Properties props = new Properties();
         props.put("bootstrap.servers", bootstrapServers);
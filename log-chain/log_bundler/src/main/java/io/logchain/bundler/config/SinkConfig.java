@@ -0,0 +1,22 @@
+package io.logchain.bundler.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class SinkConfig {
+    /** kafka: anchor topic + Logstash; elastic: bulk API; file: local NDJSON stand-in */
+    SinkType type = SinkType.KAFKA;
+    SinkOutput output = SinkOutput.ENVELOPE;
+    String indexPrefix = "anchor-";
+    /** elastic: a batch goes out in bulk requests of at most this many documents / bytes */
+    int bulkActions = 1000;
+    long bulkBytes = 5 * 1024 * 1024;
+    /** elastic: bulk requests of one batch in flight at once */
+    int concurrentRequests = 2;
+    /** elastic: backoff for documents rejected with 429 or 5xx, doubling per retry */
+    long retryInitialMillis = 100;
+    int maxRetries = 8;
+    String file = "./data/anchor-sink.ndjson";
+}
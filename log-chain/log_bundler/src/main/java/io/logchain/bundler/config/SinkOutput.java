@@ -0,0 +1,8 @@
+package io.logchain.bundler.config;
+
+public enum SinkOutput {
+    /** every record also carries merkleRoot, fabricTxId and anchoredAt */
+    ENVELOPE,
+    /** records carry only batchId and leaf index, the rest is in the batch manifest */
+    MANIFEST
+}
@@ -0,0 +1,7 @@
+package io.logchain.bundler.config;
+
+public enum SinkType {
+    KAFKA,
+    ELASTIC,
+    FILE
+}
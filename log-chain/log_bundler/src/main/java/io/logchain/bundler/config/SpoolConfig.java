@@ -0,0 +1,13 @@
+package io.logchain.bundler.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class SpoolConfig {
+    String dir = "./data/spool";
+    int segmentBytes = 64 * 1024 * 1024;
+    long maxBytes = 2L * 1024 * 1024 * 1024;
+    long maxBackoffMillis = 60_000;
+}
@@ -0,0 +1,55 @@
+package io.logchain.bundler.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+
+import java.util.Properties;
+
+/**
+ * In-process replacement for the Logstash raw_log file pipeline: tails JSON log files
+ * (e.g. the bookingservice JSON_FILE appender) and publishes each line to the raw topic.
+ */
+@Data
+@NoArgsConstructor
+public class TailerConfig {
+    boolean enabled = false;
+    /** directory the rolling appender writes to */
+    String dir = "/app/log";
+    /** files of dir to tail */
+    String glob = "*.log";
+    /** raw topic; defaults to the normalizer's consume-topic */
+    String topic;
+    /**
+     * logical source of the tailed files: the key of every line, so rotation keeps their order, and
+     * the source of lines that carry none; defaults to the name of dir
+     */
+    String source;
+    /** read positions per file (inode), so restarts and rotations neither skip nor repeat lines */
+    String checkpointFile = "./data/tailer/positions.json";
+    /** files present at the first start are read from the beginning, else from their current end */
+    boolean fromBeginning = true;
+    /** pause between scans when no file has grown */
+    long pollMillis = 200;
+    /** bytes of a file mapped at once */
+    int mapChunkBytes = 64 * 1024 * 1024;
+    /** longer lines are dead-lettered (their first KB) and skipped */
+    int maxLineBytes = 1024 * 1024;
+    // producer batching of lines into the raw topic
+    int lingerMillis = 20;
+    int batchBytes = 256 * 1024;
+    String compression = "lz4";
+
+    public Properties toProducerProps(String bootstrapServers) {
+        Properties props = new Properties();
+        props.put("bootstrap.servers", bootstrapServers);
+        props.put("key.serializer", StringSerializer.class.getName());
+        props.put("value.serializer", ByteArraySerializer.class.getName());
+        props.put("linger.ms", lingerMillis);
+        props.put("batch.size", batchBytes);
+        props.put("compression.type", compression);
+        props.put("acks", "all");
+        return props;
+    }
+}
@@ -0,0 +1,21 @@
+package io.logchain.bundler.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Sharding of TENANT batching: which record fields make up the tenant, and how long a
+ * shard may stay open, so quiet tenants are anchored without waiting for a full batch.
+ */
+@Data
+@NoArgsConstructor
+public class TenantConfig {
+    /** any of app, env, source */
+    List<String> keyFields = List.of("app", "env", "source");
+    /** a shard batch is sealed this long after its first record even when not full; 0 waits for batch-size */
+    long windowMillis = 5_000;
+    /** the oldest shard is sealed early when more than this many are open at once */
+    int maxOpenShards = 1024;
+}
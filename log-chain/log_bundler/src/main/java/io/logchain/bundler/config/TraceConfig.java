@@ -0,0 +1,17 @@
+package io.logchain.bundler.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Per-stage latency tracing of logs from their origin to the ledger commit, served by /trace.
+ */
+@Data
+@NoArgsConstructor
+public class TraceConfig {
+    boolean enabled = true;
+    /** share of untraced logs the normalizer starts a trace for; logs that arrive traced are always followed */
+    double sampleRate = 0.01;
+    /** completed traces kept for /trace/recent */
+    int recent = 200;
+}
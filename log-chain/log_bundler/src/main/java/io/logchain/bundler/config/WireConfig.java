@@ -0,0 +1,20 @@
+package io.logchain.bundler.config;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class WireConfig {
+    /** encoding of the normalizer -> bundler hop */
+    WireFormat format = WireFormat.JSON;
+    /** topic carrying binary records, consumed by the bundlers; the JSON norm topic is fed by the bridge */
+    String binaryTopic = "sample_producer.norm.bin";
+    /** app/env values left out of binary records; must match on both ends of the hop */
+    String defaultApp = "my-app";
+    String defaultEnv = "prod";
+    /** republish binary records as JSON on the normalizer produce topic (Logstash) */
+    boolean bridgeEnabled;
+    String bridgeGroupId = "logchain-norm-bridge";
+    int bridgeWorkerCount = 1;
+}
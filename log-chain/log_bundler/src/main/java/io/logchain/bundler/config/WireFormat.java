@@ -0,0 +1,6 @@
+package io.logchain.bundler.config;
+
+public enum WireFormat {
+    JSON,
+    BINARY
+}
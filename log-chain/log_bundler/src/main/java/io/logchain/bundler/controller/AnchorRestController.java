@@ -1,24 +1,42 @@
 package io.logchain.bundler.controller;
 
+import io.logchain.bundler.ChainAuditService;
 import io.logchain.bundler.ElasticService;
+import io.logchain.bundler.audit.AnchoredLogAuditService;
 import lombok.RequiredArgsConstructor;
 import org.hyperledger.fabric.client.Contract;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/anchor")
 @RequiredArgsConstructor
 public class AnchorRestController {
+    private static final String ENCODING_JSON = "json";
+    private static final String ENCODING_BINARY = "binary";
+
     private final Contract contract;
     final ElasticService elasticService;
+    final ChainAuditService chainAuditService;
+    final AnchoredLogAuditService anchoredLogAuditService;
 
+    /**
+     * encoding=json (default) returns the JSON list; encoding=binary returns the
+     * contract's length-prefixed compact frames as application/octet-stream. Any other encoding is a 400.
+     */
     @GetMapping
-    public ResponseEntity<?> getAll() {
+    public ResponseEntity<?> getAll(@RequestParam(defaultValue = ENCODING_JSON) String encoding) {
         try {
+            if (isBinary(encoding)) {
+                byte[] result = contract.evaluateTransaction("ListAnchorsEncoded", ENCODING_BINARY);
+                return binaryBody(result);
+            }
             byte[] result = contract.evaluateTransaction("ListAnchors");
             return ResponseEntity.ok(new String(result, StandardCharsets.UTF_8));
         } catch (Exception e) {
@@ -51,8 +69,13 @@ public class AnchorRestController {
     }
 
     @GetMapping("/batch")
-    public ResponseEntity<?> getAnchor(@RequestParam String batchId) {
+    public ResponseEntity<?> getAnchor(@RequestParam String batchId,
+                                       @RequestParam(defaultValue = ENCODING_JSON) String encoding) {
         try {
+            if (isBinary(encoding)) {
+                byte[] result = contract.evaluateTransaction("GetAnchorEncoded", batchId, ENCODING_BINARY);
+                return binaryBody(result);
+            }
             byte[] result = contract.evaluateTransaction("GetAnchor", batchId);
             return ResponseEntity.ok(new String(result, StandardCharsets.UTF_8));
         } catch (Exception e) {
@@ -81,5 +104,50 @@ public class AnchorRestController {
         }
     }
 
+    /**
+     * Checks prevRoot continuity of a stream from the last audit checkpoint (or from seq 1 when full=true).
+     */
+    @GetMapping("/audit")
+    public ResponseEntity<?> auditChain(@RequestParam String stream,
+                                        @RequestParam(defaultValue = "false") boolean full) {
+        try {
+            return ResponseEntity.ok(chainAuditService.audit(stream, full));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
 
+    /**
+     * Re-audits the anchored records of the days from..to (yyyy-MM-dd, to defaults to from)
+     * against the ledger; see {@link AnchoredLogAuditService}.
+     */
+    @GetMapping("/audit/logs")
+    public ResponseEntity<?> auditAnchoredLogs(@RequestParam LocalDate from,
+                                               @RequestParam(required = false) LocalDate to) {
+        try {
+            return ResponseEntity.ok(anchoredLogAuditService.auditDays(from, to == null ? from : to));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException for anything but json or binary, answered with 400
+     */
+    private static boolean isBinary(String encoding) {
+        if (ENCODING_BINARY.equalsIgnoreCase(encoding)) {
+            return true;
+        }
+        if (ENCODING_JSON.equalsIgnoreCase(encoding)) {
+            return false;
+        }
+        throw new IllegalArgumentException("Unsupported encoding: " + encoding + " (expected json or binary)");
+    }
+
+    private static ResponseEntity<byte[]> binaryBody(byte[] base64Result) {
+        byte[] raw = Base64.getDecoder().decode(new String(base64Result, StandardCharsets.UTF_8));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(raw);
+    }
 }
@@ -0,0 +1,38 @@
+package io.logchain.bundler.controller;
+
+import io.logchain.bundler.dto.StageLatencyReport;
+import io.logchain.bundler.trace.StageLatencies;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Where the time goes between a log's origin and its anchor's commit, from the traces this
+ * instance completed.
+ */
+@RestController
+@RequestMapping("/trace")
+@RequiredArgsConstructor
+public class TraceController {
+    private final StageLatencies stageLatencies;
+
+    /** per-segment count, mean, p50/p90/p99 and max in ms */
+    @GetMapping("/latency")
+    public StageLatencyReport latency() {
+        return stageLatencies.report();
+    }
+
+    /** the last completed traces with their stage stamps, newest first */
+    @GetMapping("/recent")
+    public List<StageLatencyReport.Trace> recent(@RequestParam(defaultValue = "20") int limit) {
+        return stageLatencies.recent(Math.max(0, limit));
+    }
+
+    @DeleteMapping("/latency")
+    public ResponseEntity<Void> reset() {
+        stageLatencies.reset();
+        return ResponseEntity.noContent().build();
+    }
+}
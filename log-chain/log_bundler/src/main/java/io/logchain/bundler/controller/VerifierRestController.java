@@ -2,6 +2,7 @@ package io.logchain.bundler.controller;
 
 import io.logchain.bundler.ElasticService;
 import io.logchain.bundler.MerkleAlgorithm;
+import io.logchain.bundler.TenantKey;
 import io.logchain.bundler.dto.VerifyResp;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -9,6 +10,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.List;
+
 
 @RestController
 @RequestMapping("/verifier")
@@ -17,23 +20,50 @@ public class VerifierRestController {
     final ElasticService elasticService;
     final MerkleAlgorithm merkleVerifier;
 
+    /**
+     * Without page: cursor pagination, returns {items, cursor}; pass cursor back for the next page.
+     * With page: the old from/size paging returning a plain list, kept for existing callers.
+     * fields limits the returned source fields, e.g. fields=timestamp,hash,message.
+     * app, env and source scope the search to one tenant.
+     */
     @GetMapping("/searchLogs")
     public ResponseEntity searchLogs(
             @RequestParam(required = false) String hash,
             @RequestParam(required = false) String message,
             @RequestParam long startTsMillis,
             @RequestParam long endTsMillis,
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size
+            @RequestParam(required = false) Integer page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(required = false) String app,
+            @RequestParam(required = false) String env,
+            @RequestParam(required = false) String source
     ) throws Exception {
-        var rs = elasticService.searchLogs(startTsMillis, endTsMillis, message, hash, page, size);
-        return ResponseEntity.ok(rs);
+        TenantKey tenant = tenant(app, env, source);
+        if (page != null && cursor == null) {
+            var rs = elasticService.searchLogs(startTsMillis, endTsMillis, message, hash, tenant, page, size);
+            return ResponseEntity.ok(rs);
+        }
+        try {
+            return ResponseEntity.ok(elasticService.searchLogsPage(startTsMillis, endTsMillis, message, hash, tenant, size, cursor, fields));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
     }
 
+    /**
+     * With app/env/source the proof is only given for a log of that tenant; other logs verify as invalid.
+     * With ts (the log's timestamp, epoch millis) a recent unknown hash is answered from the bloom filters.
+     */
     @GetMapping("/verify")
-    public ResponseEntity<VerifyResp> verifyMerkleProof(@RequestParam String logHash) {
+    public ResponseEntity<VerifyResp> verifyMerkleProof(@RequestParam String logHash,
+                                                        @RequestParam(required = false) String app,
+                                                        @RequestParam(required = false) String env,
+                                                        @RequestParam(required = false) String source,
+                                                        @RequestParam(required = false) Long ts) {
         try {
-            VerifyResp resp = merkleVerifier.verifyByHashAndBatchId(logHash);
+            VerifyResp resp = merkleVerifier.verifyByHashAndBatchId(logHash, tenant(app, env, source), ts);
             return ResponseEntity.ok(resp);
         } catch (Exception e) {
             e.printStackTrace();
@@ -41,4 +71,13 @@ public class VerifierRestController {
         }
     }
 
+    private static TenantKey tenant(String app, String env, String source) {
+        TenantKey tenant = new TenantKey(blankToNull(app), blankToNull(env), blankToNull(source));
+        return tenant.isEmpty() ? null : tenant;
+    }
+
+    private static String blankToNull(String s) {
+        return s == null || s.isBlank() ? null : s;
+    }
+
 }
@@ -0,0 +1,224 @@
+package io.logchain.bundler.crypto;
+
+/**
+ * Pure-Java BLAKE3 (hash mode, 32-byte output), following the reference implementation.
+ *
+ * Input is split into 1 KB chunks of 64-byte blocks; chunk chaining values are merged into a
+ * binary tree through a stack, so memory stays constant for any input length. The compression
+ * keeps state and message words in locals. Instances are not thread-safe; {@link #hash(byte[])}
+ * needs no instance for inputs of one chunk.
+ */
+public final class Blake3 {
+    public static final int OUT_LEN = 32;
+    private static final int BLOCK_LEN = 64;
+    private static final int CHUNK_LEN = 1024;
+    private static final int CHUNK_START = 1;
+    private static final int CHUNK_END = 1 << 1;
+    private static final int PARENT = 1 << 2;
+    private static final int ROOT = 1 << 3;
+
+    private static final int[] IV = {
+            0x6A09E667, 0xBB67AE85, 0x3C6EF372, 0xA54FF53A, 0x510E527F, 0x9B05688C, 0x1F83D9AB, 0x5BE0CD19
+    };
+    // -------- chunk state --------
+    private final int[] chunkCv = new int[8];
+    private final byte[] block = new byte[BLOCK_LEN];
+    private long chunkCounter;
+    private int blockLen;
+    private int blocksCompressed;
+
+    // -------- tree state --------
+    // chaining values of completed subtrees, 8 words each; allocated once input exceeds one chunk
+    private int[] cvStack;
+    private int cvStackLen;
+
+    // scratch
+    private final int[] words = new int[16];
+    private final int[] state = new int[16];
+
+    public Blake3() {
+        System.arraycopy(IV, 0, chunkCv, 0, 8);
+    }
+
+    public static byte[] hash(byte[] input) {
+        if (input.length <= CHUNK_LEN) {
+            return hashOneChunk(input);
+        }
+        Blake3 h = new Blake3();
+        h.update(input, 0, input.length);
+        return h.digest();
+    }
+
+    /**
+     * Inputs of up to one chunk (every log line) are a chain of block compressions with the last
+     * one as root; no hasher state is needed.
+     */
+    private static byte[] hashOneChunk(byte[] input) {
+        int[] cv = IV.clone();
+        int[] m = new int[16];
+        int[] out = new int[16];
+        int blocks = Math.max(1, (input.length + BLOCK_LEN - 1) / BLOCK_LEN);
+        for (int b = 0; b < blocks; b++) {
+            int off = b * BLOCK_LEN;
+            int len = Math.min(BLOCK_LEN, input.length - off);
+            loadWords(input, off, len, m);
+            int flags = (b == 0 ? CHUNK_START : 0) | (b == blocks - 1 ? CHUNK_END | ROOT : 0);
+            compress(cv, m, 0, len, flags, out);
+            System.arraycopy(out, 0, cv, 0, 8);
+        }
+        return toBytes(out);
+    }
+
+    public Blake3 update(byte[] input, int off, int len) {
+        while (len > 0) {
+            if (chunkLength() == CHUNK_LEN) {
+                int[] cv = new int[8];
+                chunkOutputCv(cv);
+                long totalChunks = chunkCounter + 1;
+                addChunkCv(cv, totalChunks);
+                resetChunk(totalChunks);
+            }
+            if (blockLen == BLOCK_LEN) {
+                // a full block is only compressed once more input follows: the last one needs CHUNK_END
+                loadWords(block, 0, BLOCK_LEN, words);
+                compress(chunkCv, words, chunkCounter, BLOCK_LEN, startFlag(), state);
+                System.arraycopy(state, 0, chunkCv, 0, 8);
+                blocksCompressed++;
+                blockLen = 0;
+            }
+            int take = Math.min(Math.min(BLOCK_LEN - blockLen, CHUNK_LEN - chunkLength()), len);
+            System.arraycopy(input, off, block, blockLen, take);
+            blockLen += take;
+            off += take;
+            len -= take;
+        }
+        return this;
+    }
+
+    /** Output of the input so far; the hasher can keep being updated afterwards. */
+    public byte[] digest() {
+        // the last chunk's output node, then up through the stacked subtrees to the root
+        int[] inputCv = chunkCv.clone();
+        int[] blockWords = new int[16];
+        loadWords(block, 0, blockLen, blockWords);
+        long counter = chunkCounter;
+        int len = blockLen;
+        int flags = startFlag() | CHUNK_END;
+        int[] cv = new int[16];
+        for (int i = cvStackLen - 1; i >= 0; i--) {
+            compress(inputCv, blockWords, counter, len, flags, cv);
+            System.arraycopy(cvStack, 8 * i, blockWords, 0, 8);
+            System.arraycopy(cv, 0, blockWords, 8, 8);
+            inputCv = IV.clone();
+            counter = 0;
+            len = BLOCK_LEN;
+            flags = PARENT;
+        }
+        int[] out = new int[16];
+        compress(inputCv, blockWords, counter, len, flags | ROOT, out);
+        return toBytes(out);
+    }
+
+    // -------- internals --------
+    private int chunkLength() {
+        return BLOCK_LEN * blocksCompressed + blockLen;
+    }
+
+    private int startFlag() {
+        return blocksCompressed == 0 ? CHUNK_START : 0;
+    }
+
+    private void chunkOutputCv(int[] cv) {
+        loadWords(block, 0, blockLen, words);
+        compress(chunkCv, words, chunkCounter, blockLen, startFlag() | CHUNK_END, state);
+        System.arraycopy(state, 0, cv, 0, 8);
+    }
+
+    private void resetChunk(long counter) {
+        System.arraycopy(IV, 0, chunkCv, 0, 8);
+        chunkCounter = counter;
+        blockLen = 0;
+        blocksCompressed = 0;
+    }
+
+    /**
+     * Merges completed subtrees: after chunk n, as many merges as n has trailing zero bits.
+     */
+    private void addChunkCv(int[] cv, long totalChunks) {
+        if (cvStack == null) {
+            cvStack = new int[54 * 8];
+        }
+        while ((totalChunks & 1) == 0) {
+            System.arraycopy(cvStack, 8 * --cvStackLen, words, 0, 8);
+            System.arraycopy(cv, 0, words, 8, 8);
+            compress(IV, words, 0, BLOCK_LEN, PARENT, state);
+            System.arraycopy(state, 0, cv, 0, 8);
+            totalChunks >>= 1;
+        }
+        System.arraycopy(cv, 0, cvStack, 8 * cvStackLen++, 8);
+    }
+
+    /** little-endian words of b[off, off + len), zero-padded to a full block */
+    private static void loadWords(byte[] b, int off, int len, int[] w) {
+        int full = len >>> 2;
+        for (int i = 0; i < full; i++) {
+            int o = off + 4 * i;
+            w[i] = (b[o] & 0xFF) | (b[o + 1] & 0xFF) << 8 | (b[o + 2] & 0xFF) << 16 | (b[o + 3] & 0xFF) << 24;
+        }
+        for (int i = full; i < 16; i++) {
+            int word = 0;
+            for (int k = 0, o = off + 4 * i; k < 4 && 4 * i + k < len; k++) {
+                word |= (b[o + k] & 0xFF) << (8 * k);
+            }
+            w[i] = word;
+        }
+    }
+
+    private static byte[] toBytes(int[] out) {
+        byte[] bytes = new byte[OUT_LEN];
+        for (int i = 0; i < 8; i++) {
+            int w = out[i];
+            bytes[4 * i] = (byte) w;
+            bytes[4 * i + 1] = (byte) (w >>> 8);
+            bytes[4 * i + 2] = (byte) (w >>> 16);
+            bytes[4 * i + 3] = (byte) (w >>> 24);
+        }
+        return bytes;
+    }
+
+    private static void compress(int[] cv, int[] m, long counter, int blockLen, int flags, int[] out) {
+        int s0 = cv[0], s1 = cv[1], s2 = cv[2], s3 = cv[3], s4 = cv[4], s5 = cv[5], s6 = cv[6], s7 = cv[7];
+        int s8 = IV[0], s9 = IV[1], s10 = IV[2], s11 = IV[3];
+        int s12 = (int) counter, s13 = (int) (counter >>> 32), s14 = blockLen, s15 = flags;
+        int m0 = m[0], m1 = m[1], m2 = m[2], m3 = m[3], m4 = m[4], m5 = m[5], m6 = m[6], m7 = m[7];
+        int m8 = m[8], m9 = m[9], m10 = m[10], m11 = m[11], m12 = m[12], m13 = m[13], m14 = m[14], m15 = m[15];
+        for (int r = 0; r < 7; r++) {
+            // columns
+            s0 += s4 + m0; s12 = Integer.rotateRight(s12 ^ s0, 16); s8 += s12; s4 = Integer.rotateRight(s4 ^ s8, 12);
+            s0 += s4 + m1; s12 = Integer.rotateRight(s12 ^ s0, 8); s8 += s12; s4 = Integer.rotateRight(s4 ^ s8, 7);
+            s1 += s5 + m2; s13 = Integer.rotateRight(s13 ^ s1, 16); s9 += s13; s5 = Integer.rotateRight(s5 ^ s9, 12);
+            s1 += s5 + m3; s13 = Integer.rotateRight(s13 ^ s1, 8); s9 += s13; s5 = Integer.rotateRight(s5 ^ s9, 7);
+            s2 += s6 + m4; s14 = Integer.rotateRight(s14 ^ s2, 16); s10 += s14; s6 = Integer.rotateRight(s6 ^ s10, 12);
+            s2 += s6 + m5; s14 = Integer.rotateRight(s14 ^ s2, 8); s10 += s14; s6 = Integer.rotateRight(s6 ^ s10, 7);
+            s3 += s7 + m6; s15 = Integer.rotateRight(s15 ^ s3, 16); s11 += s15; s7 = Integer.rotateRight(s7 ^ s11, 12);
+            s3 += s7 + m7; s15 = Integer.rotateRight(s15 ^ s3, 8); s11 += s15; s7 = Integer.rotateRight(s7 ^ s11, 7);
+            // diagonals
+            s0 += s5 + m8; s15 = Integer.rotateRight(s15 ^ s0, 16); s10 += s15; s5 = Integer.rotateRight(s5 ^ s10, 12);
+            s0 += s5 + m9; s15 = Integer.rotateRight(s15 ^ s0, 8); s10 += s15; s5 = Integer.rotateRight(s5 ^ s10, 7);
+            s1 += s6 + m10; s12 = Integer.rotateRight(s12 ^ s1, 16); s11 += s12; s6 = Integer.rotateRight(s6 ^ s11, 12);
+            s1 += s6 + m11; s12 = Integer.rotateRight(s12 ^ s1, 8); s11 += s12; s6 = Integer.rotateRight(s6 ^ s11, 7);
+            s2 += s7 + m12; s13 = Integer.rotateRight(s13 ^ s2, 16); s8 += s13; s7 = Integer.rotateRight(s7 ^ s8, 12);
+            s2 += s7 + m13; s13 = Integer.rotateRight(s13 ^ s2, 8); s8 += s13; s7 = Integer.rotateRight(s7 ^ s8, 7);
+            s3 += s4 + m14; s14 = Integer.rotateRight(s14 ^ s3, 16); s9 += s14; s4 = Integer.rotateRight(s4 ^ s9, 12);
+            s3 += s4 + m15; s14 = Integer.rotateRight(s14 ^ s3, 8); s9 += s14; s4 = Integer.rotateRight(s4 ^ s9, 7);
+            // message permutation {2, 6, 3, 10, 7, 0, 4, 13, 1, 11, 12, 5, 9, 14, 15, 8}, kept in locals
+            int t0 = m0, t1 = m1, t4 = m4, t5 = m5, t7 = m7, t8 = m8;
+            m0 = m2; m1 = m6; m2 = m3; m3 = m10; m4 = t7; m5 = t0; m6 = t4; m7 = m13;
+            m8 = t1; m10 = m12; m12 = m9; m9 = m11; m11 = t5; m13 = m14; m14 = m15; m15 = t8;
+        }
+        out[0] = s0 ^ s8; out[1] = s1 ^ s9; out[2] = s2 ^ s10; out[3] = s3 ^ s11;
+        out[4] = s4 ^ s12; out[5] = s5 ^ s13; out[6] = s6 ^ s14; out[7] = s7 ^ s15;
+        out[8] = s8 ^ cv[0]; out[9] = s9 ^ cv[1]; out[10] = s10 ^ cv[2]; out[11] = s11 ^ cv[3];
+        out[12] = s12 ^ cv[4]; out[13] = s13 ^ cv[5]; out[14] = s14 ^ cv[6]; out[15] = s15 ^ cv[7];
+    }
+}
@@ -0,0 +1,93 @@
+package io.logchain.bundler.crypto;
+
+import io.logchain.bundler.config.Hash;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * The one place log and Merkle hashes are computed: Base64 digests of UTF-8 strings with the
+ * algorithm chosen by log-chain.crypto.hash. Anchors record {@link #name()}, and verification
+ * uses {@link #forAnchor(String)} so batches anchored under an earlier setting still verify.
+ */
+public final class HashProvider {
+    /** what every anchor without a recorded algorithm was hashed with */
+    public static final HashProvider DEFAULT = new HashProvider(Hash.SHA256);
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    private final Hash hash;
+
+    private HashProvider(Hash hash) {
+        this.hash = hash;
+    }
+
+    public static HashProvider of(String name) {
+        Hash h = Hash.fromName(name);
+        if (h == Hash.NONE) {
+            throw new IllegalArgumentException("log-chain.crypto.hash cannot be NONE");
+        }
+        return h == Hash.SHA256 ? DEFAULT : new HashProvider(h);
+    }
+
+    /** the provider an anchor was sealed with; null or empty means the pre-configurable SHA-256 */
+    public static HashProvider forAnchor(String hashAlg) {
+        return hashAlg == null || hashAlg.isEmpty() ? DEFAULT : of(hashAlg);
+    }
+
+    public String name() {
+        return hash.algorithmName();
+    }
+
+    public byte[] digest(byte[] data) {
+        return hash.apply(data);
+    }
+
+    public String hash(String data) {
+        return Base64.getEncoder().encodeToString(hash.apply(data.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Pairs adjacent hashes level by level (the last one is paired with itself on odd levels)
+     * until one is left; see MerkleAlgorithm.computeMerkleRoot.
+     */
+    public String merkleRoot(List<String> leaves) {
+        List<String> current = new ArrayList<>(leaves);
+        while (current.size() > 1) {
+            List<String> next = new ArrayList<>((current.size() + 1) / 2);
+            for (int i = 0; i < current.size(); i += 2) {
+                String right = i + 1 < current.size() ? current.get(i + 1) : current.get(i);
+                next.add(hash(current.get(i) + right));
+            }
+            current = next;
+        }
+        return current.get(0);
+    }
+
+    /**
+     * Same tree as {@link #merkleRoot(List)}; levels wider than PARALLEL_THRESHOLD are hashed on
+     * the fork/join pool.
+     */
+    public String merkleRootParallel(List<String> leaves) {
+        List<String> current = leaves;
+        while (current.size() > PARALLEL_THRESHOLD) {
+            List<String> level = current;
+            int pairs = (level.size() + 1) / 2;
+            current = IntStream.range(0, pairs).parallel()
+                    .mapToObj(p -> {
+                        String left = level.get(2 * p);
+                        String right = 2 * p + 1 < level.size() ? level.get(2 * p + 1) : left;
+                        return hash(left + right);
+                    })
+                    .toList();
+        }
+        return merkleRoot(current);
+    }
+
+    @Override
+    public String toString() {
+        return name();
+    }
+}
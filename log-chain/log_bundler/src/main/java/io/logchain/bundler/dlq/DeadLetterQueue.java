@@ -0,0 +1,145 @@
+package io.logchain.bundler.dlq;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.logchain.bundler.config.DeadLetterConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+
+import java.io.Closeable;
+import java.time.Instant;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Where records go that a worker cannot process, instead of failing the worker or the batch.
+ *
+ * Each dead letter is a JSON document on the DLQ topic with the stage that rejected it, the
+ * reason and the source coordinates (topic, partition, offset), plus the original value, so it
+ * can be fixed and replayed. Sends are asynchronous: a stream of poison records costs about as
+ * much as a stream of good ones. Workers call {@link #flush()} before committing offsets, so an
+ * offset is never committed past a record whose dead letter was lost. Every rejection is counted
+ * in logchain.deadletter.records, tagged with stage and error type.
+ */
+@Slf4j
+public class DeadLetterQueue implements Closeable {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Producer<String, String> producer;
+    private final String topic;
+    private final MeterRegistry registry;
+    /** sent but not known to be delivered; failed ones stay here and are sent again on flush */
+    private final Queue<Letter> unconfirmed = new ConcurrentLinkedQueue<>();
+    private final Object flushLock = new Object();
+
+    /**
+     * Counts and logs rejected records without publishing them.
+     */
+    public DeadLetterQueue(MeterRegistry registry) {
+        this.topic = null;
+        this.registry = registry;
+        this.producer = null;
+    }
+
+    public DeadLetterQueue(DeadLetterConfig config, Properties producerProps, MeterRegistry registry) {
+        this.topic = config.getTopic();
+        this.registry = registry;
+        this.producer = config.isEnabled() ? new KafkaProducer<>(producerProps) : null;
+    }
+
+    DeadLetterQueue(Producer<String, String> producer, String topic, MeterRegistry registry) {
+        this.topic = topic;
+        this.registry = registry;
+        this.producer = producer;
+    }
+
+    /**
+     * @param stage which step rejected the record, e.g. "normalize", "decode", "prepare"
+     */
+    public void send(String stage, String sourceTopic, int partition, long offset, String key, String value,
+                     Throwable error) {
+        String reason = reason(error);
+        registry.counter("logchain.deadletter.records", "stage", stage, "error", error.getClass().getSimpleName())
+                .increment();
+        log.debug("Dead-lettering {}-{}@{} from {}: {}", sourceTopic, partition, offset, stage, reason);
+        if (producer == null) {
+            return;
+        }
+        ObjectNode letter = mapper.createObjectNode()
+                .put("stage", stage)
+                .put("reason", reason)
+                .put("topic", sourceTopic)
+                .put("partition", partition)
+                .put("offset", offset)
+                .put("failedAt", Instant.now().toString())
+                .put("value", value);
+        ProducerRecord<String, String> record;
+        try {
+            record = new ProducerRecord<>(topic, key, mapper.writeValueAsString(letter));
+        } catch (Exception e) {
+            // a letter that cannot be written never will be; holding commits back would not help
+            log.warn("Dead letter for {}-{}@{} not sent: {}", sourceTopic, partition, offset, e.getMessage());
+            return;
+        }
+        unconfirmed.add(new Letter(sourceTopic + "-" + partition + "@" + offset, record, publish(record)));
+    }
+
+    /**
+     * Waits until every dead letter sent so far is delivered, sending failed ones once more.
+     * Returns false when some are still not delivered: the caller must not commit offsets then,
+     * since the records they cover would be lost. They are retried on the next call.
+     */
+    public boolean flush() {
+        if (producer == null || unconfirmed.isEmpty()) {
+            return true;
+        }
+        synchronized (flushLock) {
+            producer.flush();
+            int failed = 0;
+            for (int n = unconfirmed.size(); n > 0; n--) {
+                Letter letter = unconfirmed.poll();
+                if (letter == null) break;
+                try {
+                    letter.delivery().get();
+                } catch (InterruptedException e) {
+                    unconfirmed.add(letter);
+                    Thread.currentThread().interrupt();
+                    return false;
+                } catch (ExecutionException e) {
+                    failed++;
+                    log.warn("Dead letter for {} not delivered, sending again: {}", letter.source(), e.getCause().getMessage());
+                    unconfirmed.add(new Letter(letter.source(), letter.record(), publish(letter.record())));
+                }
+            }
+            return failed == 0;
+        }
+    }
+
+    private Future<RecordMetadata> publish(ProducerRecord<String, String> record) {
+        try {
+            return producer.send(record);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static String reason(Throwable error) {
+        String message = error.getMessage();
+        return message == null ? error.getClass().getSimpleName() : error.getClass().getSimpleName() + ": " + message;
+    }
+
+    private record Letter(String source, ProducerRecord<String, String> record, Future<RecordMetadata> delivery) {
+    }
+
+    @Override
+    public void close() {
+        if (producer != null) producer.close();
+    }
+}
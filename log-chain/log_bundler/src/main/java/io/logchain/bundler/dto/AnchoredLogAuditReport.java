@@ -0,0 +1,38 @@
+package io.logchain.bundler.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class AnchoredLogAuditReport {
+    /** what was read: index names or the exported file */
+    String scope;
+    long records;
+    /** documents without batchId or leaf hash */
+    long skipped;
+    long batches;
+    /** batches whose recomputed root matches the ledger */
+    long verified;
+    boolean intact;
+    List<RootMismatch> mismatches;
+    List<MissingLeaves> missingLeaves;
+    /** batches with records in Elasticsearch but no anchor on the ledger */
+    List<String> notAnchored;
+    /** batches written before records carried their leaf index, so the tree order is unknown */
+    List<String> unordered;
+    long tookMillis;
+
+    public record RootMismatch(String batchId, String ledgerRoot, String computedRoot, String reason) {
+    }
+
+    /**
+     * @param missing leaf indices not found, the first 100 of them
+     */
+    public record MissingLeaves(String batchId, long count, int present, List<Integer> missing) {
+    }
+}
@@ -0,0 +1,20 @@
+package io.logchain.bundler.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class ChainAuditReport {
+    String stream;
+    long fromSeq;
+    long toSeq;
+    long checked;
+    boolean intact;
+    List<String> breaks;
+    long tookMillis;
+}
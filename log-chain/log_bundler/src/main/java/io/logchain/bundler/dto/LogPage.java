@@ -0,0 +1,17 @@
+package io.logchain.bundler.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class LogPage {
+    List<Map<String, Object>> items;
+    /** opaque; pass back to get the next page, null on the last page */
+    String cursor;
+}
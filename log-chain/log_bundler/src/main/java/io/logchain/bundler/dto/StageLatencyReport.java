@@ -0,0 +1,43 @@
+package io.logchain.bundler.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class StageLatencyReport {
+    long traces;
+    long sinceMillis;
+    List<SegmentLatency> segments;
+
+    /** latency in ms between two stages, over the traces that have both */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    public static class SegmentLatency {
+        String name;
+        String from;
+        String to;
+        long count;
+        double mean;
+        long p50;
+        long p90;
+        long p99;
+        long max;
+    }
+
+    /** one completed trace: its stamps and the resulting segment latencies */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    public static class Trace {
+        String id;
+        Map<String, Long> stamps;
+        Map<String, Long> segments;
+    }
+}
@@ -13,5 +13,6 @@ public class VerifyResp {
     boolean isValid;
     String batchId;
     String root;
+    Integer leafIndex;
     List<String> leafHash;
 }
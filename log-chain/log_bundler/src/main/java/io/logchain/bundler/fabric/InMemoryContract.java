@@ -0,0 +1,597 @@
+package io.logchain.bundler.fabric;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.grpc.StatusRuntimeException;
+import io.logchain.bundler.config.FabricStubConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.hyperledger.fabric.client.ChaincodeEvent;
+import org.hyperledger.fabric.client.CommitException;
+import org.hyperledger.fabric.client.Contract;
+import org.hyperledger.fabric.client.EndorseException;
+import org.hyperledger.fabric.client.GatewayException;
+import org.hyperledger.fabric.client.Proposal;
+import org.hyperledger.fabric.client.SubmitException;
+import org.hyperledger.fabric.protos.peer.TxValidationCode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * {@link Contract} backed by an in-memory world state, for running the bundler without a Fabric
+ * network (profile fabric-stub). Implements the anchor chaincode transactions the bundler uses
+ * with the same validation and error texts: duplicate batchId (ALREADY_EXISTS), stream chaining
+ * (CHAIN_CONFLICT), GetAnchor/GetAnchors/LatestAnchor/StreamHead/ListStreamAnchors, and an
+ * "Anchored" event per committed anchor.
+ *
+ * A submit goes through the phases of a real one: endorsement simulates the transaction against
+ * the current state and records the version of every key it read; after the commit latency the
+ * read set is validated, and a key written in between invalidates the transaction with
+ * MVCC_READ_CONFLICT, exactly as when two writers race for one stream head. On top of that,
+ * endorsement failures, orderer rejections and MVCC conflicts can be injected at configured rates.
+ * Latencies are slept outside the state lock, so concurrent submits overlap like on a network.
+ *
+ * Latencies and injected faults are drawn per call from the seed and a counter per kind of draw,
+ * so the n-th endorsement (say) fails or not on every run, however the threads interleave.
+ *
+ * Differences: values are JSON rather than the chaincode's binary encoding, so the *Encoded
+ * transactions only support encoding=json; every transaction gets its own block; a transaction
+ * invalidated at commit throws {@link StubCommitException}, since the gateway's CommitException
+ * cannot be created outside it.
+ */
+@Slf4j
+public class InMemoryContract implements Contract {
+    public static final String ANCHORED_EVENT = "Anchored";
+
+    private static final int MAX_STREAM_PAGE = 1000;
+    private static final String ANCHOR = "ANCHOR\u0000";
+    private static final String LATEST = "ANCHOR\u0000LATEST\u0000";
+    private static final String STREAM_HEAD = "STREAM_HEAD\u0000";
+    private static final String STREAM_SEQ = "STREAM_SEQ\u0000";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final FabricStubConfig config;
+    private final String chaincodeName;
+    // draws made so far, per Draw
+    private final AtomicLongArray draws = new AtomicLongArray(Draw.values().length);
+
+    private final TreeMap<String, Versioned> state = new TreeMap<>();
+    private final Deque<ChaincodeEvent> events = new ArrayDeque<>();
+    private final List<Consumer<ChaincodeEvent>> listeners = new CopyOnWriteArrayList<>();
+    private long blockHeight;
+
+    private final AtomicLong committed = new AtomicLong();
+    private final AtomicLong endorseFailures = new AtomicLong();
+    private final AtomicLong submitFailures = new AtomicLong();
+    private final AtomicLong mvccConflicts = new AtomicLong();
+
+    public InMemoryContract(FabricStubConfig config, String chaincodeName) {
+        this.config = config;
+        this.chaincodeName = chaincodeName == null ? "anchor" : chaincodeName;
+    }
+
+    public record Stats(long committed, long endorseFailures, long submitFailures, long mvccConflicts,
+                        long blockHeight) {
+    }
+
+    public Stats stats() {
+        synchronized (state) {
+            return new Stats(committed.get(), endorseFailures.get(), submitFailures.get(), mvccConflicts.get(),
+                    blockHeight);
+        }
+    }
+
+    /**
+     * Calls the listener with every chaincode event committed from now on; close to unsubscribe.
+     */
+    public AutoCloseable onEvent(Consumer<ChaincodeEvent> listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    /**
+     * Buffered events from startBlock on (up to eventBuffer of the latest), oldest first.
+     */
+    public List<ChaincodeEvent> events(long startBlock) {
+        synchronized (state) {
+            return events.stream().filter(e -> e.getBlockNumber() >= startBlock).toList();
+        }
+    }
+
+    // -------- Contract --------
+    @Override
+    public String getChaincodeName() {
+        return chaincodeName;
+    }
+
+    @Override
+    public Optional<String> getContractName() {
+        return Optional.empty();
+    }
+
+    @Override
+    public byte[] submitTransaction(String name) throws EndorseException, CommitException, SubmitException {
+        return submitTransaction(name, new String[0]);
+    }
+
+    @Override
+    public byte[] submitTransaction(String name, byte[]... args) throws EndorseException, CommitException, SubmitException {
+        return submitTransaction(name, strings(args));
+    }
+
+    @Override
+    public byte[] submitTransaction(String name, String... args) throws EndorseException, CommitException, SubmitException {
+        String txId = UUID.randomUUID().toString().replace("-", "");
+        sleep(Draw.ENDORSE_LATENCY, config.getEndorse(), txId);
+        if (chance(Draw.ENDORSE_FAILURE, config.getEndorseFailureRate())) {
+            endorseFailures.incrementAndGet();
+            throw new EndorseException(txId, grpcError(io.grpc.Status.UNAVAILABLE,
+                    "failed to endorse transaction: injected endorsement failure"));
+        }
+        Tx tx = new Tx(txId);
+        byte[] result;
+        synchronized (state) {
+            try {
+                result = invoke(tx, name, args);
+            } catch (ChaincodeError e) {
+                throw new EndorseException(txId, grpcError(io.grpc.Status.ABORTED,
+                        "failed to endorse transaction: chaincode response 500, " + e.getMessage()));
+            }
+        }
+        if (chance(Draw.SUBMIT_FAILURE, config.getSubmitFailureRate())) {
+            submitFailures.incrementAndGet();
+            throw new SubmitException(txId, grpcError(io.grpc.Status.UNAVAILABLE,
+                    "failed to send transaction to orderer: injected orderer failure"));
+        }
+        sleep(Draw.COMMIT_LATENCY, config.getCommit(), txId);
+        boolean injectedConflict = chance(Draw.MVCC_CONFLICT, config.getMvccConflictRate());
+        synchronized (state) {
+            long block = ++blockHeight;
+            if (injectedConflict || !tx.readsCurrent()) {
+                mvccConflicts.incrementAndGet();
+                log.debug("Transaction {} ({}) invalidated: MVCC_READ_CONFLICT", txId, name);
+                throw new StubCommitException(txId, block, TxValidationCode.MVCC_READ_CONFLICT);
+            }
+            tx.commit(block);
+            committed.incrementAndGet();
+        }
+        return result;
+    }
+
+    @Override
+    public byte[] evaluateTransaction(String name) throws GatewayException {
+        return evaluateTransaction(name, new String[0]);
+    }
+
+    @Override
+    public byte[] evaluateTransaction(String name, byte[]... args) throws GatewayException {
+        return evaluateTransaction(name, strings(args));
+    }
+
+    @Override
+    public byte[] evaluateTransaction(String name, String... args) throws GatewayException {
+        try {
+            sleep(Draw.EVALUATE_LATENCY, config.getEvaluate(), name);
+        } catch (SubmitException e) {
+            throw new GatewayException(grpcError(io.grpc.Status.CANCELLED, "evaluate interrupted"));
+        }
+        synchronized (state) {
+            try {
+                return invoke(new Tx(null), name, args);
+            } catch (ChaincodeError e) {
+                throw new GatewayException(grpcError(io.grpc.Status.UNKNOWN,
+                        "evaluate call to endorser returned error: chaincode response 500, " + e.getMessage()));
+            }
+        }
+    }
+
+    @Override
+    public Proposal.Builder newProposal(String name) {
+        throw new UnsupportedOperationException("InMemoryContract only supports submitTransaction and evaluateTransaction");
+    }
+
+    // -------- chaincode --------
+    private byte[] invoke(Tx tx, String name, String[] args) {
+        return switch (name) {
+            case "PutAnchor" -> {
+                arity(name, args, 8);
+                yield utf8(putAnchor(tx, args[0], args[1], parseLong(args[2]), parseLong(args[3]),
+                        parseLong(args[4]), parseLong(args[5]), args[6], args[7]));
+            }
+            case "PutChainedAnchor" -> {
+                arity(name, args, 9);
+                yield utf8(putChained(tx, args[0], args[1], args[2], parseLong(args[3]), parseLong(args[4]),
+                        parseLong(args[5]), parseLong(args[6]), args[7], args[8], null));
+            }
+            case "PutChainedAnchorWithHash" -> {
+                arity(name, args, 10);
+                requireNonEmpty(args[9], "hashAlg");
+                yield utf8(putChained(tx, args[0], args[1], args[2], parseLong(args[3]), parseLong(args[4]),
+                        parseLong(args[5]), parseLong(args[6]), args[7], args[8], args[9]));
+            }
+            case "Exists" -> {
+                arity(name, args, 1);
+                yield utf8(String.valueOf(tx.get(ANCHOR + args[0]) != null));
+            }
+            case "GetAnchor" -> {
+                arity(name, args, 1);
+                yield anchorBytes(tx, args[0]);
+            }
+            case "GetAnchorEncoded" -> {
+                arity(name, args, 2);
+                requireJson(args[1]);
+                yield anchorBytes(tx, args[0]);
+            }
+            case "GetAnchors" -> {
+                arity(name, args, 1);
+                yield getAnchors(tx, args[0]);
+            }
+            case "ListAnchors" -> listAnchors(tx);
+            case "ListAnchorsEncoded" -> {
+                arity(name, args, 1);
+                requireJson(args[0]);
+                yield listAnchors(tx);
+            }
+            case "StreamHead" -> {
+                arity(name, args, 1);
+                byte[] head = streamHead(tx, args[0]);
+                if (head == null) throw new ChaincodeError("No anchors yet for stream=" + args[0], "EMPTY");
+                yield head;
+            }
+            case "ListStreamAnchors" -> {
+                arity(name, args, 3);
+                yield listStreamAnchors(tx, args[0], parseLong(args[1]), parseLong(args[2]));
+            }
+            case "LatestAnchor" -> {
+                byte[] latest = tx.get(LATEST);
+                if (latest == null) throw new ChaincodeError("No anchors yet", "EMPTY");
+                yield anchorBytes(tx, new String(latest, StandardCharsets.UTF_8));
+            }
+            default -> throw new ChaincodeError("Undefined contract method called: " + name, null);
+        };
+    }
+
+    private String putAnchor(Tx tx, String batchId, String root, long count, long startTsMillis, long endTsMillis,
+                             long processMillis, String prevRoot, String txNote) {
+        validate(batchId, root, count, startTsMillis, endTsMillis);
+        requireAbsent(tx, batchId);
+        ObjectNode anchor = anchor(tx.txId, batchId, root, count, startTsMillis, endTsMillis, nullIfEmpty(prevRoot),
+                processMillis, nullIfEmpty(txNote));
+        store(tx, anchor);
+        return tx.txId;
+    }
+
+    private String putChained(Tx tx, String stream, String batchId, String root, long count, long startTsMillis,
+                              long endTsMillis, long processMillis, String prevRoot, String txNote, String hashAlg) {
+        requireNonEmpty(stream, "stream");
+        validate(batchId, root, count, startTsMillis, endTsMillis);
+        requireAbsent(tx, batchId);
+
+        JsonNode head = json(streamHead(tx, stream));
+        String expectedPrev = head == null ? null : head.path("root").asText(null);
+        if (!Objects.equals(expectedPrev, nullIfEmpty(prevRoot))) {
+            throw new ChaincodeError("prevRoot does not match head of stream=" + stream, "CHAIN_CONFLICT");
+        }
+        long seq = head == null ? 1 : head.path("seq").asLong() + 1;
+        ObjectNode anchor = anchor(tx.txId, batchId, root, count, startTsMillis, endTsMillis, expectedPrev,
+                processMillis, nullIfEmpty(txNote));
+        anchor.put("stream", stream);
+        anchor.put("seq", seq);
+        anchor.put("hashAlg", hashAlg);
+
+        store(tx, anchor);
+        byte[] batchIdBytes = utf8(batchId);
+        tx.put(streamSeqKey(stream, seq), batchIdBytes);
+        tx.put(STREAM_HEAD + stream, batchIdBytes);
+        return tx.txId;
+    }
+
+    private byte[] getAnchors(Tx tx, String batchIdsJson) {
+        String[] batchIds;
+        try {
+            batchIds = mapper.readValue(batchIdsJson, String[].class);
+        } catch (IOException e) {
+            throw new ChaincodeError("batchIds must be a JSON array of strings", null);
+        }
+        if (batchIds.length > MAX_STREAM_PAGE) {
+            throw new ChaincodeError("more than " + MAX_STREAM_PAGE + " batchIds", null);
+        }
+        ArrayNode out = mapper.createArrayNode();
+        for (String batchId : batchIds) {
+            byte[] v = tx.get(ANCHOR + batchId);
+            if (v != null) out.add(json(v));
+        }
+        return bytes(out);
+    }
+
+    private byte[] listAnchors(Tx tx) {
+        ArrayNode out = mapper.createArrayNode();
+        SortedMap<String, Versioned> anchors = state.subMap(ANCHOR, ANCHOR + Character.MAX_VALUE);
+        anchors.forEach((key, v) -> {
+            if (!key.equals(LATEST)) out.add(json(tx.get(key)));
+        });
+        return bytes(out);
+    }
+
+    private byte[] listStreamAnchors(Tx tx, String stream, long fromSeq, long toSeq) {
+        if (fromSeq < 1 || toSeq < fromSeq) throw new ChaincodeError("invalid seq range", null);
+        if (toSeq - fromSeq >= MAX_STREAM_PAGE) {
+            throw new ChaincodeError("seq range larger than " + MAX_STREAM_PAGE, null);
+        }
+        ArrayNode out = mapper.createArrayNode();
+        for (long seq = fromSeq; seq <= toSeq; seq++) {
+            byte[] batchId = tx.get(streamSeqKey(stream, seq));
+            if (batchId == null) continue;
+            out.add(json(anchorBytes(tx, new String(batchId, StandardCharsets.UTF_8))));
+        }
+        return bytes(out);
+    }
+
+    private byte[] streamHead(Tx tx, String stream) {
+        byte[] headBatchId = tx.get(STREAM_HEAD + stream);
+        return headBatchId == null ? null : anchorBytes(tx, new String(headBatchId, StandardCharsets.UTF_8));
+    }
+
+    private void store(Tx tx, ObjectNode anchor) {
+        String batchId = anchor.get("batchId").asText();
+        byte[] value = bytes(anchor);
+        tx.put(ANCHOR + batchId, value);
+        tx.put(LATEST, utf8(batchId));
+        tx.event(ANCHORED_EVENT, value);
+    }
+
+    private byte[] anchorBytes(Tx tx, String batchId) {
+        byte[] v = tx.get(ANCHOR + batchId);
+        if (v == null) {
+            throw new ChaincodeError("Anchor not found for batchId=" + batchId, "NOT_FOUND");
+        }
+        return v;
+    }
+
+    private ObjectNode anchor(String txId, String batchId, String root, long count, long startTsMillis,
+                              long endTsMillis, String prevRoot, long anchorTsMillis, String txNote) {
+        ObjectNode a = mapper.createObjectNode();
+        a.put("txId", txId);
+        a.put("batchId", batchId);
+        a.put("root", root);
+        a.put("count", count);
+        a.put("startTsMillis", startTsMillis);
+        a.put("endTsMillis", endTsMillis);
+        a.put("prevRoot", prevRoot);
+        a.put("anchorTsMillis", anchorTsMillis);
+        a.put("txNote", txNote);
+        a.putNull("stream");
+        a.put("seq", 0);
+        a.putNull("hashAlg");
+        return a;
+    }
+
+    private void requireAbsent(Tx tx, String batchId) {
+        if (tx.get(ANCHOR + batchId) != null) {
+            throw new ChaincodeError("Anchor already exists for batchId=" + batchId, "ALREADY_EXISTS");
+        }
+    }
+
+    private static void validate(String batchId, String root, long count, long startTsMillis, long endTsMillis) {
+        requireNonEmpty(batchId, "batchId");
+        requireNonEmpty(root, "root");
+        if (count <= 0) throw new ChaincodeError("count must be > 0", null);
+        if (endTsMillis < startTsMillis) throw new ChaincodeError("endTs < startTs", null);
+    }
+
+    private static void requireJson(String encoding) {
+        if (!"json".equalsIgnoreCase(encoding)) {
+            throw new ChaincodeError("encoding " + encoding + " is not supported by the in-memory ledger", null);
+        }
+    }
+
+    private static void arity(String name, String[] args, int expected) {
+        if (args.length != expected) {
+            throw new ChaincodeError(name + " expects " + expected + " arguments, got " + args.length, null);
+        }
+    }
+
+    private static void requireNonEmpty(String s, String field) {
+        if (s == null || s.isBlank()) throw new ChaincodeError(field + " must be non-empty", null);
+    }
+
+    private static long parseLong(String s) {
+        try {
+            return Long.parseLong(s);
+        } catch (NumberFormatException e) {
+            throw new ChaincodeError("not a number: " + s, null);
+        }
+    }
+
+    private static String nullIfEmpty(String s) {
+        return (s == null || s.isBlank()) ? null : s;
+    }
+
+    // -------- world state --------
+    private record Versioned(byte[] value, long version) {
+    }
+
+    private record Event(long blockNumber, String transactionId, String chaincodeName, String eventName,
+                         byte[] payload) implements ChaincodeEvent {
+        @Override
+        public long getBlockNumber() {
+            return blockNumber;
+        }
+
+        @Override
+        public String getTransactionId() {
+            return transactionId;
+        }
+
+        @Override
+        public String getChaincodeName() {
+            return chaincodeName;
+        }
+
+        @Override
+        public String getEventName() {
+            return eventName;
+        }
+
+        @Override
+        public byte[] getPayload() {
+            return payload;
+        }
+    }
+
+    /**
+     * One simulated transaction: reads see the committed state plus the transaction's own writes,
+     * and remember the version read (0 = absent) for validation at commit. Callers hold the state lock.
+     */
+    private final class Tx {
+        final String txId;
+        final Map<String, Long> reads = new HashMap<>();
+        final Map<String, byte[]> writes = new LinkedHashMap<>();
+        final List<Event> pendingEvents = new ArrayList<>(1);
+
+        Tx(String txId) {
+            this.txId = txId;
+        }
+
+        byte[] get(String key) {
+            byte[] own = writes.get(key);
+            if (own != null) return own;
+            Versioned v = state.get(key);
+            reads.putIfAbsent(key, v == null ? 0L : v.version());
+            return v == null ? null : v.value();
+        }
+
+        void put(String key, byte[] value) {
+            writes.put(key, value);
+        }
+
+        void event(String name, byte[] payload) {
+            pendingEvents.add(new Event(0, txId, chaincodeName, name, payload));
+        }
+
+        boolean readsCurrent() {
+            for (Map.Entry<String, Long> read : reads.entrySet()) {
+                Versioned v = state.get(read.getKey());
+                if ((v == null ? 0L : v.version()) != read.getValue()) return false;
+            }
+            return true;
+        }
+
+        void commit(long block) {
+            writes.forEach((key, value) -> state.put(key, new Versioned(value, block)));
+            for (Event pending : pendingEvents) {
+                ChaincodeEvent e = new Event(block, txId, chaincodeName, pending.eventName(), pending.payload());
+                events.addLast(e);
+                while (events.size() > Math.max(0, config.getEventBuffer())) events.removeFirst();
+                for (Consumer<ChaincodeEvent> listener : listeners) {
+                    try {
+                        listener.accept(e);
+                    } catch (RuntimeException ex) {
+                        log.warn("Chaincode event listener failed: {}", ex.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    /** chaincode-level failure, with the error code the real contract passes as payload */
+    private static final class ChaincodeError extends RuntimeException {
+        ChaincodeError(String message, String code) {
+            super(code == null ? message : message + " (" + code + ")");
+        }
+    }
+
+    // -------- latency and failures --------
+    /** independent sequences of random draws */
+    private enum Draw { EVALUATE_LATENCY, ENDORSE_LATENCY, COMMIT_LATENCY, ENDORSE_FAILURE, SUBMIT_FAILURE, MVCC_CONFLICT }
+
+    /**
+     * A generator for the next draw of this kind, seeded from the seed and the draw's number, so
+     * no state is shared between threads and a run repeats draw by draw.
+     */
+    private SplittableRandom next(Draw draw) {
+        long n = draws.getAndIncrement(draw.ordinal());
+        return new SplittableRandom(config.getSeed() ^ ((long) draw.ordinal() << 56) ^ n);
+    }
+
+    private void sleep(Draw draw, FabricStubConfig.Latency latency, String what) throws SubmitException {
+        long millis = sample(next(draw), latency);
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SubmitException(what, grpcError(io.grpc.Status.CANCELLED, "interrupted"));
+        }
+    }
+
+    private static long sample(SplittableRandom random, FabricStubConfig.Latency l) {
+        double g = random.nextGaussian();
+        double u = random.nextDouble();
+        double millis = switch (l.getDistribution()) {
+            case FIXED -> l.getMillis();
+            case UNIFORM -> l.getMillis() - l.getSpreadMillis() + u * 2 * l.getSpreadMillis();
+            case NORMAL -> l.getMillis() + g * l.getSpreadMillis();
+            case LOG_NORMAL -> l.getMillis() * Math.exp(l.getSigma() * g);
+        };
+        return Math.max(0, Math.min(l.getMaxMillis(), Math.round(millis)));
+    }
+
+    private boolean chance(Draw draw, double rate) {
+        return rate > 0 && next(draw).nextDouble() < rate;
+    }
+
+    private static StatusRuntimeException grpcError(io.grpc.Status status, String description) {
+        return status.withDescription(description).asRuntimeException();
+    }
+
+    // -------- encoding --------
+    private JsonNode json(byte[] value) {
+        if (value == null) return null;
+        try {
+            return mapper.readTree(value);
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt in-memory state", e);
+        }
+    }
+
+    private byte[] bytes(JsonNode node) {
+        try {
+            return mapper.writeValueAsBytes(node);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String streamSeqKey(String stream, long seq) {
+        return STREAM_SEQ + stream + "\u0000" + String.format("%019d", seq);
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String[] strings(byte[][] args) {
+        return Arrays.stream(args).map(a -> new String(a, StandardCharsets.UTF_8)).toArray(String[]::new);
+    }
+}
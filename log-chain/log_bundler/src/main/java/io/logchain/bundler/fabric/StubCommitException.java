@@ -0,0 +1,33 @@
+package io.logchain.bundler.fabric;
+
+import io.grpc.Status;
+import org.hyperledger.fabric.client.SubmitException;
+import org.hyperledger.fabric.protos.peer.TxValidationCode;
+
+/**
+ * A transaction of the {@link InMemoryContract} that was endorsed and ordered but invalidated at
+ * commit. The gateway reports this as a CommitException, which only it can create; this carries
+ * the same transaction id, validation code and message ("Commit of transaction ... failed with
+ * status code 11 (MVCC_READ_CONFLICT)"), so callers that go by the message see no difference.
+ */
+public class StubCommitException extends SubmitException {
+    private static final long serialVersionUID = 1L;
+
+    private final long blockNumber;
+    private final transient TxValidationCode code;
+
+    public StubCommitException(String transactionId, long blockNumber, TxValidationCode code) {
+        super(transactionId, Status.ABORTED.withDescription("Commit of transaction " + transactionId
+                + " failed with status code " + code.getNumber() + " (" + code.name() + ")").asRuntimeException());
+        this.blockNumber = blockNumber;
+        this.code = code;
+    }
+
+    public long getBlockNumber() {
+        return blockNumber;
+    }
+
+    public TxValidationCode getCode() {
+        return code;
+    }
+}
@@ -0,0 +1,63 @@
+package io.logchain.bundler.fused;
+
+import io.logchain.bundler.BatchRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-memory hand-off from the normalizers to the bundler when both run in the same JVM.
+ *
+ * Records keep the coordinates of the raw-topic record they were normalized from, so the
+ * bundler can report back which raw offsets are safely spooled; the normalizer commits those
+ * instead of its own read position. The normalized form travels as an object, so the bundler
+ * never parses it back from JSON.
+ */
+public class FusedChannel {
+    private final RingBuffer<BatchRecord> ring;
+    private final Map<TopicPartition, OffsetAndMetadata> sealed = new ConcurrentHashMap<>();
+    private final int drainMax;
+
+    public FusedChannel(int capacity, int drainMax) {
+        this.ring = new RingBuffer<>(capacity);
+        this.drainMax = drainMax;
+    }
+
+    /**
+     * Hands a normalized record to the bundler, parking briefly while the ring is full.
+     */
+    public void publish(BatchRecord record) throws InterruptedException {
+        while (!ring.offer(record)) {
+            LockSupport.parkNanos(50_000);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Moves up to drainMax records into sink; single consumer only.
+     */
+    public int drain(List<BatchRecord> sink) {
+        return ring.drainTo(sink, drainMax);
+    }
+
+    public void markSealed(Map<TopicPartition, OffsetAndMetadata> positions) {
+        sealed.putAll(positions);
+    }
+
+    public Map<TopicPartition, OffsetAndMetadata> sealedPositions(Collection<TopicPartition> assigned) {
+        Map<TopicPartition, OffsetAndMetadata> positions = new HashMap<>();
+        for (TopicPartition tp : assigned) {
+            OffsetAndMetadata pos = sealed.get(tp);
+            if (pos != null) positions.put(tp, pos);
+        }
+        return positions;
+    }
+}
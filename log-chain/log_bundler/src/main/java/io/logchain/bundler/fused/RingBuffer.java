@@ -0,0 +1,88 @@
+package io.logchain.bundler.fused;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring for many producers and a single consumer.
+ *
+ * Every slot carries a sequence number: a producer may fill slot i when its sequence equals
+ * the claimed position, and publishes by bumping it to position + 1; the consumer frees the
+ * slot by advancing it one lap. No locks, and a full ring is reported instead of blocking.
+ */
+public final class RingBuffer<T> {
+    private final int mask;
+    private final AtomicReferenceArray<T> items;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    public RingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.items = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return false when the ring is full
+     */
+    public boolean offer(T item) {
+        long pos = tail.get();
+        while (true) {
+            int idx = (int) (pos & mask);
+            long diff = sequences.get(idx) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    items.lazySet(idx, item);
+                    sequences.set(idx, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Single consumer only.
+     */
+    public T poll() {
+        long pos = head.get();
+        int idx = (int) (pos & mask);
+        if (sequences.get(idx) != pos + 1) {
+            return null;
+        }
+        T item = items.get(idx);
+        items.lazySet(idx, null);
+        sequences.set(idx, pos + mask + 1);
+        head.lazySet(pos + 1);
+        return item;
+    }
+
+    public int drainTo(List<? super T> sink, int max) {
+        int n = 0;
+        T item;
+        while (n < max && (item = poll()) != null) {
+            sink.add(item);
+            n++;
+        }
+        return n;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public long size() {
+        return Math.max(0, tail.get() - head.get());
+    }
+}
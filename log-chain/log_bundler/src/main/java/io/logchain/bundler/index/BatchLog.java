@@ -0,0 +1,160 @@
+package io.logchain.bundler.index;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, memory-mapped log of indexed batches in fixed-size segment files.
+ *
+ * Records are [int length][int crc32][payload] like the anchor spool; a record is addressed by
+ * its global offset (segment * segmentBytes + position), which is what the {@link SlotTable}
+ * stores. A record that does not fit the current segment starts the next one.
+ */
+@Slf4j
+final class BatchLog implements Closeable {
+    private static final int HEADER = 8;
+    private static final int ROLL_MARKER = -1;
+    private static final String SUFFIX = ".seg";
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private long end;
+
+    BatchLog(Path dir, long segmentBytes) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(dir);
+        for (int id = 0; Files.exists(segmentPath(id)); id++) {
+            segments.add(map(id));
+        }
+        if (segments.isEmpty()) {
+            segments.add(map(0));
+        }
+    }
+
+    interface Visitor {
+        void accept(long offset, ByteBuffer payload) throws IOException;
+    }
+
+    /**
+     * Walks the intact records from offset 'from' to the tail, which becomes the append position.
+     * A torn record at the tail is cleared.
+     */
+    void recover(long from, Visitor visitor) throws IOException {
+        long pos = from;
+        while (true) {
+            int seg = (int) (pos / segmentBytes);
+            int off = (int) (pos % segmentBytes);
+            if (seg >= segments.size()) break;
+            MappedByteBuffer buf = segments.get(seg);
+            int len = off + HEADER <= buf.capacity() ? buf.getInt(off) : ROLL_MARKER;
+            if (len == ROLL_MARKER) {
+                if (seg + 1 >= segments.size()) break;
+                pos = (long) (seg + 1) * segmentBytes;
+                continue;
+            }
+            if (len <= 0 || !intact(buf, off, len)) {
+                if (len != 0) {
+                    log.warn("Discarding torn index record in {} at {}", segmentPath(seg), off);
+                    buf.putInt(off, 0);
+                    buf.force(off, 4);
+                }
+                break;
+            }
+            visitor.accept(pos, buf.slice(off + HEADER, len));
+            pos += HEADER + len;
+        }
+        end = pos;
+    }
+
+    /**
+     * Durably appends a payload and returns its global offset.
+     */
+    long append(byte[] payload) throws IOException {
+        int need = HEADER + payload.length;
+        if (need > segmentBytes) {
+            throw new IOException("Index record of " + payload.length + " bytes exceeds segment size " + segmentBytes);
+        }
+        int seg = (int) (end / segmentBytes);
+        int off = (int) (end % segmentBytes);
+        if (off + need > segmentBytes) {
+            if (off + 4 <= segmentBytes) {
+                segments.get(seg).putInt(off, ROLL_MARKER);
+                segments.get(seg).force(off, 4);
+            }
+            seg++;
+            off = 0;
+            segments.add(map(seg));
+        }
+        MappedByteBuffer buf = segments.get(seg);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        buf.put(off + HEADER, payload);
+        buf.putInt(off + 4, (int) crc.getValue());
+        buf.force(off + 4, need - 4);
+        // the length is the commit marker, so it is written last
+        buf.putInt(off, payload.length);
+        buf.force(off, 4);
+        long offset = (long) seg * segmentBytes + off;
+        end = offset + need;
+        return offset;
+    }
+
+    /**
+     * Read-only view of the payload at a global offset, or null when no intact-looking record of
+     * this log starts there, e.g. for a table slot pointing past what survived a crash.
+     */
+    ByteBuffer read(long offset) {
+        if (offset < 0 || offset + HEADER > end) {
+            return null;
+        }
+        int seg = (int) (offset / segmentBytes);
+        int off = (int) (offset % segmentBytes);
+        MappedByteBuffer buf = segments.get(seg);
+        int len = buf.getInt(off);
+        if (len <= 0 || offset + HEADER + len > end || off + HEADER + len > buf.capacity()) {
+            return null;
+        }
+        return buf.slice(off + HEADER, len).asReadOnlyBuffer();
+    }
+
+    long end() {
+        return end;
+    }
+
+    @Override
+    public void close() {
+        segments.clear();
+    }
+
+    // -------- segments --------
+    private static boolean intact(MappedByteBuffer buf, int off, int len) {
+        if (off + HEADER + len > buf.capacity()) return false;
+        CRC32 crc = new CRC32();
+        crc.update(buf.slice(off + HEADER, len));
+        return (int) crc.getValue() == buf.getInt(off + 4);
+    }
+
+    private Path segmentPath(int id) {
+        return dir.resolve(String.format("%06d%s", id, SUFFIX));
+    }
+
+    private MappedByteBuffer map(int id) throws IOException {
+        try (FileChannel ch = FileChannel.open(segmentPath(id),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return ch.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+    }
+}
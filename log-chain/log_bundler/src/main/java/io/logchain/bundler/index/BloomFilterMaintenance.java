@@ -0,0 +1,98 @@
+package io.logchain.bundler.index;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.logchain.bundler.config.LogChainConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hyperledger.fabric.client.Contract;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * Seals past days of the {@link LeafBloomFilters} and, with log-chain.bloom.anchor-digest, anchors
+ * each sealed filter's digest as batch bloom-yyyy-MM-dd. Anchored filters are checked against the
+ * ledger at startup; a filter that does not match is not used for negative answers.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BloomFilterMaintenance {
+    private static final String BATCH_PREFIX = "bloom-";
+    private static final long DAY_MILLIS = 86_400_000L;
+
+    final LeafBloomFilters bloomFilters;
+    final LogChainConfig logChainConfig;
+    final Contract contract;
+    final ObjectMapper mapper = new ObjectMapper();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkAnchoredDigests() {
+        if (!bloomFilters.isEnabled() || !logChainConfig.getBloom().isAnchorDigest()) {
+            return;
+        }
+        for (LocalDate day : bloomFilters.anchoredDays()) {
+            String onLedger = ledgerRoot(day);
+            if (onLedger == null) {
+                log.warn("Could not read the anchored digest of bloom filter {}, using it unchecked", day);
+            } else if (!onLedger.equals(bloomFilters.digest(day))) {
+                bloomFilters.distrust(day, "digest differs from the anchored one");
+            }
+        }
+        seal();
+    }
+
+    @Scheduled(cron = "${log-chain.bloom.seal-cron:0 5 * * * *}", zone = "UTC")
+    public void seal() {
+        if (!bloomFilters.isEnabled()) {
+            return;
+        }
+        bloomFilters.sealPastDays();
+        if (!logChainConfig.getBloom().isAnchorDigest()) {
+            return;
+        }
+        for (LocalDate day : bloomFilters.unanchoredDays()) {
+            try {
+                anchor(day);
+            } catch (Exception e) {
+                log.warn("Anchoring bloom filter digest for {} failed, retrying on the next run: {}", day, e.getMessage());
+            }
+        }
+    }
+
+    private void anchor(LocalDate day) throws Exception {
+        String digest = bloomFilters.digest(day);
+        long start = day.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        try {
+            contract.submitTransaction("PutAnchor",
+                    BATCH_PREFIX + day,
+                    digest,
+                    String.valueOf(bloomFilters.count(day)),
+                    String.valueOf(start),
+                    String.valueOf(start + DAY_MILLIS - 1),
+                    String.valueOf(System.currentTimeMillis()),
+                    "",
+                    "bloom filter digest");
+        } catch (Exception e) {
+            // committed before a crash: the ledger already has it
+            if (!digest.equals(ledgerRoot(day))) {
+                throw e;
+            }
+        }
+        bloomFilters.markAnchored(day);
+        log.info("Anchored bloom filter digest for {}", day);
+    }
+
+    private String ledgerRoot(LocalDate day) {
+        try {
+            byte[] anchor = contract.evaluateTransaction("GetAnchor", BATCH_PREFIX + day);
+            return mapper.readTree(anchor).path("root").asText(null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package io.logchain.bundler.index;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One day's Bloom filter, memory-mapped so that bits set by a crashed process are not lost.
+ *
+ * File layout: a 64-byte header [magic][k][flags][bits][count][epochDay], then the bit array as
+ * longs. Bit positions come from two 64-bit halves of the leaf digest (double hashing), so no
+ * extra hashing happens per lookup. Words are updated with an atomic OR, workers share a filter.
+ *
+ * DIRTY is set while the filter is open for writing and cleared by a clean close; a dirty filter
+ * at startup may miss bits (machine crash) and must be rebuilt before its negatives are trusted.
+ */
+final class DayBloomFilter implements Closeable {
+    static final long MAGIC = 0x4C454146424C4D31L; // "LEAFBLM1"
+    static final int DIRTY = 1;
+    static final int SEALED = 2;
+    static final int ANCHORED = 4;
+    private static final int HEADER = 64;
+    private static final VarHandle WORD = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final Path path;
+    private final MappedByteBuffer buf;
+    private final long epochDay;
+    private final int k;
+    private final long bits;
+    private final AtomicLong count;
+    private volatile int flags;
+
+    private DayBloomFilter(Path path, MappedByteBuffer buf) {
+        this.path = path;
+        this.buf = buf;
+        this.k = buf.getInt(8);
+        this.flags = buf.getInt(12);
+        this.bits = buf.getLong(16);
+        this.count = new AtomicLong(buf.getLong(24));
+        this.epochDay = buf.getLong(32);
+    }
+
+    static DayBloomFilter create(Path path, long epochDay, long bits, int k) throws IOException {
+        Files.deleteIfExists(path);
+        bits = (bits + 63) & ~63L;
+        MappedByteBuffer buf = map(path, HEADER + bits / 8, true);
+        buf.putInt(8, k);
+        buf.putInt(12, DIRTY);
+        buf.putLong(16, bits);
+        buf.putLong(24, 0);
+        buf.putLong(32, epochDay);
+        buf.putLong(0, MAGIC);
+        buf.force();
+        return new DayBloomFilter(path, buf);
+    }
+
+    /**
+     * Opens an existing filter; sealed filters are mapped read-only. Returns null for a file that
+     * was never completed.
+     */
+    static DayBloomFilter open(Path path) throws IOException {
+        long size = Files.size(path);
+        if (size < HEADER) {
+            return null;
+        }
+        boolean sealed;
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            var header = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            if (header.getLong(0) != MAGIC || size != HEADER + header.getLong(16) / 8) {
+                return null;
+            }
+            sealed = (header.getInt(12) & SEALED) != 0;
+        }
+        return new DayBloomFilter(path, map(path, size, !sealed));
+    }
+
+    /**
+     * Sets a flag also when the filter is sealed, through a write to the header that leaves the
+     * read-only mapping in place; only ANCHORED is set this way.
+     */
+    void setFlagOnDisk(int flag) throws IOException {
+        if (!buf.isReadOnly()) {
+            setFlags(flag, 0);
+            return;
+        }
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(4).putInt(0, flags | flag);
+            ch.write(header, 12);
+            ch.force(false);
+        }
+        flags |= flag;
+    }
+
+    long epochDay() {
+        return epochDay;
+    }
+
+    long count() {
+        return count.get();
+    }
+
+    boolean hasFlag(int flag) {
+        return (flags & flag) != 0;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    void put(long h1, long h2) {
+        for (int i = 0; i < k; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            long mask = 1L << (bit & 63);
+            int at = HEADER + (int) (bit >>> 6) * 8;
+            WORD.getAndBitwiseOr(buf, at, mask);
+        }
+        count.incrementAndGet();
+    }
+
+    boolean mightContain(long h1, long h2) {
+        for (int i = 0; i < k; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            if ((buf.getLong(HEADER + (int) (bit >>> 6) * 8) & (1L << (bit & 63))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** (1 - e^(-kn/m))^k for the current fill */
+    double falsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) k * count() / bits), k);
+    }
+
+    /**
+     * SHA-256 over the parameters and bit array; what gets anchored for a sealed day.
+     */
+    byte[] digest() {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(buf.slice(8, 4));
+            md.update(buf.slice(16, 8));
+            md.update(buf.slice(32, 8));
+            md.update(buf.slice(HEADER, (int) (bits / 8)));
+            return md.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    void setFlags(int set, int clear) {
+        if (buf.isReadOnly()) {
+            throw new IllegalStateException("Bloom filter " + path + " is sealed");
+        }
+        flags = (flags | set) & ~clear;
+        force();
+    }
+
+    void force() {
+        if (buf.isReadOnly()) return;
+        buf.force();
+        buf.putLong(24, count.get());
+        buf.putInt(12, flags);
+        buf.force(0, HEADER);
+    }
+
+    @Override
+    public void close() {
+        if (!buf.isReadOnly()) {
+            flags &= ~DIRTY;
+            force();
+        }
+    }
+
+    private static MappedByteBuffer map(Path path, long size, boolean writable) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Bloom filter " + path + " exceeds 2 GB");
+        }
+        if (!writable) {
+            try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+                return ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+        }
+        try (FileChannel ch = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+}
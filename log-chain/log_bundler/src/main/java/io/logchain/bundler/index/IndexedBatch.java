@@ -0,0 +1,109 @@
+package io.logchain.bundler.index;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * One anchored batch in the {@link BatchLog}: identity, root and the leaf array.
+ *
+ * Payload layout: VERSION, sealedAt, anchoredAt, batchId, stream, root, txId (u16 length +
+ * UTF-8 each), leaf count, leaf width, then count * width raw leaf digest bytes, so leaf i
+ * sits at a fixed offset once the header is read. v2 adds hashAlg after txId, v3 tenant after
+ * hashAlg; older records decode with those null.
+ */
+record IndexedBatch(String batchId, String stream, String root, String txId, String hashAlg, String tenant,
+                    long sealedAtMillis, long anchoredAtMillis, int width, byte[] leaves) {
+    private static final byte VERSION_1 = 1;
+    private static final byte VERSION_2 = 2;
+    private static final byte VERSION_3 = 3;
+
+    int count() {
+        return width == 0 ? 0 : leaves.length / width;
+    }
+
+    List<String> leafHashes() {
+        Base64.Encoder enc = Base64.getEncoder();
+        List<String> out = new ArrayList<>(count());
+        for (int i = 0; i < count(); i++) {
+            byte[] leaf = new byte[width];
+            System.arraycopy(leaves, i * width, leaf, 0, width);
+            out.add(enc.encodeToString(leaf));
+        }
+        return out;
+    }
+
+    byte[] encode() {
+        byte[][] strings = {bytes(batchId), bytes(stream), bytes(root), bytes(txId), bytes(hashAlg), bytes(tenant)};
+        int size = 1 + 8 + 8 + 4 + 1 + leaves.length;
+        for (byte[] s : strings) size += 2 + s.length;
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.put(VERSION_3).putLong(sealedAtMillis).putLong(anchoredAtMillis);
+        for (byte[] s : strings) {
+            buf.putShort((short) s.length).put(s);
+        }
+        buf.putInt(count()).put((byte) width).put(leaves);
+        return buf.array();
+    }
+
+    static IndexedBatch decode(ByteBuffer payload) {
+        ByteBuffer buf = payload.duplicate();
+        byte version = buf.get();
+        if (version < VERSION_1 || version > VERSION_3) {
+            throw new IllegalStateException("Unsupported index record version " + version);
+        }
+        long sealedAt = buf.getLong();
+        long anchoredAt = buf.getLong();
+        String batchId = string(buf);
+        String stream = string(buf);
+        String root = string(buf);
+        String txId = string(buf);
+        String hashAlg = version >= VERSION_2 ? string(buf) : null;
+        String tenant = version >= VERSION_3 ? nullIfEmpty(string(buf)) : null;
+        int count = buf.getInt();
+        int width = buf.get() & 0xFF;
+        byte[] leaves = new byte[count * width];
+        buf.get(leaves);
+        return new IndexedBatch(batchId, stream, root, txId, hashAlg, tenant, sealedAt, anchoredAt, width, leaves);
+    }
+
+    /**
+     * Compares leaf i of an encoded batch with a digest without decoding the whole record.
+     */
+    static boolean leafEquals(ByteBuffer payload, int i, byte[] digest) {
+        ByteBuffer buf = payload.duplicate();
+        // four strings in v1, one more per version since
+        int strings = 3 + buf.get(0);
+        buf.position(1 + 8 + 8);
+        for (int s = 0; s < strings; s++) {
+            int len = buf.getShort() & 0xFFFF;
+            buf.position(buf.position() + len);
+        }
+        int count = buf.getInt();
+        int width = buf.get() & 0xFF;
+        if (i >= count || width != digest.length) {
+            return false;
+        }
+        int base = buf.position() + i * width;
+        for (int k = 0; k < width; k++) {
+            if (buf.get(base + k) != digest[k]) return false;
+        }
+        return true;
+    }
+
+    private static byte[] bytes(String s) {
+        return s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String nullIfEmpty(String s) {
+        return s.isEmpty() ? null : s;
+    }
+
+    private static String string(ByteBuffer buf) {
+        byte[] b = new byte[buf.getShort() & 0xFFFF];
+        buf.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
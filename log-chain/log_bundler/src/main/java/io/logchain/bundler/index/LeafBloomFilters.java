@@ -0,0 +1,333 @@
+package io.logchain.bundler.index;
+
+import io.logchain.bundler.config.BloomConfig;
+import io.logchain.bundler.spool.PendingAnchor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Per-day Bloom filters over anchored leaf hashes (UTC day of anchoring), the fast negative path
+ * of verification: a log stamped after the filters' coverage start that no filter contains was
+ * never anchored, no index or Elasticsearch lookup needed.
+ *
+ * The filters only know what this instance anchored since they were created (plus what the leaf
+ * index held then), so the coverage start is persisted next to them and older logs, or logs
+ * without a timestamp, always fall through to the index and Elasticsearch. After a backfill,
+ * log-chain.bloom.covered-since moves it back.
+ *
+ * A negative is only definite while every filter is complete, so a filter that may have lost
+ * bits (dirty after a crash, unreadable, digest mismatch) is rebuilt from the {@link LeafIndex}
+ * when possible and otherwise disables the negative path. Past days are sealed (read-only) and
+ * their digest can be anchored on the ledger.
+ */
+@Slf4j
+public class LeafBloomFilters implements Closeable {
+    private static final String SUFFIX = ".bloom";
+    private static final String COVERAGE_FILE = "covered-since";
+    // a log is anchored after its timestamp, give or take the clock skew between hosts
+    private static final long CLOCK_SKEW_MILLIS = 5 * 60_000L;
+
+    private final BloomConfig config;
+    private final LeafIndex leafIndex;
+    private final Path dir;
+    private final ConcurrentSkipListMap<Long, DayBloomFilter> days = new ConcurrentSkipListMap<>();
+    private final Set<Long> untrusted = ConcurrentHashMap.newKeySet();
+    private final long bits;
+    private final int k;
+    private volatile long coveredSinceMillis = Long.MAX_VALUE;
+
+    public LeafBloomFilters(BloomConfig config, LeafIndex leafIndex) throws IOException {
+        this.config = config;
+        this.leafIndex = leafIndex;
+        this.dir = Path.of(config.getDir());
+        long n = Math.max(1, config.getExpectedLeavesPerDay());
+        double p = config.getFalsePositiveRate();
+        if (p <= 0 || p >= 1) {
+            throw new IllegalArgumentException("log-chain.bloom.false-positive-rate must be in (0, 1)");
+        }
+        long wanted = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        this.bits = Math.min(wanted, config.getMaxBytesPerDay() * 8);
+        this.k = (int) Math.max(1, Math.min(16, Math.round((double) bits / n * Math.log(2))));
+        if (!config.isEnabled()) {
+            return;
+        }
+        if (bits < wanted) {
+            double fpp = Math.pow(1 - Math.exp(-(double) k * n / bits), k);
+            log.warn("Bloom filter capped at {} bytes/day: false-positive rate at {} leaves is {} instead of {}",
+                    bits / 8, n, fpp, p);
+        }
+        Files.createDirectories(dir);
+        load();
+        coveredSinceMillis = coverage();
+        log.info("Bloom filters {}: {} days, {} bits/day, k={}, covering logs since {}",
+                dir, days.size(), bits, k, Instant.ofEpochMilli(coveredSinceMillis));
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * Adds the batch's leaves to today's filter. Leaves must be set (see AnchoredDocuments).
+     */
+    public void add(PendingAnchor p) throws IOException {
+        if (!isEnabled() || p.leaves() == null) {
+            return;
+        }
+        DayBloomFilter f = writable(today());
+        for (String leaf : p.leaves()) {
+            long[] h = halves(leaf);
+            f.put(h[0], h[1]);
+        }
+    }
+
+    /**
+     * False only when the hash was certainly never anchored: the log's timestamp is inside the
+     * filters' coverage and no filter contains it.
+     *
+     * @param logTsMillis the log's timestamp in epoch millis, null when unknown
+     */
+    public boolean mightContain(String leafHash, Long logTsMillis) {
+        if (!isEnabled() || !untrusted.isEmpty() || !covers(logTsMillis)) {
+            return true;
+        }
+        long[] h = halves(leafHash);
+        for (DayBloomFilter f : days.values()) {
+            if (f.mightContain(h[0], h[1])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean covers(Long logTsMillis) {
+        return logTsMillis != null && logTsMillis - CLOCK_SKEW_MILLIS >= coveredSinceMillis;
+    }
+
+    public Instant coveredSince() {
+        return Instant.ofEpochMilli(coveredSinceMillis);
+    }
+
+    // -------- sealing and anchoring --------
+
+    /**
+     * Seals every day before today: the filter is flushed, marked SEALED and never written again.
+     */
+    public List<LocalDate> sealPastDays() {
+        List<LocalDate> sealed = new ArrayList<>();
+        for (DayBloomFilter f : days.headMap(today()).values()) {
+            if (!f.hasFlag(DayBloomFilter.SEALED)) {
+                f.setFlags(DayBloomFilter.SEALED, DayBloomFilter.DIRTY);
+                sealed.add(LocalDate.ofEpochDay(f.epochDay()));
+                log.info("Sealed bloom filter {} with {} leaves, estimated false-positive rate {}",
+                        f.path().getFileName(), f.count(), f.falsePositiveRate());
+            }
+        }
+        return sealed;
+    }
+
+    /** sealed days whose digest is not on the ledger yet */
+    public List<LocalDate> unanchoredDays() {
+        return days.values().stream()
+                .filter(f -> f.hasFlag(DayBloomFilter.SEALED) && !f.hasFlag(DayBloomFilter.ANCHORED) && f.count() > 0)
+                .map(f -> LocalDate.ofEpochDay(f.epochDay()))
+                .toList();
+    }
+
+    /** sealed days whose digest was anchored */
+    public List<LocalDate> anchoredDays() {
+        return days.values().stream()
+                .filter(f -> f.hasFlag(DayBloomFilter.ANCHORED))
+                .map(f -> LocalDate.ofEpochDay(f.epochDay()))
+                .toList();
+    }
+
+    public String digest(LocalDate day) {
+        return Base64.getEncoder().encodeToString(days.get(day.toEpochDay()).digest());
+    }
+
+    public long count(LocalDate day) {
+        return days.get(day.toEpochDay()).count();
+    }
+
+    /**
+     * Records that the digest is on the ledger. The flag lives in a sealed (read-only) file,
+     * so it is written to the file directly; the filter keeps its mapping.
+     */
+    public void markAnchored(LocalDate day) throws IOException {
+        days.get(day.toEpochDay()).setFlagOnDisk(DayBloomFilter.ANCHORED);
+    }
+
+    /**
+     * Takes a day out of service; until it is rebuilt, no negative answers are given.
+     */
+    public void distrust(LocalDate day, String reason) {
+        log.error("Bloom filter for {} is not trusted ({}), verification falls back to the index", day, reason);
+        untrusted.add(day.toEpochDay());
+    }
+
+    @Override
+    public void close() {
+        if (!isEnabled()) return;
+        days.values().forEach(DayBloomFilter::close);
+    }
+
+    // -------- internals --------
+    private void load() throws IOException {
+        List<Long> broken = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : files.filter(f -> f.getFileName().toString().endsWith(SUFFIX)).sorted().toList()) {
+                long day = dayOf(p);
+                DayBloomFilter f = DayBloomFilter.open(p);
+                if (f == null || f.hasFlag(DayBloomFilter.DIRTY)) {
+                    broken.add(day);
+                    continue;
+                }
+                if (!f.hasFlag(DayBloomFilter.SEALED)) {
+                    f.setFlags(DayBloomFilter.DIRTY, 0);
+                }
+                days.put(day, f);
+            }
+        }
+        if (days.isEmpty() && broken.isEmpty()) {
+            // first start: cover whatever the leaf index already knows
+            rebuild(null);
+            return;
+        }
+        for (long day : broken) {
+            rebuild(day);
+        }
+    }
+
+    /**
+     * When the filters started covering every anchored log: log-chain.bloom.covered-since if set,
+     * else the time recorded when they were created. Filters from before the file existed start
+     * covering now.
+     */
+    private long coverage() throws IOException {
+        Path file = dir.resolve(COVERAGE_FILE);
+        long since;
+        if (config.getCoveredSince() != null && !config.getCoveredSince().isBlank()) {
+            since = LocalDate.parse(config.getCoveredSince()).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        } else if (Files.exists(file)) {
+            since = Long.parseLong(Files.readString(file).trim());
+        } else {
+            since = System.currentTimeMillis();
+        }
+        Files.writeString(file, Long.toString(since));
+        return since;
+    }
+
+    /**
+     * Rebuilds one day (or all days when null) from the leaf index, by time of anchoring.
+     */
+    private void rebuild(Long only) throws IOException {
+        if (!leafIndex.isEnabled()) {
+            if (only != null) {
+                distrust(LocalDate.ofEpochDay(only), "incomplete after a crash and no leaf index to rebuild from");
+            }
+            return;
+        }
+        if (only != null) {
+            log.warn("Rebuilding bloom filter for {} from the leaf index", LocalDate.ofEpochDay(only));
+            Files.deleteIfExists(path(only));
+        }
+        long[] batches = {0};
+        leafIndex.forEachBatch(b -> {
+            long day = Math.floorDiv(b.anchoredAtMillis(), 86_400_000L);
+            if (only != null && day != only) return;
+            DayBloomFilter f = writable(day);
+            for (int i = 0; i < b.count(); i++) {
+                long[] h = halves(b.leaves(), i * b.width());
+                f.put(h[0], h[1]);
+            }
+            batches[0]++;
+        });
+        if (batches[0] > 0) {
+            log.info("Added {} batches from the leaf index to the bloom filters", batches[0]);
+        }
+    }
+
+    private DayBloomFilter writable(long day) throws IOException {
+        DayBloomFilter f = days.get(day);
+        if (f != null && !f.hasFlag(DayBloomFilter.SEALED)) {
+            return f;
+        }
+        synchronized (days) {
+            // a sealed day is never written again; a clock going backwards writes into the next open day
+            while ((f = days.get(day)) != null && f.hasFlag(DayBloomFilter.SEALED)) {
+                day++;
+            }
+            if (f == null) {
+                f = DayBloomFilter.create(path(day), day, bits, k);
+                days.put(day, f);
+            }
+            return f;
+        }
+    }
+
+    private Path path(long day) {
+        return dir.resolve(LocalDate.ofEpochDay(day) + SUFFIX);
+    }
+
+    private static long dayOf(Path p) {
+        String name = p.getFileName().toString();
+        return LocalDate.parse(name.substring(0, name.length() - SUFFIX.length())).toEpochDay();
+    }
+
+    private static long today() {
+        return LocalDate.now(ZoneOffset.UTC).toEpochDay();
+    }
+
+    /**
+     * Two 64-bit halves of the leaf digest; leaves that are not Base64 digests are hashed first.
+     */
+    static long[] halves(String leafHash) {
+        byte[] digest;
+        try {
+            digest = Base64.getDecoder().decode(leafHash);
+        } catch (IllegalArgumentException e) {
+            digest = null;
+        }
+        if (digest == null || digest.length < 16) {
+            digest = sha256(leafHash.getBytes(StandardCharsets.UTF_8));
+        }
+        return halves(digest, 0);
+    }
+
+    private static long[] halves(byte[] digest, int from) {
+        if (digest.length - from < 16) {
+            return halves(Base64.getEncoder().encodeToString(Arrays.copyOfRange(digest, from, digest.length)));
+        }
+        ByteBuffer buf = ByteBuffer.wrap(digest, from, 16);
+        // odd step, so the k positions never collapse into one
+        return new long[]{buf.getLong(), buf.getLong() | 1L};
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
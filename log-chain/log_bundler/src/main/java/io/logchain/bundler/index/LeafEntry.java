@@ -0,0 +1,13 @@
+package io.logchain.bundler.index;
+
+import java.util.List;
+
+/**
+ * Where an anchored leaf sits: its batch, position and the batch's ordered leaves and root.
+ * hashAlg is null for batches indexed before the algorithm was recorded (SHA-256); tenant is
+ * null unless the batch was bundled per tenant.
+ */
+public record LeafEntry(String batchId, String stream, int leafIndex, String root, String fabricTxId,
+                        long sealedAtMillis, List<String> leaves, String hashAlg,
+                        String tenant) {
+}
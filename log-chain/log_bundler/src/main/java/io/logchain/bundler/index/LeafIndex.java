@@ -0,0 +1,356 @@
+package io.logchain.bundler.index;
+
+import io.logchain.bundler.config.IndexConfig;
+import io.logchain.bundler.spool.PendingAnchor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Local persistent index of anchored leaves: leafHash -> (batchId, leafIndex), plus the leaf
+ * array of every batch, so verification works without Elasticsearch.
+ *
+ * Batches are appended to a {@link BatchLog}; a {@link SlotTable} maps the first 8 bytes of each
+ * leaf digest to (batch offset << 24 | leaf index), and hits are confirmed against the stored leaf.
+ * A lookup is one probe sequence in the table plus one read of the batch record, independent of
+ * how many entries there are. The table is checkpointed every checkpointEvery batches; after a
+ * restart the log is replayed from the checkpoint (inserts are idempotent). Slots written after
+ * the checkpoint may point at records a crash tore, so they are dropped before the replay.
+ *
+ * Files live in a generation directory (dir/g&lt;N&gt;, named by dir/CURRENT); compaction writes the
+ * surviving batches into the next generation and switches over atomically.
+ */
+@Slf4j
+public class LeafIndex implements Closeable {
+    private static final int LEAF_BITS = 24;
+    // locations must stay positive: 39 bits of batch offset (512 GB of log) + 24 bits of leaf index
+    private static final long MAX_OFFSET = 1L << (63 - LEAF_BITS);
+
+    private final IndexConfig config;
+    private final Path root;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private long generation;
+    private BatchLog batchLog;
+    private SlotTable table;
+    private int sinceCheckpoint;
+
+    public LeafIndex(IndexConfig config) throws IOException {
+        this.config = config;
+        this.root = Path.of(config.getDir());
+        if (!config.isEnabled()) {
+            return;
+        }
+        if (config.getSegmentBytes() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("log-chain.index.segment-bytes must fit one mapping (< 2 GB)");
+        }
+        Files.createDirectories(root);
+        Path current = root.resolve("CURRENT");
+        generation = Files.exists(current) ? Long.parseLong(Files.readString(current).trim()) : 0;
+        deleteOtherGenerations();
+        open(genDir(generation));
+        log.info("Leaf index {} generation {} opened with {} entries", root, generation, table.size());
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * Indexes an anchored batch. Leaves that are not Base64 digests of one width cannot be stored
+     * in the fixed-width leaf array; such batches are skipped.
+     */
+    public void add(PendingAnchor p, String fabricTxId) throws IOException {
+        if (!isEnabled() || p.leaves() == null || p.leaves().isEmpty()) {
+            return;
+        }
+        byte[] leaves = packLeaves(p.leaves());
+        if (leaves == null || p.leaves().size() >= (1 << LEAF_BITS)) {
+            log.warn("Batch {} cannot be indexed locally (leaf format or count)", p.batchId());
+            return;
+        }
+        IndexedBatch batch = new IndexedBatch(p.batchId(), p.stream(), p.merkleRoot(), fabricTxId, p.hashAlg(), p.tenant(),
+                p.sealedAtMillis(), System.currentTimeMillis(), leaves.length / p.leaves().size(), leaves);
+        lock.writeLock().lock();
+        try {
+            long offset = batchLog.append(batch.encode());
+            insertAll(offset, batch);
+            if (++sinceCheckpoint >= config.getCheckpointEvery()) {
+                checkpoint();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Optional<LeafEntry> find(String leafHash) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        byte[] digest;
+        try {
+            digest = Base64.getDecoder().decode(leafHash);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (digest.length < 8) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            long location = table.find(fingerprint(digest, 0), loc -> {
+                ByteBuffer payload = batchLog.read(loc >>> LEAF_BITS);
+                return payload != null && IndexedBatch.leafEquals(payload, leafOf(loc), digest);
+            });
+            if (location < 0) {
+                return Optional.empty();
+            }
+            IndexedBatch batch = IndexedBatch.decode(batchLog.read(location >>> LEAF_BITS));
+            return Optional.of(new LeafEntry(batch.batchId(), batch.stream(), leafOf(location), batch.root(),
+                    batch.txId(), batch.sealedAtMillis(), batch.leafHashes(), batch.hashAlg(), batch.tenant()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long size() {
+        if (!isEnabled()) return 0;
+        lock.readLock().lock();
+        try {
+            return table.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    interface BatchVisitor {
+        void accept(IndexedBatch batch) throws IOException;
+    }
+
+    /**
+     * Visits every indexed batch in log order (re-anchored batches more than once).
+     */
+    void forEachBatch(BatchVisitor visitor) throws IOException {
+        if (!isEnabled()) return;
+        lock.writeLock().lock();
+        try {
+            batchLog.recover(0, (offset, payload) -> visitor.accept(IndexedBatch.decode(payload)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the index keeping the latest copy of every batch sealed at or after retainSince
+     * (re-anchored batches otherwise appear more than once). Blocks writers while it runs;
+     * the anchorer keeps spooling meanwhile.
+     */
+    public void compact(long retainSinceMillis) throws IOException {
+        if (!isEnabled()) return;
+        lock.writeLock().lock();
+        try {
+            long started = System.currentTimeMillis();
+            Map<String, Long> latest = new HashMap<>();
+            Map<String, Long> sealedAt = new HashMap<>();
+            Map<String, Integer> counts = new HashMap<>();
+            batchLog.recover(0, (offset, payload) -> {
+                IndexedBatch b = IndexedBatch.decode(payload);
+                latest.put(b.batchId(), offset);
+                sealedAt.put(b.batchId(), b.sealedAtMillis());
+                counts.put(b.batchId(), b.count());
+            });
+            List<Long> live = new ArrayList<>();
+            long leafCount = 0;
+            for (Map.Entry<String, Long> e : latest.entrySet()) {
+                if (sealedAt.get(e.getKey()) >= retainSinceMillis) {
+                    live.add(e.getValue());
+                    leafCount += counts.get(e.getKey());
+                }
+            }
+            live.sort(Long::compare);
+
+            long next = generation + 1;
+            Path nextDir = genDir(next);
+            deleteRecursively(nextDir);
+            BatchLog nextLog = new BatchLog(nextDir, table.segmentBytes());
+            nextLog.recover(0, (o, p) -> { });
+            SlotTable nextTable = SlotTable.create(nextDir.resolve("table.idx"),
+                    Math.max(config.getInitialCapacity(), leafCount * 2), table.segmentBytes());
+            for (long offset : live) {
+                ByteBuffer payload = batchLog.read(offset);
+                byte[] bytes = new byte[payload.remaining()];
+                payload.get(bytes);
+                long newOffset = nextLog.append(bytes);
+                IndexedBatch b = IndexedBatch.decode(ByteBuffer.wrap(bytes));
+                insertAll(nextTable, newOffset, b);
+            }
+            nextTable.checkpoint(nextLog.end());
+
+            Path tmp = root.resolve("CURRENT.tmp");
+            Files.writeString(tmp, Long.toString(next), StandardCharsets.US_ASCII);
+            Files.move(tmp, root.resolve("CURRENT"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            long before = table.size();
+            batchLog.close();
+            table.close();
+            deleteRecursively(genDir(generation));
+            generation = next;
+            batchLog = nextLog;
+            table = nextTable;
+            sinceCheckpoint = 0;
+            log.info("Leaf index compacted to generation {}: {} of {} batches kept, {} -> {} entries in {} ms",
+                    next, live.size(), latest.size(), before, table.size(), System.currentTimeMillis() - started);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!isEnabled()) return;
+        lock.writeLock().lock();
+        try {
+            checkpoint();
+            batchLog.close();
+            table.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // -------- internals --------
+    private void open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Path tablePath = dir.resolve("table.idx");
+        table = SlotTable.open(tablePath);
+        if (table == null) {
+            table = SlotTable.create(tablePath, config.getInitialCapacity(), config.getSegmentBytes());
+        }
+        // offsets in the table depend on the segment size the log was written with
+        batchLog = new BatchLog(dir, table.segmentBytes());
+        long from = table.dataEnd();
+        if (table.hasLocationsFrom(from << LEAF_BITS)) {
+            // the log past the checkpoint is replayed anyway; what it no longer holds must not be found
+            log.warn("Leaf index dropping table entries written after the last checkpoint");
+            replaceTable(table.copy(table.path().resolveSibling("table.idx.tmp"), table.capacity(), from << LEAF_BITS));
+        }
+        long[] replayed = {0};
+        batchLog.recover(from, (offset, payload) -> {
+            insertAll(offset, IndexedBatch.decode(payload));
+            replayed[0]++;
+        });
+        if (replayed[0] > 0) {
+            log.info("Leaf index replayed {} batches after the last checkpoint", replayed[0]);
+        }
+        checkpoint();
+    }
+
+    private void insertAll(long offset, IndexedBatch batch) throws IOException {
+        if (offset >= MAX_OFFSET) {
+            throw new IOException("Leaf index is full, compact it or start a new directory");
+        }
+        for (int i = 0; i < batch.count(); i++) {
+            if (table.isFull()) {
+                grow();
+            }
+            table.insert(fingerprint(batch.leaves(), i * batch.width()), (offset << LEAF_BITS) | i);
+        }
+    }
+
+    private static void insertAll(SlotTable target, long offset, IndexedBatch batch) {
+        for (int i = 0; i < batch.count(); i++) {
+            target.insert(fingerprint(batch.leaves(), i * batch.width()), (offset << LEAF_BITS) | i);
+        }
+    }
+
+    private void grow() throws IOException {
+        replaceTable(table.grow(table.path().resolveSibling("table.idx.grow")));
+        log.info("Leaf index table grown to {} slots", table.capacity());
+    }
+
+    private void replaceTable(SlotTable replacement) throws IOException {
+        replacement.close();
+        table.close();
+        Files.move(replacement.path(), table.path(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        table = SlotTable.open(table.path());
+    }
+
+    private void checkpoint() {
+        table.checkpoint(batchLog.end());
+        sinceCheckpoint = 0;
+    }
+
+    private static int leafOf(long location) {
+        return (int) (location & ((1 << LEAF_BITS) - 1));
+    }
+
+    /** first 8 digest bytes; the low bit is forced so that 0 can mark an empty slot */
+    private static long fingerprint(byte[] bytes, int from) {
+        long fp = 0;
+        for (int k = 0; k < 8; k++) {
+            fp = (fp << 8) | (bytes[from + k] & 0xFF);
+        }
+        return fp | 1L;
+    }
+
+    private static byte[] packLeaves(List<String> leaves) {
+        Base64.Decoder dec = Base64.getDecoder();
+        byte[] out = null;
+        int width = -1;
+        for (int i = 0; i < leaves.size(); i++) {
+            byte[] leaf;
+            try {
+                leaf = dec.decode(leaves.get(i));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            if (width < 0) {
+                width = leaf.length;
+                if (width < 8 || width > 255) return null;
+                out = new byte[width * leaves.size()];
+            } else if (leaf.length != width) {
+                return null;
+            }
+            System.arraycopy(leaf, 0, out, i * width, width);
+        }
+        return out;
+    }
+
+    private Path genDir(long gen) {
+        return root.resolve("g" + gen);
+    }
+
+    private void deleteOtherGenerations() throws IOException {
+        try (Stream<Path> dirs = Files.list(root)) {
+            for (Path p : dirs.toList()) {
+                String name = p.getFileName().toString();
+                if (Files.isDirectory(p) && name.matches("g\\d+") && !p.equals(genDir(generation))) {
+                    log.info("Removing stale leaf index generation {}", p);
+                    deleteRecursively(p);
+                }
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) return;
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted((a, b) -> b.getNameCount() - a.getNameCount()).toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package io.logchain.bundler.index;
+
+import io.logchain.bundler.config.LogChainConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Periodic compaction of the {@link LeafIndex}: drops re-anchored duplicates and, with
+ * log-chain.index.retention-days set, batches past retention.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LeafIndexMaintenance {
+    final LeafIndex leafIndex;
+    final LogChainConfig logChainConfig;
+
+    @Scheduled(cron = "${log-chain.index.compaction-cron:0 30 3 * * *}")
+    public void compact() {
+        if (!leafIndex.isEnabled()) {
+            return;
+        }
+        int days = logChainConfig.getIndex().getRetentionDays();
+        long retainSince = days > 0 ? System.currentTimeMillis() - Duration.ofDays(days).toMillis() : Long.MIN_VALUE;
+        try {
+            leafIndex.compact(retainSince);
+        } catch (Exception e) {
+            log.error("Leaf index compaction failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package io.logchain.bundler.index;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongPredicate;
+
+/**
+ * Memory-mapped open-addressing hash table of (fingerprint, location) slots with linear probing.
+ *
+ * File layout: a 64-byte header [magic][capacity][size][dataEnd][segmentBytes], then capacity
+ * 16-byte slots. A slot is empty while its fingerprint is 0 (fingerprints always have the low bit
+ * set); the location is written before the fingerprint, so a slot is never visible half-written.
+ * The file is mapped in 1 GB chunks, so the table is not limited by the 2 GB size of one mapping.
+ *
+ * Fingerprints may collide; callers confirm a hit against the data through the probe predicate.
+ */
+final class SlotTable implements Closeable {
+    static final long MAGIC = 0x4C45414649445831L; // "LEAFIDX1"
+    private static final int HEADER = 64;
+    private static final int SLOT = 16;
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK = 1L << CHUNK_BITS;
+    private static final double MAX_LOAD = 0.6;
+
+    private final Path path;
+    private final MappedByteBuffer[] chunks;
+    private final long capacity;
+    private final long mask;
+    private long size;
+
+    private SlotTable(Path path, long capacity) throws IOException {
+        this.path = path;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        long bytes = HEADER + capacity * SLOT;
+        int n = (int) ((bytes + CHUNK - 1) >>> CHUNK_BITS);
+        chunks = new MappedByteBuffer[n];
+        try (FileChannel ch = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            for (int i = 0; i < n; i++) {
+                long start = i * CHUNK;
+                chunks[i] = ch.map(FileChannel.MapMode.READ_WRITE, start, Math.min(CHUNK, bytes - start));
+            }
+        }
+    }
+
+    static SlotTable create(Path path, long capacity, long segmentBytes) throws IOException {
+        Files.deleteIfExists(path);
+        SlotTable t = new SlotTable(path, powerOfTwo(capacity));
+        t.chunks[0].putLong(8, t.capacity);
+        t.chunks[0].putLong(32, segmentBytes);
+        t.checkpoint(0);
+        t.chunks[0].putLong(0, MAGIC);
+        t.chunks[0].force(0, 8);
+        return t;
+    }
+
+    /**
+     * Opens an existing table, or returns null when there is none (or it was never completed).
+     */
+    static SlotTable open(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) < HEADER) {
+            return null;
+        }
+        long capacity;
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            var header = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            if (header.getLong(0) != MAGIC) {
+                return null;
+            }
+            capacity = header.getLong(8);
+        }
+        SlotTable t = new SlotTable(path, capacity);
+        t.size = t.chunks[0].getLong(16);
+        return t;
+    }
+
+    long capacity() {
+        return capacity;
+    }
+
+    long size() {
+        return size;
+    }
+
+    /** offset in the batch log up to which all entries are in this table as of the last checkpoint */
+    long dataEnd() {
+        return chunks[0].getLong(24);
+    }
+
+    long segmentBytes() {
+        return chunks[0].getLong(32);
+    }
+
+    Path path() {
+        return path;
+    }
+
+    boolean isFull() {
+        return size + 1 > capacity * MAX_LOAD;
+    }
+
+    /**
+     * Location of the first slot with this fingerprint whose location the predicate accepts, or -1.
+     */
+    long find(long fingerprint, LongPredicate matches) {
+        for (long i = home(fingerprint); ; i = (i + 1) & mask) {
+            long fp = fingerprintAt(i);
+            if (fp == 0) return -1;
+            if (fp == fingerprint) {
+                long location = locationAt(i);
+                if (matches.test(location)) return location;
+            }
+        }
+    }
+
+    /**
+     * Adds the entry unless the identical entry is already present (replays are idempotent).
+     */
+    boolean insert(long fingerprint, long location) {
+        for (long i = home(fingerprint); ; i = (i + 1) & mask) {
+            long fp = fingerprintAt(i);
+            if (fp == 0) {
+                long addr = HEADER + i * SLOT;
+                MappedByteBuffer chunk = chunks[(int) (addr >>> CHUNK_BITS)];
+                int pos = (int) (addr & (CHUNK - 1));
+                chunk.putLong(pos + 8, location);
+                chunk.putLong(pos, fingerprint);
+                size++;
+                return true;
+            }
+            if (fp == fingerprint && locationAt(i) == location) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Copies every entry into a fresh table of twice the capacity at target.
+     */
+    SlotTable grow(Path target) throws IOException {
+        return copy(target, capacity * 2, Long.MAX_VALUE);
+    }
+
+    /**
+     * Copies the entries with a location below locationLimit into a fresh table at target.
+     */
+    SlotTable copy(Path target, long capacity, long locationLimit) throws IOException {
+        SlotTable copy = create(target, capacity, segmentBytes());
+        for (long i = 0; i < this.capacity; i++) {
+            long fp = fingerprintAt(i);
+            if (fp != 0 && locationAt(i) < locationLimit) copy.insert(fp, locationAt(i));
+        }
+        copy.checkpoint(dataEnd());
+        return copy;
+    }
+
+    /**
+     * Whether some entry has a location at or above the limit, i.e. was added after the checkpoint
+     * that recorded it as dataEnd.
+     */
+    boolean hasLocationsFrom(long locationLimit) {
+        for (long i = 0; i < capacity; i++) {
+            if (fingerprintAt(i) != 0 && locationAt(i) >= locationLimit) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Flushes all slots, then records size and dataEnd in the header.
+     */
+    void checkpoint(long dataEnd) {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+        chunks[0].putLong(16, size);
+        chunks[0].putLong(24, dataEnd);
+        chunks[0].force(0, HEADER);
+    }
+
+    @Override
+    public void close() {
+        // mappings are released by the GC; nothing else to free
+    }
+
+    // -------- slots --------
+    private long home(long fingerprint) {
+        // fingerprints of non-cryptographic leaves may be skewed, so mix before masking
+        long h = fingerprint;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h & mask;
+    }
+
+    private long fingerprintAt(long i) {
+        long addr = HEADER + i * SLOT;
+        return chunks[(int) (addr >>> CHUNK_BITS)].getLong((int) (addr & (CHUNK - 1)));
+    }
+
+    private long locationAt(long i) {
+        long addr = HEADER + i * SLOT + 8;
+        return chunks[(int) (addr >>> CHUNK_BITS)].getLong((int) (addr & (CHUNK - 1)));
+    }
+
+    private static long powerOfTwo(long n) {
+        long c = 1024;
+        while (c < n) c <<= 1;
+        return c;
+    }
+}
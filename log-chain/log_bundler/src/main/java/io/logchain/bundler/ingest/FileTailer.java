@@ -0,0 +1,334 @@
+package io.logchain.bundler.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.logchain.bundler.config.TailerConfig;
+import io.logchain.bundler.dlq.DeadLetterQueue;
+import io.logchain.bundler.ingest.TailCheckpoint.Position;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tails the log files of a directory and publishes every complete line, as is, to the raw topic.
+ * Lines are keyed by the tailer's logical source (not the file name, which changes on rotation),
+ * so all files of the directory land on one partition and a rotated file's last lines stay ahead
+ * of the new file's first. The source also travels as the lc-source header, which the normalizer
+ * uses for lines that do not name their own.
+ *
+ * Files are memory-mapped in chunks and scanned for newlines eight bytes at a time; a line is only
+ * copied out of the mapping as the record value, never decoded. A trailing line without newline
+ * is left for the next scan. Positions are kept per file identity (inode), so a file renamed by
+ * rotation is finished where it was, a new file starts at 0 and a truncated one starts over.
+ *
+ * Positions are checkpointed only after the producer has acknowledged every line up to them; when
+ * a send fails, reading resumes from the last checkpoint. Lines are delivered at least once.
+ * Lines longer than maxLineBytes go to the dead-letter queue (stage "tail", topic = file path,
+ * offset = byte offset) with their first KB. Meters: logchain.tailer.lines, logchain.tailer.bytes
+ * and logchain.tailer.lag.bytes (bytes written but not yet read).
+ */
+@Slf4j
+public class FileTailer implements Runnable {
+    private static final long NEWLINES = 0x0a0a0a0a0a0a0a0aL;
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final int DEAD_LETTER_PREFIX = 1024;
+
+    public static final String SOURCE_HEADER = "lc-source";
+
+    private final TailerConfig config;
+    private final String topic;
+    private final String source;
+    private final byte[] sourceHeader;
+    private final Producer<String, byte[]> producer;
+    private final DeadLetterQueue deadLetters;
+    private final TailCheckpoint checkpoint;
+    private final Counter lines;
+    private final Counter bytes;
+    private final AtomicLong lagBytes = new AtomicLong();
+    private final AtomicReference<Exception> sendError = new AtomicReference<>();
+
+    // read position per file key; committed holds the positions of the last checkpoint
+    private Map<String, Position> positions = new HashMap<>();
+    private Map<String, Position> committed = new HashMap<>();
+    // files positioned inside a line longer than maxLineBytes, skipped to its end
+    private final Set<String> skipping = new HashSet<>();
+    private volatile boolean running = true;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    public FileTailer(TailerConfig config, String topic, Producer<String, byte[]> producer,
+                      DeadLetterQueue deadLetters, MeterRegistry registry) throws IOException {
+        if (config.getMapChunkBytes() < config.getMaxLineBytes()) {
+            throw new IllegalArgumentException("tailer map-chunk-bytes must be >= max-line-bytes");
+        }
+        this.config = config;
+        this.topic = topic;
+        this.source = sourceOf(config);
+        this.sourceHeader = source.getBytes(StandardCharsets.UTF_8);
+        this.producer = producer;
+        this.deadLetters = deadLetters;
+        this.checkpoint = new TailCheckpoint(new ObjectMapper(), Path.of(config.getCheckpointFile()));
+        this.lines = Counter.builder("logchain.tailer.lines").tag("topic", topic).register(registry);
+        this.bytes = Counter.builder("logchain.tailer.bytes").tag("topic", topic).baseUnit("bytes").register(registry);
+        Gauge.builder("logchain.tailer.lag.bytes", lagBytes, AtomicLong::get).tag("topic", topic).register(registry);
+    }
+
+    @Override
+    public void run() {
+        log.info("Tailing {}/{} into {} as source {}", config.getDir(), config.getGlob(), topic, source);
+        try {
+            boolean firstStart = !checkpoint.exists();
+            positions = checkpoint.read();
+            committed = new HashMap<>(positions);
+            if (firstStart && !config.isFromBeginning()) {
+                skipExisting();
+            }
+            while (running) {
+                long read = scan();
+                commit();
+                if (read == 0) {
+                    Thread.sleep(config.getPollMillis());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("FileTailer failed", e);
+        } finally {
+            try {
+                commit();
+            } catch (Exception e) {
+                log.warn("Tailer positions not checkpointed on stop: {}", e.getMessage());
+            }
+            producer.close();
+            stopped.countDown();
+            log.info("FileTailer stopped");
+        }
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    public boolean awaitStopped(long timeoutMillis) throws InterruptedException {
+        return stopped.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reads what was appended to every file since the last scan; returns the bytes read.
+     */
+    private long scan() throws IOException {
+        Map<String, Position> seen = new HashMap<>();
+        long read = 0;
+        long lag = 0;
+        for (Path path : files()) {
+            BasicFileAttributes attrs;
+            try {
+                attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                continue;
+            }
+            String key = fileKey(path, attrs);
+            Position known = positions.get(key);
+            long offset = known == null ? 0 : known.offset();
+            if (attrs.size() < offset) {
+                log.warn("{} is shorter than its read position {}, reading it again from the start", path, offset);
+                offset = 0;
+                skipping.remove(key);
+            }
+            long next = offset < attrs.size() ? tail(path, key, offset, attrs.size()) : offset;
+            read += next - offset;
+            lag += attrs.size() - next;
+            seen.put(key, new Position(key, path.toString(), next));
+        }
+        // deleted files are forgotten, so a reused inode starts at 0
+        positions = seen;
+        skipping.retainAll(seen.keySet());
+        lagBytes.set(lag);
+        return read;
+    }
+
+    /**
+     * Sends the complete lines of [offset, size) and returns the position after the last one.
+     */
+    private long tail(Path path, String key, long offset, long size) throws IOException {
+        String name = path.getFileName().toString();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (offset < size && running) {
+                int length = (int) Math.min(size - offset, config.getMapChunkBytes());
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                chunk.order(ByteOrder.LITTLE_ENDIAN);
+                int consumed = sendLines(chunk, path, key, name, offset);
+                if (consumed == 0) {
+                    if (length < config.getMaxLineBytes()) {
+                        break; // the rest of the line is not written yet
+                    }
+                    deadLetter(chunk, 0, length, path, name, offset, "line of " + length + "+ bytes");
+                    skipping.add(key);
+                    consumed = length;
+                }
+                offset += consumed;
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Sends each complete line of the chunk; returns the bytes up to and including the last newline.
+     */
+    private int sendLines(ByteBuffer chunk, Path path, String key, String name, long base) {
+        int limit = chunk.limit();
+        int start = 0;
+        if (skipping.contains(key)) {
+            int newline = indexOfNewline(chunk, 0, limit);
+            if (newline < 0) {
+                return limit;
+            }
+            skipping.remove(key);
+            start = newline + 1;
+        }
+        int newline;
+        while ((newline = indexOfNewline(chunk, start, limit)) >= 0) {
+            int end = newline > start && chunk.get(newline - 1) == '\r' ? newline - 1 : newline;
+            if (end - start > config.getMaxLineBytes()) {
+                deadLetter(chunk, start, end, path, name, base + start, "line of " + (end - start) + " bytes");
+            } else if (end > start) {
+                byte[] value = new byte[end - start];
+                chunk.get(start, value);
+                ProducerRecord<String, byte[]> record = new ProducerRecord<>(topic, source, value);
+                record.headers().add(SOURCE_HEADER, sourceHeader);
+                producer.send(record, (md, e) -> {
+                    if (e != null) sendError.compareAndSet(null, e);
+                });
+                lines.increment();
+                bytes.increment(value.length);
+            }
+            start = newline + 1;
+        }
+        return start;
+    }
+
+    /**
+     * Position of the first '\n' in [from, limit), or -1. Tests eight bytes per step for a zero byte
+     * after xor with newlines; the lowest flagged byte is exact (the buffer is little-endian).
+     */
+    static int indexOfNewline(ByteBuffer buf, int from, int limit) {
+        int i = from;
+        for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+            long word = buf.getLong(i) ^ NEWLINES;
+            long found = (word - LOW_BITS) & ~word & HIGH_BITS;
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        for (; i < limit; i++) {
+            if (buf.get(i) == '\n') return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Flushes the producer and checkpoints the positions once all their lines are acknowledged,
+     * else rewinds to the last checkpoint.
+     */
+    private void commit() throws IOException {
+        producer.flush();
+        if (!deadLetters.flush()) {
+            // over-long lines whose dead letters are not delivered yet; checkpointed once they are
+            return;
+        }
+        Exception error = sendError.getAndSet(null);
+        if (error != null) {
+            log.warn("Lines not delivered to {}, reading again from the last checkpoint: {}", topic, error.getMessage());
+            positions = new HashMap<>(committed);
+            skipping.clear();
+            return;
+        }
+        if (!positions.equals(committed)) {
+            checkpoint.write(positions);
+            committed = new HashMap<>(positions);
+        }
+    }
+
+    private void skipExisting() throws IOException {
+        for (Path path : files()) {
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            String key = fileKey(path, attrs);
+            positions.put(key, new Position(key, path.toString(), attrs.size()));
+        }
+        log.info("First start, skipping the {} files already in {}", positions.size(), config.getDir());
+    }
+
+    /**
+     * Matching files, oldest first, so rotated files are finished before the active one.
+     */
+    private List<Path> files() throws IOException {
+        Path dir = Path.of(config.getDir());
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, config.getGlob())) {
+            stream.forEach(files::add);
+        }
+        Map<Path, Long> modified = new HashMap<>();
+        for (Path f : files) {
+            try {
+                modified.put(f, Files.getLastModifiedTime(f).toMillis());
+            } catch (NoSuchFileException e) {
+                modified.put(f, Long.MAX_VALUE);
+            }
+        }
+        files.sort(Comparator.comparing((Path f) -> modified.get(f)).thenComparing(Path::toString));
+        return files;
+    }
+
+    private void deadLetter(ByteBuffer chunk, int start, int end, Path path, String name, long offset, String reason) {
+        byte[] prefix = new byte[Math.min(end - start, DEAD_LETTER_PREFIX)];
+        chunk.get(start, prefix);
+        deadLetters.send("tail", path.toString(), 0, offset, name, new String(prefix, StandardCharsets.UTF_8),
+                new IllegalArgumentException(reason + " exceeds max-line-bytes"));
+    }
+
+    /**
+     * The configured source, else the name of the tailed directory.
+     */
+    static String sourceOf(TailerConfig config) {
+        if (config.getSource() != null && !config.getSource().isBlank()) {
+            return config.getSource();
+        }
+        Path name = Path.of(config.getDir()).toAbsolutePath().normalize().getFileName();
+        return name != null ? name.toString() : config.getDir();
+    }
+
+    private static String fileKey(Path path, BasicFileAttributes attrs) {
+        Object key = attrs.fileKey();
+        return key != null ? key.toString() : path + "@" + attrs.creationTime().toMillis();
+    }
+}
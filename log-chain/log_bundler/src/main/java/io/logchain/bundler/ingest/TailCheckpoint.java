@@ -0,0 +1,66 @@
+package io.logchain.bundler.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read positions of the tailed files, keyed by file identity (device and inode) rather than name,
+ * so a file keeps its position when the appender renames it on rotation.
+ */
+@Slf4j
+final class TailCheckpoint {
+    record Position(String fileKey, String path, long offset) {
+    }
+
+    record Snapshot(long takenAtMillis, List<Position> files) {
+    }
+
+    private final ObjectMapper mapper;
+    private final Path file;
+
+    TailCheckpoint(ObjectMapper mapper, Path file) throws IOException {
+        this.mapper = mapper;
+        this.file = file;
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+    }
+
+    /**
+     * Atomically replaces the stored positions.
+     */
+    void write(Map<String, Position> positions) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        mapper.writeValue(tmp.toFile(), new Snapshot(System.currentTimeMillis(), new ArrayList<>(positions.values())));
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Positions by file key; empty when there are none or they cannot be read.
+     */
+    Map<String, Position> read() {
+        Map<String, Position> positions = new HashMap<>();
+        if (!Files.exists(file)) {
+            return positions;
+        }
+        try {
+            for (Position p : mapper.readValue(file.toFile(), Snapshot.class).files()) {
+                positions.put(p.fileKey(), p);
+            }
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable tailer checkpoint {}: {}", file, e.getMessage());
+        }
+        return positions;
+    }
+
+    boolean exists() {
+        return Files.exists(file);
+    }
+}
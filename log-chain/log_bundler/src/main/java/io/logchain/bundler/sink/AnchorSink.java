@@ -0,0 +1,16 @@
+package io.logchain.bundler.sink;
+
+import io.logchain.bundler.spool.PendingAnchor;
+
+/**
+ * Destination of anchored records, called by the {@link io.logchain.bundler.spool.SpoolAnchorer}
+ * once a batch root is on the ledger and before the batch leaves the spool.
+ * Implementations may block to push back on the anchorer (and so on the bundler).
+ */
+public interface AnchorSink extends AutoCloseable {
+
+    void publish(PendingAnchor pending, String fabricTxId) throws Exception;
+
+    @Override
+    void close();
+}
@@ -0,0 +1,121 @@
+package io.logchain.bundler.sink;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.RawValue;
+import io.logchain.bundler.config.SinkOutput;
+import io.logchain.bundler.crypto.HashProvider;
+import io.logchain.bundler.spool.PendingAnchor;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shape of an anchored batch as it lands in Elasticsearch, shared by all sinks.
+ *
+ * Every batch gets one manifest (kind=manifest, id=batchId) with the ordered leaves, root,
+ * transaction id and time bounds, and one document per record whose id is its leaf hash, so
+ * verification is two keyed lookups: hash -> (batchId, leaf), then batchId -> manifest.
+ * ENVELOPE records additionally repeat merkleRoot, fabricTxId and anchoredAt; MANIFEST records
+ * carry only batchId and leaf index.
+ */
+final class AnchoredDocuments {
+    static final String MANIFEST_KIND = "manifest";
+    private static final DateTimeFormatter INDEX_DAY = DateTimeFormatter.ofPattern("yyyy.MM.dd").withZone(ZoneOffset.UTC);
+
+    private AnchoredDocuments() {}
+
+    record Document(String index, String id, ObjectNode source) {
+    }
+
+    /**
+     * Manifest first (when there is one), then the records in leaf order.
+     */
+    static List<Document> build(ObjectMapper mapper, PendingAnchor p, String fabricTxId, String anchoredAt,
+                                SinkOutput output, String indexPrefix, String manifestIndex) throws IOException {
+        List<Document> docs = new ArrayList<>(p.records().size() + 1);
+        String index = index(indexPrefix, p);
+        List<String> leaves = leaves(mapper, p);
+        docs.add(new Document(manifestIndex, p.batchId(), manifest(mapper, p, leaves, fabricTxId, anchoredAt)));
+        for (int i = 0; i < p.records().size(); i++) {
+            ObjectNode doc = mapper.createObjectNode();
+            doc.putRawValue("log", new RawValue(p.records().get(i)));
+            doc.put("batchId", p.batchId());
+            doc.put("leaf", i);
+            if (output == SinkOutput.ENVELOPE) {
+                doc.put("merkleRoot", p.merkleRoot());
+                doc.put("fabricTxId", fabricTxId);
+                doc.put("anchoredAt", anchoredAt);
+                doc.put("hashAlg", hashAlg(p));
+                if (p.tenant() != null) doc.put("tenant", p.tenant());
+            }
+            docs.add(new Document(index, leaves.get(i), doc));
+        }
+        return docs;
+    }
+
+    private static ObjectNode manifest(ObjectMapper mapper, PendingAnchor p, List<String> leafHashes,
+                                       String fabricTxId, String anchoredAt) {
+        ObjectNode m = mapper.createObjectNode();
+        m.put("kind", MANIFEST_KIND);
+        m.put("batchId", p.batchId());
+        m.put("stream", p.stream());
+        m.put("merkleRoot", p.merkleRoot());
+        m.put("fabricTxId", fabricTxId);
+        m.put("count", p.count());
+        m.put("startTsMillis", p.startTsMillis());
+        m.put("endTsMillis", p.endTsMillis());
+        m.put("anchoredAt", anchoredAt);
+        m.put("hashAlg", hashAlg(p));
+        if (p.tenant() != null) m.put("tenant", p.tenant());
+        ArrayNode leaves = m.putArray("leaves");
+        leafHashes.forEach(leaves::add);
+        return m;
+    }
+
+    /**
+     * The batch with its leaves set, for consumers that need them (the local index and bloom filters).
+     */
+    static PendingAnchor withLeaves(ObjectMapper mapper, PendingAnchor p) throws IOException {
+        if (p.leaves() != null) {
+            return p;
+        }
+        return new PendingAnchor(p.stream(), p.batchId(), p.merkleRoot(), p.count(), p.startTsMillis(), p.endTsMillis(),
+                p.note(), p.sealedAtMillis(), p.offsets(), p.records(), leaves(mapper, p), p.hashAlg(), p.tenant());
+    }
+
+    /**
+     * Leaves as sealed; batches spooled before leaves were kept fall back to the records' hashes.
+     * A leaf is the record's document id: stable, so a replayed batch overwrites instead of duplicating.
+     */
+    private static List<String> leaves(ObjectMapper mapper, PendingAnchor p) throws IOException {
+        if (p.leaves() != null) {
+            return p.leaves();
+        }
+        HashProvider hashProvider = HashProvider.forAnchor(p.hashAlg());
+        List<String> leaves = new ArrayList<>(p.records().size());
+        for (String record : p.records()) {
+            JsonNode node = mapper.readTree(record);
+            leaves.add(node.has("hash") ? node.get("hash").asText() : hashProvider.hash(record));
+        }
+        return leaves;
+    }
+
+    /** spooled batches from before the algorithm was recorded are SHA-256 */
+    private static String hashAlg(PendingAnchor p) {
+        return HashProvider.forAnchor(p.hashAlg()).name();
+    }
+
+    /**
+     * Daily index by seal time rather than anchor time, so a replay on another day hits the same index.
+     */
+    static String index(String prefix, PendingAnchor p) {
+        return prefix + INDEX_DAY.format(Instant.ofEpochMilli(p.sealedAtMillis()));
+    }
+}
@@ -0,0 +1,168 @@
+package io.logchain.bundler.sink;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.logchain.bundler.config.SinkConfig;
+import io.logchain.bundler.config.SinkOutput;
+import io.logchain.bundler.spool.PendingAnchor;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.xcontent.XContentType;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes anchored records straight into the daily anchor index through the bulk API,
+ * skipping the anchor topic and Logstash.
+ *
+ * {@link #publish} returns only once Elasticsearch acknowledged every document of the batch,
+ * since the anchorer drops the batch from the spool right after: the documents go out in bulk
+ * requests of at most bulkActions / bulkBytes, with at most concurrentRequests in flight, which
+ * also stalls the anchorer and, through the spool limit, the bundler while Elasticsearch is slow.
+ * There is no time-based flush: every publish sends all of its documents before returning.
+ * Items rejected with 429 or 5xx are retried with exponential backoff; any other rejection, or
+ * running out of retries, fails the publish and the batch stays spooled. Document ids are
+ * deterministic, so a replayed batch is idempotent.
+ */
+@Slf4j
+public class ElasticAnchorSink implements AnchorSink {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final RestHighLevelClient client;
+    private final SinkConfig config;
+    private final String indexPrefix;
+    private final String manifestIndex;
+    private final SinkOutput output;
+    // one thread per bulk request in flight
+    private final ExecutorService requests;
+    private final AtomicLong indexed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public ElasticAnchorSink(RestHighLevelClient client, SinkConfig config, String manifestIndex) {
+        this.client = client;
+        this.config = config;
+        this.indexPrefix = config.getIndexPrefix();
+        this.manifestIndex = manifestIndex;
+        this.output = config.getOutput();
+        this.requests = Executors.newFixedThreadPool(Math.max(1, config.getConcurrentRequests()));
+    }
+
+    @Override
+    public void publish(PendingAnchor p, String fabricTxId) throws IOException, InterruptedException {
+        String anchoredAt = Instant.now().toString();
+        List<Future<?>> sent = new ArrayList<>();
+        BulkRequest request = new BulkRequest();
+        for (AnchoredDocuments.Document doc : AnchoredDocuments.build(mapper, p, fabricTxId, anchoredAt,
+                output, indexPrefix, manifestIndex)) {
+            // same fields the Logstash pipeline adds
+            doc.source().put("@timestamp", anchoredAt);
+            doc.source().put("ingested_at", anchoredAt);
+            request.add(new IndexRequest(doc.index())
+                    .id(doc.id())
+                    .source(doc.source().toString(), XContentType.JSON));
+            if (request.numberOfActions() >= config.getBulkActions()
+                    || request.estimatedSizeInBytes() >= config.getBulkBytes()) {
+                sent.add(send(p, request));
+                request = new BulkRequest();
+            }
+        }
+        if (request.numberOfActions() > 0) {
+            sent.add(send(p, request));
+        }
+        await(sent);
+    }
+
+    private Future<?> send(PendingAnchor p, BulkRequest request) {
+        return requests.submit(() -> {
+            bulk(p, request);
+            return null;
+        });
+    }
+
+    /**
+     * Waits for every request of the batch; the first failure fails the publish once all are done,
+     * so no request of this batch is still running when the anchorer retries it.
+     */
+    private static void await(List<Future<?>> sent) throws IOException, InterruptedException {
+        Throwable failure = null;
+        try {
+            for (Future<?> f : sent) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) failure = e.getCause();
+                }
+            }
+        } catch (InterruptedException e) {
+            sent.forEach(f -> f.cancel(true));
+            throw e;
+        }
+        if (failure instanceof IOException io) throw io;
+        if (failure != null) throw new IOException(failure.getMessage(), failure);
+    }
+
+    /**
+     * Sends the request until every item is acknowledged, resending only the retryable failures.
+     */
+    private void bulk(PendingAnchor p, BulkRequest request) throws IOException, InterruptedException {
+        long backoff = Math.max(1, config.getRetryInitialMillis());
+        for (int attempt = 0; ; attempt++) {
+            BulkResponse response = client.bulk(request, RequestOptions.DEFAULT);
+            BulkRequest retry = new BulkRequest();
+            BulkItemResponse permanent = null;
+            for (BulkItemResponse item : response.getItems()) {
+                if (!item.isFailed()) {
+                    indexed.incrementAndGet();
+                } else if (retryable(item.status())) {
+                    retry.add(request.requests().get(item.getItemId()));
+                } else {
+                    failed.incrementAndGet();
+                    if (permanent == null) permanent = item;
+                }
+            }
+            if (permanent != null) {
+                throw new IOException("Batch " + p.batchId() + ": document " + permanent.getId() + " rejected by "
+                        + permanent.getIndex() + ": " + permanent.getFailureMessage());
+            }
+            if (retry.numberOfActions() == 0) {
+                return;
+            }
+            if (attempt >= config.getMaxRetries()) {
+                failed.addAndGet(retry.numberOfActions());
+                throw new IOException("Batch " + p.batchId() + ": " + retry.numberOfActions()
+                        + " documents still rejected after " + attempt + " retries: " + response.buildFailureMessage());
+            }
+            log.debug("Batch {}: retrying {} rejected documents in {} ms", p.batchId(), retry.numberOfActions(), backoff);
+            Thread.sleep(backoff);
+            backoff *= 2;
+            request = retry;
+        }
+    }
+
+    private static boolean retryable(RestStatus status) {
+        return status == RestStatus.TOO_MANY_REQUESTS || status.getStatus() >= 500;
+    }
+
+    @Override
+    public void close() {
+        requests.shutdownNow();
+        try {
+            client.close();
+        } catch (IOException e) {
+            log.warn("Closing Elasticsearch client failed: {}", e.getMessage());
+        }
+        log.info("ElasticAnchorSink closed, {} documents indexed, {} failed", indexed.get(), failed.get());
+    }
+}
@@ -0,0 +1,65 @@
+package io.logchain.bundler.sink;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.logchain.bundler.config.SinkOutput;
+import io.logchain.bundler.spool.PendingAnchor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+/**
+ * Local stand-in for {@link ElasticAnchorSink}: appends the same bulk requests (action line +
+ * document line, same index and ids) to an NDJSON file, which can be inspected or replayed with
+ * {@code curl -H 'Content-Type: application/x-ndjson' --data-binary @file <es>/_bulk}.
+ */
+@Slf4j
+public class FileAnchorSink implements AnchorSink {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final BufferedWriter out;
+    private final String indexPrefix;
+    private final String manifestIndex;
+    private final SinkOutput output;
+
+    public FileAnchorSink(Path file, String indexPrefix, String manifestIndex, SinkOutput output) throws IOException {
+        this.indexPrefix = indexPrefix;
+        this.manifestIndex = manifestIndex;
+        this.output = output;
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        log.info("FileAnchorSink writing bulk requests to {}", file);
+    }
+
+    @Override
+    public synchronized void publish(PendingAnchor p, String fabricTxId) throws IOException {
+        String anchoredAt = Instant.now().toString();
+        for (AnchoredDocuments.Document doc : AnchoredDocuments.build(mapper, p, fabricTxId, anchoredAt,
+                output, indexPrefix, manifestIndex)) {
+            var action = mapper.createObjectNode();
+            action.putObject("index").put("_index", doc.index()).put("_id", doc.id());
+            doc.source().put("@timestamp", anchoredAt);
+            out.write(action.toString());
+            out.newLine();
+            out.write(doc.source().toString());
+            out.newLine();
+        }
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            log.warn("Closing anchor sink file failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package io.logchain.bundler.sink;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.logchain.bundler.config.SinkOutput;
+import io.logchain.bundler.spool.PendingAnchor;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Publishes anchored records to the anchor topic, indexed by Logstash (anchor.conf).
+ * Manifests are recognised there by kind=manifest and keyed by batchId. Each record carries
+ * the index it belongs in (anchor prefix plus seal day, or the manifest index) in the
+ * {@link #INDEX_HEADER} header, as the elastic sink would write it.
+ *
+ * {@link #publish} returns once every record of the batch is acknowledged by the brokers, since
+ * the anchorer drops the batch from the spool right after; a failed send fails the publish and
+ * the batch stays spooled.
+ */
+public class KafkaAnchorSink implements AnchorSink {
+    public static final String INDEX_HEADER = "lc-index";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final KafkaProducer<String, String> producer;
+    private final String topic;
+    private final String indexPrefix;
+    private final String manifestIndex;
+    private final SinkOutput output;
+
+    public KafkaAnchorSink(KafkaProducer<String, String> producer, String topic, String indexPrefix,
+                           String manifestIndex, SinkOutput output) {
+        this.producer = producer;
+        this.topic = topic;
+        this.indexPrefix = indexPrefix;
+        this.manifestIndex = manifestIndex;
+        this.output = output;
+    }
+
+    @Override
+    public void publish(PendingAnchor p, String fabricTxId) throws Exception {
+        String anchoredAt = Instant.now().toString();
+        List<Future<RecordMetadata>> sends = new ArrayList<>(p.records().size() + 1);
+        for (AnchoredDocuments.Document doc : AnchoredDocuments.build(mapper, p, fabricTxId, anchoredAt,
+                output, indexPrefix, manifestIndex)) {
+            var record = new ProducerRecord<String, String>(topic, null, doc.source().toString());
+            record.headers().add(INDEX_HEADER, doc.index().getBytes(StandardCharsets.UTF_8));
+            sends.add(producer.send(record));
+        }
+        // no waiting out linger.ms
+        producer.flush();
+        try {
+            for (Future<RecordMetadata> send : sends) {
+                send.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch " + p.batchId() + " not published to " + topic + ": "
+                    + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        producer.close();
+    }
+}
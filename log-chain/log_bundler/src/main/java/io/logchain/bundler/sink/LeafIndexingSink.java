@@ -0,0 +1,44 @@
+package io.logchain.bundler.sink;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.logchain.bundler.index.LeafBloomFilters;
+import io.logchain.bundler.index.LeafIndex;
+import io.logchain.bundler.spool.PendingAnchor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Records every anchored batch in the local {@link LeafIndex} and {@link LeafBloomFilters} before
+ * handing it to the actual sink. Both are shared between workers and are not closed here.
+ */
+@Slf4j
+public class LeafIndexingSink implements AnchorSink {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final LeafIndex leafIndex;
+    private final LeafBloomFilters bloomFilters;
+    private final AnchorSink delegate;
+
+    public LeafIndexingSink(LeafIndex leafIndex, LeafBloomFilters bloomFilters, AnchorSink delegate) {
+        this.leafIndex = leafIndex;
+        this.bloomFilters = bloomFilters;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void publish(PendingAnchor pending, String fabricTxId) throws Exception {
+        PendingAnchor p = AnchoredDocuments.withLeaves(mapper, pending);
+        try {
+            leafIndex.add(p, fabricTxId);
+        } catch (Exception e) {
+            // the index is a fast path only, Elasticsearch still gets the batch
+            log.error("Could not index batch {} locally: {}", p.batchId(), e.getMessage(), e);
+        }
+        // a leaf missing from the filters would be reported as never anchored, so this one is not optional
+        bloomFilters.add(p);
+        delegate.publish(p, fabricTxId);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
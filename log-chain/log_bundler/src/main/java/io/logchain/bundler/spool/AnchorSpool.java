@@ -0,0 +1,260 @@
+package io.logchain.bundler.spool;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, memory-mapped spool of sealed batches for one stream.
+ *
+ * Records live in fixed-size segment files as [int length][int crc32][payload] and are
+ * made durable (payload first, then length) before {@link #append} returns. A separate
+ * cursor file holds the (segment, position) of the oldest record not yet acknowledged, so
+ * after a restart everything between the cursor and the last intact record is replayed.
+ * A torn record at the tail (bad length or crc) marks the end of the spool.
+ * A batch the ledger will never take is {@link #park parked} as JSON under parked/ and acked.
+ *
+ * One writer (the bundler worker) and one reader (the anchorer) are expected.
+ */
+@Slf4j
+public class AnchorSpool {
+    private static final int HEADER = 8;
+    private static final int ROLL_MARKER = -1;
+    private static final String SUFFIX = ".spool";
+    private static final String PARKED_DIR = "parked";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Path dir;
+    private final int segmentBytes;
+    private final long maxBytes;
+    private final MappedByteBuffer cursor;
+
+    private Segment writeSeg;
+    private int writePos;
+    private Segment readSeg;
+    private int readPos;
+    private PendingAnchor head;
+    private long pendingBytes;
+    private int pendingCount;
+
+    public AnchorSpool(Path dir, int segmentBytes, long maxBytes) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(dir);
+        try (FileChannel ch = FileChannel.open(dir.resolve("cursor"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            cursor = ch.map(FileChannel.MapMode.READ_WRITE, 0, 16);
+        }
+        recover();
+    }
+
+    /**
+     * Durably appends a sealed batch. Blocks while the un-acknowledged backlog exceeds maxBytes.
+     */
+    public synchronized void append(PendingAnchor pending) throws IOException, InterruptedException {
+        byte[] payload = mapper.writeValueAsBytes(pending);
+        int need = HEADER + payload.length;
+        boolean warned = false;
+        while (pendingCount > 0 && pendingBytes + need > maxBytes) {
+            if (!warned) {
+                log.warn("Spool {} is full ({} bytes pending), waiting for the anchorer", dir, pendingBytes);
+                warned = true;
+            }
+            wait(1000);
+        }
+        if (writePos + need > writeSeg.capacity()) {
+            if (writePos + 4 <= writeSeg.capacity()) {
+                writeSeg.buf().putInt(writePos, ROLL_MARKER);
+                writeSeg.buf().force(writePos, 4);
+            }
+            Segment next = createSegment(writeSeg.id() + 1, Math.max(segmentBytes, need));
+            writeSeg = next;
+            writePos = 0;
+        }
+        MappedByteBuffer buf = writeSeg.buf();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        buf.put(writePos + HEADER, payload);
+        buf.putInt(writePos + 4, (int) crc.getValue());
+        buf.force(writePos + 4, need - 4);
+        // the length is the commit marker, so it is written last
+        buf.putInt(writePos, payload.length);
+        buf.force(writePos, 4);
+        writePos += need;
+        pendingBytes += need;
+        pendingCount++;
+        notifyAll();
+    }
+
+    /**
+     * Returns the oldest un-acknowledged batch, waiting up to timeoutMillis for one to arrive.
+     */
+    public synchronized PendingAnchor awaitHead(long timeoutMillis) throws IOException, InterruptedException {
+        if (pendingCount == 0) {
+            wait(timeoutMillis);
+        }
+        if (pendingCount == 0) {
+            return null;
+        }
+        if (head == null) {
+            skipRollover();
+            int len = readSeg.buf().getInt(readPos);
+            byte[] payload = new byte[len];
+            readSeg.buf().get(readPos + HEADER, payload);
+            head = mapper.readValue(payload, PendingAnchor.class);
+        }
+        return head;
+    }
+
+    /**
+     * Marks the head as anchored; it will not be replayed after a restart.
+     */
+    public synchronized void ack() {
+        if (pendingCount == 0) {
+            return;
+        }
+        int len = readSeg.buf().getInt(readPos);
+        readPos += HEADER + len;
+        pendingBytes -= HEADER + len;
+        pendingCount--;
+        head = null;
+        saveCursor();
+        notifyAll();
+    }
+
+    /**
+     * Moves the head to parked/&lt;batchId&gt;.json with the reason, then acks it.
+     *
+     * @return the parked file
+     */
+    public synchronized Path park(String reason) throws IOException, InterruptedException {
+        if (pendingCount == 0) {
+            return null;
+        }
+        PendingAnchor p = awaitHead(1);
+        Path parked = dir.resolve(PARKED_DIR);
+        Files.createDirectories(parked);
+        Path file = parked.resolve(p.batchId().replaceAll("[^A-Za-z0-9._-]", "_") + ".json");
+        ObjectNode doc = mapper.createObjectNode()
+                .put("reason", reason)
+                .put("parkedAt", Instant.now().toString());
+        doc.set("batch", mapper.valueToTree(p));
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, mapper.writeValueAsBytes(doc));
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        ack();
+        return file;
+    }
+
+    public synchronized int pendingCount() {
+        return pendingCount;
+    }
+
+    // -------- segments --------
+    private void recover() throws IOException {
+        long cursorSeg = cursor.getLong(0);
+        int cursorPos = cursor.getInt(8);
+        List<Long> ids;
+        try (Stream<Path> files = Files.list(dir)) {
+            ids = files.map(p -> p.getFileName().toString())
+                    .filter(n -> n.endsWith(SUFFIX))
+                    .map(n -> Long.parseLong(n.substring(0, n.length() - SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+        for (long id : ids) {
+            if (id < cursorSeg) Files.deleteIfExists(segmentPath(id));
+        }
+        readSeg = Files.exists(segmentPath(cursorSeg)) ? openSegment(cursorSeg) : createSegment(cursorSeg, segmentBytes);
+        readPos = cursorPos;
+
+        // walk forward from the cursor to find the tail and count what is still pending
+        Segment seg = readSeg;
+        int pos = readPos;
+        while (true) {
+            int len = pos + HEADER <= seg.capacity() ? seg.buf().getInt(pos) : ROLL_MARKER;
+            if (len == ROLL_MARKER && Files.exists(segmentPath(seg.id() + 1))) {
+                seg = openSegment(seg.id() + 1);
+                pos = 0;
+                continue;
+            }
+            if (len <= 0 || !intact(seg, pos, len)) {
+                if (len != 0 && pos + 4 <= seg.capacity()) {
+                    log.warn("Discarding torn spool record in {} at {}", segmentPath(seg.id()), pos);
+                    seg.buf().putInt(pos, 0);
+                    seg.buf().force(pos, 4);
+                }
+                break;
+            }
+            pos += HEADER + len;
+            pendingBytes += HEADER + len;
+            pendingCount++;
+        }
+        writeSeg = seg.id() == readSeg.id() ? readSeg : seg;
+        writePos = pos;
+        if (pendingCount > 0) {
+            log.info("Spool {} replaying {} pending batches", dir, pendingCount);
+        }
+    }
+
+    private boolean intact(Segment seg, int pos, int len) {
+        if (pos + HEADER + len > seg.capacity()) return false;
+        byte[] payload = new byte[len];
+        seg.buf().get(pos + HEADER, payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue() == seg.buf().getInt(pos + 4);
+    }
+
+    private void skipRollover() throws IOException {
+        while (readPos + HEADER > readSeg.capacity() || readSeg.buf().getInt(readPos) == ROLL_MARKER) {
+            long old = readSeg.id();
+            readSeg = writeSeg.id() == old + 1 ? writeSeg : openSegment(old + 1);
+            readPos = 0;
+            saveCursor();
+            Files.deleteIfExists(segmentPath(old));
+        }
+    }
+
+    private void saveCursor() {
+        cursor.putLong(0, readSeg.id());
+        cursor.putInt(8, readPos);
+        cursor.force();
+    }
+
+    private Path segmentPath(long id) {
+        return dir.resolve(String.format("%020d%s", id, SUFFIX));
+    }
+
+    private Segment createSegment(long id, int size) throws IOException {
+        try (FileChannel ch = FileChannel.open(segmentPath(id),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new Segment(id, ch.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    private Segment openSegment(long id) throws IOException {
+        try (FileChannel ch = FileChannel.open(segmentPath(id), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new Segment(id, ch.map(FileChannel.MapMode.READ_WRITE, 0, ch.size()));
+        }
+    }
+
+    private record Segment(long id, MappedByteBuffer buf) {
+        int capacity() {
+            return buf.capacity();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package io.logchain.bundler.spool;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A sealed batch waiting to be anchored: everything the anchorer needs to submit the
+ * root and publish the anchored records, without going back to Kafka.
+ *
+ * @param offsets next offset to consume per "topic-partition" once this batch is durable
+ * @param leaves  ordered leaf hashes; null for batches spooled before leaves were kept
+ * @param hashAlg algorithm of the leaves and tree (HashProvider name); null means SHA-256
+ * @param tenant  TenantKey id of a TENANT batch; null when the batch mixes tenants
+ */
+public record PendingAnchor(
+        String stream,
+        String batchId,
+        String merkleRoot,
+        int count,
+        long startTsMillis,
+        long endTsMillis,
+        String note,
+        long sealedAtMillis,
+        Map<String, Long> offsets,
+        List<String> records,
+        List<String> leaves,
+        String hashAlg,
+        String tenant
+) {
+}
@@ -0,0 +1,298 @@
+package io.logchain.bundler.spool;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.logchain.bundler.config.BundlerConfig;
+import io.logchain.bundler.crypto.HashProvider;
+import io.logchain.bundler.sink.AnchorSink;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.hyperledger.fabric.client.Contract;
+import org.hyperledger.fabric.client.GatewayException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Drains an {@link AnchorSpool} in order: submits each batch root to Fabric, hands the
+ * anchored records to the {@link AnchorSink}, then acknowledges the batch. Transient failures (MVCC conflicts,
+ * CHAIN_CONFLICT, peers unavailable, anything not known to be permanent) back off exponentially and the
+ * batch simply stays at the head of the spool, so the bundler keeps consuming meanwhile. A batch the
+ * contract rejects for good (validation error, method missing on the deployed chaincode) would block
+ * the stream forever, so it is parked (see {@link AnchorSpool#park}), counted in
+ * logchain.anchor.parked and acked.
+ */
+@Slf4j
+public class SpoolAnchorer implements Runnable {
+    // chaincode errors that no retry can fix, see AnchorContract
+    private static final List<String> PERMANENT_ERRORS = List.of(
+            "must be > 0", "endTs < startTs", "must be non-empty", "BAD_ENCODING",
+            "Serialization error", "Undefined contract method");
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AnchorSpool spool;
+    private final Contract contract;
+    private final AnchorSink sink;
+    private final BundlerConfig bundlerConfig;
+    private final String stream;
+
+    private final Histogram anchorLatencyHistogram =
+        new Histogram(1, 3_600_000, 3);
+    // also told every anchor latency, e.g. to adapt the batch size
+    private final LongConsumer anchorLatencyListener;
+    // told every batch once it is committed and published
+    private final Consumer<PendingAnchor> anchoredListener;
+    // told every batch that is parked instead
+    private final Consumer<PendingAnchor> parkedListener;
+    private final Counter parked;
+    // root of the last anchor in this stream, "" before the first one
+    private String prevRoot;
+    private volatile boolean running = true;
+
+    public SpoolAnchorer(AnchorSpool spool, Contract contract, AnchorSink sink,
+                         BundlerConfig bundlerConfig, String stream) {
+        this(spool, contract, sink, bundlerConfig, stream, latency -> {});
+    }
+
+    public SpoolAnchorer(AnchorSpool spool, Contract contract, AnchorSink sink,
+                         BundlerConfig bundlerConfig, String stream, LongConsumer anchorLatencyListener) {
+        this(spool, contract, sink, bundlerConfig, stream, anchorLatencyListener, pending -> {}, pending -> {},
+                Metrics.globalRegistry);
+    }
+
+    public SpoolAnchorer(AnchorSpool spool, Contract contract, AnchorSink sink, BundlerConfig bundlerConfig,
+                         String stream, LongConsumer anchorLatencyListener, Consumer<PendingAnchor> anchoredListener,
+                         Consumer<PendingAnchor> parkedListener, MeterRegistry registry) {
+        this.parked = Counter.builder("logchain.anchor.parked")
+                .description("batches the ledger rejected for good, parked in the spool")
+                .tag("stream", stream)
+                .register(registry);
+        this.anchorLatencyListener = anchorLatencyListener;
+        this.anchoredListener = anchoredListener;
+        this.parkedListener = parkedListener;
+        this.spool = spool;
+        this.contract = contract;
+        this.sink = sink;
+        this.bundlerConfig = bundlerConfig;
+        this.stream = stream;
+        this.prevRoot = loadStreamHead();
+    }
+
+    @Override
+    public void run() {
+        log.info("SpoolAnchorer started for stream {}", stream);
+        while (running) {
+            try {
+                PendingAnchor pending = spool.awaitHead(1000);
+                if (pending == null) {
+                    continue;
+                }
+                String fabricTxId;
+                try {
+                    fabricTxId = anchorWithBackoff(pending);
+                } catch (RejectedBatchException e) {
+                    Path file = spool.park(e.getMessage());
+                    parked.increment();
+                    log.error("Batch {} of stream {} rejected by the ledger, parked in {}: {}",
+                            pending.batchId(), stream, file, e.getMessage());
+                    parkedListener.accept(pending);
+                    continue;
+                }
+                if (fabricTxId == null) {
+                    continue; // stopped while retrying, batch stays spooled
+                }
+                if (!publishWithBackoff(pending, fabricTxId)) {
+                    continue; // stopped while retrying, batch stays spooled and is re-anchored idempotently
+                }
+                spool.ack();
+                anchoredListener.accept(pending);
+
+                long anchorLatency = Instant.now().toEpochMilli() - pending.sealedAtMillis();
+                try {
+                    anchorLatencyHistogram.recordValue(anchorLatency);
+                    anchorLatencyListener.accept(anchorLatency);
+                } catch (Exception e) {
+                    log.error("Error recording anchor latency value: {}", e.getMessage());
+                }
+                log.info("FabricTxId {} for batch {}", fabricTxId, pending.batchId());
+                log.info("Anchor Latency p50={} ms, p95={} ms, p99={} ms",
+                    anchorLatencyHistogram.getValueAtPercentile(50.0),
+                    anchorLatencyHistogram.getValueAtPercentile(95.0),
+                    anchorLatencyHistogram.getValueAtPercentile(99.0));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (Exception e) {
+                log.error("SpoolAnchorer error on stream {}", stream, e);
+            }
+        }
+        log.info("SpoolAnchorer stopped for stream {}", stream);
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * Submits "PutChainedAnchor" until it succeeds, backing off from delayMillis up to maxBackoffMillis.
+     * A batch that the ledger already holds with the same root and algorithm (committed before a
+     * crash, or re-sealed from the same offset range) counts as anchored, which makes re-anchoring
+     * idempotent. Batch ids come from offset ranges and repeat after a topic is recreated or its
+     * offsets reset, so an anchor under the same id with another root rejects the batch.
+     * Returns null only when the anchorer is stopped.
+     *
+     * @throws RejectedBatchException when the contract rejects the batch for good
+     */
+    private String anchorWithBackoff(PendingAnchor p) throws InterruptedException, RejectedBatchException {
+        long backoff = Math.max(1, bundlerConfig.getDelayMillis());
+        long maxBackoff = bundlerConfig.getSpool().getMaxBackoffMillis();
+        for (int attempt = 1; running; attempt++) {
+            try {
+                byte[] result = contract.submitTransaction(
+                        isDefaultHash(p) ? "PutChainedAnchor" : "PutChainedAnchorWithHash",
+                        chainedAnchorArgs(p));
+                prevRoot = p.merkleRoot();
+                return new String(result, StandardCharsets.UTF_8);
+            } catch (Exception e) {
+                String reason = errorText(e);
+                if (reason.contains("ALREADY_EXISTS") || reason.contains("Anchor already exists")) {
+                    // re-sealed or replayed batch: the ledger has it, and the head may be past it
+                    String txId = existingTxId(p);
+                    if (txId != null) {
+                        log.info("Batch {} was already anchored, resuming", p.batchId());
+                        prevRoot = loadStreamHead();
+                        return txId;
+                    }
+                }
+                if (isPermanent(reason)) {
+                    throw new RejectedBatchException(reason);
+                }
+                if (attempt >= bundlerConfig.getMaxRetries()) {
+                    log.error("anchorMerkleRoot attempt {} for batch {} failed, keeping it spooled: {}",
+                            attempt, p.batchId(), reason);
+                } else {
+                    log.warn("anchorMerkleRoot attempt {} failed: {}", attempt, reason);
+                }
+                Thread.sleep(backoff);
+                backoff = Math.min(maxBackoff, backoff * 2);
+                // the head may have moved (another writer, or an earlier attempt that did commit)
+                prevRoot = loadStreamHead();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Hands the anchored batch to the sink until it takes it, backing off like {@link #anchorWithBackoff};
+     * retrying here rather than from the spool head saves a Fabric round trip per attempt.
+     * Returns false only when the anchorer is stopped.
+     */
+    private boolean publishWithBackoff(PendingAnchor p, String fabricTxId) throws InterruptedException {
+        long backoff = Math.max(1, bundlerConfig.getDelayMillis());
+        long maxBackoff = bundlerConfig.getSpool().getMaxBackoffMillis();
+        for (int attempt = 1; running; attempt++) {
+            try {
+                sink.publish(p, fabricTxId);
+                return true;
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                log.warn("Publishing batch {} attempt {} failed, keeping it spooled: {}", p.batchId(), attempt, e.getMessage());
+                Thread.sleep(backoff);
+                backoff = Math.min(maxBackoff, backoff * 2);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * SHA-256 batches use PutChainedAnchor, so they still anchor on chaincode without
+     * PutChainedAnchorWithHash; anchors without hashAlg are SHA-256.
+     */
+    private static boolean isDefaultHash(PendingAnchor p) {
+        return p.hashAlg() == null || HashProvider.DEFAULT.name().equals(p.hashAlg());
+    }
+
+    private String[] chainedAnchorArgs(PendingAnchor p) {
+        List<String> args = new ArrayList<>(List.of(
+                p.stream(),
+                p.batchId(),
+                p.merkleRoot(),
+                String.valueOf(p.count()),
+                String.valueOf(p.startTsMillis()),
+                String.valueOf(p.endTsMillis()),
+                String.valueOf(System.currentTimeMillis()),
+                prevRoot,
+                p.note() == null ? "" : p.note()));
+        if (!isDefaultHash(p)) {
+            args.add(p.hashAlg());
+        }
+        return args.toArray(String[]::new);
+    }
+
+    /**
+     * Tx id of the ledger anchor under the batch id when it is this batch, null when it cannot be
+     * read (retried like any other failure).
+     *
+     * @throws RejectedBatchException when the id is taken by another root or algorithm
+     */
+    private String existingTxId(PendingAnchor p) throws RejectedBatchException {
+        JsonNode anchor;
+        try {
+            anchor = mapper.readTree(contract.evaluateTransaction("GetAnchor", p.batchId()));
+        } catch (Exception e) {
+            log.warn("Could not read existing anchor {}: {}", p.batchId(), e.getMessage());
+            return null;
+        }
+        String root = anchor.path("root").asText("");
+        String hashAlg = HashProvider.forAnchor(anchor.path("hashAlg").asText("")).name();
+        if (!root.equals(p.merkleRoot()) || !hashAlg.equals(HashProvider.forAnchor(p.hashAlg()).name())) {
+            throw new RejectedBatchException("batchId " + p.batchId() + " is already anchored with root " + root
+                    + " (" + hashAlg + "), not " + p.merkleRoot());
+        }
+        return anchor.path("txId").asText("");
+    }
+
+    /**
+     * Reads the root of the stream head from the ledger, or "" when the stream has no anchors yet.
+     */
+    private String loadStreamHead() {
+        try {
+            byte[] head = contract.evaluateTransaction("StreamHead", stream);
+            String root = mapper.readTree(head).path("root").asText("");
+            log.info("Stream {} continues from root {}", stream, root);
+            return root;
+        } catch (Exception e) {
+            log.info("Stream {} has no head yet ({}), starting a new chain", stream, e.getMessage());
+            return "";
+        }
+    }
+
+    static boolean isPermanent(String reason) {
+        return PERMANENT_ERRORS.stream().anyMatch(reason::contains);
+    }
+
+    private static final class RejectedBatchException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        RejectedBatchException(String reason) {
+            super(reason);
+        }
+    }
+
+    private static String errorText(Exception e) {
+        StringBuilder sb = new StringBuilder(String.valueOf(e.getMessage()));
+        if (e instanceof GatewayException ge) {
+            ge.getDetails().forEach(d -> sb.append(" | ").append(d.getMessage()));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,37 @@
+package io.logchain.bundler.trace;
+
+/**
+ * Points a traced log passes on its way to the ledger, in order.
+ */
+public enum Stage {
+    /** the log's own timestamp, e.g. when the booking event happened */
+    ORIGIN("origin"),
+    /** written to the raw topic (producer timestamp, unless the producer stamped it) */
+    PUBLISHED("published"),
+    /** normalized and handed to the norm topic or the fused channel */
+    NORMALIZED("normalized"),
+    /** read by a bundler into an open batch */
+    BUNDLED("bundled"),
+    /** its batch was sealed and spooled */
+    SEALED("sealed"),
+    /** its batch's anchor was committed on the ledger */
+    COMMITTED("committed");
+
+    private final String key;
+
+    Stage(String key) {
+        this.key = key;
+    }
+
+    /** name in the trace header and JSON field */
+    public String key() {
+        return key;
+    }
+
+    static Stage ofKey(String key) {
+        for (Stage s : values()) {
+            if (s.key.equals(key)) return s;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,118 @@
+package io.logchain.bundler.trace;
+
+import io.logchain.bundler.config.LogChainConfig;
+import io.logchain.bundler.dto.StageLatencyReport;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-stage latency breakdown of completed traces, in process: one histogram per segment between
+ * consecutive {@link Stage}s plus origin to commit, and the last completed traces.
+ *
+ * Stamps come from different hosts (the producing app, the normalizer, the bundler), so segments
+ * are only as accurate as their clocks; negative segments count as 0.
+ */
+@Service
+public class StageLatencies {
+    private static final long MAX_MILLIS = 3_600_000;
+
+    record Segment(String name, Stage from, Stage to) {
+    }
+
+    static final List<Segment> SEGMENTS = List.of(
+            new Segment("publish", Stage.ORIGIN, Stage.PUBLISHED),
+            new Segment("normalize", Stage.PUBLISHED, Stage.NORMALIZED),
+            new Segment("transfer", Stage.NORMALIZED, Stage.BUNDLED),
+            new Segment("batch", Stage.BUNDLED, Stage.SEALED),
+            new Segment("commit", Stage.SEALED, Stage.COMMITTED),
+            new Segment("total", Stage.ORIGIN, Stage.COMMITTED));
+
+    private final Map<String, Histogram> histograms = new LinkedHashMap<>();
+    private final Deque<TraceContext> recent = new ArrayDeque<>();
+    private final int recentLimit;
+    private final AtomicLong completed = new AtomicLong();
+    private volatile long sinceMillis = System.currentTimeMillis();
+
+    public StageLatencies(LogChainConfig config) {
+        this.recentLimit = config.getTrace().getRecent();
+        SEGMENTS.forEach(s -> histograms.put(s.name(), new ConcurrentHistogram(1, MAX_MILLIS, 3)));
+    }
+
+    /**
+     * Records a trace that reached {@link Stage#COMMITTED}.
+     */
+    public void record(TraceContext trace) {
+        for (Segment s : SEGMENTS) {
+            if (trace.has(s.from()) && trace.has(s.to())) {
+                long millis = trace.at(s.to()) - trace.at(s.from());
+                histograms.get(s.name()).recordValue(Math.min(Math.max(millis, 0), MAX_MILLIS));
+            }
+        }
+        completed.incrementAndGet();
+        synchronized (recent) {
+            recent.addFirst(trace);
+            if (recent.size() > recentLimit) recent.removeLast();
+        }
+    }
+
+    public StageLatencyReport report() {
+        List<StageLatencyReport.SegmentLatency> segments = new ArrayList<>();
+        for (Segment s : SEGMENTS) {
+            Histogram h = histograms.get(s.name()).copy();
+            segments.add(StageLatencyReport.SegmentLatency.builder()
+                    .name(s.name())
+                    .from(s.from().key())
+                    .to(s.to().key())
+                    .count(h.getTotalCount())
+                    .mean(h.getTotalCount() == 0 ? 0 : h.getMean())
+                    .p50(h.getValueAtPercentile(50.0))
+                    .p90(h.getValueAtPercentile(90.0))
+                    .p99(h.getValueAtPercentile(99.0))
+                    .max(h.getMaxValue())
+                    .build());
+        }
+        return StageLatencyReport.builder()
+                .traces(completed.get())
+                .sinceMillis(sinceMillis)
+                .segments(segments)
+                .build();
+    }
+
+    /**
+     * The last completed traces, newest first.
+     */
+    public List<StageLatencyReport.Trace> recent(int limit) {
+        List<StageLatencyReport.Trace> traces = new ArrayList<>();
+        synchronized (recent) {
+            Iterator<TraceContext> it = recent.iterator();
+            while (it.hasNext() && traces.size() < limit) {
+                TraceContext t = it.next();
+                Map<String, Long> segments = new LinkedHashMap<>();
+                for (Segment s : SEGMENTS) {
+                    if (t.has(s.from()) && t.has(s.to())) segments.put(s.name(), t.at(s.to()) - t.at(s.from()));
+                }
+                traces.add(new StageLatencyReport.Trace(t.id(), t.stamps(), segments));
+            }
+        }
+        return traces;
+    }
+
+    public void reset() {
+        histograms.values().forEach(Histogram::reset);
+        synchronized (recent) {
+            recent.clear();
+        }
+        completed.set(0);
+        sinceMillis = System.currentTimeMillis();
+    }
+}
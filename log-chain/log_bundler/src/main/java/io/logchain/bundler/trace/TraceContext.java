@@ -0,0 +1,112 @@
+package io.logchain.bundler.trace;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Trace id and the epoch millis at which a log passed each {@link Stage}. Travels as the
+ * {@link #HEADER} Kafka header, "id;origin=...;published=...", and producers without headers
+ * (e.g. through a file and Logstash) can send it as a "trace" JSON field of the raw log:
+ * {"id": "...", "origin": ...}. Unknown stage names are ignored.
+ *
+ * Not thread-safe; a context is stamped by one stage at a time.
+ */
+public final class TraceContext {
+    public static final String HEADER = "lc-trace";
+    public static final String FIELD = "trace";
+    private static final long UNSET = Long.MIN_VALUE;
+
+    private final String id;
+    private final long[] stamps = new long[Stage.values().length];
+
+    public TraceContext(String id) {
+        this.id = id;
+        Arrays.fill(stamps, UNSET);
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public TraceContext stamp(Stage stage, long millis) {
+        stamps[stage.ordinal()] = millis;
+        return this;
+    }
+
+    /**
+     * Stamps the stage unless the context already has it.
+     */
+    public TraceContext stampIfAbsent(Stage stage, long millis) {
+        if (!has(stage)) stamp(stage, millis);
+        return this;
+    }
+
+    public boolean has(Stage stage) {
+        return stamps[stage.ordinal()] != UNSET;
+    }
+
+    public long at(Stage stage) {
+        return stamps[stage.ordinal()];
+    }
+
+    /** stamped stages in order, by key */
+    public Map<String, Long> stamps() {
+        Map<String, Long> m = new LinkedHashMap<>();
+        for (Stage s : Stage.values()) {
+            if (has(s)) m.put(s.key(), at(s));
+        }
+        return m;
+    }
+
+    public byte[] encode() {
+        StringBuilder sb = new StringBuilder(id);
+        for (Stage s : Stage.values()) {
+            if (has(s)) sb.append(';').append(s.key()).append('=').append(at(s));
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The header value as a context; null when absent or malformed.
+     */
+    public static TraceContext decode(byte[] header) {
+        if (header == null || header.length == 0) {
+            return null;
+        }
+        String[] parts = new String(header, StandardCharsets.UTF_8).split(";");
+        if (parts[0].isBlank()) {
+            return null;
+        }
+        TraceContext trace = new TraceContext(parts[0]);
+        for (int i = 1; i < parts.length; i++) {
+            int eq = parts[i].indexOf('=');
+            Stage stage = eq < 0 ? null : Stage.ofKey(parts[i].substring(0, eq));
+            if (stage == null) continue;
+            try {
+                trace.stamp(stage, Long.parseLong(parts[i].substring(eq + 1)));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return trace;
+    }
+
+    /**
+     * The "trace" field of a raw log as a context; null when absent or without id.
+     */
+    public static TraceContext fromJson(JsonNode field) {
+        if (field == null || !field.hasNonNull("id")) {
+            return null;
+        }
+        TraceContext trace = new TraceContext(field.get("id").asText());
+        for (Stage s : Stage.values()) {
+            JsonNode v = field.get(s.key());
+            if (v != null && v.canConvertToLong()) trace.stamp(s, v.asLong());
+        }
+        return trace;
+    }
+}
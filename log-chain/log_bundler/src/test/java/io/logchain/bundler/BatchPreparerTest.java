@@ -0,0 +1,124 @@
+package io.logchain.bundler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.logchain.bundler.crypto.HashProvider;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchPreparerTest {
+    private static final String CREATE = "SMART-CONTRACT-BOOKING-CREATE";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final BatchPreparer preparer = new BatchPreparer(mapper, List.of(CREATE), freshness -> {}, HashProvider.DEFAULT);
+
+    @Test
+    void eventTypeMatchesExactly() {
+        assertTrue(preparer.matchesFilter(CREATE, "anything"));
+        // an event of another type is not matched by a marker quoted in its payload
+        assertFalse(preparer.matchesFilter("SMART-CONTRACT-PAYMENT-FAIL", "PAYMENT-FAIL: {\"note\":\"" + CREATE + "\"}"));
+    }
+
+    @Test
+    void legacyRecordsMatchOnTheMessage() {
+        assertTrue(preparer.matchesFilter(null, "INFO c.b.BookingService - " + CREATE + ": {\"id\":1}"));
+        assertFalse(preparer.matchesFilter(null, "booking created"));
+        assertFalse(preparer.matchesFilter(null, null));
+    }
+
+    @Test
+    void filtersJsonAndDecodedRecordsByEvent() throws Exception {
+        String quoted = "PAYMENT-FAIL: {\"note\":\"" + CREATE + "\"}";
+        NormalizedLog payment = new NormalizedLog("INFO", "2025-03-01T10:15:30Z", quoted, "audit", null, "h1",
+                "bookingservice", "prod", "SMART-CONTRACT-PAYMENT-FAIL");
+        NormalizedLog booking = new NormalizedLog("INFO", "2025-03-01T10:15:31Z", CREATE + ": {}", "audit", null, "h2",
+                "bookingservice", "prod", CREATE);
+        NormalizedLog legacy = new NormalizedLog("INFO", "2025-03-01T10:15:32Z", CREATE + ": {}", "app", null, "h3",
+                "bookingservice", "prod", null);
+        List<BatchRecord> records = List.of(
+                json(0, payment), json(1, booking), json(2, legacy),
+                decoded(3, payment), decoded(4, booking), decoded(5, legacy));
+
+        BatchPreparer.Prepared prepared = preparer.prepare(records);
+
+        assertEquals(List.of("h2", "h3", "h2", "h3"), prepared.filtered().stream().map(n -> n.get("hash").asText()).toList());
+    }
+
+    @Test
+    void chunkedPreparationMatchesSequential() throws Exception {
+        BatchPreparer sequential = new BatchPreparer(mapper, List.of(CREATE), freshness -> {}, HashProvider.DEFAULT,
+                Integer.MAX_VALUE);
+        for (int count : new int[]{1, 2, 3, 7, 8, 9, 63, 64, 65, 255, 1001}) {
+            List<BatchRecord> records = mixed(count);
+            BatchPreparer.Prepared expected = sequential.prepare(records);
+            // a chunk of 1 splits all the way down; a chunk of count or more is a single chunk on the caller
+            for (int chunk : new int[]{1, 2, 3, 7, 8, 64, count - 1, count, count + 1}) {
+                if (chunk < 1) continue;
+                BatchPreparer chunked = new BatchPreparer(mapper, List.of(CREATE), freshness -> {}, HashProvider.DEFAULT,
+                        chunk);
+                BatchPreparer.Prepared actual = chunked.prepare(records);
+                String where = count + " records in chunks of " + chunk;
+
+                assertEquals(expected.leaves(), actual.leaves(), where);
+                assertEquals(expected.records(), actual.records(), where);
+                assertEquals(expected.startTs(), actual.startTs(), where);
+                assertEquals(expected.endTs(), actual.endTs(), where);
+                assertEquals(expected.filtered(), actual.filtered(), where);
+                assertEquals(expected.rejected().stream().map(BatchPreparer.Rejected::record).toList(),
+                        actual.rejected().stream().map(BatchPreparer.Rejected::record).toList(), where);
+                if (!expected.leaves().isEmpty()) {
+                    assertEquals(HashProvider.DEFAULT.merkleRoot(expected.leaves()),
+                            HashProvider.DEFAULT.merkleRootParallel(actual.leaves()), where);
+                }
+            }
+        }
+    }
+
+    /**
+     * JSON with and without a hash, decoded records, a filter hit every 7th record and a
+     * rejected one every 5th; timestamps go back and forth so the bounds come from inside
+     * the batch, not its ends.
+     */
+    private List<BatchRecord> mixed(int count) throws Exception {
+        List<BatchRecord> records = new ArrayList<>(count);
+        long base = Instant.parse("2025-03-01T10:00:00Z").toEpochMilli();
+        for (int i = 0; i < count; i++) {
+            String timestamp = Instant.ofEpochMilli(base + (i * 7919L % 1000) * 1000).toString();
+            String event = i % 7 == 0 ? CREATE : null;
+            String message = (event != null ? CREATE + ": " : "log ") + "{\"i\":" + i + "}";
+            if (i % 5 == 4) {
+                records.add(new BatchRecord("norm", 0, i, "{\"message\":\"no timestamp " + i + "\"}", null, null,
+                        BatchRecord.UNKNOWN_TIME, null));
+            } else if (i % 3 == 0) {
+                records.add(decoded(i, new NormalizedLog("INFO", timestamp, message, "audit", null, "h" + i,
+                        "bookingservice", "prod", event)));
+            } else if (i % 3 == 1) {
+                records.add(json(i, new NormalizedLog("INFO", timestamp, message, "audit", null, "h" + i,
+                        "bookingservice", "prod", event)));
+            } else {
+                // no hash field, so the leaf is hashed here
+                ObjectNode node = mapper.valueToTree(new NormalizedLog("INFO", timestamp, message, "audit", null, null,
+                        "bookingservice", "prod", event));
+                node.remove("hash");
+                records.add(new BatchRecord("norm", 0, i, mapper.writeValueAsString(node), null, null,
+                        BatchRecord.UNKNOWN_TIME, null));
+            }
+        }
+        return records;
+    }
+
+    private BatchRecord json(long offset, NormalizedLog log) throws Exception {
+        return new BatchRecord("norm", 0, offset, mapper.writeValueAsString(log), null, null, BatchRecord.UNKNOWN_TIME, null);
+    }
+
+    private static BatchRecord decoded(long offset, NormalizedLog log) {
+        return new BatchRecord("norm", 0, offset, null, log, null, BatchRecord.UNKNOWN_TIME, null);
+    }
+}
@@ -0,0 +1,94 @@
+package io.logchain.bundler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.logchain.bundler.codec.NormalizedLogCodec;
+import io.logchain.bundler.config.NormalizerConfig;
+import io.logchain.bundler.config.WireConfig;
+import io.logchain.bundler.trace.Stage;
+import io.logchain.bundler.trace.TraceContext;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class NormJsonBridgeWorkerTest {
+    private static final NormalizedLog LOG = new NormalizedLog("INFO", "2025-03-01T10:15:30Z", "Booking created id=42",
+            "audit", "q83vEjRWeJASNFZ4kBI0Vg==", "n4bQgYhMfWWaL+qgxVrQFaO/TxsrC4Is0V1sFbDwCgg=", "my-app", "prod", null);
+
+    private final NormalizerConfig normalizerConfig = new NormalizerConfig();
+    private final WireConfig wire = new WireConfig();
+    private final NormJsonBridgeWorker bridge;
+
+    NormJsonBridgeWorkerTest() {
+        normalizerConfig.setProduceTopic("norm");
+        bridge = new NormJsonBridgeWorker(normalizerConfig, wire, new MockConsumer<>(OffsetResetStrategy.EARLIEST),
+                new MockProducer<>(true, new StringSerializer(), new StringSerializer()));
+    }
+
+    @Test
+    void republishesAsJsonWithTheHeaders() throws Exception {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(TenantKey.HEADER, utf8("my-app|prod"));
+        headers.add(EventTimeWindows.HEADER, utf8("1740824130000"));
+        byte[] binary = new NormalizedLogCodec(wire.getDefaultApp(), wire.getDefaultEnv()).encode(LOG);
+
+        ProducerRecord<String, String> out = bridge.toJsonRecord(record(binary, headers));
+
+        assertEquals("norm", out.topic());
+        assertEquals("key", out.key());
+        assertEquals(LOG, new ObjectMapper().readValue(out.value(), NormalizedLog.class));
+        assertArrayEquals(utf8("my-app|prod"), out.headers().lastHeader(TenantKey.HEADER).value());
+        assertArrayEquals(utf8("1740824130000"), out.headers().lastHeader(EventTimeWindows.HEADER).value());
+    }
+
+    @Test
+    void traceReachesTheBundlerAcrossTheBridge() throws Exception {
+        TraceContext trace = new TraceContext("7f3a").stamp(Stage.ORIGIN, 1_000).stamp(Stage.PUBLISHED, 1_010)
+                .stamp(Stage.NORMALIZED, 1_025);
+        NormalizedLogCodec codec = new NormalizedLogCodec(wire.getDefaultApp(), wire.getDefaultEnv());
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(TenantKey.HEADER, utf8("my-app|prod"));
+        headers.add(EventTimeWindows.HEADER, utf8("1000"));
+        headers.add(TraceContext.HEADER, trace.encode());
+
+        // normalizer -> binary topic -> bridge -> JSON norm topic -> bundler
+        ProducerRecord<String, String> bridged = bridge.toJsonRecord(record(codec.encode(LOG), headers));
+        byte[] json = utf8(bridged.value());
+        BatchRecord bundled = BundlerWorker.toBatchRecord(new ConsumerRecord<>(bridged.topic(), 0, 3, 0L,
+                TimestampType.CREATE_TIME, 3, json.length, bridged.key(), json, bridged.headers(), Optional.empty()),
+                codec, true);
+
+        assertEquals(trace.id(), bundled.trace().id());
+        assertEquals(trace.stamps(), bundled.trace().stamps());
+        assertEquals("my-app|prod", bundled.tenant());
+        assertEquals(1000, bundled.eventTimeMillis());
+        assertNull(BundlerWorker.toBatchRecord(record(json, headers), codec, false).trace());
+    }
+
+    @Test
+    void passesJsonThrough() throws Exception {
+        byte[] json = new ObjectMapper().writeValueAsBytes(LOG);
+        assertEquals(new String(json, StandardCharsets.UTF_8), bridge.toJsonRecord(record(json, new RecordHeaders())).value());
+    }
+
+    static ConsumerRecord<String, byte[]> record(byte[] value, RecordHeaders headers) {
+        return new ConsumerRecord<>("norm.bin", 0, 7, 0L, TimestampType.CREATE_TIME, 3, value.length, "key", value,
+                headers, Optional.empty());
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
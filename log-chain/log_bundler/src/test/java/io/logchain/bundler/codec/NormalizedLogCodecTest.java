@@ -0,0 +1,104 @@
+package io.logchain.bundler.codec;
+
+import io.logchain.bundler.NormalizedLog;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NormalizedLogCodecTest {
+    private static final String SALT = "q83vEjRWeJASNFZ4kBI0Vg==";
+    private static final String HASH = "n4bQgYhMfWWaL+qgxVrQFaO/TxsrC4Is0V1sFbDwCgg=";
+
+    private final NormalizedLogCodec codec = new NormalizedLogCodec("my-app", "prod");
+
+    @Test
+    void roundTripsATypicalLog() {
+        NormalizedLog log = new NormalizedLog("INFO", "2025-03-01T10:15:30.123456789Z", "Booking created id=42",
+                "audit", SALT, HASH, "my-app", "prod", null);
+
+        byte[] bytes = codec.encode(log);
+
+        assertTrue(NormalizedLogCodec.isBinary(bytes));
+        assertEquals(log, codec.decode(bytes));
+    }
+
+    @Test
+    void roundTripsExplicitAppAndEnv() {
+        NormalizedLog log = new NormalizedLog("ERROR", "2025-03-01T10:15:30Z", "boom", "svc", SALT, HASH,
+                "bookingservice", "staging", null);
+        assertEquals(log, codec.decode(codec.encode(log)));
+    }
+
+    @Test
+    void keepsNonCanonicalValuesAsText() {
+        // none of these survive the compact form unchanged, so they travel as strings
+        NormalizedLog log = new NormalizedLog("NOTICE", "2025-03-01 10:15:30", "m", "s", "not base64!", "abc",
+                "my-app", "prod", null);
+        assertEquals(log, codec.decode(codec.encode(log)));
+
+        NormalizedLog unpadded = new NormalizedLog("WARN", "2025-03-01T10:15:30.100Z", "m", "s",
+                SALT.replace("==", ""), HASH, "my-app", "prod", null);
+        assertEquals(unpadded, codec.decode(codec.encode(unpadded)));
+    }
+
+    @Test
+    void roundTripsTheEvent() {
+        NormalizedLog plain = new NormalizedLog("INFO", "2025-03-01T10:15:30Z", "SMART-CONTRACT-BOOKING-CREATE: {}",
+                "audit", SALT, HASH, "my-app", "prod", null);
+        NormalizedLog audit = new NormalizedLog("INFO", "2025-03-01T10:15:30Z", "SMART-CONTRACT-BOOKING-CREATE: {}",
+                "audit", SALT, HASH, "my-app", "prod", "SMART-CONTRACT-BOOKING-CREATE");
+
+        byte[] bytes = codec.encode(audit);
+
+        assertEquals(audit, codec.decode(bytes));
+        assertEquals(plain, codec.decode(codec.encode(plain)));
+        // a flag plus a trailing field, so readers from before the event flag still decode everything else
+        byte[] without = codec.encode(plain);
+        assertEquals(without[2] | 1 << 5, bytes[2]);
+        assertArrayEquals(Arrays.copyOfRange(without, 3, without.length), Arrays.copyOfRange(bytes, 3, without.length));
+    }
+
+    @Test
+    void roundTripsNullsAndUnicode() {
+        NormalizedLog log = new NormalizedLog(null, null, "Đặt phòng ✓ 🚀", null, null, null, null, null, null);
+        assertEquals(log, codec.decode(codec.encode(log)));
+    }
+
+    @Test
+    void roundTripsTimestampsBeforeTheEpoch() {
+        NormalizedLog log = new NormalizedLog("DEBUG", "1969-12-31T23:59:59.500Z", "m", "s", SALT, HASH, "my-app", "prod", null);
+        assertEquals(log, codec.decode(codec.encode(log)));
+    }
+
+    @Test
+    void isSmallerThanTheJson() {
+        NormalizedLog log = new NormalizedLog("INFO", "2025-03-01T10:15:30.123Z", "Booking created id=42",
+                "audit", SALT, HASH, "my-app", "prod", null);
+        String json = "{\"level\":\"INFO\",\"timestamp\":\"2025-03-01T10:15:30.123Z\",\"message\":\"Booking created id=42\","
+                + "\"source\":\"audit\",\"salt\":\"" + SALT + "\",\"hash\":\"" + HASH + "\",\"app\":\"my-app\",\"env\":\"prod\"}";
+        assertTrue(codec.encode(log).length < json.getBytes(StandardCharsets.UTF_8).length / 2);
+    }
+
+    @Test
+    void rejectsJsonUnknownVersionsAndTruncatedInput() {
+        assertFalse(NormalizedLogCodec.isBinary("{\"level\":\"INFO\"}".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(IllegalArgumentException.class, () -> codec.decode("{}".getBytes(StandardCharsets.UTF_8)));
+
+        byte[] bytes = codec.encode(new NormalizedLog("INFO", "2025-03-01T10:15:30Z", "message", "s", SALT, HASH,
+                "my-app", "prod", null));
+        byte[] future = bytes.clone();
+        future[1] = 99;
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(future));
+        for (int len = 4; len < bytes.length; len++) {
+            byte[] cut = Arrays.copyOf(bytes, len);
+            assertThrows(IllegalArgumentException.class, () -> codec.decode(cut), "cut at " + len);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package io.logchain.bundler.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class Blake3Test {
+    // official BLAKE3 test vectors (hash mode, first 32 bytes): input is i % 251 for i in [0, length)
+    private static final Map<Integer, String> VECTORS = new TreeMap<>(Map.ofEntries(
+            Map.entry(0, "af1349b9f5f9a1a6a0404dea36dcc9499bcb25c9adc112b7cc9a93cae41f3262"),
+            Map.entry(1, "2d3adedff11b61f14c886e35afa036736dcd87a74d27b5c1510225d0f592e213"),
+            Map.entry(63, "e9bc37a594daad83be9470df7f7b3798297c3d834ce80ba85d6e207627b7db7b"),
+            Map.entry(64, "4eed7141ea4a5cd4b788606bd23f46e212af9cacebacdc7d1f4c6dc7f2511b98"),
+            Map.entry(65, "de1e5fa0be70df6d2be8fffd0e99ceaa8eb6e8c93a63f2d8d1c30ecb6b263dee"),
+            Map.entry(1023, "10108970eeda3eb932baac1428c7a2163b0e924c9a9e25b35bba72b28f70bd11"),
+            Map.entry(1024, "42214739f095a406f3fc83deb889744ac00df831c10daa55189b5d121c855af7"),
+            Map.entry(1025, "d00278ae47eb27b34faecf67b4fe263f82d5412916c1ffd97c8cb7fb814b8444"),
+            Map.entry(2048, "e776b6028c7cd22a4d0ba182a8bf62205d2ef576467e838ed6f2529b85fba24a"),
+            Map.entry(2049, "5f4d72f40d7a5f82b15ca2b2e44b1de3c2ef86c426c95c1af0b6879522563030"),
+            Map.entry(3072, "b98cb0ff3623be03326b373de6b9095218513e64f1ee2edd2525c7ad1e5cffd2"),
+            Map.entry(3073, "7124b49501012f81cc7f11ca069ec9226cecb8a2c850cfe644e327d22d3e1cd3"),
+            Map.entry(4096, "015094013f57a5277b59d8475c0501042c0b642e531b0a1c8f58d2163229e969"),
+            Map.entry(4097, "9b4052b38f1c5fc8b1f9ff7ac7b27cd242487b3d890d15c96a1c25b8aa0fb995"),
+            Map.entry(8192, "aae792484c8efe4f19e2ca7d371d8c467ffb10748d8a5a1ae579948f718a2a63"),
+            Map.entry(8193, "bab6c09cb8ce8cf459261398d2e7aef35700bf488116ceb94a36d0f5f1b7bc3b"),
+            Map.entry(16384, "f875d6646de28985646f34ee13be9a576fd515f76b5b0a26bb324735041ddde4"),
+            Map.entry(31744, "62b6960e1a44bcc1eb1a611a8d6235b6b4b78f32e7abc4fb4c6cdcce94895c47"),
+            Map.entry(102400, "bc3e3d41a1146b069abffad3c0d44860cf664390afce4d9661f7902e7943e085")));
+
+    @Test
+    void matchesTheReferenceVectors() {
+        VECTORS.forEach((length, expected) ->
+                assertEquals(expected, HexFormat.of().formatHex(Blake3.hash(input(length))), "length " + length));
+    }
+
+    @Test
+    void incrementalUpdatesMatchOneShot() {
+        for (int length : VECTORS.keySet()) {
+            byte[] in = input(length);
+            for (int step : new int[]{1, 7, 64, 1000, 4096}) {
+                Blake3 h = new Blake3();
+                for (int off = 0; off < in.length; off += step) {
+                    h.update(in, off, Math.min(step, in.length - off));
+                }
+                assertArrayEquals(Blake3.hash(in), h.digest(), "length " + length + " in steps of " + step);
+            }
+        }
+    }
+
+    @Test
+    void hashProviderUsesBlake3() {
+        byte[] in = input(1025);
+        assertArrayEquals(Blake3.hash(in), HashProvider.of("BLAKE3").digest(in));
+        assertEquals("BLAKE3", HashProvider.of("BLAKE3").name());
+    }
+
+    private static byte[] input(int length) {
+        byte[] in = new byte[length];
+        for (int i = 0; i < length; i++) in[i] = (byte) (i % 251);
+        return in;
+    }
+}
@@ -0,0 +1,60 @@
+package io.logchain.bundler.dlq;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeadLetterQueueTest {
+    private final MockProducer<String, String> producer =
+            new MockProducer<>(false, new StringSerializer(), new StringSerializer());
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final DeadLetterQueue dlq = new DeadLetterQueue(producer, "dlq", registry);
+
+    @Test
+    void flushWaitsForDelivery() throws Exception {
+        dlq.send("normalize", "raw", 3, 17, "k", "not json", new IllegalArgumentException("bad"));
+
+        assertTrue(dlq.flush());
+        List<ProducerRecord<String, String>> sent = producer.history();
+        assertEquals(1, sent.size());
+        JsonNode letter = new ObjectMapper().readTree(sent.get(0).value());
+        assertEquals("normalize", letter.get("stage").asText());
+        assertEquals(17, letter.get("offset").asLong());
+        assertEquals("not json", letter.get("value").asText());
+        assertEquals(1.0, registry.counter("logchain.deadletter.records", "stage", "normalize",
+                "error", "IllegalArgumentException").count());
+    }
+
+    @Test
+    void failedLetterHoldsCommitsBackUntilResent() {
+        dlq.send("decode", "norm", 0, 5, null, "AAE=", new IllegalStateException("truncated"));
+        producer.errorNext(new TimeoutException("broker down"));
+
+        assertFalse(dlq.flush());
+        // sent again by the failed flush; delivered by the next one
+        assertEquals(2, producer.history().size());
+        assertTrue(dlq.flush());
+        assertTrue(dlq.flush());
+        assertEquals(2, producer.history().size());
+    }
+
+    @Test
+    void withoutAProducerOnlyCounts() {
+        DeadLetterQueue counting = new DeadLetterQueue(registry);
+        counting.send("prepare", "raw", 0, 1, null, "{}", new IllegalArgumentException());
+        assertTrue(counting.flush());
+        assertEquals(1.0, registry.counter("logchain.deadletter.records", "stage", "prepare",
+                "error", "IllegalArgumentException").count());
+    }
+}
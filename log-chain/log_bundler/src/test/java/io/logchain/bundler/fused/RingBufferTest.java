@@ -0,0 +1,134 @@
+package io.logchain.bundler.fused;
+
+import io.logchain.bundler.BatchRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RingBufferTest {
+
+    @Test
+    void capacityRoundsUpToAPowerOfTwo() {
+        assertEquals(8, new RingBuffer<>(5).capacity());
+        assertEquals(8, new RingBuffer<>(8).capacity());
+        assertEquals(16, new RingBuffer<>(9).capacity());
+    }
+
+    @Test
+    void fullRingRejectsUntilPolled() {
+        RingBuffer<Integer> ring = new RingBuffer<>(4);
+        for (int i = 0; i < 4; i++) assertTrue(ring.offer(i));
+        assertFalse(ring.offer(4));
+        assertEquals(4, ring.size());
+
+        assertEquals(0, ring.poll());
+        assertTrue(ring.offer(4));
+        List<Integer> out = new ArrayList<>();
+        assertEquals(4, ring.drainTo(out, 10));
+        assertEquals(List.of(1, 2, 3, 4), out);
+        assertNull(ring.poll());
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    void staysInOrderOverManyLaps() {
+        RingBuffer<Integer> ring = new RingBuffer<>(8);
+        int produced = 0;
+        int next = 0;
+        while (next < 10_000) {
+            // fill up, then empty: every slot is reused over a thousand laps
+            while (produced < 10_000 && ring.offer(produced)) produced++;
+            Integer item;
+            while ((item = ring.poll()) != null) assertEquals(next++, item);
+        }
+    }
+
+    @Test
+    void concurrentProducersLoseAndDuplicateNothing() throws Exception {
+        int producers = 4;
+        int perProducer = 100_000;
+        RingBuffer<long[]> ring = new RingBuffer<>(1024);
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        try {
+            for (int p = 0; p < producers; p++) {
+                long id = p;
+                pool.submit(() -> {
+                    for (long seq = 0; seq < perProducer; seq++) {
+                        long[] item = {id, seq};
+                        while (!ring.offer(item)) Thread.onSpinWait();
+                    }
+                });
+            }
+            // per producer the items arrive in order, so the next expected seq is all that is tracked
+            long[] expected = new long[producers];
+            List<long[]> batch = new ArrayList<>();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            long received = 0;
+            while (received < (long) producers * perProducer && System.nanoTime() < deadline) {
+                batch.clear();
+                received += ring.drainTo(batch, 256);
+                for (long[] item : batch) {
+                    assertEquals(expected[(int) item[0]]++, item[1]);
+                }
+            }
+            long[] all = new long[producers];
+            Arrays.fill(all, perProducer);
+            assertArrayEquals(all, expected);
+            assertNull(ring.poll());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void fusedChannelPublishWaitsForRoom() throws Exception {
+        FusedChannel channel = new FusedChannel(4, 10);
+        for (int i = 0; i < 4; i++) channel.publish(record(i));
+
+        CompletableFuture<Void> fifth = CompletableFuture.runAsync(() -> {
+            try {
+                channel.publish(record(4));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(fifth.isDone());
+
+        List<BatchRecord> out = new ArrayList<>();
+        channel.drain(out);
+        fifth.get(5, TimeUnit.SECONDS);
+        channel.drain(out);
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L), out.stream().map(BatchRecord::offset).toList());
+    }
+
+    @Test
+    void sealedPositionsOnlyForAssignedPartitions() {
+        FusedChannel channel = new FusedChannel(2, 10);
+        TopicPartition p0 = new TopicPartition("raw", 0);
+        TopicPartition p1 = new TopicPartition("raw", 1);
+        channel.markSealed(Map.of(p0, new OffsetAndMetadata(10), p1, new OffsetAndMetadata(20)));
+        channel.markSealed(Map.of(p0, new OffsetAndMetadata(15)));
+
+        assertEquals(Map.of(p0, new OffsetAndMetadata(15)), channel.sealedPositions(List.of(p0, new TopicPartition("raw", 2))));
+    }
+
+    private static BatchRecord record(long offset) {
+        return new BatchRecord("raw", 0, offset, "{}", null, null, BatchRecord.UNKNOWN_TIME, null);
+    }
+}
@@ -0,0 +1,91 @@
+package io.logchain.bundler.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BatchLogTest {
+    private static final int SEGMENT = 64;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recoversRecordsAcrossSegmentsAfterReopen() throws Exception {
+        BatchLog log = opened();
+        // 8 + 30 bytes each: one record per 64-byte segment
+        List<Long> offsets = new ArrayList<>();
+        for (int i = 0; i < 3; i++) offsets.add(log.append(payload(i, 30)));
+        assertEquals(List.of(0L, 64L, 128L), offsets);
+
+        BatchLog reopened = new BatchLog(dir, SEGMENT);
+        List<String> seen = new ArrayList<>();
+        reopened.recover(0, (offset, payload) -> seen.add(offset + ":" + text(payload)));
+        assertEquals(List.of("0:" + text(payload(0, 30)), "64:" + text(payload(1, 30)), "128:" + text(payload(2, 30))), seen);
+        assertEquals(128 + 8 + 30, reopened.end());
+        assertEquals(text(payload(1, 30)), text(reopened.read(64)));
+    }
+
+    @Test
+    void tornTailIsClearedAndOverwritten() throws Exception {
+        BatchLog log = opened();
+        log.append(payload(0, 10));
+        long second = log.append(payload(1, 10));
+        // crash before the crc and payload of the second record reached the disk
+        try (FileChannel ch = FileChannel.open(dir.resolve("000000.seg"), StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.allocate(4), second + 4);
+        }
+
+        BatchLog reopened = new BatchLog(dir, SEGMENT);
+        List<Long> seen = new ArrayList<>();
+        reopened.recover(0, (offset, payload) -> seen.add(offset));
+        assertEquals(List.of(0L), seen);
+        assertEquals(second, reopened.end());
+        assertNull(reopened.read(second));
+        assertEquals(second, reopened.append(payload(2, 12)));
+        assertEquals(text(payload(2, 12)), text(reopened.read(second)));
+    }
+
+    @Test
+    void readOutsideTheRecoveredLogIsNull() throws Exception {
+        BatchLog log = opened();
+        long first = log.append(payload(0, 10));
+        assertNull(log.read(-1));
+        assertNull(log.read(log.end()));
+        assertNull(log.read(10 * SEGMENT));
+        // inside the log but not at a record start: the "length" read there runs past the end
+        assertNull(log.read(first + 1));
+    }
+
+    private BatchLog opened() throws Exception {
+        BatchLog log = new BatchLog(dir, SEGMENT);
+        log.recover(0, (offset, payload) -> { });
+        return log;
+    }
+
+    private static byte[] payload(int i, int length) {
+        byte[] b = new byte[length];
+        for (int k = 0; k < length; k++) b[k] = (byte) ('a' + (i + k) % 26);
+        return b;
+    }
+
+    private static String text(ByteBuffer payload) {
+        byte[] b = new byte[payload.remaining()];
+        payload.duplicate().get(b);
+        return new String(b, StandardCharsets.US_ASCII);
+    }
+
+    private static String text(byte[] payload) {
+        return new String(payload, StandardCharsets.US_ASCII);
+    }
+}
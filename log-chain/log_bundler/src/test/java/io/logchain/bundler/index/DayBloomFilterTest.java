@@ -0,0 +1,42 @@
+package io.logchain.bundler.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DayBloomFilterTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void sealedFilterIsMarkedAnchoredInPlace() throws Exception {
+        Path path = dir.resolve("2025-03-01.bloom");
+        DayBloomFilter f = DayBloomFilter.create(path, 20_148, 1 << 16, 7);
+        f.put(0x1234L, 0x5678L);
+        f.setFlags(DayBloomFilter.SEALED, DayBloomFilter.DIRTY);
+        f.close();
+
+        DayBloomFilter sealed = DayBloomFilter.open(path);
+        assertThrows(IllegalStateException.class, () -> sealed.setFlags(DayBloomFilter.DIRTY, 0));
+        byte[] digest = sealed.digest();
+        sealed.setFlagOnDisk(DayBloomFilter.ANCHORED);
+
+        assertTrue(sealed.hasFlag(DayBloomFilter.ANCHORED));
+        assertTrue(sealed.hasFlag(DayBloomFilter.SEALED));
+        assertTrue(sealed.mightContain(0x1234L, 0x5678L));
+
+        DayBloomFilter reopened = DayBloomFilter.open(path);
+        assertTrue(reopened.hasFlag(DayBloomFilter.ANCHORED));
+        assertFalse(reopened.hasFlag(DayBloomFilter.DIRTY));
+        assertEquals(1, reopened.count());
+        // the flags are not part of what was anchored
+        assertArrayEquals(digest, reopened.digest());
+    }
+}
@@ -0,0 +1,140 @@
+package io.logchain.bundler.index;
+
+import io.logchain.bundler.config.IndexConfig;
+import io.logchain.bundler.spool.PendingAnchor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LeafIndexTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void findsLeavesAgainAfterRestart() throws Exception {
+        LeafIndex index = new LeafIndex(config(64));
+        index.add(batch("b1", 3), "tx1");
+        index.add(batch("b2", 2), "tx2");
+        index.close();
+
+        LeafIndex reopened = new LeafIndex(config(64));
+        assertEquals(5, reopened.size());
+        LeafEntry e = reopened.find(leaf("b2", 1)).orElseThrow();
+        assertEquals("b2", e.batchId());
+        assertEquals(1, e.leafIndex());
+        assertEquals("root-b2", e.root());
+        assertEquals("tx2", e.fabricTxId());
+        assertEquals(List.of(leaf("b2", 0), leaf("b2", 1)), e.leaves());
+    }
+
+    @Test
+    void replaysBatchesAddedAfterTheLastCheckpoint() throws Exception {
+        LeafIndex index = new LeafIndex(config(1000));
+        index.add(batch("b1", 4), "tx1");
+        // no close: the table header still says nothing was indexed
+
+        LeafIndex reopened = new LeafIndex(config(1000));
+        assertEquals(4, reopened.size());
+        assertEquals("b1", reopened.find(leaf("b1", 3)).orElseThrow().batchId());
+    }
+
+    @Test
+    void tornBatchIsAMissNotAnError() throws Exception {
+        LeafIndex index = new LeafIndex(config(1000));
+        index.add(batch("b1", 2), "tx1");
+        index.add(batch("b2", 2), "tx2");
+        // crash: b2's slots reached the table file, its record did not reach the log
+        long b2 = offsets().get(1);
+        try (FileChannel ch = FileChannel.open(dir.resolve("g0").resolve("000000.seg"), StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.allocate(4), b2 + 4);
+        }
+
+        LeafIndex reopened = new LeafIndex(config(1000));
+        assertTrue(reopened.find(leaf("b2", 0)).isEmpty());
+        assertEquals(2, reopened.size());
+        assertEquals("b1", reopened.find(leaf("b1", 1)).orElseThrow().batchId());
+
+        // the next batch takes b2's place in the log
+        reopened.add(batch("b3", 5), "tx3");
+        assertTrue(reopened.find(leaf("b2", 1)).isEmpty());
+        assertEquals("b3", reopened.find(leaf("b3", 4)).orElseThrow().batchId());
+    }
+
+    @Test
+    void tableGrowsAndKeepsEveryEntry() throws Exception {
+        LeafIndex index = new LeafIndex(config(64));
+        // 1024 slots hold 614 entries before the table doubles
+        for (int b = 0; b < 10; b++) index.add(batch("b" + b, 100), "tx" + b);
+        assertEquals(1000, index.size());
+        index.close();
+
+        LeafIndex reopened = new LeafIndex(config(64));
+        assertTrue(SlotTable.open(dir.resolve("g0").resolve("table.idx")).capacity() >= 2048);
+        for (int b = 0; b < 10; b++) {
+            for (int i = 0; i < 100; i += 33) {
+                LeafEntry e = reopened.find(leaf("b" + b, i)).orElseThrow();
+                assertEquals("b" + b, e.batchId());
+                assertEquals(i, e.leafIndex());
+            }
+        }
+    }
+
+    @Test
+    void missesUnknownAndMalformedLeaves() throws Exception {
+        LeafIndex index = new LeafIndex(config(64));
+        index.add(batch("b1", 3), "tx1");
+
+        assertTrue(index.find(leaf("other", 0)).isEmpty());
+        assertTrue(index.find("not base64!").isEmpty());
+        assertTrue(index.find(Base64.getEncoder().encodeToString(new byte[4])).isEmpty());
+        // same first 8 bytes as a stored leaf: the fingerprint hits, the full digest does not
+        byte[] twin = Base64.getDecoder().decode(leaf("b1", 0));
+        twin[31] ^= 1;
+        assertTrue(index.find(Base64.getEncoder().encodeToString(twin)).isEmpty());
+    }
+
+    private IndexConfig config(int checkpointEvery) {
+        IndexConfig config = new IndexConfig();
+        config.setDir(dir.toString());
+        config.setSegmentBytes(64 * 1024);
+        config.setInitialCapacity(1024);
+        config.setCheckpointEvery(checkpointEvery);
+        return config;
+    }
+
+    private List<Long> offsets() throws Exception {
+        BatchLog log = new BatchLog(dir.resolve("g0"), 64 * 1024);
+        List<Long> offsets = new ArrayList<>();
+        log.recover(0, (offset, payload) -> offsets.add(offset));
+        return offsets;
+    }
+
+    private static PendingAnchor batch(String batchId, int count) throws Exception {
+        List<String> leaves = new ArrayList<>();
+        List<String> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            leaves.add(leaf(batchId, i));
+            records.add("{\"m\":" + i + "}");
+        }
+        return new PendingAnchor("s", batchId, "root-" + batchId, count, 1000, 2000, null, 3000,
+                Map.of("t-0", 42L), records, leaves, "SHA-256", null);
+    }
+
+    private static String leaf(String batchId, int i) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest((batchId + "/" + i).getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(digest);
+    }
+}
@@ -0,0 +1,68 @@
+package io.logchain.bundler.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlotTableTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void findsInsertedEntriesAndMissesOthers() throws Exception {
+        SlotTable table = SlotTable.create(dir.resolve("t.idx"), 16, 4096);
+        assertEquals(1024, table.capacity());
+        assertTrue(table.insert(0x11L, 100));
+        assertTrue(table.insert(0x11L, 200));
+        assertFalse(table.insert(0x11L, 100));
+        assertEquals(2, table.size());
+
+        assertEquals(100, table.find(0x11L, loc -> true));
+        // a colliding fingerprint is confirmed against the data
+        assertEquals(200, table.find(0x11L, loc -> loc == 200));
+        assertEquals(-1, table.find(0x11L, loc -> false));
+        assertEquals(-1, table.find(0x13L, loc -> true));
+    }
+
+    @Test
+    void reopensAsOfTheLastCheckpoint() throws Exception {
+        Path path = dir.resolve("t.idx");
+        SlotTable table = SlotTable.create(path, 1024, 4096);
+        table.insert(0x21L, 7);
+        table.checkpoint(64);
+
+        SlotTable reopened = SlotTable.open(path);
+        assertEquals(1, reopened.size());
+        assertEquals(64, reopened.dataEnd());
+        assertEquals(4096, reopened.segmentBytes());
+        assertEquals(7, reopened.find(0x21L, loc -> true));
+        assertNull(SlotTable.open(dir.resolve("missing.idx")));
+    }
+
+    @Test
+    void growsAndCopiesWithoutLaterLocations() throws Exception {
+        SlotTable table = SlotTable.create(dir.resolve("t.idx"), 1024, 4096);
+        long n = 0;
+        while (!table.isFull()) table.insert((++n << 1) | 1, n);
+        table.checkpoint(64);
+
+        SlotTable bigger = table.grow(dir.resolve("g.idx"));
+        assertEquals(2048, bigger.capacity());
+        assertEquals(n, bigger.size());
+        assertEquals(64, bigger.dataEnd());
+        for (long i = 1; i <= n; i++) assertEquals(i, bigger.find((i << 1) | 1, loc -> true));
+
+        assertTrue(table.hasLocationsFrom(n));
+        assertFalse(table.hasLocationsFrom(n + 1));
+        SlotTable kept = table.copy(dir.resolve("c.idx"), table.capacity(), 10);
+        assertEquals(9, kept.size());
+        assertEquals(9, kept.find((9L << 1) | 1, loc -> true));
+        assertEquals(-1, kept.find((10L << 1) | 1, loc -> true));
+    }
+}
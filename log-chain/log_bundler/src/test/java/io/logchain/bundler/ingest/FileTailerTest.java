@@ -0,0 +1,128 @@
+package io.logchain.bundler.ingest;
+
+import io.logchain.bundler.config.TailerConfig;
+import io.logchain.bundler.dlq.DeadLetterQueue;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileTailerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void findsTheFirstNewline() {
+        ByteBuffer buf = buffer("{\"a\":1}\n{\"b\":2}\r\n".getBytes(StandardCharsets.UTF_8), false);
+        assertEquals(7, FileTailer.indexOfNewline(buf, 0, buf.limit()));
+        assertEquals(16, FileTailer.indexOfNewline(buf, 8, buf.limit()));
+        assertEquals(-1, FileTailer.indexOfNewline(buf, 8, 16));
+        assertEquals(-1, FileTailer.indexOfNewline(buf, 17, buf.limit()));
+    }
+
+    @Test
+    void ignoresBytesThatOnlyLookLikeNewlinesToTheWordTest() {
+        // 0x0b right after a newline borrows into a false flag in the same word; 0x8a is a newline with the high bit set
+        byte[] bytes = {'x', (byte) 0x8a, 0x0b, 0x0a, 0x0b, 'y', 0x00, 0x0a, 'z', 0x0b, 0x0a, 0x0b};
+        ByteBuffer buf = buffer(bytes, false);
+        assertEquals(3, FileTailer.indexOfNewline(buf, 0, buf.limit()));
+        assertEquals(7, FileTailer.indexOfNewline(buf, 4, buf.limit()));
+        assertEquals(10, FileTailer.indexOfNewline(buf, 8, buf.limit()));
+        assertEquals(-1, FileTailer.indexOfNewline(buf, 0, 3));
+    }
+
+    @Test
+    void agreesWithAPlainScan() {
+        byte[] alphabet = {'\n', '\r', 0x0b, 0x09, 0x00, (byte) 0x8a, (byte) 0xff, 'a', '{'};
+        Random random = new Random(42);
+        for (int round = 0; round < 2000; round++) {
+            byte[] bytes = new byte[random.nextInt(40)];
+            // sparse newlines, so whole words are often newline-free
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = random.nextInt(6) == 0 ? alphabet[random.nextInt(alphabet.length)] : (byte) ('a' + i % 26);
+            }
+            for (boolean direct : new boolean[]{false, true}) {
+                ByteBuffer buf = buffer(bytes, direct);
+                for (int from = 0; from <= bytes.length; from++) {
+                    for (int limit = from; limit <= bytes.length; limit++) {
+                        assertEquals(plainScan(bytes, from, limit), FileTailer.indexOfNewline(buf, from, limit));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void keysEveryFileByTheSourceAcrossRotation() throws Exception {
+        Path logs = Files.createDirectory(dir.resolve("bookingservice"));
+        // the rotated file is older, so it is finished first
+        Files.writeString(logs.resolve("app-1.log"), "{\"m\":1}\n{\"m\":2}\n");
+        Files.writeString(logs.resolve("app.log"), "{\"m\":3}\n");
+        Files.setLastModifiedTime(logs.resolve("app-1.log"), FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+        TailerConfig config = new TailerConfig();
+        config.setDir(logs.toString());
+        config.setCheckpointFile(dir.resolve("positions.json").toString());
+        config.setPollMillis(10);
+        MockProducer<String, byte[]> producer = new MockProducer<>(true, new StringSerializer(), new ByteArraySerializer());
+        FileTailer tailer = new FileTailer(config, "raw", producer, new DeadLetterQueue(new SimpleMeterRegistry()),
+                new SimpleMeterRegistry());
+
+        Thread thread = new Thread(tailer);
+        thread.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (producer.history().size() < 3 && System.nanoTime() < deadline) Thread.sleep(10);
+        tailer.stop();
+        assertTrue(tailer.awaitStopped(5000));
+
+        List<ProducerRecord<String, byte[]>> sent = producer.history();
+        assertEquals(List.of("{\"m\":1}", "{\"m\":2}", "{\"m\":3}"),
+                sent.stream().map(r -> new String(r.value(), StandardCharsets.UTF_8)).toList());
+        for (ProducerRecord<String, byte[]> record : sent) {
+            assertEquals("bookingservice", record.key());
+            assertEquals("bookingservice",
+                    new String(record.headers().lastHeader(FileTailer.SOURCE_HEADER).value(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void sourceDefaultsToTheDirectoryName() {
+        TailerConfig config = new TailerConfig();
+        config.setDir("/app/log/");
+        assertEquals("log", FileTailer.sourceOf(config));
+        config.setSource(" ");
+        assertEquals("log", FileTailer.sourceOf(config));
+        config.setSource("bookingservice");
+        assertEquals("bookingservice", FileTailer.sourceOf(config));
+    }
+
+    private static int plainScan(byte[] bytes, int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            if (bytes[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    // as the tailer reads: little-endian, so the lowest flagged byte is the first in the file
+    private static ByteBuffer buffer(byte[] bytes, boolean direct) {
+        ByteBuffer buf = direct ? ByteBuffer.allocateDirect(bytes.length) : ByteBuffer.allocate(bytes.length);
+        buf.put(bytes).flip();
+        return buf.order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,176 @@
+package io.logchain.bundler.spool;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AnchorSpoolTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int HEADER = 8;
+    private static final int SEGMENT = 1024 * 1024;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysWhatWasNotAckedAfterReopen() throws Exception {
+        AnchorSpool spool = new AnchorSpool(dir, SEGMENT, Long.MAX_VALUE);
+        for (int i = 1; i <= 3; i++) spool.append(batch("b" + i));
+        assertEquals("b1", spool.awaitHead(0).batchId());
+        spool.ack();
+
+        AnchorSpool reopened = new AnchorSpool(dir, SEGMENT, Long.MAX_VALUE);
+        assertEquals(2, reopened.pendingCount());
+        assertEquals(batch("b2"), reopened.awaitHead(0));
+        reopened.ack();
+        assertEquals(batch("b3"), reopened.awaitHead(0));
+        reopened.ack();
+        assertNull(reopened.awaitHead(10));
+    }
+
+    @Test
+    void tornTailIsDiscardedAndOverwritten() throws Exception {
+        AnchorSpool spool = new AnchorSpool(dir, SEGMENT, Long.MAX_VALUE);
+        for (int i = 1; i <= 4; i++) spool.append(batch("b" + i));
+        spool.awaitHead(0);
+        spool.ack();
+
+        // crash in the middle of writing b4
+        long b4 = 3L * recordBytes("b1");
+        try (FileChannel ch = FileChannel.open(onlySegment(), StandardOpenOption.WRITE)) {
+            ch.truncate(b4 + HEADER + recordBytes("b4") / 2);
+        }
+
+        AnchorSpool reopened = new AnchorSpool(dir, SEGMENT, Long.MAX_VALUE);
+        assertEquals(2, reopened.pendingCount());
+        reopened.append(batch("b5"));
+
+        AnchorSpool again = new AnchorSpool(dir, SEGMENT, Long.MAX_VALUE);
+        assertEquals(3, again.pendingCount());
+        for (String id : List.of("b2", "b3", "b5")) {
+            assertEquals(id, again.awaitHead(0).batchId());
+            again.ack();
+        }
+        assertEquals(0, again.pendingCount());
+    }
+
+    @Test
+    void corruptedRecordEndsTheSpool() throws Exception {
+        AnchorSpool spool = new AnchorSpool(dir, SEGMENT, Long.MAX_VALUE);
+        for (int i = 1; i <= 3; i++) spool.append(batch("b" + i));
+
+        // flip a payload byte of b2: the crc no longer matches
+        long b2 = recordBytes("b1") + HEADER + 5;
+        try (FileChannel ch = FileChannel.open(onlySegment(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer one = ByteBuffer.allocate(1);
+            ch.read(one, b2);
+            one.put(0, (byte) (one.get(0) ^ 0x55)).rewind();
+            ch.write(one, b2);
+        }
+
+        AnchorSpool reopened = new AnchorSpool(dir, SEGMENT, Long.MAX_VALUE);
+        assertEquals(1, reopened.pendingCount());
+        assertEquals("b1", reopened.awaitHead(0).batchId());
+    }
+
+    @Test
+    void cursorSurvivesSegmentRolls() throws Exception {
+        // room for one record per segment
+        int segment = recordBytes("b1") + 16;
+        AnchorSpool spool = new AnchorSpool(dir, segment, Long.MAX_VALUE);
+        for (int i = 1; i <= 3; i++) spool.append(batch("b" + i));
+        assertEquals(3, segments().size());
+        spool.awaitHead(0);
+        spool.ack();
+        assertEquals("b2", spool.awaitHead(0).batchId());
+
+        AnchorSpool reopened = new AnchorSpool(dir, segment, Long.MAX_VALUE);
+        assertEquals(2, reopened.pendingCount());
+        assertEquals("b2", reopened.awaitHead(0).batchId());
+        reopened.ack();
+        assertEquals("b3", reopened.awaitHead(0).batchId());
+        reopened.ack();
+        reopened.append(batch("b4"));
+        assertEquals("b4", reopened.awaitHead(0).batchId());
+        // segments behind the cursor are gone
+        assertEquals(1, segments().size());
+
+        AnchorSpool again = new AnchorSpool(dir, segment, Long.MAX_VALUE);
+        assertEquals(1, again.pendingCount());
+        assertEquals("b4", again.awaitHead(0).batchId());
+    }
+
+    @Test
+    void appendBlocksWhileTheBacklogExceedsMaxBytes() throws Exception {
+        AnchorSpool spool = new AnchorSpool(dir, SEGMENT, recordBytes("b1") + 1);
+        spool.append(batch("b1"));
+
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> {
+            try {
+                spool.append(batch("b2"));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(300);
+        assertFalse(second.isDone());
+
+        spool.awaitHead(0);
+        spool.ack();
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals("b2", spool.awaitHead(0).batchId());
+    }
+
+    @Test
+    void parkedBatchIsKeptAndAcked() throws Exception {
+        AnchorSpool spool = new AnchorSpool(dir, SEGMENT, Long.MAX_VALUE);
+        spool.append(batch("b1"));
+        spool.append(batch("b2"));
+
+        Path parked = spool.park("count must be > 0");
+
+        assertEquals(dir.resolve("parked").resolve("b1.json"), parked);
+        JsonNode doc = MAPPER.readTree(parked.toFile());
+        assertEquals("count must be > 0", doc.get("reason").asText());
+        assertEquals(batch("b1"), MAPPER.treeToValue(doc.get("batch"), PendingAnchor.class));
+        assertEquals("b2", spool.awaitHead(0).batchId());
+        assertEquals(1, new AnchorSpool(dir, SEGMENT, Long.MAX_VALUE).pendingCount());
+    }
+
+    private static PendingAnchor batch(String batchId) {
+        return new PendingAnchor("s", batchId, "root-" + batchId, 2, 1000, 2000, null, 3000,
+                Map.of("t-0", 42L), List.of("{\"m\":1}", "{\"m\":2}"), List.of("l1", "l2"), null, null);
+    }
+
+    private static int recordBytes(String batchId) throws Exception {
+        return HEADER + MAPPER.writeValueAsBytes(batch(batchId)).length;
+    }
+
+    private Path onlySegment() throws Exception {
+        List<Path> segments = segments();
+        assertEquals(1, segments.size());
+        return segments.get(0);
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".spool")).sorted().toList();
+        }
+    }
+}